@@ -0,0 +1,74 @@
+package cgl.iotcloud.benchmarks;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.Channel;
+import cgl.iotcloud.core.transport.ChannelName;
+import cgl.iotcloud.core.transport.Direction;
+import cgl.iotcloud.core.transport.PublishStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hand over of messages from a publishing thread to the producer queue of a channel group and a
+ * thread taking them like a sender does. The channel drops the newest message when the queue is full so
+ * neither side blocks, the poll side returns null when the queue is empty.
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChannelGroupHandoffBenchmark {
+    @Param({"array", "ring"})
+    public String queueType;
+
+    private SinkTransport transport;
+
+    private Channel channel;
+
+    private BlockingQueue<MessageContext> queue;
+
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transport = new SinkTransport(false);
+        transport.configure("bench", Fixtures.transportConfiguration("sink://handoff", queueType));
+        channel = Fixtures.channel("out", Direction.OUT, Fixtures.SENSOR_ID, Fixtures.SENSOR_KEY, "drop-newest");
+        transport.registerChannel(new ChannelName("bench", "out"), channel);
+        channel.open();
+        queue = transport.getProducerQueues().get(0);
+        payload = Fixtures.payload(64);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        transport.stop();
+    }
+
+    @Benchmark
+    @Group("handoff")
+    public PublishStatus publish() {
+        return channel.publish(payload);
+    }
+
+    @Benchmark
+    @Group("handoff")
+    public MessageContext poll() {
+        MessageContext message = queue.poll();
+        if (message != null) {
+            message.release();
+        }
+        return message;
+    }
+}
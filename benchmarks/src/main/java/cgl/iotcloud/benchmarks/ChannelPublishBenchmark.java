@@ -0,0 +1,59 @@
+package cgl.iotcloud.benchmarks;
+
+import cgl.iotcloud.core.transport.Channel;
+import cgl.iotcloud.core.transport.ChannelName;
+import cgl.iotcloud.core.transport.Direction;
+import cgl.iotcloud.core.transport.PublishStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing to an outgoing channel. The sink transport drops the messages on the scheduler threads, so a
+ * publish only pays for the channel and the hand over to the producer queue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChannelPublishBenchmark {
+    @Param({"array", "ring"})
+    public String queueType;
+
+    @Param({"64"})
+    public int payloadSize;
+
+    private SinkTransport transport;
+
+    private Channel channel;
+
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transport = new SinkTransport(true);
+        transport.configure("bench", Fixtures.transportConfiguration("sink://publish", queueType));
+        channel = Fixtures.channel("out", Direction.OUT, Fixtures.SENSOR_ID, Fixtures.SENSOR_KEY, null);
+        transport.registerChannel(new ChannelName("bench", "out"), channel);
+        channel.open();
+        payload = Fixtures.payload(payloadSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        transport.stop();
+    }
+
+    @Benchmark
+    public PublishStatus publish() {
+        return channel.publish(payload);
+    }
+}
@@ -0,0 +1,97 @@
+package cgl.iotcloud.benchmarks;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.Channel;
+import cgl.iotcloud.core.transport.ConsumingWorker;
+import cgl.iotcloud.core.transport.Direction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing of the consumed messages to the channels of a group. Every invocation puts one step worth of
+ * messages for random channels in to the consumer queue and runs a step of the worker. The messages are
+ * created before every invocation because the worker sets the sensor id of the messages routed by key.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConsumingWorkerBenchmark {
+    private static final int MESSAGES = 4096;
+
+    @Param({"1", "100", "10000"})
+    public int channels;
+
+    /**
+     * key routes by the numeric sensor id, id by the string sensor id
+     */
+    @Param({"key", "id"})
+    public String routing;
+
+    private ConsumingWorker worker;
+
+    private BlockingQueue<MessageContext> queue;
+
+    private byte[] payload;
+
+    private int[] targets;
+
+    private MessageContext[] messages;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new ArrayBlockingQueue<MessageContext>(ConsumingWorker.MAX_MESSAGES_PER_STEP);
+        worker = new ConsumingWorker(queue);
+        DiscardingQueue receiver = new DiscardingQueue();
+        for (int i = 0; i < channels; i++) {
+            Channel channel = Fixtures.channel("in", Direction.IN, "sensor-" + i, i + 1, null);
+            channel.setOutQueue(receiver);
+            worker.addChannel(channel);
+        }
+
+        payload = Fixtures.payload(64);
+        Random random = new Random(42);
+        targets = new int[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            targets[i] = random.nextInt(channels);
+        }
+        messages = new MessageContext[ConsumingWorker.MAX_MESSAGES_PER_STEP];
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        boolean key = "key".equals(routing);
+        for (int i = 0; i < messages.length; i++) {
+            int channel = targets[next];
+            if (key) {
+                messages[i] = new MessageContext(channel + 1, payload, null);
+            } else {
+                messages[i] = new MessageContext("sensor-" + channel, payload);
+            }
+            next = (next + 1) & (MESSAGES - 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ConsumingWorker.MAX_MESSAGES_PER_STEP)
+    public long route() {
+        for (MessageContext message : messages) {
+            queue.offer(message);
+        }
+        return worker.step();
+    }
+}
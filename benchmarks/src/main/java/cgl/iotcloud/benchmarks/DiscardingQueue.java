@@ -0,0 +1,28 @@
+package cgl.iotcloud.benchmarks;
+
+import cgl.iotcloud.core.msg.MessageContext;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A receiver queue which accepts every message and releases it straight away, so a benchmark measures the
+ * routing and not the listener
+ */
+class DiscardingQueue extends ArrayBlockingQueue<MessageContext> {
+    private long count;
+
+    DiscardingQueue() {
+        super(1);
+    }
+
+    @Override
+    public boolean offer(MessageContext message) {
+        count++;
+        message.release();
+        return true;
+    }
+
+    long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package cgl.iotcloud.benchmarks;
+
+import cgl.iotcloud.core.Configuration;
+import cgl.iotcloud.core.transport.Channel;
+import cgl.iotcloud.core.transport.Direction;
+import cgl.iotcloud.core.transport.TransportConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration and channels shared by the benchmarks
+ */
+final class Fixtures {
+    static final String SENSOR_ID = "bench-sensor";
+
+    static final long SENSOR_KEY = 1;
+
+    private Fixtures() {
+    }
+
+    /**
+     * The configuration of a transport with a single broker url, without broker probing
+     * @param url the broker url
+     * @param queueType the type of the channel queues, array or ring
+     * @return the configuration for Transport.configure
+     */
+    @SuppressWarnings("unchecked")
+    static Map transportConfiguration(String url, String queueType) {
+        Map queues = new HashMap();
+        queues.put(TransportConstants.QUEUE_TYPE_PROPERTY, queueType);
+
+        Map transportProps = new HashMap();
+        transportProps.put(TransportConstants.PROP_URLS, new ArrayList<String>(Arrays.asList(url)));
+        transportProps.put(TransportConstants.PROBE_INTERVAL_PROPERTY, 0);
+        transportProps.put(TransportConstants.QUEUE_PROPERTY, queues);
+
+        Map props = new HashMap();
+        props.put(Configuration.TRANSPORT_PROPERTIES, transportProps);
+        return props;
+    }
+
+    /**
+     * A channel of a sensor, not registered with a transport yet
+     * @param name name of the channel
+     * @param direction direction
+     * @param sensorId the sensor id
+     * @param sensorKey the numeric sensor id
+     * @param backPressure the back pressure policy name, null for the default
+     * @return the channel
+     */
+    @SuppressWarnings("unchecked")
+    static Channel channel(String name, Direction direction, String sensorId, long sensorKey, String backPressure) {
+        Map conf = new HashMap();
+        conf.put("destination", "bench");
+        if (backPressure != null) {
+            conf.put(TransportConstants.BACK_PRESSURE_PROPERTY, backPressure);
+        }
+        Channel channel = new Channel(name, direction);
+        channel.setSensorID(sensorId);
+        channel.setSensorKey(sensorKey);
+        channel.setGrouped(true);
+        channel.addProperties(conf);
+        return channel;
+    }
+
+    static byte[] payload(int size) {
+        byte[] payload = new byte[size];
+        for (int i = 0; i < size; i++) {
+            payload[i] = (byte) i;
+        }
+        return payload;
+    }
+}
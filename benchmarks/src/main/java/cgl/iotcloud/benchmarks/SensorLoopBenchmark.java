@@ -0,0 +1,135 @@
+package cgl.iotcloud.benchmarks;
+
+import cgl.iotcloud.core.AbstractSensor;
+import cgl.iotcloud.core.Configurator;
+import cgl.iotcloud.core.MessageReceiver;
+import cgl.iotcloud.core.SensorContext;
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.Channel;
+import cgl.iotcloud.core.transport.ChannelName;
+import cgl.iotcloud.core.transport.Direction;
+import cgl.iotcloud.core.transport.local.LocalTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The send and listen loops of a sensor over the in memory local transport. The producer loop takes the
+ * messages from a queue and publishes them, the listener loop gives the received messages to a receiver.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SensorLoopBenchmark {
+    /**
+     * A sensor sending the messages of a queue and listening on a channel of the same sensor
+     */
+    @State(Scope.Benchmark)
+    public static class Loop {
+        @Param({"array", "ring"})
+        public String queueType;
+
+        private LocalTransport transport;
+
+        private BenchSensor sensor;
+
+        BlockingQueue<byte[]> input = new ArrayBlockingQueue<byte[]>(1024);
+
+        BlockingQueue<Object> received = new ArrayBlockingQueue<Object>(1024);
+
+        volatile boolean echo;
+
+        byte[] payload = Fixtures.payload(64);
+
+        /**
+         * For the round trip gives the messages back to the benchmark thread
+         */
+        private final MessageReceiver receiver = new MessageReceiver() {
+            @Override
+            public void onMessage(Object message) {
+                if (echo) {
+                    received.offer(message);
+                }
+            }
+        };
+
+        void setUp(String url, boolean echo) {
+            this.echo = echo;
+            transport = new LocalTransport();
+            transport.configure("bench", Fixtures.transportConfiguration(url, queueType));
+
+            Channel out = Fixtures.channel("out", Direction.OUT, Fixtures.SENSOR_ID, Fixtures.SENSOR_KEY, null);
+            transport.registerChannel(new ChannelName("bench", "out"), out);
+            out.open();
+
+            Channel in = Fixtures.channel("in", Direction.IN, Fixtures.SENSOR_ID, Fixtures.SENSOR_KEY, null);
+            in.setOutQueue(new ArrayBlockingQueue<MessageContext>(1024));
+            transport.registerChannel(new ChannelName("bench", "in"), in);
+            in.open();
+
+            sensor = new BenchSensor();
+            sensor.startSend(out, input);
+            sensor.startListen(in, receiver);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            sensor.stopChannel("out");
+            sensor.stopChannel("in");
+            transport.stop();
+        }
+    }
+
+    public static class Pipeline extends Loop {
+        @Setup(Level.Trial)
+        public void setUp() {
+            setUp("local://pipeline", false);
+        }
+    }
+
+    public static class RoundTrip extends Loop {
+        @Setup(Level.Trial)
+        public void setUp() {
+            setUp("local://roundtrip", true);
+        }
+    }
+
+    /**
+     * Messages handed to the producer loop, the bounded queues make the rate the one of the whole loop
+     */
+    @Benchmark
+    public void pipeline(Pipeline loop) throws InterruptedException {
+        loop.input.put(loop.payload);
+    }
+
+    /**
+     * A message from the producer loop to the receiver of the listener loop and back to the benchmark
+     */
+    @Benchmark
+    public Object roundTrip(RoundTrip loop) throws InterruptedException {
+        loop.input.put(loop.payload);
+        return loop.received.take();
+    }
+
+    private static class BenchSensor extends AbstractSensor {
+        @Override
+        public Configurator getConfigurator(Map conf) {
+            return null;
+        }
+
+        @Override
+        public void open(SensorContext context) {
+        }
+    }
+}
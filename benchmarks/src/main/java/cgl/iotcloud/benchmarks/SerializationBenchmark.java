@@ -0,0 +1,185 @@
+package cgl.iotcloud.benchmarks;
+
+import cgl.iotcloud.core.api.thrift.TBroker;
+import cgl.iotcloud.core.api.thrift.TChannel;
+import cgl.iotcloud.core.api.thrift.TDirection;
+import cgl.iotcloud.core.api.thrift.TSensor;
+import cgl.iotcloud.core.api.thrift.TSensorMessage;
+import cgl.iotcloud.core.api.thrift.TSensorState;
+import cgl.iotcloud.core.api.thrift.TSite;
+import cgl.iotcloud.core.utils.Codec;
+import cgl.iotcloud.core.utils.CodecRegistry;
+import cgl.iotcloud.transport.kafka.JsonCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding with the codecs of the registry. The thrift objects are the kafka message, the
+ * sensor and the site descriptors written to zookeeper, the offsets are the map the kafka consumer commits.
+ * The encode benchmarks report the encoded size of every combination as the encodedSize secondary result of
+ * the throughput mode.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+    @State(Scope.Thread)
+    public static class ThriftObjects {
+        @Param({"java", "thrift-binary", "thrift-compact", "kryo"})
+        public String codec;
+
+        @Param({"message", "sensor", "site"})
+        public String object;
+
+        Codec encoder;
+
+        Object value;
+
+        byte[] encoded;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            encoder = CodecRegistry.getCodec(codec);
+            if ("message".equals(object)) {
+                value = message();
+            } else if ("sensor".equals(object)) {
+                value = sensor();
+            } else {
+                value = site();
+            }
+            encoded = encoder.encode(value);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Offsets {
+        @Param({"java", "kryo", "json"})
+        public String offsetCodec;
+
+        Codec encoder;
+
+        Map<Object, Object> value;
+
+        byte[] encoded;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            CodecRegistry.register(new JsonCodec());
+            encoder = CodecRegistry.getCodec(offsetCodec);
+            value = offsets();
+            encoded = encoder.encode(value);
+        }
+    }
+
+    /**
+     * The size of the last encoded value. JMH adds up the counters of the threads, so the size is only
+     * right when the benchmark runs on one thread.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class EncodedSize {
+        public long encodedSize;
+    }
+
+    @Benchmark
+    public byte[] encode(ThriftObjects state, EncodedSize size) throws IOException {
+        byte[] encoded = state.encoder.encode(state.value);
+        size.encodedSize = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public Object decode(ThriftObjects state) throws IOException {
+        return state.encoder.decode(state.encoded, 0, state.encoded.length, state.value.getClass());
+    }
+
+    @Benchmark
+    public byte[] encodeOffsets(Offsets state, EncodedSize size) throws IOException {
+        byte[] encoded = state.encoder.encode(state.value);
+        size.encodedSize = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public Map decodeOffsets(Offsets state) throws IOException {
+        return state.encoder.decode(state.encoded, 0, state.encoded.length, Map.class);
+    }
+
+    private static Map<String, String> properties() {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("destination", "bench");
+        properties.put("contentType", "application/octet-stream");
+        return properties;
+    }
+
+    static TSensorMessage message() {
+        TSensorMessage message = new TSensorMessage();
+        message.setSite("site-1");
+        message.setSensorKey(42);
+        message.setBody(ByteBuffer.wrap(Fixtures.payload(64)));
+        message.setProperties(properties());
+        return message;
+    }
+
+    static TSensor sensor() {
+        List<TChannel> channels = new ArrayList<TChannel>();
+        for (int i = 0; i < 4; i++) {
+            TChannel channel = new TChannel("kafka", i % 2 == 0 ? TDirection.OUT : TDirection.IN);
+            channel.setName("channel-" + i);
+            channel.setSite("site-1");
+            channel.setSensor("bench");
+            channel.setSensorId("bench-1");
+            channel.setSensorKey(42);
+            channel.setGrouped(true);
+            channel.setBrokerUrl("localhost:9092");
+            channel.setProperties(properties());
+            channels.add(channel);
+        }
+        TSensor sensor = new TSensor("bench", "site-1", TSensorState.ACTIVE, ByteBuffer.wrap(Fixtures.payload(32)), channels);
+        sensor.setSensorId("bench-1");
+        return sensor;
+    }
+
+    static TSite site() {
+        TSite site = new TSite("site-1", 12905, "localhost");
+        site.setMetadata(Fixtures.payload(32));
+        List<TBroker> brokers = new ArrayList<TBroker>();
+        for (int i = 0; i < 2; i++) {
+            TBroker broker = new TBroker("broker-" + i, properties());
+            brokers.add(broker);
+        }
+        site.setBrokers(brokers);
+        return site;
+    }
+
+    static Map<Object, Object> offsets() {
+        Map<Object, Object> topology = new HashMap<Object, Object>();
+        topology.put("id", "b6a3c2e0-3f4e-4c1a-9a53-d2f1c1f0e7aa");
+        topology.put("name", "bench");
+        Map<Object, Object> broker = new HashMap<Object, Object>();
+        broker.put("host", "localhost");
+        broker.put("port", 9092);
+        Map<Object, Object> offsets = new HashMap<Object, Object>();
+        offsets.put("topology", topology);
+        offsets.put("offset", 123456789L);
+        offsets.put("partition", 3);
+        offsets.put("broker", broker);
+        offsets.put("topic", "site-1.bench.topic");
+        return offsets;
+    }
+}
@@ -0,0 +1,123 @@
+package cgl.iotcloud.benchmarks;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.AbstractTransport;
+import cgl.iotcloud.core.transport.BrokerHost;
+import cgl.iotcloud.core.transport.Manageable;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.ScheduledManageable;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A transport without a broker. The producers take the messages from the producer queues on the transport
+ * scheduler and drop them, the consumers do nothing so a benchmark can fill the consumer queues itself.
+ */
+public class SinkTransport extends AbstractTransport {
+    private final boolean drain;
+
+    private final List<BlockingQueue<MessageContext>> producerQueues = new CopyOnWriteArrayList<BlockingQueue<MessageContext>>();
+
+    private final List<BlockingQueue<MessageContext>> consumerQueues = new CopyOnWriteArrayList<BlockingQueue<MessageContext>>();
+
+    /**
+     * @param drain true if the producers drop the messages, false if the benchmark takes them from the queues
+     */
+    public SinkTransport(boolean drain) {
+        this.drain = drain;
+    }
+
+    @Override
+    public void configureTransport() {}
+
+    @Override
+    public Manageable registerProducer(BrokerHost host, String prefix, Map channelConf, BlockingQueue<MessageContext> queue) {
+        producerQueues.add(queue);
+        return drain ? new SinkSender(queue) : new Idle();
+    }
+
+    @Override
+    public Manageable registerConsumer(BrokerHost host, String prefix, Map channelConf, BlockingQueue<MessageContext> queue) {
+        consumerQueues.add(queue);
+        return new Idle();
+    }
+
+    public List<BlockingQueue<MessageContext>> getProducerQueues() {
+        return producerQueues;
+    }
+
+    public List<BlockingQueue<MessageContext>> getConsumerQueues() {
+        return consumerQueues;
+    }
+
+    /**
+     * Drops the messages of a producer queue as fast as it can
+     */
+    private static class SinkSender implements ScheduledManageable, IOTask {
+        private static final int MAX_MESSAGES_PER_STEP = 64;
+
+        private final BlockingQueue<MessageContext> queue;
+
+        private TransportScheduler scheduler;
+
+        private String group;
+
+        private TaskHandle handle;
+
+        private volatile boolean run;
+
+        private SinkSender(BlockingQueue<MessageContext> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void setScheduler(TransportScheduler scheduler, String group) {
+            this.scheduler = scheduler;
+            this.group = group;
+        }
+
+        @Override
+        public void start() {
+            run = true;
+            if (scheduler == null) {
+                scheduler = TransportScheduler.getDefault();
+            }
+            handle = scheduler.submit(group, this, "sink-sender", queue);
+        }
+
+        @Override
+        public void stop() {
+            run = false;
+            if (handle != null) {
+                handle.wakeup();
+            }
+        }
+
+        @Override
+        public long step() {
+            if (!run) {
+                return DONE;
+            }
+            int count = 0;
+            MessageContext message;
+            while (count < MAX_MESSAGES_PER_STEP && (message = queue.poll()) != null) {
+                message.release();
+                count++;
+            }
+            return count == MAX_MESSAGES_PER_STEP ? AGAIN : WAIT;
+        }
+    }
+
+    private static class Idle implements Manageable {
+        @Override
+        public void start() {}
+
+        @Override
+        public void stop() {}
+    }
+}
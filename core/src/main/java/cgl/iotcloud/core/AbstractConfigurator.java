@@ -3,12 +3,20 @@ package cgl.iotcloud.core;
 import cgl.iotcloud.core.msg.MessageContext;
 import cgl.iotcloud.core.transport.Channel;
 import cgl.iotcloud.core.transport.Direction;
+import cgl.iotcloud.core.transport.MessageInterceptor;
+import cgl.iotcloud.core.transport.TransportConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Constructor;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
 public abstract class AbstractConfigurator implements Configurator {
+    private static Logger LOG = LoggerFactory.getLogger(AbstractConfigurator.class);
+
     protected Channel createChannel(String name, Map properties,
                                     Direction direction, int queueSize) {
 
@@ -20,6 +28,7 @@ public abstract class AbstractConfigurator implements Configurator {
         channel.setOutQueue(outMassages);
 
         channel.addProperties(properties);
+        addInterceptors(channel, properties);
 
         return channel;
     }
@@ -33,6 +42,7 @@ public abstract class AbstractConfigurator implements Configurator {
         channel.setOutQueue(outMassages);
 
         channel.addProperties(properties);
+        addInterceptors(channel, properties);
 
         return channel;
     }
@@ -46,7 +56,41 @@ public abstract class AbstractConfigurator implements Configurator {
         channel.setOutQueue(outMassages);
 
         channel.addProperties(properties);
+        addInterceptors(channel, properties);
 
         return channel;
     }
+
+    /**
+     * Add the interceptors named in the interceptors property of a channel. The classes are loaded with the
+     * class loader of the configurator so they can come with the sensor.
+     * @param channel the channel
+     * @param properties channel properties, can be null
+     */
+    protected void addInterceptors(Channel channel, Map properties) {
+        Object names = properties != null ? properties.get(TransportConstants.INTERCEPTORS_PROPERTY) : null;
+        if (names == null) {
+            return;
+        }
+        if (!(names instanceof List)) {
+            String msg = "The interceptors of a channel should be a list of class names";
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+
+        for (Object name : (List) names) {
+            String className = name.toString();
+            try {
+                Class<?> clazz = Class.forName(className, true, getClass().getClassLoader());
+                Constructor<? extends MessageInterceptor> ctor = clazz.asSubclass(MessageInterceptor.class).getConstructor();
+                channel.addInterceptor(ctor.newInstance());
+            } catch (ClassNotFoundException x) {
+                LOG.error("Interceptor class cannot be found {}", className, x);
+                throw new RuntimeException("Interceptor class cannot be found " + className, x);
+            } catch (Exception e) {
+                LOG.error("Error loading the interceptor {}", className, e);
+                throw new RuntimeException("Error loading the interceptor " + className, e);
+            }
+        }
+    }
 }
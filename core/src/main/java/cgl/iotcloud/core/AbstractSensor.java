@@ -1,40 +1,74 @@
 package cgl.iotcloud.core;
 
+import cgl.iotcloud.core.metrics.ChannelMetrics;
+import cgl.iotcloud.core.msg.MessageContext;
 import cgl.iotcloud.core.transport.Channel;
+import cgl.iotcloud.core.transport.ChannelFullException;
+import cgl.iotcloud.core.transport.LatencyStamps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 public abstract class AbstractSensor implements ISensor {
+    private static Logger LOG = LoggerFactory.getLogger(AbstractSensor.class);
+
     private Map<String, QueueProducer> producers = new HashMap<String, QueueProducer>();
 
     private Map<String, QueueListener> listeners = new HashMap<String, QueueListener>();
 
+    /**
+     * Creates the threads of the sensor, the site sets it before opening the sensor
+     */
+    private ThreadFactory threadFactory = new SensorThreadFactory("sensor", false);
+
+    /**
+     * Set the factory for the threads of this sensor. Must be called before the sensor is opened.
+     * @param threadFactory the factory
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Start a thread for a loop of the sensor. Sensors should use this instead of creating threads, so
+     * the loop runs on a virtual thread when the site is configured for it.
+     * @param task the loop
+     * @return the started thread
+     */
+    protected Thread startThread(Runnable task) {
+        Thread t = threadFactory.newThread(task);
+        t.start();
+        return t;
+    }
+
     public void startSend(Channel channel, MessageSender sender, int interval) {
         QueueProducer producer = new QueueProducer(sender, interval, channel);
         producers.put(channel.getName(), producer);
 
-        Thread t = new Thread(producer);
-        t.start();
+        producer.setThread(startThread(producer));
     }
 
     public void startSend(Channel channel, BlockingQueue messages) {
         QueueProducer producer = new QueueProducer(messages, channel);
         producers.put(channel.getName(), producer);
 
-        Thread t = new Thread(producer);
-        t.start();
+        producer.setThread(startThread(producer));
     }
 
     public void startListen(Channel channel, MessageReceiver receiver) {
-        QueueListener listener = new QueueListener(channel.getOutQueue(), receiver);
+        QueueListener listener = new QueueListener(channel.getOutQueue(), receiver, channel.getMetrics());
 
         listeners.put(channel.getName(), listener);
 
-        Thread t = new Thread(listener);
-        t.start();
+        listener.setThread(startThread(listener));
     }
 
     public void stopChannel(String name) {
@@ -47,17 +81,115 @@ public abstract class AbstractSensor implements ISensor {
         }
     }
 
-    protected class QueueProducer implements Runnable {
+    /**
+     * A loop which can be paused, resumed and stopped. Uses a lock instead of a monitor so a waiting
+     * virtual thread does not hold on to its carrier thread.
+     */
+    protected abstract class SensorLoop implements Runnable {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition stateChanged = lock.newCondition();
+
+        private volatile boolean run = true;
+
+        private volatile boolean pause = false;
+
+        private volatile Thread thread;
+
+        void setThread(Thread thread) {
+            this.thread = thread;
+        }
+
+        protected boolean isRunning() {
+            return run;
+        }
+
+        /**
+         * Wait while the loop is paused
+         * @return false if the loop is stopped
+         */
+        protected boolean awaitActive() {
+            lock.lock();
+            try {
+                while (pause && run) {
+                    try {
+                        stateChanged.await();
+                    } catch (InterruptedException e) {
+                        // stop interrupts the thread, check the state again
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return run;
+        }
+
+        /**
+         * Sleep for the given time, returns early if the loop is stopped or paused
+         * @param millis time to sleep
+         * @return false if the loop is stopped
+         */
+        protected boolean sleep(long millis) {
+            if (millis <= 0) {
+                return run;
+            }
+            lock.lock();
+            try {
+                long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+                while (run && !pause && nanos > 0) {
+                    nanos = stateChanged.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                // interrupted by stop
+            } finally {
+                lock.unlock();
+            }
+            return run;
+        }
+
+        public void stop() {
+            lock.lock();
+            try {
+                run = false;
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            // the loop may be blocked on its queue
+            Thread t = thread;
+            if (t != null) {
+                t.interrupt();
+            }
+        }
+
+        public void deactivate() {
+            lock.lock();
+            try {
+                pause = true;
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void activate() {
+            lock.lock();
+            try {
+                pause = false;
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    protected class QueueProducer extends SensorLoop {
         private BlockingQueue<byte[]> queue = new ArrayBlockingQueue<byte[]>(1024);
 
         private MessageSender messageSender;
 
-        private boolean run = true;
-
         private int interval;
 
-        private boolean pause = false;
-
         private BlockingQueue<byte []> messages;
 
         private Channel channel;
@@ -83,125 +215,83 @@ public abstract class AbstractSensor implements ISensor {
         }
 
         private void runFixedInterval() {
-            while (run) {
-                synchronized (this){
-                    while (pause) {
-                        try {
-                            wait();
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }
+            while (awaitActive()) {
                 messageSender.loop(queue);
 
-                while (!queue.isEmpty()) {
-                    try {
-                        byte[] data = queue.take();
-                        channel.publish(data);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
+                byte[] data;
+                while ((data = queue.poll()) != null) {
+                    publish(data);
                 }
 
-                try {
-                    Thread.sleep(interval);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
+                sleep(interval);
             }
         }
 
         private void runFromQueue() {
-            while (run) {
-                synchronized (this){
-                    while (pause) {
-                        try {
-                            wait();
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }
+            while (awaitActive()) {
+                byte[] message;
                 try {
-                    byte[] message = messages.take();
-                    channel.publish(message);
+                    message = messages.take();
                 } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
+                    continue;
                 }
-
-                try {
-                    Thread.sleep(interval);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
+                // a message taken while the sensor was deactivated is sent after it is activated again
+                if (!awaitActive()) {
+                    break;
                 }
-            }
-        }
-
-        public void stop() {
-            run = false;
-            notifyAll();
-        }
+                publish(message);
 
-        public void deactivate() {
-            pause = true;
+                sleep(interval);
+            }
         }
 
-        public synchronized void activate() {
-            pause = false;
-            notifyAll();
+        private void publish(byte []data) {
+            try {
+                channel.publish(data);
+            } catch (ChannelFullException e) {
+                LOG.debug("Dropping the message, {}", e.getMessage());
+            }
         }
     }
 
-    protected class QueueListener implements Runnable {
+    protected class QueueListener extends SensorLoop {
         private BlockingQueue queue;
 
         private MessageReceiver messageReceiver;
 
-        private boolean run = true;
+        private ChannelMetrics metrics;
 
-        private boolean pause = false;
-
-        private QueueListener(BlockingQueue queue, MessageReceiver handler) {
+        private QueueListener(BlockingQueue queue, MessageReceiver handler, ChannelMetrics metrics) {
             this.queue = queue;
             this.messageReceiver = handler;
+            this.metrics = metrics;
         }
 
         @Override
         public void run() {
-            while (run) {
-                synchronized (this) {
-                    while (pause) {
-                        try {
-                            wait();
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }
+            while (awaitActive()) {
+                Object o;
                 try {
-                    Object o = queue.take();
-
-                    messageReceiver.onMessage(o);
+                    o = queue.take();
                 } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
+                    continue;
+                }
+                try {
+                    // a message taken while the sensor was deactivated is delivered after it is activated again
+                    if (awaitActive()) {
+                        if (o instanceof MessageContext) {
+                            LatencyStamps.recordReceived(metrics, (MessageContext) o);
+                        }
+                        messageReceiver.onMessage(o);
+                    }
+                } finally {
+                    // the message is delivered, receivers that keep a pooled buffer must retain it
+                    if (o instanceof MessageContext) {
+                        ((MessageContext) o).release();
+                    }
                 }
             }
         }
-
-        public void stop() {
-            run = false;
-            notifyAll();
-        }
-
-        public void deactivate() {
-            pause = true;
-        }
-
-        public synchronized void activate() {
-            pause = false;
-            notifyAll();
-        }
     }
 
     @Override
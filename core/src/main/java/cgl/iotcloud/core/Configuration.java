@@ -1,5 +1,6 @@
 package cgl.iotcloud.core;
 
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +23,13 @@ public class Configuration {
     public static final String IOT_SENSORSITE_HOST = "iot.sensorsite.host";
     public static final String IOT_SENSORSITE_ID = "iot.sensorsite.id";
     public static final String IOT_SENSORSITE_REPOSITORY = "iot.sensorsite.repository";
+    public static final String IOT_SENSORSITE_METRICS_PORT = "iot.sensorsite.metrics.port";
+    public static final String IOT_SENSORSITE_IO_THREADS = "iot.sensorsite.io.threads";
+    public static final String IOT_SENSORSITE_IO_MAX_POLL = "iot.sensorsite.io.maxPollInterval";
+    public static final String IOT_SENSORSITE_SENSOR_THREADS = "iot.sensorsite.sensor.threads";
+    public static final String IOT_SENSORSITE_DRAIN_TIMEOUT = "iot.sensorsite.drain.timeout";
+
+    public static final long DEFAULT_DRAIN_TIMEOUT = 10000;
 
     // the maximum number of sensor sites possible
     public static final String IOT_SENSOR_SITES_MAX = "iot.sensorsites.max";
@@ -45,6 +53,9 @@ public class Configuration {
 
     public static final String ZK_ROOT = "iot.zk.root";
 
+    // map from a use site to the name of its codec, see CodecRegistry
+    public static final String IOT_CODECS = "iot.codecs";
+
     public static String getMasterHost(Map conf) {
         return (String) conf.get(IOT_MASTER_SERVER_HOST);
     }
@@ -81,6 +92,56 @@ public class Configuration {
         return (Integer) conf.get(IOT_SENSORSITE_THREADS);
     }
 
+    /**
+     * The port of the metrics http server
+     * @param conf map with configuration
+     * @return the port or -1 if the server is not configured
+     */
+    public static int getSensorSiteMetricsPort(Map conf) {
+        Object port = conf.get(IOT_SENSORSITE_METRICS_PORT);
+        return port != null ? (Integer) port : -1;
+    }
+
+    /**
+     * Number of threads running the transport producers and consumers
+     * @param conf map with configuration
+     * @return the number of threads or -1 to use the number of cores
+     */
+    public static int getSensorSiteIOThreads(Map conf) {
+        Object threads = conf.get(IOT_SENSORSITE_IO_THREADS);
+        return threads != null ? (Integer) threads : -1;
+    }
+
+    /**
+     * Maximum interval between two polls of an idle transport task in milliseconds
+     * @param conf map with configuration
+     * @return the interval
+     */
+    public static long getSensorSiteIOMaxPollInterval(Map conf) {
+        Object interval = conf.get(IOT_SENSORSITE_IO_MAX_POLL);
+        return interval != null ? ((Number) interval).longValue() : TransportScheduler.DEFAULT_MAX_POLL_INTERVAL;
+    }
+
+    /**
+     * Time the transports get to flush their queues when the site stops, in milliseconds
+     * @param conf map with configuration
+     * @return the timeout
+     */
+    public static long getSensorSiteDrainTimeout(Map conf) {
+        Object timeout = conf.get(IOT_SENSORSITE_DRAIN_TIMEOUT);
+        return timeout != null ? ((Number) timeout).longValue() : DEFAULT_DRAIN_TIMEOUT;
+    }
+
+    /**
+     * The kind of threads running the sensor loops
+     * @param conf map with configuration
+     * @return platform or virtual, platform if not configured
+     */
+    public static String getSensorThreadMode(Map conf) {
+        Object mode = conf.get(IOT_SENSORSITE_SENSOR_THREADS);
+        return mode != null ? mode.toString() : SensorThreadFactory.MODE_PLATFORM;
+    }
+
     public static Map getTransports(Map conf) {
         return (Map) conf.get(IOT_SENSORSITE_TRANSPORTS);
     }
@@ -134,6 +195,16 @@ public class Configuration {
         return val.toString();
     }
 
+    /**
+     * The codecs selected for the use sites
+     * @param conf map with configuration
+     * @return map from the use site to the codec name, null if not configured
+     */
+    public static Map getCodecs(Map conf) {
+        Object codecs = conf.get(IOT_CODECS);
+        return codecs instanceof Map ? (Map) codecs : null;
+    }
+
     public static String getZkConnectionString(Map conf) {
         Object val = conf.get(ZK_SERVERS);
         if (val == null || !(val instanceof List)) {
@@ -1,5 +1,10 @@
 package cgl.iotcloud.core;
 
 public interface MessageReceiver {
+    /**
+     * Called for each received message. The body of a {@link cgl.iotcloud.core.msg.MessageContext} can be read
+     * without a copy through getBodyBuffer, the view is valid until this method returns.
+     * @param message the message
+     */
     void onMessage(Object message);
 }
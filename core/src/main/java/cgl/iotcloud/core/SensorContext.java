@@ -28,6 +28,9 @@ public class SensorContext {
     // a unique id to the sensor, this is used to identify the sensor uniquely
     private String sensorID;
 
+    // a site unique numeric id for the sensor, used in the messages instead of the string id
+    private long sensorKey;
+
     public SensorContext(String name) {
         if (name == null) {
             throw new IllegalArgumentException("A sensor should have an id");
@@ -66,6 +69,14 @@ public class SensorContext {
         this.sensorID = sensorID;
     }
 
+    public long getSensorKey() {
+        return sensorKey;
+    }
+
+    public void setSensorKey(long sensorKey) {
+        this.sensorKey = sensorKey;
+    }
+
     public void setMetadata(Object metadata) {
         this.metadata = metadata;
     }
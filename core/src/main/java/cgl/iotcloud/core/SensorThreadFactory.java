@@ -0,0 +1,84 @@
+package cgl.iotcloud.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads running the sensor loops. In virtual mode the threads are virtual threads, so a site
+ * can host a large number of sensors which mostly wait. Virtual threads need Java 21, on an older runtime
+ * the factory falls back to platform threads.
+ */
+public class SensorThreadFactory implements ThreadFactory {
+    private static Logger LOG = LoggerFactory.getLogger(SensorThreadFactory.class);
+
+    public static final String MODE_PLATFORM = "platform";
+
+    public static final String MODE_VIRTUAL = "virtual";
+
+    private final String prefix;
+
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    /**
+     * The virtual thread factory of the runtime, null if platform threads are used
+     */
+    private final ThreadFactory virtualFactory;
+
+    public SensorThreadFactory(String prefix, boolean virtual) {
+        this.prefix = prefix;
+        this.virtualFactory = virtual ? createVirtualFactory(prefix) : null;
+    }
+
+    /**
+     * Create a factory from the thread mode of the configuration
+     * @param prefix prefix of the thread names
+     * @param mode {@link #MODE_PLATFORM} or {@link #MODE_VIRTUAL}
+     * @return the factory
+     */
+    public static SensorThreadFactory forMode(String prefix, String mode) {
+        if (mode == null || MODE_PLATFORM.equals(mode)) {
+            return new SensorThreadFactory(prefix, false);
+        } else if (MODE_VIRTUAL.equals(mode)) {
+            return new SensorThreadFactory(prefix, true);
+        } else {
+            String msg = "Unknown sensor thread mode: " + mode;
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtualFactory != null;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        if (virtualFactory != null) {
+            return virtualFactory.newThread(r);
+        }
+        return new Thread(r, prefix + "-" + count.getAndIncrement());
+    }
+
+    /**
+     * Thread.ofVirtual().name(prefix, 0).factory(), called through reflection so the code still runs on
+     * older runtimes
+     */
+    private static ThreadFactory createVirtualFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, prefix + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            LOG.info("Running the sensors on virtual threads");
+            return factory;
+        } catch (Exception e) {
+            LOG.warn("Virtual threads are not available in this runtime, using platform threads for the sensors");
+            return null;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package cgl.iotcloud.core.api;
 
 import cgl.iotcloud.core.api.thrift.*;
 import cgl.iotcloud.core.master.MasterContext;
+import cgl.iotcloud.core.master.events.MBrokerEvent;
+import cgl.iotcloud.core.master.events.MRateLimitEvent;
 import cgl.iotcloud.core.master.events.MSensorClientEvent;
 import cgl.iotcloud.core.sensorsite.SensorState;
 import com.google.common.eventbus.EventBus;
@@ -117,4 +119,29 @@ public class MasterAPIServiceHandler implements TMasterAPIService.Iface {
         LOG.info("Request received get all sensors");
         return masterContext.getAllSensors();
     }
+
+    @Override
+    public TResponse addBroker(List<String> sites, String transportName, String url, String zone) throws TException {
+        LOG.info("Request received for adding the broker {} to transport {}", url, transportName);
+        MBrokerEvent brokerEvent = new MBrokerEvent(MBrokerEvent.Type.ADD, sites, transportName, url, zone);
+        sensorEventBus.post(brokerEvent);
+        return new TResponse(TResponseState.SUCCESS, "success");
+    }
+
+    @Override
+    public TResponse removeBroker(List<String> sites, String transportName, String url) throws TException {
+        LOG.info("Request received for removing the broker {} from transport {}", url, transportName);
+        MBrokerEvent brokerEvent = new MBrokerEvent(MBrokerEvent.Type.REMOVE, sites, transportName, url, null);
+        sensorEventBus.post(brokerEvent);
+        return new TResponse(TResponseState.SUCCESS, "success");
+    }
+
+    @Override
+    public TResponse setRateLimit(List<String> sites, String sensorId, String channelName, double messageRate,
+                                  double byteRate, String policy) throws TException {
+        LOG.info("Request received for limiting the sensor {} to {} messages/s and {} bytes/s", sensorId, messageRate, byteRate);
+        MRateLimitEvent event = new MRateLimitEvent(sites, sensorId, channelName, messageRate, byteRate, policy);
+        sensorEventBus.post(event);
+        return new TResponse(TResponseState.SUCCESS, "success");
+    }
 }
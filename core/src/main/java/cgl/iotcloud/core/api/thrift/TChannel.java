@@ -60,6 +60,7 @@ import org.slf4j.LoggerFactory;
   private static final org.apache.thrift.protocol.TField SENSOR_FIELD_DESC = new org.apache.thrift.protocol.TField("sensor", org.apache.thrift.protocol.TType.STRING, (short)7);
   private static final org.apache.thrift.protocol.TField GROUPED_FIELD_DESC = new org.apache.thrift.protocol.TField("grouped", org.apache.thrift.protocol.TType.BOOL, (short)8);
   private static final org.apache.thrift.protocol.TField SENSOR_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("sensorId", org.apache.thrift.protocol.TType.STRING, (short)9);
+  private static final org.apache.thrift.protocol.TField SENSOR_KEY_FIELD_DESC = new org.apache.thrift.protocol.TField("sensorKey", org.apache.thrift.protocol.TType.I64, (short)10);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -80,6 +81,7 @@ import org.slf4j.LoggerFactory;
   public String sensor; // optional
   public boolean grouped; // optional
   public String sensorId; // optional
+  public long sensorKey; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -95,7 +97,8 @@ import org.slf4j.LoggerFactory;
     SITE((short)6, "site"),
     SENSOR((short)7, "sensor"),
     GROUPED((short)8, "grouped"),
-    SENSOR_ID((short)9, "sensorId");
+    SENSOR_ID((short)9, "sensorId"),
+    SENSOR_KEY((short)10, "sensorKey");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -128,6 +131,8 @@ import org.slf4j.LoggerFactory;
           return GROUPED;
         case 9: // SENSOR_ID
           return SENSOR_ID;
+        case 10: // SENSOR_KEY
+          return SENSOR_KEY;
         default:
           return null;
       }
@@ -169,8 +174,9 @@ import org.slf4j.LoggerFactory;
 
   // isset id assignments
   private static final int __GROUPED_ISSET_ID = 0;
+  private static final int __SENSORKEY_ISSET_ID = 1;
   private byte __isset_bitfield = 0;
-  private _Fields optionals[] = {_Fields.PROPERTIES,_Fields.BROKER_URL,_Fields.NAME,_Fields.SITE,_Fields.SENSOR,_Fields.GROUPED,_Fields.SENSOR_ID};
+  private _Fields optionals[] = {_Fields.PROPERTIES,_Fields.BROKER_URL,_Fields.NAME,_Fields.SITE,_Fields.SENSOR,_Fields.GROUPED,_Fields.SENSOR_ID,_Fields.SENSOR_KEY};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -194,6 +200,8 @@ import org.slf4j.LoggerFactory;
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
     tmpMap.put(_Fields.SENSOR_ID, new org.apache.thrift.meta_data.FieldMetaData("sensorId", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+    tmpMap.put(_Fields.SENSOR_KEY, new org.apache.thrift.meta_data.FieldMetaData("sensorKey", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(TChannel.class, metaDataMap);
   }
@@ -241,6 +249,7 @@ import org.slf4j.LoggerFactory;
     if (other.isSetSensorId()) {
       this.sensorId = other.sensorId;
     }
+    this.sensorKey = other.sensorKey;
   }
 
   public TChannel deepCopy() {
@@ -259,6 +268,8 @@ import org.slf4j.LoggerFactory;
     setGroupedIsSet(false);
     this.grouped = false;
     this.sensorId = null;
+    setSensorKeyIsSet(false);
+    this.sensorKey = 0;
   }
 
   public String getTransport() {
@@ -495,6 +506,29 @@ import org.slf4j.LoggerFactory;
     }
   }
 
+  public long getSensorKey() {
+    return this.sensorKey;
+  }
+
+  public TChannel setSensorKey(long sensorKey) {
+    this.sensorKey = sensorKey;
+    setSensorKeyIsSet(true);
+    return this;
+  }
+
+  public void unsetSensorKey() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __SENSORKEY_ISSET_ID);
+  }
+
+  /** Returns true if field sensorKey is set (has been assigned a value) and false otherwise */
+  public boolean isSetSensorKey() {
+    return EncodingUtils.testBit(__isset_bitfield, __SENSORKEY_ISSET_ID);
+  }
+
+  public void setSensorKeyIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __SENSORKEY_ISSET_ID, value);
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case TRANSPORT:
@@ -569,6 +603,14 @@ import org.slf4j.LoggerFactory;
       }
       break;
 
+    case SENSOR_KEY:
+      if (value == null) {
+        unsetSensorKey();
+      } else {
+        setSensorKey((Long)value);
+      }
+      break;
+
     }
   }
 
@@ -601,6 +643,9 @@ import org.slf4j.LoggerFactory;
     case SENSOR_ID:
       return getSensorId();
 
+    case SENSOR_KEY:
+      return Long.valueOf(getSensorKey());
+
     }
     throw new IllegalStateException();
   }
@@ -630,6 +675,8 @@ import org.slf4j.LoggerFactory;
       return isSetGrouped();
     case SENSOR_ID:
       return isSetSensorId();
+    case SENSOR_KEY:
+      return isSetSensorKey();
     }
     throw new IllegalStateException();
   }
@@ -728,6 +775,15 @@ import org.slf4j.LoggerFactory;
         return false;
     }
 
+    boolean this_present_sensorKey = true && this.isSetSensorKey();
+    boolean that_present_sensorKey = true && that.isSetSensorKey();
+    if (this_present_sensorKey || that_present_sensorKey) {
+      if (!(this_present_sensorKey && that_present_sensorKey))
+        return false;
+      if (this.sensorKey != that.sensorKey)
+        return false;
+    }
+
     return true;
   }
 
@@ -834,6 +890,16 @@ import org.slf4j.LoggerFactory;
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetSensorKey()).compareTo(other.isSetSensorKey());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetSensorKey()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.sensorKey, other.sensorKey);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -935,6 +1001,12 @@ import org.slf4j.LoggerFactory;
       }
       first = false;
     }
+    if (isSetSensorKey()) {
+      if (!first) sb.append(", ");
+      sb.append("sensorKey:");
+      sb.append(this.sensorKey);
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -1064,6 +1136,14 @@ import org.slf4j.LoggerFactory;
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 10: // SENSOR_KEY
+            if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+              struct.sensorKey = iprot.readI64();
+              struct.setSensorKeyIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -1144,6 +1224,11 @@ import org.slf4j.LoggerFactory;
           oprot.writeFieldEnd();
         }
       }
+      if (struct.isSetSensorKey()) {
+        oprot.writeFieldBegin(SENSOR_KEY_FIELD_DESC);
+        oprot.writeI64(struct.sensorKey);
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -1189,7 +1274,10 @@ import org.slf4j.LoggerFactory;
       if (struct.isSetSensorId()) {
         optionals.set(8);
       }
-      oprot.writeBitSet(optionals, 9);
+      if (struct.isSetSensorKey()) {
+        optionals.set(9);
+      }
+      oprot.writeBitSet(optionals, 10);
       if (struct.isSetTransport()) {
         oprot.writeString(struct.transport);
       }
@@ -1224,12 +1312,15 @@ import org.slf4j.LoggerFactory;
       if (struct.isSetSensorId()) {
         oprot.writeString(struct.sensorId);
       }
+      if (struct.isSetSensorKey()) {
+        oprot.writeI64(struct.sensorKey);
+      }
     }
 
     @Override
     public void read(org.apache.thrift.protocol.TProtocol prot, TChannel struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
-      BitSet incoming = iprot.readBitSet(9);
+      BitSet incoming = iprot.readBitSet(10);
       if (incoming.get(0)) {
         struct.transport = iprot.readString();
         struct.setTransportIsSet(true);
@@ -1277,6 +1368,10 @@ import org.slf4j.LoggerFactory;
         struct.sensorId = iprot.readString();
         struct.setSensorIdIsSet(true);
       }
+      if (incoming.get(9)) {
+        struct.sensorKey = iprot.readI64();
+        struct.setSensorKeyIsSet(true);
+      }
     }
   }
 
@@ -74,6 +74,12 @@ import org.slf4j.LoggerFactory;
 
     public List<cgl.iotcloud.core.api.thrift.TSensor> getAllSensors() throws org.apache.thrift.TException;
 
+    public cgl.iotcloud.core.api.thrift.TResponse addBroker(List<String> sites, String transportName, String url, String zone) throws org.apache.thrift.TException;
+
+    public cgl.iotcloud.core.api.thrift.TResponse removeBroker(List<String> sites, String transportName, String url) throws org.apache.thrift.TException;
+
+    public cgl.iotcloud.core.api.thrift.TResponse setRateLimit(List<String> sites, String sensorId, String channelName, double messageRate, double byteRate, String policy) throws org.apache.thrift.TException;
+
   }
 
   public interface AsyncIface {
@@ -100,6 +106,12 @@ import org.slf4j.LoggerFactory;
 
     public void getAllSensors(org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException;
 
+    public void addBroker(List<String> sites, String transportName, String url, String zone, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException;
+
+    public void removeBroker(List<String> sites, String transportName, String url, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException;
+
+    public void setRateLimit(List<String> sites, String sensorId, String channelName, double messageRate, double byteRate, String policy, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException;
+
   }
 
   public static class Client extends org.apache.thrift.TServiceClient implements Iface {
@@ -377,6 +389,85 @@ import org.slf4j.LoggerFactory;
       throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "getAllSensors failed: unknown result");
     }
 
+    public cgl.iotcloud.core.api.thrift.TResponse addBroker(List<String> sites, String transportName, String url, String zone) throws org.apache.thrift.TException
+    {
+      send_addBroker(sites, transportName, url, zone);
+      return recv_addBroker();
+    }
+
+    public void send_addBroker(List<String> sites, String transportName, String url, String zone) throws org.apache.thrift.TException
+    {
+      addBroker_args args = new addBroker_args();
+      args.setSites(sites);
+      args.setTransportName(transportName);
+      args.setUrl(url);
+      args.setZone(zone);
+      sendBase("addBroker", args);
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse recv_addBroker() throws org.apache.thrift.TException
+    {
+      addBroker_result result = new addBroker_result();
+      receiveBase(result, "addBroker");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "addBroker failed: unknown result");
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse removeBroker(List<String> sites, String transportName, String url) throws org.apache.thrift.TException
+    {
+      send_removeBroker(sites, transportName, url);
+      return recv_removeBroker();
+    }
+
+    public void send_removeBroker(List<String> sites, String transportName, String url) throws org.apache.thrift.TException
+    {
+      removeBroker_args args = new removeBroker_args();
+      args.setSites(sites);
+      args.setTransportName(transportName);
+      args.setUrl(url);
+      sendBase("removeBroker", args);
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse recv_removeBroker() throws org.apache.thrift.TException
+    {
+      removeBroker_result result = new removeBroker_result();
+      receiveBase(result, "removeBroker");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "removeBroker failed: unknown result");
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse setRateLimit(List<String> sites, String sensorId, String channelName, double messageRate, double byteRate, String policy) throws org.apache.thrift.TException
+    {
+      send_setRateLimit(sites, sensorId, channelName, messageRate, byteRate, policy);
+      return recv_setRateLimit();
+    }
+
+    public void send_setRateLimit(List<String> sites, String sensorId, String channelName, double messageRate, double byteRate, String policy) throws org.apache.thrift.TException
+    {
+      setRateLimit_args args = new setRateLimit_args();
+      args.setSites(sites);
+      args.setSensorId(sensorId);
+      args.setChannelName(channelName);
+      args.setMessageRate(messageRate);
+      args.setByteRate(byteRate);
+      args.setPolicy(policy);
+      sendBase("setRateLimit", args);
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse recv_setRateLimit() throws org.apache.thrift.TException
+    {
+      setRateLimit_result result = new setRateLimit_result();
+      receiveBase(result, "setRateLimit");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "setRateLimit failed: unknown result");
+    }
+
   }
   public static class AsyncClient extends org.apache.thrift.async.TAsyncClient implements AsyncIface {
     public static class Factory implements org.apache.thrift.async.TAsyncClientFactory<AsyncClient> {
@@ -753,6 +844,132 @@ import org.slf4j.LoggerFactory;
       }
     }
 
+
+    public void addBroker(List<String> sites, String transportName, String url, String zone, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      addBroker_call method_call = new addBroker_call(sites, transportName, url, zone, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class addBroker_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private List<String> sites;
+      private String transportName;
+      private String url;
+      private String zone;
+      public addBroker_call(List<String> sites, String transportName, String url, String zone, org.apache.thrift.async.AsyncMethodCallback resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.sites = sites;
+        this.transportName = transportName;
+        this.url = url;
+        this.zone = zone;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("addBroker", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        addBroker_args args = new addBroker_args();
+        args.setSites(sites);
+        args.setTransportName(transportName);
+        args.setUrl(url);
+        args.setZone(zone);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public cgl.iotcloud.core.api.thrift.TResponse getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_addBroker();
+      }
+    }
+
+    public void removeBroker(List<String> sites, String transportName, String url, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      removeBroker_call method_call = new removeBroker_call(sites, transportName, url, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class removeBroker_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private List<String> sites;
+      private String transportName;
+      private String url;
+      public removeBroker_call(List<String> sites, String transportName, String url, org.apache.thrift.async.AsyncMethodCallback resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.sites = sites;
+        this.transportName = transportName;
+        this.url = url;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("removeBroker", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        removeBroker_args args = new removeBroker_args();
+        args.setSites(sites);
+        args.setTransportName(transportName);
+        args.setUrl(url);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public cgl.iotcloud.core.api.thrift.TResponse getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_removeBroker();
+      }
+    }
+
+    public void setRateLimit(List<String> sites, String sensorId, String channelName, double messageRate, double byteRate, String policy, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      setRateLimit_call method_call = new setRateLimit_call(sites, sensorId, channelName, messageRate, byteRate, policy, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class setRateLimit_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private List<String> sites;
+      private String sensorId;
+      private String channelName;
+      private double messageRate;
+      private double byteRate;
+      private String policy;
+      public setRateLimit_call(List<String> sites, String sensorId, String channelName, double messageRate, double byteRate, String policy, org.apache.thrift.async.AsyncMethodCallback resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.sites = sites;
+        this.sensorId = sensorId;
+        this.channelName = channelName;
+        this.messageRate = messageRate;
+        this.byteRate = byteRate;
+        this.policy = policy;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("setRateLimit", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        setRateLimit_args args = new setRateLimit_args();
+        args.setSites(sites);
+        args.setSensorId(sensorId);
+        args.setChannelName(channelName);
+        args.setMessageRate(messageRate);
+        args.setByteRate(byteRate);
+        args.setPolicy(policy);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public cgl.iotcloud.core.api.thrift.TResponse getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_setRateLimit();
+      }
+    }
   }
 
   public static class Processor<I extends Iface> extends org.apache.thrift.TBaseProcessor<I> implements org.apache.thrift.TProcessor {
@@ -777,6 +994,9 @@ import org.slf4j.LoggerFactory;
       processMap.put("stopAllSensors", new stopAllSensors());
       processMap.put("getSensors", new getSensors());
       processMap.put("getAllSensors", new getAllSensors());
+      processMap.put("addBroker", new addBroker());
+      processMap.put("removeBroker", new removeBroker());
+      processMap.put("setRateLimit", new setRateLimit());
       return processMap;
     }
 
@@ -1000,6 +1220,66 @@ import org.slf4j.LoggerFactory;
       }
     }
 
+    public static class addBroker<I extends Iface> extends org.apache.thrift.ProcessFunction<I, addBroker_args> {
+      public addBroker() {
+        super("addBroker");
+      }
+
+      public addBroker_args getEmptyArgsInstance() {
+        return new addBroker_args();
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public addBroker_result getResult(I iface, addBroker_args args) throws org.apache.thrift.TException {
+        addBroker_result result = new addBroker_result();
+        result.success = iface.addBroker(args.sites, args.transportName, args.url, args.zone);
+        return result;
+      }
+    }
+
+    public static class removeBroker<I extends Iface> extends org.apache.thrift.ProcessFunction<I, removeBroker_args> {
+      public removeBroker() {
+        super("removeBroker");
+      }
+
+      public removeBroker_args getEmptyArgsInstance() {
+        return new removeBroker_args();
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public removeBroker_result getResult(I iface, removeBroker_args args) throws org.apache.thrift.TException {
+        removeBroker_result result = new removeBroker_result();
+        result.success = iface.removeBroker(args.sites, args.transportName, args.url);
+        return result;
+      }
+    }
+
+    public static class setRateLimit<I extends Iface> extends org.apache.thrift.ProcessFunction<I, setRateLimit_args> {
+      public setRateLimit() {
+        super("setRateLimit");
+      }
+
+      public setRateLimit_args getEmptyArgsInstance() {
+        return new setRateLimit_args();
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public setRateLimit_result getResult(I iface, setRateLimit_args args) throws org.apache.thrift.TException {
+        setRateLimit_result result = new setRateLimit_result();
+        result.success = iface.setRateLimit(args.sites, args.sensorId, args.channelName, args.messageRate, args.byteRate, args.policy);
+        return result;
+      }
+    }
+
   }
 
   public static class AsyncProcessor<I extends AsyncIface> extends org.apache.thrift.TBaseAsyncProcessor<I> {
@@ -1024,6 +1304,9 @@ import org.slf4j.LoggerFactory;
       processMap.put("stopAllSensors", new stopAllSensors());
       processMap.put("getSensors", new getSensors());
       processMap.put("getAllSensors", new getAllSensors());
+      processMap.put("addBroker", new addBroker());
+      processMap.put("removeBroker", new removeBroker());
+      processMap.put("setRateLimit", new setRateLimit());
       return processMap;
     }
 
@@ -1588,88 +1871,241 @@ import org.slf4j.LoggerFactory;
       }
     }
 
-  }
-
-  public static class getSites_args implements org.apache.thrift.TBase<getSites_args, getSites_args._Fields>, java.io.Serializable, Cloneable, Comparable<getSites_args>   {
-    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("getSites_args");
-
-
-    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
-    static {
-      schemes.put(StandardScheme.class, new getSites_argsStandardSchemeFactory());
-      schemes.put(TupleScheme.class, new getSites_argsTupleSchemeFactory());
-    }
-
-
-    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
-    @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
-;
-
-      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
-
-      static {
-        for (_Fields field : EnumSet.allOf(_Fields.class)) {
-          byName.put(field.getFieldName(), field);
-        }
+    public static class addBroker<I extends AsyncIface> extends org.apache.thrift.AsyncProcessFunction<I, addBroker_args, cgl.iotcloud.core.api.thrift.TResponse> {
+      public addBroker() {
+        super("addBroker");
       }
 
-      /**
-       * Find the _Fields constant that matches fieldId, or null if its not found.
-       */
-      public static _Fields findByThriftId(int fieldId) {
-        switch(fieldId) {
-          default:
-            return null;
-        }
+      public addBroker_args getEmptyArgsInstance() {
+        return new addBroker_args();
       }
 
-      /**
-       * Find the _Fields constant that matches fieldId, throwing an exception
-       * if it is not found.
-       */
-      public static _Fields findByThriftIdOrThrow(int fieldId) {
-        _Fields fields = findByThriftId(fieldId);
-        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
-        return fields;
+      public AsyncMethodCallback<cgl.iotcloud.core.api.thrift.TResponse> getResultHandler(final AsyncFrameBuffer fb, final int seqid) {
+        final org.apache.thrift.AsyncProcessFunction fcall = this;
+        return new AsyncMethodCallback<cgl.iotcloud.core.api.thrift.TResponse>() { 
+          public void onComplete(cgl.iotcloud.core.api.thrift.TResponse o) {
+            addBroker_result result = new addBroker_result();
+            result.success = o;
+            try {
+              fcall.sendResponse(fb,result, org.apache.thrift.protocol.TMessageType.REPLY,seqid);
+              return;
+            } catch (Exception e) {
+              LOGGER.error("Exception writing to internal frame buffer", e);
+            }
+            fb.close();
+          }
+          public void onError(Exception e) {
+            byte msgType = org.apache.thrift.protocol.TMessageType.REPLY;
+            org.apache.thrift.TBase msg;
+            addBroker_result result = new addBroker_result();
+            {
+              msgType = org.apache.thrift.protocol.TMessageType.EXCEPTION;
+              msg = (org.apache.thrift.TBase)new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.INTERNAL_ERROR, e.getMessage());
+            }
+            try {
+              fcall.sendResponse(fb,msg,msgType,seqid);
+              return;
+            } catch (Exception ex) {
+              LOGGER.error("Exception writing to internal frame buffer", ex);
+            }
+            fb.close();
+          }
+        };
       }
 
-      /**
-       * Find the _Fields constant that matches name, or null if its not found.
-       */
-      public static _Fields findByName(String name) {
-        return byName.get(name);
+      protected boolean isOneway() {
+        return false;
       }
 
-      private final short _thriftId;
-      private final String _fieldName;
-
-      _Fields(short thriftId, String fieldName) {
-        _thriftId = thriftId;
-        _fieldName = fieldName;
+      public void start(I iface, addBroker_args args, org.apache.thrift.async.AsyncMethodCallback<cgl.iotcloud.core.api.thrift.TResponse> resultHandler) throws TException {
+        iface.addBroker(args.sites, args.transportName, args.url, args.zone,resultHandler);
       }
+    }
 
-      public short getThriftFieldId() {
-        return _thriftId;
+    public static class removeBroker<I extends AsyncIface> extends org.apache.thrift.AsyncProcessFunction<I, removeBroker_args, cgl.iotcloud.core.api.thrift.TResponse> {
+      public removeBroker() {
+        super("removeBroker");
       }
 
-      public String getFieldName() {
-        return _fieldName;
+      public removeBroker_args getEmptyArgsInstance() {
+        return new removeBroker_args();
       }
-    }
-    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
-    static {
-      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
-      metaDataMap = Collections.unmodifiableMap(tmpMap);
-      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(getSites_args.class, metaDataMap);
-    }
-
-    public getSites_args() {
-    }
 
-    /**
-     * Performs a deep copy on <i>other</i>.
-     */
-    public getSites_args(getSites_args other) {
+      public AsyncMethodCallback<cgl.iotcloud.core.api.thrift.TResponse> getResultHandler(final AsyncFrameBuffer fb, final int seqid) {
+        final org.apache.thrift.AsyncProcessFunction fcall = this;
+        return new AsyncMethodCallback<cgl.iotcloud.core.api.thrift.TResponse>() { 
+          public void onComplete(cgl.iotcloud.core.api.thrift.TResponse o) {
+            removeBroker_result result = new removeBroker_result();
+            result.success = o;
+            try {
+              fcall.sendResponse(fb,result, org.apache.thrift.protocol.TMessageType.REPLY,seqid);
+              return;
+            } catch (Exception e) {
+              LOGGER.error("Exception writing to internal frame buffer", e);
+            }
+            fb.close();
+          }
+          public void onError(Exception e) {
+            byte msgType = org.apache.thrift.protocol.TMessageType.REPLY;
+            org.apache.thrift.TBase msg;
+            removeBroker_result result = new removeBroker_result();
+            {
+              msgType = org.apache.thrift.protocol.TMessageType.EXCEPTION;
+              msg = (org.apache.thrift.TBase)new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.INTERNAL_ERROR, e.getMessage());
+            }
+            try {
+              fcall.sendResponse(fb,msg,msgType,seqid);
+              return;
+            } catch (Exception ex) {
+              LOGGER.error("Exception writing to internal frame buffer", ex);
+            }
+            fb.close();
+          }
+        };
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public void start(I iface, removeBroker_args args, org.apache.thrift.async.AsyncMethodCallback<cgl.iotcloud.core.api.thrift.TResponse> resultHandler) throws TException {
+        iface.removeBroker(args.sites, args.transportName, args.url,resultHandler);
+      }
+    }
+
+    public static class setRateLimit<I extends AsyncIface> extends org.apache.thrift.AsyncProcessFunction<I, setRateLimit_args, cgl.iotcloud.core.api.thrift.TResponse> {
+      public setRateLimit() {
+        super("setRateLimit");
+      }
+
+      public setRateLimit_args getEmptyArgsInstance() {
+        return new setRateLimit_args();
+      }
+
+      public AsyncMethodCallback<cgl.iotcloud.core.api.thrift.TResponse> getResultHandler(final AsyncFrameBuffer fb, final int seqid) {
+        final org.apache.thrift.AsyncProcessFunction fcall = this;
+        return new AsyncMethodCallback<cgl.iotcloud.core.api.thrift.TResponse>() { 
+          public void onComplete(cgl.iotcloud.core.api.thrift.TResponse o) {
+            setRateLimit_result result = new setRateLimit_result();
+            result.success = o;
+            try {
+              fcall.sendResponse(fb,result, org.apache.thrift.protocol.TMessageType.REPLY,seqid);
+              return;
+            } catch (Exception e) {
+              LOGGER.error("Exception writing to internal frame buffer", e);
+            }
+            fb.close();
+          }
+          public void onError(Exception e) {
+            byte msgType = org.apache.thrift.protocol.TMessageType.REPLY;
+            org.apache.thrift.TBase msg;
+            setRateLimit_result result = new setRateLimit_result();
+            {
+              msgType = org.apache.thrift.protocol.TMessageType.EXCEPTION;
+              msg = (org.apache.thrift.TBase)new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.INTERNAL_ERROR, e.getMessage());
+            }
+            try {
+              fcall.sendResponse(fb,msg,msgType,seqid);
+              return;
+            } catch (Exception ex) {
+              LOGGER.error("Exception writing to internal frame buffer", ex);
+            }
+            fb.close();
+          }
+        };
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public void start(I iface, setRateLimit_args args, org.apache.thrift.async.AsyncMethodCallback<cgl.iotcloud.core.api.thrift.TResponse> resultHandler) throws TException {
+        iface.setRateLimit(args.sites, args.sensorId, args.channelName, args.messageRate, args.byteRate, args.policy,resultHandler);
+      }
+    }
+
+  }
+
+  public static class getSites_args implements org.apache.thrift.TBase<getSites_args, getSites_args._Fields>, java.io.Serializable, Cloneable, Comparable<getSites_args>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("getSites_args");
+
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
+    static {
+      schemes.put(StandardScheme.class, new getSites_argsStandardSchemeFactory());
+      schemes.put(TupleScheme.class, new getSites_argsTupleSchemeFactory());
+    }
+
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+;
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(getSites_args.class, metaDataMap);
+    }
+
+    public getSites_args() {
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public getSites_args(getSites_args other) {
     }
 
     public getSites_args deepCopy() {
@@ -9960,4 +10396,3282 @@ import org.slf4j.LoggerFactory;
 
   }
 
+  public static class addBroker_args implements org.apache.thrift.TBase<addBroker_args, addBroker_args._Fields>, java.io.Serializable, Cloneable, Comparable<addBroker_args>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("addBroker_args");
+
+    private static final org.apache.thrift.protocol.TField SITES_FIELD_DESC = new org.apache.thrift.protocol.TField("sites", org.apache.thrift.protocol.TType.LIST, (short)1);
+    private static final org.apache.thrift.protocol.TField TRANSPORT_NAME_FIELD_DESC = new org.apache.thrift.protocol.TField("transportName", org.apache.thrift.protocol.TType.STRING, (short)2);
+    private static final org.apache.thrift.protocol.TField URL_FIELD_DESC = new org.apache.thrift.protocol.TField("url", org.apache.thrift.protocol.TType.STRING, (short)3);
+    private static final org.apache.thrift.protocol.TField ZONE_FIELD_DESC = new org.apache.thrift.protocol.TField("zone", org.apache.thrift.protocol.TType.STRING, (short)4);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
+    static {
+      schemes.put(StandardScheme.class, new addBroker_argsStandardSchemeFactory());
+      schemes.put(TupleScheme.class, new addBroker_argsTupleSchemeFactory());
+    }
+
+    public List<String> sites; // required
+    public String transportName; // required
+    public String url; // required
+    public String zone; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SITES((short)1, "sites"),
+      TRANSPORT_NAME((short)2, "transportName"),
+      URL((short)3, "url"),
+      ZONE((short)4, "zone");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // SITES
+            return SITES;
+          case 2: // TRANSPORT_NAME
+            return TRANSPORT_NAME;
+          case 3: // URL
+            return URL;
+          case 4: // ZONE
+            return ZONE;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SITES, new org.apache.thrift.meta_data.FieldMetaData("sites", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+      tmpMap.put(_Fields.TRANSPORT_NAME, new org.apache.thrift.meta_data.FieldMetaData("transportName", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.URL, new org.apache.thrift.meta_data.FieldMetaData("url", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.ZONE, new org.apache.thrift.meta_data.FieldMetaData("zone", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(addBroker_args.class, metaDataMap);
+    }
+
+    public addBroker_args() {
+    }
+
+    public addBroker_args(
+      List<String> sites,
+      String transportName,
+      String url,
+      String zone)
+    {
+      this();
+      this.sites = sites;
+      this.transportName = transportName;
+      this.url = url;
+      this.zone = zone;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public addBroker_args(addBroker_args other) {
+      if (other.isSetSites()) {
+        List<String> __this__sites = new ArrayList<String>(other.sites);
+        this.sites = __this__sites;
+      }
+      if (other.isSetTransportName()) {
+        this.transportName = other.transportName;
+      }
+      if (other.isSetUrl()) {
+        this.url = other.url;
+      }
+      if (other.isSetZone()) {
+        this.zone = other.zone;
+      }
+    }
+
+    public addBroker_args deepCopy() {
+      return new addBroker_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.sites = null;
+      this.transportName = null;
+      this.url = null;
+      this.zone = null;
+    }
+
+    public int getSitesSize() {
+      return (this.sites == null) ? 0 : this.sites.size();
+    }
+
+    public java.util.Iterator<String> getSitesIterator() {
+      return (this.sites == null) ? null : this.sites.iterator();
+    }
+
+    public void addToSites(String elem) {
+      if (this.sites == null) {
+        this.sites = new ArrayList<String>();
+      }
+      this.sites.add(elem);
+    }
+
+    public List<String> getSites() {
+      return this.sites;
+    }
+
+    public addBroker_args setSites(List<String> sites) {
+      this.sites = sites;
+      return this;
+    }
+
+    public void unsetSites() {
+      this.sites = null;
+    }
+
+    /** Returns true if field sites is set (has been assigned a value) and false otherwise */
+    public boolean isSetSites() {
+      return this.sites != null;
+    }
+
+    public void setSitesIsSet(boolean value) {
+      if (!value) {
+        this.sites = null;
+      }
+    }
+
+    public String getTransportName() {
+      return this.transportName;
+    }
+
+    public addBroker_args setTransportName(String transportName) {
+      this.transportName = transportName;
+      return this;
+    }
+
+    public void unsetTransportName() {
+      this.transportName = null;
+    }
+
+    /** Returns true if field transportName is set (has been assigned a value) and false otherwise */
+    public boolean isSetTransportName() {
+      return this.transportName != null;
+    }
+
+    public void setTransportNameIsSet(boolean value) {
+      if (!value) {
+        this.transportName = null;
+      }
+    }
+
+    public String getUrl() {
+      return this.url;
+    }
+
+    public addBroker_args setUrl(String url) {
+      this.url = url;
+      return this;
+    }
+
+    public void unsetUrl() {
+      this.url = null;
+    }
+
+    /** Returns true if field url is set (has been assigned a value) and false otherwise */
+    public boolean isSetUrl() {
+      return this.url != null;
+    }
+
+    public void setUrlIsSet(boolean value) {
+      if (!value) {
+        this.url = null;
+      }
+    }
+
+    public String getZone() {
+      return this.zone;
+    }
+
+    public addBroker_args setZone(String zone) {
+      this.zone = zone;
+      return this;
+    }
+
+    public void unsetZone() {
+      this.zone = null;
+    }
+
+    /** Returns true if field zone is set (has been assigned a value) and false otherwise */
+    public boolean isSetZone() {
+      return this.zone != null;
+    }
+
+    public void setZoneIsSet(boolean value) {
+      if (!value) {
+        this.zone = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SITES:
+        if (value == null) {
+          unsetSites();
+        } else {
+          setSites((List<String>)value);
+        }
+        break;
+
+      case TRANSPORT_NAME:
+        if (value == null) {
+          unsetTransportName();
+        } else {
+          setTransportName((String)value);
+        }
+        break;
+
+      case URL:
+        if (value == null) {
+          unsetUrl();
+        } else {
+          setUrl((String)value);
+        }
+        break;
+
+      case ZONE:
+        if (value == null) {
+          unsetZone();
+        } else {
+          setZone((String)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SITES:
+        return getSites();
+
+      case TRANSPORT_NAME:
+        return getTransportName();
+
+      case URL:
+        return getUrl();
+
+      case ZONE:
+        return getZone();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SITES:
+        return isSetSites();
+      case TRANSPORT_NAME:
+        return isSetTransportName();
+      case URL:
+        return isSetUrl();
+      case ZONE:
+        return isSetZone();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof addBroker_args)
+        return this.equals((addBroker_args)that);
+      return false;
+    }
+
+    public boolean equals(addBroker_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_sites = true && this.isSetSites();
+      boolean that_present_sites = true && that.isSetSites();
+      if (this_present_sites || that_present_sites) {
+        if (!(this_present_sites && that_present_sites))
+          return false;
+        if (!this.sites.equals(that.sites))
+          return false;
+      }
+
+      boolean this_present_transportName = true && this.isSetTransportName();
+      boolean that_present_transportName = true && that.isSetTransportName();
+      if (this_present_transportName || that_present_transportName) {
+        if (!(this_present_transportName && that_present_transportName))
+          return false;
+        if (!this.transportName.equals(that.transportName))
+          return false;
+      }
+
+      boolean this_present_url = true && this.isSetUrl();
+      boolean that_present_url = true && that.isSetUrl();
+      if (this_present_url || that_present_url) {
+        if (!(this_present_url && that_present_url))
+          return false;
+        if (!this.url.equals(that.url))
+          return false;
+      }
+
+      boolean this_present_zone = true && this.isSetZone();
+      boolean that_present_zone = true && that.isSetZone();
+      if (this_present_zone || that_present_zone) {
+        if (!(this_present_zone && that_present_zone))
+          return false;
+        if (!this.zone.equals(that.zone))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public int compareTo(addBroker_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetSites()).compareTo(other.isSetSites());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSites()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.sites, other.sites);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetTransportName()).compareTo(other.isSetTransportName());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetTransportName()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.transportName, other.transportName);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetUrl()).compareTo(other.isSetUrl());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetUrl()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.url, other.url);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetZone()).compareTo(other.isSetZone());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetZone()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.zone, other.zone);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("addBroker_args(");
+      boolean first = true;
+
+      sb.append("sites:");
+      if (this.sites == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.sites);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("transportName:");
+      if (this.transportName == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.transportName);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("url:");
+      if (this.url == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.url);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("zone:");
+      if (this.zone == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.zone);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class addBroker_argsStandardSchemeFactory implements SchemeFactory {
+      public addBroker_argsStandardScheme getScheme() {
+        return new addBroker_argsStandardScheme();
+      }
+    }
+
+    private static class addBroker_argsStandardScheme extends StandardScheme<addBroker_args> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, addBroker_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) { 
+            break;
+          }
+          switch (schemeField.id) {
+            case 1: // SITES
+              if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+                {
+                  org.apache.thrift.protocol.TList _list56 = iprot.readListBegin();
+                  struct.sites = new ArrayList<String>(_list56.size);
+                  for (int _i57 = 0; _i57 < _list56.size; ++_i57)
+                  {
+                    String _elem58;
+                    _elem58 = iprot.readString();
+                    struct.sites.add(_elem58);
+                  }
+                  iprot.readListEnd();
+                }
+                struct.setSitesIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 2: // TRANSPORT_NAME
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.transportName = iprot.readString();
+                struct.setTransportNameIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 3: // URL
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.url = iprot.readString();
+                struct.setUrlIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 4: // ZONE
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.zone = iprot.readString();
+                struct.setZoneIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, addBroker_args struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.sites != null) {
+          oprot.writeFieldBegin(SITES_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.sites.size()));
+            for (String _iter59 : struct.sites)
+            {
+              oprot.writeString(_iter59);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+        if (struct.transportName != null) {
+          oprot.writeFieldBegin(TRANSPORT_NAME_FIELD_DESC);
+          oprot.writeString(struct.transportName);
+          oprot.writeFieldEnd();
+        }
+        if (struct.url != null) {
+          oprot.writeFieldBegin(URL_FIELD_DESC);
+          oprot.writeString(struct.url);
+          oprot.writeFieldEnd();
+        }
+        if (struct.zone != null) {
+          oprot.writeFieldBegin(ZONE_FIELD_DESC);
+          oprot.writeString(struct.zone);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class addBroker_argsTupleSchemeFactory implements SchemeFactory {
+      public addBroker_argsTupleScheme getScheme() {
+        return new addBroker_argsTupleScheme();
+      }
+    }
+
+    private static class addBroker_argsTupleScheme extends TupleScheme<addBroker_args> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, addBroker_args struct) throws org.apache.thrift.TException {
+        TTupleProtocol oprot = (TTupleProtocol) prot;
+        BitSet optionals = new BitSet();
+        if (struct.isSetSites()) {
+          optionals.set(0);
+        }
+        if (struct.isSetTransportName()) {
+          optionals.set(1);
+        }
+        if (struct.isSetUrl()) {
+          optionals.set(2);
+        }
+        if (struct.isSetZone()) {
+          optionals.set(3);
+        }
+        oprot.writeBitSet(optionals, 4);
+        if (struct.isSetSites()) {
+          {
+            oprot.writeI32(struct.sites.size());
+            for (String _iter60 : struct.sites)
+            {
+              oprot.writeString(_iter60);
+            }
+          }
+        }
+        if (struct.isSetTransportName()) {
+          oprot.writeString(struct.transportName);
+        }
+        if (struct.isSetUrl()) {
+          oprot.writeString(struct.url);
+        }
+        if (struct.isSetZone()) {
+          oprot.writeString(struct.zone);
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, addBroker_args struct) throws org.apache.thrift.TException {
+        TTupleProtocol iprot = (TTupleProtocol) prot;
+        BitSet incoming = iprot.readBitSet(4);
+        if (incoming.get(0)) {
+          {
+            org.apache.thrift.protocol.TList _list61 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+            struct.sites = new ArrayList<String>(_list61.size);
+            for (int _i62 = 0; _i62 < _list61.size; ++_i62)
+            {
+              String _elem63;
+              _elem63 = iprot.readString();
+              struct.sites.add(_elem63);
+            }
+          }
+          struct.setSitesIsSet(true);
+        }
+        if (incoming.get(1)) {
+          struct.transportName = iprot.readString();
+          struct.setTransportNameIsSet(true);
+        }
+        if (incoming.get(2)) {
+          struct.url = iprot.readString();
+          struct.setUrlIsSet(true);
+        }
+        if (incoming.get(3)) {
+          struct.zone = iprot.readString();
+          struct.setZoneIsSet(true);
+        }
+      }
+    }
+
+  }
+
+  public static class addBroker_result implements org.apache.thrift.TBase<addBroker_result, addBroker_result._Fields>, java.io.Serializable, Cloneable, Comparable<addBroker_result>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("addBroker_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.STRUCT, (short)0);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
+    static {
+      schemes.put(StandardScheme.class, new addBroker_resultStandardSchemeFactory());
+      schemes.put(TupleScheme.class, new addBroker_resultTupleSchemeFactory());
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse success; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, cgl.iotcloud.core.api.thrift.TResponse.class)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(addBroker_result.class, metaDataMap);
+    }
+
+    public addBroker_result() {
+    }
+
+    public addBroker_result(
+      cgl.iotcloud.core.api.thrift.TResponse success)
+    {
+      this();
+      this.success = success;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public addBroker_result(addBroker_result other) {
+      if (other.isSetSuccess()) {
+        this.success = new cgl.iotcloud.core.api.thrift.TResponse(other.success);
+      }
+    }
+
+    public addBroker_result deepCopy() {
+      return new addBroker_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse getSuccess() {
+      return this.success;
+    }
+
+    public addBroker_result setSuccess(cgl.iotcloud.core.api.thrift.TResponse success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((cgl.iotcloud.core.api.thrift.TResponse)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof addBroker_result)
+        return this.equals((addBroker_result)that);
+      return false;
+    }
+
+    public boolean equals(addBroker_result that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public int compareTo(addBroker_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(other.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, other.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+      }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("addBroker_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+      if (success != null) {
+        success.validate();
+      }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class addBroker_resultStandardSchemeFactory implements SchemeFactory {
+      public addBroker_resultStandardScheme getScheme() {
+        return new addBroker_resultStandardScheme();
+      }
+    }
+
+    private static class addBroker_resultStandardScheme extends StandardScheme<addBroker_result> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, addBroker_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) { 
+            break;
+          }
+          switch (schemeField.id) {
+            case 0: // SUCCESS
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRUCT) {
+                struct.success = new cgl.iotcloud.core.api.thrift.TResponse();
+                struct.success.read(iprot);
+                struct.setSuccessIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, addBroker_result struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.success != null) {
+          oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+          struct.success.write(oprot);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class addBroker_resultTupleSchemeFactory implements SchemeFactory {
+      public addBroker_resultTupleScheme getScheme() {
+        return new addBroker_resultTupleScheme();
+      }
+    }
+
+    private static class addBroker_resultTupleScheme extends TupleScheme<addBroker_result> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, addBroker_result struct) throws org.apache.thrift.TException {
+        TTupleProtocol oprot = (TTupleProtocol) prot;
+        BitSet optionals = new BitSet();
+        if (struct.isSetSuccess()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.isSetSuccess()) {
+          struct.success.write(oprot);
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, addBroker_result struct) throws org.apache.thrift.TException {
+        TTupleProtocol iprot = (TTupleProtocol) prot;
+        BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          struct.success = new cgl.iotcloud.core.api.thrift.TResponse();
+          struct.success.read(iprot);
+          struct.setSuccessIsSet(true);
+        }
+      }
+    }
+
+  }
+
+  public static class removeBroker_args implements org.apache.thrift.TBase<removeBroker_args, removeBroker_args._Fields>, java.io.Serializable, Cloneable, Comparable<removeBroker_args>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("removeBroker_args");
+
+    private static final org.apache.thrift.protocol.TField SITES_FIELD_DESC = new org.apache.thrift.protocol.TField("sites", org.apache.thrift.protocol.TType.LIST, (short)1);
+    private static final org.apache.thrift.protocol.TField TRANSPORT_NAME_FIELD_DESC = new org.apache.thrift.protocol.TField("transportName", org.apache.thrift.protocol.TType.STRING, (short)2);
+    private static final org.apache.thrift.protocol.TField URL_FIELD_DESC = new org.apache.thrift.protocol.TField("url", org.apache.thrift.protocol.TType.STRING, (short)3);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
+    static {
+      schemes.put(StandardScheme.class, new removeBroker_argsStandardSchemeFactory());
+      schemes.put(TupleScheme.class, new removeBroker_argsTupleSchemeFactory());
+    }
+
+    public List<String> sites; // required
+    public String transportName; // required
+    public String url; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SITES((short)1, "sites"),
+      TRANSPORT_NAME((short)2, "transportName"),
+      URL((short)3, "url");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // SITES
+            return SITES;
+          case 2: // TRANSPORT_NAME
+            return TRANSPORT_NAME;
+          case 3: // URL
+            return URL;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SITES, new org.apache.thrift.meta_data.FieldMetaData("sites", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+      tmpMap.put(_Fields.TRANSPORT_NAME, new org.apache.thrift.meta_data.FieldMetaData("transportName", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.URL, new org.apache.thrift.meta_data.FieldMetaData("url", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(removeBroker_args.class, metaDataMap);
+    }
+
+    public removeBroker_args() {
+    }
+
+    public removeBroker_args(
+      List<String> sites,
+      String transportName,
+      String url)
+    {
+      this();
+      this.sites = sites;
+      this.transportName = transportName;
+      this.url = url;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public removeBroker_args(removeBroker_args other) {
+      if (other.isSetSites()) {
+        List<String> __this__sites = new ArrayList<String>(other.sites);
+        this.sites = __this__sites;
+      }
+      if (other.isSetTransportName()) {
+        this.transportName = other.transportName;
+      }
+      if (other.isSetUrl()) {
+        this.url = other.url;
+      }
+    }
+
+    public removeBroker_args deepCopy() {
+      return new removeBroker_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.sites = null;
+      this.transportName = null;
+      this.url = null;
+    }
+
+    public int getSitesSize() {
+      return (this.sites == null) ? 0 : this.sites.size();
+    }
+
+    public java.util.Iterator<String> getSitesIterator() {
+      return (this.sites == null) ? null : this.sites.iterator();
+    }
+
+    public void addToSites(String elem) {
+      if (this.sites == null) {
+        this.sites = new ArrayList<String>();
+      }
+      this.sites.add(elem);
+    }
+
+    public List<String> getSites() {
+      return this.sites;
+    }
+
+    public removeBroker_args setSites(List<String> sites) {
+      this.sites = sites;
+      return this;
+    }
+
+    public void unsetSites() {
+      this.sites = null;
+    }
+
+    /** Returns true if field sites is set (has been assigned a value) and false otherwise */
+    public boolean isSetSites() {
+      return this.sites != null;
+    }
+
+    public void setSitesIsSet(boolean value) {
+      if (!value) {
+        this.sites = null;
+      }
+    }
+
+    public String getTransportName() {
+      return this.transportName;
+    }
+
+    public removeBroker_args setTransportName(String transportName) {
+      this.transportName = transportName;
+      return this;
+    }
+
+    public void unsetTransportName() {
+      this.transportName = null;
+    }
+
+    /** Returns true if field transportName is set (has been assigned a value) and false otherwise */
+    public boolean isSetTransportName() {
+      return this.transportName != null;
+    }
+
+    public void setTransportNameIsSet(boolean value) {
+      if (!value) {
+        this.transportName = null;
+      }
+    }
+
+    public String getUrl() {
+      return this.url;
+    }
+
+    public removeBroker_args setUrl(String url) {
+      this.url = url;
+      return this;
+    }
+
+    public void unsetUrl() {
+      this.url = null;
+    }
+
+    /** Returns true if field url is set (has been assigned a value) and false otherwise */
+    public boolean isSetUrl() {
+      return this.url != null;
+    }
+
+    public void setUrlIsSet(boolean value) {
+      if (!value) {
+        this.url = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SITES:
+        if (value == null) {
+          unsetSites();
+        } else {
+          setSites((List<String>)value);
+        }
+        break;
+
+      case TRANSPORT_NAME:
+        if (value == null) {
+          unsetTransportName();
+        } else {
+          setTransportName((String)value);
+        }
+        break;
+
+      case URL:
+        if (value == null) {
+          unsetUrl();
+        } else {
+          setUrl((String)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SITES:
+        return getSites();
+
+      case TRANSPORT_NAME:
+        return getTransportName();
+
+      case URL:
+        return getUrl();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SITES:
+        return isSetSites();
+      case TRANSPORT_NAME:
+        return isSetTransportName();
+      case URL:
+        return isSetUrl();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof removeBroker_args)
+        return this.equals((removeBroker_args)that);
+      return false;
+    }
+
+    public boolean equals(removeBroker_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_sites = true && this.isSetSites();
+      boolean that_present_sites = true && that.isSetSites();
+      if (this_present_sites || that_present_sites) {
+        if (!(this_present_sites && that_present_sites))
+          return false;
+        if (!this.sites.equals(that.sites))
+          return false;
+      }
+
+      boolean this_present_transportName = true && this.isSetTransportName();
+      boolean that_present_transportName = true && that.isSetTransportName();
+      if (this_present_transportName || that_present_transportName) {
+        if (!(this_present_transportName && that_present_transportName))
+          return false;
+        if (!this.transportName.equals(that.transportName))
+          return false;
+      }
+
+      boolean this_present_url = true && this.isSetUrl();
+      boolean that_present_url = true && that.isSetUrl();
+      if (this_present_url || that_present_url) {
+        if (!(this_present_url && that_present_url))
+          return false;
+        if (!this.url.equals(that.url))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public int compareTo(removeBroker_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetSites()).compareTo(other.isSetSites());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSites()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.sites, other.sites);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetTransportName()).compareTo(other.isSetTransportName());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetTransportName()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.transportName, other.transportName);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetUrl()).compareTo(other.isSetUrl());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetUrl()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.url, other.url);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("removeBroker_args(");
+      boolean first = true;
+
+      sb.append("sites:");
+      if (this.sites == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.sites);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("transportName:");
+      if (this.transportName == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.transportName);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("url:");
+      if (this.url == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.url);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class removeBroker_argsStandardSchemeFactory implements SchemeFactory {
+      public removeBroker_argsStandardScheme getScheme() {
+        return new removeBroker_argsStandardScheme();
+      }
+    }
+
+    private static class removeBroker_argsStandardScheme extends StandardScheme<removeBroker_args> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, removeBroker_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) { 
+            break;
+          }
+          switch (schemeField.id) {
+            case 1: // SITES
+              if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+                {
+                  org.apache.thrift.protocol.TList _list64 = iprot.readListBegin();
+                  struct.sites = new ArrayList<String>(_list64.size);
+                  for (int _i65 = 0; _i65 < _list64.size; ++_i65)
+                  {
+                    String _elem66;
+                    _elem66 = iprot.readString();
+                    struct.sites.add(_elem66);
+                  }
+                  iprot.readListEnd();
+                }
+                struct.setSitesIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 2: // TRANSPORT_NAME
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.transportName = iprot.readString();
+                struct.setTransportNameIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 3: // URL
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.url = iprot.readString();
+                struct.setUrlIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, removeBroker_args struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.sites != null) {
+          oprot.writeFieldBegin(SITES_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.sites.size()));
+            for (String _iter67 : struct.sites)
+            {
+              oprot.writeString(_iter67);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+        if (struct.transportName != null) {
+          oprot.writeFieldBegin(TRANSPORT_NAME_FIELD_DESC);
+          oprot.writeString(struct.transportName);
+          oprot.writeFieldEnd();
+        }
+        if (struct.url != null) {
+          oprot.writeFieldBegin(URL_FIELD_DESC);
+          oprot.writeString(struct.url);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class removeBroker_argsTupleSchemeFactory implements SchemeFactory {
+      public removeBroker_argsTupleScheme getScheme() {
+        return new removeBroker_argsTupleScheme();
+      }
+    }
+
+    private static class removeBroker_argsTupleScheme extends TupleScheme<removeBroker_args> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, removeBroker_args struct) throws org.apache.thrift.TException {
+        TTupleProtocol oprot = (TTupleProtocol) prot;
+        BitSet optionals = new BitSet();
+        if (struct.isSetSites()) {
+          optionals.set(0);
+        }
+        if (struct.isSetTransportName()) {
+          optionals.set(1);
+        }
+        if (struct.isSetUrl()) {
+          optionals.set(2);
+        }
+        oprot.writeBitSet(optionals, 3);
+        if (struct.isSetSites()) {
+          {
+            oprot.writeI32(struct.sites.size());
+            for (String _iter68 : struct.sites)
+            {
+              oprot.writeString(_iter68);
+            }
+          }
+        }
+        if (struct.isSetTransportName()) {
+          oprot.writeString(struct.transportName);
+        }
+        if (struct.isSetUrl()) {
+          oprot.writeString(struct.url);
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, removeBroker_args struct) throws org.apache.thrift.TException {
+        TTupleProtocol iprot = (TTupleProtocol) prot;
+        BitSet incoming = iprot.readBitSet(3);
+        if (incoming.get(0)) {
+          {
+            org.apache.thrift.protocol.TList _list69 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+            struct.sites = new ArrayList<String>(_list69.size);
+            for (int _i70 = 0; _i70 < _list69.size; ++_i70)
+            {
+              String _elem71;
+              _elem71 = iprot.readString();
+              struct.sites.add(_elem71);
+            }
+          }
+          struct.setSitesIsSet(true);
+        }
+        if (incoming.get(1)) {
+          struct.transportName = iprot.readString();
+          struct.setTransportNameIsSet(true);
+        }
+        if (incoming.get(2)) {
+          struct.url = iprot.readString();
+          struct.setUrlIsSet(true);
+        }
+      }
+    }
+
+  }
+
+  public static class removeBroker_result implements org.apache.thrift.TBase<removeBroker_result, removeBroker_result._Fields>, java.io.Serializable, Cloneable, Comparable<removeBroker_result>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("removeBroker_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.STRUCT, (short)0);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
+    static {
+      schemes.put(StandardScheme.class, new removeBroker_resultStandardSchemeFactory());
+      schemes.put(TupleScheme.class, new removeBroker_resultTupleSchemeFactory());
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse success; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, cgl.iotcloud.core.api.thrift.TResponse.class)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(removeBroker_result.class, metaDataMap);
+    }
+
+    public removeBroker_result() {
+    }
+
+    public removeBroker_result(
+      cgl.iotcloud.core.api.thrift.TResponse success)
+    {
+      this();
+      this.success = success;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public removeBroker_result(removeBroker_result other) {
+      if (other.isSetSuccess()) {
+        this.success = new cgl.iotcloud.core.api.thrift.TResponse(other.success);
+      }
+    }
+
+    public removeBroker_result deepCopy() {
+      return new removeBroker_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse getSuccess() {
+      return this.success;
+    }
+
+    public removeBroker_result setSuccess(cgl.iotcloud.core.api.thrift.TResponse success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((cgl.iotcloud.core.api.thrift.TResponse)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof removeBroker_result)
+        return this.equals((removeBroker_result)that);
+      return false;
+    }
+
+    public boolean equals(removeBroker_result that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public int compareTo(removeBroker_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(other.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, other.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+      }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("removeBroker_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+      if (success != null) {
+        success.validate();
+      }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class removeBroker_resultStandardSchemeFactory implements SchemeFactory {
+      public removeBroker_resultStandardScheme getScheme() {
+        return new removeBroker_resultStandardScheme();
+      }
+    }
+
+    private static class removeBroker_resultStandardScheme extends StandardScheme<removeBroker_result> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, removeBroker_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) { 
+            break;
+          }
+          switch (schemeField.id) {
+            case 0: // SUCCESS
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRUCT) {
+                struct.success = new cgl.iotcloud.core.api.thrift.TResponse();
+                struct.success.read(iprot);
+                struct.setSuccessIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, removeBroker_result struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.success != null) {
+          oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+          struct.success.write(oprot);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class removeBroker_resultTupleSchemeFactory implements SchemeFactory {
+      public removeBroker_resultTupleScheme getScheme() {
+        return new removeBroker_resultTupleScheme();
+      }
+    }
+
+    private static class removeBroker_resultTupleScheme extends TupleScheme<removeBroker_result> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, removeBroker_result struct) throws org.apache.thrift.TException {
+        TTupleProtocol oprot = (TTupleProtocol) prot;
+        BitSet optionals = new BitSet();
+        if (struct.isSetSuccess()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.isSetSuccess()) {
+          struct.success.write(oprot);
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, removeBroker_result struct) throws org.apache.thrift.TException {
+        TTupleProtocol iprot = (TTupleProtocol) prot;
+        BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          struct.success = new cgl.iotcloud.core.api.thrift.TResponse();
+          struct.success.read(iprot);
+          struct.setSuccessIsSet(true);
+        }
+      }
+    }
+
+  }
+
+  public static class setRateLimit_args implements org.apache.thrift.TBase<setRateLimit_args, setRateLimit_args._Fields>, java.io.Serializable, Cloneable, Comparable<setRateLimit_args>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("setRateLimit_args");
+
+    private static final org.apache.thrift.protocol.TField SITES_FIELD_DESC = new org.apache.thrift.protocol.TField("sites", org.apache.thrift.protocol.TType.LIST, (short)1);
+    private static final org.apache.thrift.protocol.TField SENSOR_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("sensorId", org.apache.thrift.protocol.TType.STRING, (short)2);
+    private static final org.apache.thrift.protocol.TField CHANNEL_NAME_FIELD_DESC = new org.apache.thrift.protocol.TField("channelName", org.apache.thrift.protocol.TType.STRING, (short)3);
+    private static final org.apache.thrift.protocol.TField MESSAGE_RATE_FIELD_DESC = new org.apache.thrift.protocol.TField("messageRate", org.apache.thrift.protocol.TType.DOUBLE, (short)4);
+    private static final org.apache.thrift.protocol.TField BYTE_RATE_FIELD_DESC = new org.apache.thrift.protocol.TField("byteRate", org.apache.thrift.protocol.TType.DOUBLE, (short)5);
+    private static final org.apache.thrift.protocol.TField POLICY_FIELD_DESC = new org.apache.thrift.protocol.TField("policy", org.apache.thrift.protocol.TType.STRING, (short)6);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
+    static {
+      schemes.put(StandardScheme.class, new setRateLimit_argsStandardSchemeFactory());
+      schemes.put(TupleScheme.class, new setRateLimit_argsTupleSchemeFactory());
+    }
+
+    public List<String> sites; // required
+    public String sensorId; // required
+    public String channelName; // required
+    public double messageRate; // required
+    public double byteRate; // required
+    public String policy; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SITES((short)1, "sites"),
+      SENSOR_ID((short)2, "sensorId"),
+      CHANNEL_NAME((short)3, "channelName"),
+      MESSAGE_RATE((short)4, "messageRate"),
+      BYTE_RATE((short)5, "byteRate"),
+      POLICY((short)6, "policy");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // SITES
+            return SITES;
+          case 2: // SENSOR_ID
+            return SENSOR_ID;
+          case 3: // CHANNEL_NAME
+            return CHANNEL_NAME;
+          case 4: // MESSAGE_RATE
+            return MESSAGE_RATE;
+          case 5: // BYTE_RATE
+            return BYTE_RATE;
+          case 6: // POLICY
+            return POLICY;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    private static final int __MESSAGERATE_ISSET_ID = 0;
+    private static final int __BYTERATE_ISSET_ID = 1;
+    private byte __isset_bitfield = 0;
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SITES, new org.apache.thrift.meta_data.FieldMetaData("sites", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+      tmpMap.put(_Fields.SENSOR_ID, new org.apache.thrift.meta_data.FieldMetaData("sensorId", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.CHANNEL_NAME, new org.apache.thrift.meta_data.FieldMetaData("channelName", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.MESSAGE_RATE, new org.apache.thrift.meta_data.FieldMetaData("messageRate", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.DOUBLE)));
+      tmpMap.put(_Fields.BYTE_RATE, new org.apache.thrift.meta_data.FieldMetaData("byteRate", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.DOUBLE)));
+      tmpMap.put(_Fields.POLICY, new org.apache.thrift.meta_data.FieldMetaData("policy", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(setRateLimit_args.class, metaDataMap);
+    }
+
+    public setRateLimit_args() {
+    }
+
+    public setRateLimit_args(
+      List<String> sites,
+      String sensorId,
+      String channelName,
+      double messageRate,
+      double byteRate,
+      String policy)
+    {
+      this();
+      this.sites = sites;
+      this.sensorId = sensorId;
+      this.channelName = channelName;
+      this.messageRate = messageRate;
+      setMessageRateIsSet(true);
+      this.byteRate = byteRate;
+      setByteRateIsSet(true);
+      this.policy = policy;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public setRateLimit_args(setRateLimit_args other) {
+      __isset_bitfield = other.__isset_bitfield;
+      if (other.isSetSites()) {
+        List<String> __this__sites = new ArrayList<String>(other.sites);
+        this.sites = __this__sites;
+      }
+      if (other.isSetSensorId()) {
+        this.sensorId = other.sensorId;
+      }
+      if (other.isSetChannelName()) {
+        this.channelName = other.channelName;
+      }
+      this.messageRate = other.messageRate;
+      this.byteRate = other.byteRate;
+      if (other.isSetPolicy()) {
+        this.policy = other.policy;
+      }
+    }
+
+    public setRateLimit_args deepCopy() {
+      return new setRateLimit_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.sites = null;
+      this.sensorId = null;
+      this.channelName = null;
+      setMessageRateIsSet(false);
+      this.messageRate = 0.0;
+      setByteRateIsSet(false);
+      this.byteRate = 0.0;
+      this.policy = null;
+    }
+
+    public int getSitesSize() {
+      return (this.sites == null) ? 0 : this.sites.size();
+    }
+
+    public java.util.Iterator<String> getSitesIterator() {
+      return (this.sites == null) ? null : this.sites.iterator();
+    }
+
+    public void addToSites(String elem) {
+      if (this.sites == null) {
+        this.sites = new ArrayList<String>();
+      }
+      this.sites.add(elem);
+    }
+
+    public List<String> getSites() {
+      return this.sites;
+    }
+
+    public setRateLimit_args setSites(List<String> sites) {
+      this.sites = sites;
+      return this;
+    }
+
+    public void unsetSites() {
+      this.sites = null;
+    }
+
+    /** Returns true if field sites is set (has been assigned a value) and false otherwise */
+    public boolean isSetSites() {
+      return this.sites != null;
+    }
+
+    public void setSitesIsSet(boolean value) {
+      if (!value) {
+        this.sites = null;
+      }
+    }
+
+    public String getSensorId() {
+      return this.sensorId;
+    }
+
+    public setRateLimit_args setSensorId(String sensorId) {
+      this.sensorId = sensorId;
+      return this;
+    }
+
+    public void unsetSensorId() {
+      this.sensorId = null;
+    }
+
+    /** Returns true if field sensorId is set (has been assigned a value) and false otherwise */
+    public boolean isSetSensorId() {
+      return this.sensorId != null;
+    }
+
+    public void setSensorIdIsSet(boolean value) {
+      if (!value) {
+        this.sensorId = null;
+      }
+    }
+
+    public String getChannelName() {
+      return this.channelName;
+    }
+
+    public setRateLimit_args setChannelName(String channelName) {
+      this.channelName = channelName;
+      return this;
+    }
+
+    public void unsetChannelName() {
+      this.channelName = null;
+    }
+
+    /** Returns true if field channelName is set (has been assigned a value) and false otherwise */
+    public boolean isSetChannelName() {
+      return this.channelName != null;
+    }
+
+    public void setChannelNameIsSet(boolean value) {
+      if (!value) {
+        this.channelName = null;
+      }
+    }
+
+    public double getMessageRate() {
+      return this.messageRate;
+    }
+
+    public setRateLimit_args setMessageRate(double messageRate) {
+      this.messageRate = messageRate;
+      setMessageRateIsSet(true);
+      return this;
+    }
+
+    public void unsetMessageRate() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __MESSAGERATE_ISSET_ID);
+    }
+
+    /** Returns true if field messageRate is set (has been assigned a value) and false otherwise */
+    public boolean isSetMessageRate() {
+      return EncodingUtils.testBit(__isset_bitfield, __MESSAGERATE_ISSET_ID);
+    }
+
+    public void setMessageRateIsSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __MESSAGERATE_ISSET_ID, value);
+    }
+
+    public double getByteRate() {
+      return this.byteRate;
+    }
+
+    public setRateLimit_args setByteRate(double byteRate) {
+      this.byteRate = byteRate;
+      setByteRateIsSet(true);
+      return this;
+    }
+
+    public void unsetByteRate() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __BYTERATE_ISSET_ID);
+    }
+
+    /** Returns true if field byteRate is set (has been assigned a value) and false otherwise */
+    public boolean isSetByteRate() {
+      return EncodingUtils.testBit(__isset_bitfield, __BYTERATE_ISSET_ID);
+    }
+
+    public void setByteRateIsSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __BYTERATE_ISSET_ID, value);
+    }
+
+    public String getPolicy() {
+      return this.policy;
+    }
+
+    public setRateLimit_args setPolicy(String policy) {
+      this.policy = policy;
+      return this;
+    }
+
+    public void unsetPolicy() {
+      this.policy = null;
+    }
+
+    /** Returns true if field policy is set (has been assigned a value) and false otherwise */
+    public boolean isSetPolicy() {
+      return this.policy != null;
+    }
+
+    public void setPolicyIsSet(boolean value) {
+      if (!value) {
+        this.policy = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SITES:
+        if (value == null) {
+          unsetSites();
+        } else {
+          setSites((List<String>)value);
+        }
+        break;
+
+      case SENSOR_ID:
+        if (value == null) {
+          unsetSensorId();
+        } else {
+          setSensorId((String)value);
+        }
+        break;
+
+      case CHANNEL_NAME:
+        if (value == null) {
+          unsetChannelName();
+        } else {
+          setChannelName((String)value);
+        }
+        break;
+
+      case MESSAGE_RATE:
+        if (value == null) {
+          unsetMessageRate();
+        } else {
+          setMessageRate((Double)value);
+        }
+        break;
+
+      case BYTE_RATE:
+        if (value == null) {
+          unsetByteRate();
+        } else {
+          setByteRate((Double)value);
+        }
+        break;
+
+      case POLICY:
+        if (value == null) {
+          unsetPolicy();
+        } else {
+          setPolicy((String)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SITES:
+        return getSites();
+
+      case SENSOR_ID:
+        return getSensorId();
+
+      case CHANNEL_NAME:
+        return getChannelName();
+
+      case MESSAGE_RATE:
+        return Double.valueOf(getMessageRate());
+
+      case BYTE_RATE:
+        return Double.valueOf(getByteRate());
+
+      case POLICY:
+        return getPolicy();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SITES:
+        return isSetSites();
+      case SENSOR_ID:
+        return isSetSensorId();
+      case CHANNEL_NAME:
+        return isSetChannelName();
+      case MESSAGE_RATE:
+        return isSetMessageRate();
+      case BYTE_RATE:
+        return isSetByteRate();
+      case POLICY:
+        return isSetPolicy();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof setRateLimit_args)
+        return this.equals((setRateLimit_args)that);
+      return false;
+    }
+
+    public boolean equals(setRateLimit_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_sites = true && this.isSetSites();
+      boolean that_present_sites = true && that.isSetSites();
+      if (this_present_sites || that_present_sites) {
+        if (!(this_present_sites && that_present_sites))
+          return false;
+        if (!this.sites.equals(that.sites))
+          return false;
+      }
+
+      boolean this_present_sensorId = true && this.isSetSensorId();
+      boolean that_present_sensorId = true && that.isSetSensorId();
+      if (this_present_sensorId || that_present_sensorId) {
+        if (!(this_present_sensorId && that_present_sensorId))
+          return false;
+        if (!this.sensorId.equals(that.sensorId))
+          return false;
+      }
+
+      boolean this_present_channelName = true && this.isSetChannelName();
+      boolean that_present_channelName = true && that.isSetChannelName();
+      if (this_present_channelName || that_present_channelName) {
+        if (!(this_present_channelName && that_present_channelName))
+          return false;
+        if (!this.channelName.equals(that.channelName))
+          return false;
+      }
+
+      boolean this_present_messageRate = true;
+      boolean that_present_messageRate = true;
+      if (this_present_messageRate || that_present_messageRate) {
+        if (!(this_present_messageRate && that_present_messageRate))
+          return false;
+        if (this.messageRate != that.messageRate)
+          return false;
+      }
+
+      boolean this_present_byteRate = true;
+      boolean that_present_byteRate = true;
+      if (this_present_byteRate || that_present_byteRate) {
+        if (!(this_present_byteRate && that_present_byteRate))
+          return false;
+        if (this.byteRate != that.byteRate)
+          return false;
+      }
+
+      boolean this_present_policy = true && this.isSetPolicy();
+      boolean that_present_policy = true && that.isSetPolicy();
+      if (this_present_policy || that_present_policy) {
+        if (!(this_present_policy && that_present_policy))
+          return false;
+        if (!this.policy.equals(that.policy))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public int compareTo(setRateLimit_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetSites()).compareTo(other.isSetSites());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSites()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.sites, other.sites);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetSensorId()).compareTo(other.isSetSensorId());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSensorId()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.sensorId, other.sensorId);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetChannelName()).compareTo(other.isSetChannelName());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetChannelName()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.channelName, other.channelName);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetMessageRate()).compareTo(other.isSetMessageRate());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetMessageRate()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.messageRate, other.messageRate);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetByteRate()).compareTo(other.isSetByteRate());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetByteRate()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.byteRate, other.byteRate);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetPolicy()).compareTo(other.isSetPolicy());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetPolicy()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.policy, other.policy);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("setRateLimit_args(");
+      boolean first = true;
+
+      sb.append("sites:");
+      if (this.sites == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.sites);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("sensorId:");
+      if (this.sensorId == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.sensorId);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("channelName:");
+      if (this.channelName == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.channelName);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("messageRate:");
+      sb.append(this.messageRate);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("byteRate:");
+      sb.append(this.byteRate);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("policy:");
+      if (this.policy == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.policy);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+        __isset_bitfield = 0;
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class setRateLimit_argsStandardSchemeFactory implements SchemeFactory {
+      public setRateLimit_argsStandardScheme getScheme() {
+        return new setRateLimit_argsStandardScheme();
+      }
+    }
+
+    private static class setRateLimit_argsStandardScheme extends StandardScheme<setRateLimit_args> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, setRateLimit_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) { 
+            break;
+          }
+          switch (schemeField.id) {
+            case 1: // SITES
+              if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+                {
+                  org.apache.thrift.protocol.TList _list70 = iprot.readListBegin();
+                  struct.sites = new ArrayList<String>(_list70.size);
+                  for (int _i71 = 0; _i71 < _list70.size; ++_i71)
+                  {
+                    String _elem72;
+                    _elem72 = iprot.readString();
+                    struct.sites.add(_elem72);
+                  }
+                  iprot.readListEnd();
+                }
+                struct.setSitesIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 2: // SENSOR_ID
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.sensorId = iprot.readString();
+                struct.setSensorIdIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 3: // CHANNEL_NAME
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.channelName = iprot.readString();
+                struct.setChannelNameIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 4: // MESSAGE_RATE
+              if (schemeField.type == org.apache.thrift.protocol.TType.DOUBLE) {
+                struct.messageRate = iprot.readDouble();
+                struct.setMessageRateIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 5: // BYTE_RATE
+              if (schemeField.type == org.apache.thrift.protocol.TType.DOUBLE) {
+                struct.byteRate = iprot.readDouble();
+                struct.setByteRateIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 6: // POLICY
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.policy = iprot.readString();
+                struct.setPolicyIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, setRateLimit_args struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.sites != null) {
+          oprot.writeFieldBegin(SITES_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.sites.size()));
+            for (String _iter73 : struct.sites)
+            {
+              oprot.writeString(_iter73);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+        if (struct.sensorId != null) {
+          oprot.writeFieldBegin(SENSOR_ID_FIELD_DESC);
+          oprot.writeString(struct.sensorId);
+          oprot.writeFieldEnd();
+        }
+        if (struct.channelName != null) {
+          oprot.writeFieldBegin(CHANNEL_NAME_FIELD_DESC);
+          oprot.writeString(struct.channelName);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldBegin(MESSAGE_RATE_FIELD_DESC);
+        oprot.writeDouble(struct.messageRate);
+        oprot.writeFieldEnd();
+        oprot.writeFieldBegin(BYTE_RATE_FIELD_DESC);
+        oprot.writeDouble(struct.byteRate);
+        oprot.writeFieldEnd();
+        if (struct.policy != null) {
+          oprot.writeFieldBegin(POLICY_FIELD_DESC);
+          oprot.writeString(struct.policy);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class setRateLimit_argsTupleSchemeFactory implements SchemeFactory {
+      public setRateLimit_argsTupleScheme getScheme() {
+        return new setRateLimit_argsTupleScheme();
+      }
+    }
+
+    private static class setRateLimit_argsTupleScheme extends TupleScheme<setRateLimit_args> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, setRateLimit_args struct) throws org.apache.thrift.TException {
+        TTupleProtocol oprot = (TTupleProtocol) prot;
+        BitSet optionals = new BitSet();
+        if (struct.isSetSites()) {
+          optionals.set(0);
+        }
+        if (struct.isSetSensorId()) {
+          optionals.set(1);
+        }
+        if (struct.isSetChannelName()) {
+          optionals.set(2);
+        }
+        if (struct.isSetMessageRate()) {
+          optionals.set(3);
+        }
+        if (struct.isSetByteRate()) {
+          optionals.set(4);
+        }
+        if (struct.isSetPolicy()) {
+          optionals.set(5);
+        }
+        oprot.writeBitSet(optionals, 6);
+        if (struct.isSetSites()) {
+          {
+            oprot.writeI32(struct.sites.size());
+            for (String _iter74 : struct.sites)
+            {
+              oprot.writeString(_iter74);
+            }
+          }
+        }
+        if (struct.isSetSensorId()) {
+          oprot.writeString(struct.sensorId);
+        }
+        if (struct.isSetChannelName()) {
+          oprot.writeString(struct.channelName);
+        }
+        if (struct.isSetMessageRate()) {
+          oprot.writeDouble(struct.messageRate);
+        }
+        if (struct.isSetByteRate()) {
+          oprot.writeDouble(struct.byteRate);
+        }
+        if (struct.isSetPolicy()) {
+          oprot.writeString(struct.policy);
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, setRateLimit_args struct) throws org.apache.thrift.TException {
+        TTupleProtocol iprot = (TTupleProtocol) prot;
+        BitSet incoming = iprot.readBitSet(6);
+        if (incoming.get(0)) {
+          {
+            org.apache.thrift.protocol.TList _list75 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+            struct.sites = new ArrayList<String>(_list75.size);
+            for (int _i76 = 0; _i76 < _list75.size; ++_i76)
+            {
+              String _elem77;
+              _elem77 = iprot.readString();
+              struct.sites.add(_elem77);
+            }
+          }
+          struct.setSitesIsSet(true);
+        }
+        if (incoming.get(1)) {
+          struct.sensorId = iprot.readString();
+          struct.setSensorIdIsSet(true);
+        }
+        if (incoming.get(2)) {
+          struct.channelName = iprot.readString();
+          struct.setChannelNameIsSet(true);
+        }
+        if (incoming.get(3)) {
+          struct.messageRate = iprot.readDouble();
+          struct.setMessageRateIsSet(true);
+        }
+        if (incoming.get(4)) {
+          struct.byteRate = iprot.readDouble();
+          struct.setByteRateIsSet(true);
+        }
+        if (incoming.get(5)) {
+          struct.policy = iprot.readString();
+          struct.setPolicyIsSet(true);
+        }
+      }
+    }
+
+  }
+
+  public static class setRateLimit_result implements org.apache.thrift.TBase<setRateLimit_result, setRateLimit_result._Fields>, java.io.Serializable, Cloneable, Comparable<setRateLimit_result>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("setRateLimit_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.STRUCT, (short)0);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
+    static {
+      schemes.put(StandardScheme.class, new setRateLimit_resultStandardSchemeFactory());
+      schemes.put(TupleScheme.class, new setRateLimit_resultTupleSchemeFactory());
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse success; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, cgl.iotcloud.core.api.thrift.TResponse.class)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(setRateLimit_result.class, metaDataMap);
+    }
+
+    public setRateLimit_result() {
+    }
+
+    public setRateLimit_result(
+      cgl.iotcloud.core.api.thrift.TResponse success)
+    {
+      this();
+      this.success = success;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public setRateLimit_result(setRateLimit_result other) {
+      if (other.isSetSuccess()) {
+        this.success = new cgl.iotcloud.core.api.thrift.TResponse(other.success);
+      }
+    }
+
+    public setRateLimit_result deepCopy() {
+      return new setRateLimit_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+    }
+
+    public cgl.iotcloud.core.api.thrift.TResponse getSuccess() {
+      return this.success;
+    }
+
+    public setRateLimit_result setSuccess(cgl.iotcloud.core.api.thrift.TResponse success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((cgl.iotcloud.core.api.thrift.TResponse)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof setRateLimit_result)
+        return this.equals((setRateLimit_result)that);
+      return false;
+    }
+
+    public boolean equals(setRateLimit_result that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public int compareTo(setRateLimit_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(other.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, other.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+      }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("setRateLimit_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+      if (success != null) {
+        success.validate();
+      }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class setRateLimit_resultStandardSchemeFactory implements SchemeFactory {
+      public setRateLimit_resultStandardScheme getScheme() {
+        return new setRateLimit_resultStandardScheme();
+      }
+    }
+
+    private static class setRateLimit_resultStandardScheme extends StandardScheme<setRateLimit_result> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, setRateLimit_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) { 
+            break;
+          }
+          switch (schemeField.id) {
+            case 0: // SUCCESS
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRUCT) {
+                struct.success = new cgl.iotcloud.core.api.thrift.TResponse();
+                struct.success.read(iprot);
+                struct.setSuccessIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, setRateLimit_result struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.success != null) {
+          oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+          struct.success.write(oprot);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class setRateLimit_resultTupleSchemeFactory implements SchemeFactory {
+      public setRateLimit_resultTupleScheme getScheme() {
+        return new setRateLimit_resultTupleScheme();
+      }
+    }
+
+    private static class setRateLimit_resultTupleScheme extends TupleScheme<setRateLimit_result> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, setRateLimit_result struct) throws org.apache.thrift.TException {
+        TTupleProtocol oprot = (TTupleProtocol) prot;
+        BitSet optionals = new BitSet();
+        if (struct.isSetSuccess()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.isSetSuccess()) {
+          struct.success.write(oprot);
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, setRateLimit_result struct) throws org.apache.thrift.TException {
+        TTupleProtocol iprot = (TTupleProtocol) prot;
+        BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          struct.success = new cgl.iotcloud.core.api.thrift.TResponse();
+          struct.success.read(iprot);
+          struct.setSuccessIsSet(true);
+        }
+      }
+    }
+
+  }
+
 }
@@ -55,6 +55,7 @@ import org.slf4j.LoggerFactory;
   private static final org.apache.thrift.protocol.TField SITE_FIELD_DESC = new org.apache.thrift.protocol.TField("site", org.apache.thrift.protocol.TType.STRING, (short)2);
   private static final org.apache.thrift.protocol.TField BODY_FIELD_DESC = new org.apache.thrift.protocol.TField("body", org.apache.thrift.protocol.TType.STRING, (short)3);
   private static final org.apache.thrift.protocol.TField PROPERTIES_FIELD_DESC = new org.apache.thrift.protocol.TField("properties", org.apache.thrift.protocol.TType.MAP, (short)4);
+  private static final org.apache.thrift.protocol.TField SENSOR_KEY_FIELD_DESC = new org.apache.thrift.protocol.TField("sensorKey", org.apache.thrift.protocol.TType.I64, (short)5);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -66,13 +67,15 @@ import org.slf4j.LoggerFactory;
   public String site; // required
   public ByteBuffer body; // required
   public Map<String,String> properties; // optional
+  public long sensorKey; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   @SuppressWarnings("all") public enum _Fields implements org.apache.thrift.TFieldIdEnum {
     SENSOR_ID((short)1, "sensorId"),
     SITE((short)2, "site"),
     BODY((short)3, "body"),
-    PROPERTIES((short)4, "properties");
+    PROPERTIES((short)4, "properties"),
+    SENSOR_KEY((short)5, "sensorKey");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -95,6 +98,8 @@ import org.slf4j.LoggerFactory;
           return BODY;
         case 4: // PROPERTIES
           return PROPERTIES;
+        case 5: // SENSOR_KEY
+          return SENSOR_KEY;
         default:
           return null;
       }
@@ -135,7 +140,9 @@ import org.slf4j.LoggerFactory;
   }
 
   // isset id assignments
-  private _Fields optionals[] = {_Fields.PROPERTIES};
+  private static final int __SENSORKEY_ISSET_ID = 0;
+  private byte __isset_bitfield = 0;
+  private _Fields optionals[] = {_Fields.PROPERTIES,_Fields.SENSOR_KEY};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -149,6 +156,8 @@ import org.slf4j.LoggerFactory;
         new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP, 
             new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING), 
             new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+    tmpMap.put(_Fields.SENSOR_KEY, new org.apache.thrift.meta_data.FieldMetaData("sensorKey", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(TSensorMessage.class, metaDataMap);
   }
@@ -171,6 +180,7 @@ import org.slf4j.LoggerFactory;
    * Performs a deep copy on <i>other</i>.
    */
   public TSensorMessage(TSensorMessage other) {
+    __isset_bitfield = other.__isset_bitfield;
     if (other.isSetSensorId()) {
       this.sensorId = other.sensorId;
     }
@@ -185,6 +195,7 @@ import org.slf4j.LoggerFactory;
       Map<String,String> __this__properties = new HashMap<String,String>(other.properties);
       this.properties = __this__properties;
     }
+    this.sensorKey = other.sensorKey;
   }
 
   public TSensorMessage deepCopy() {
@@ -197,6 +208,8 @@ import org.slf4j.LoggerFactory;
     this.site = null;
     this.body = null;
     this.properties = null;
+    setSensorKeyIsSet(false);
+    this.sensorKey = 0;
   }
 
   public String getSensorId() {
@@ -316,6 +329,29 @@ import org.slf4j.LoggerFactory;
     }
   }
 
+  public long getSensorKey() {
+    return this.sensorKey;
+  }
+
+  public TSensorMessage setSensorKey(long sensorKey) {
+    this.sensorKey = sensorKey;
+    setSensorKeyIsSet(true);
+    return this;
+  }
+
+  public void unsetSensorKey() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __SENSORKEY_ISSET_ID);
+  }
+
+  /** Returns true if field sensorKey is set (has been assigned a value) and false otherwise */
+  public boolean isSetSensorKey() {
+    return EncodingUtils.testBit(__isset_bitfield, __SENSORKEY_ISSET_ID);
+  }
+
+  public void setSensorKeyIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __SENSORKEY_ISSET_ID, value);
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case SENSOR_ID:
@@ -350,6 +386,14 @@ import org.slf4j.LoggerFactory;
       }
       break;
 
+    case SENSOR_KEY:
+      if (value == null) {
+        unsetSensorKey();
+      } else {
+        setSensorKey((Long)value);
+      }
+      break;
+
     }
   }
 
@@ -367,6 +411,9 @@ import org.slf4j.LoggerFactory;
     case PROPERTIES:
       return getProperties();
 
+    case SENSOR_KEY:
+      return Long.valueOf(getSensorKey());
+
     }
     throw new IllegalStateException();
   }
@@ -386,6 +433,8 @@ import org.slf4j.LoggerFactory;
       return isSetBody();
     case PROPERTIES:
       return isSetProperties();
+    case SENSOR_KEY:
+      return isSetSensorKey();
     }
     throw new IllegalStateException();
   }
@@ -439,6 +488,15 @@ import org.slf4j.LoggerFactory;
         return false;
     }
 
+    boolean this_present_sensorKey = true && this.isSetSensorKey();
+    boolean that_present_sensorKey = true && that.isSetSensorKey();
+    if (this_present_sensorKey || that_present_sensorKey) {
+      if (!(this_present_sensorKey && that_present_sensorKey))
+        return false;
+      if (this.sensorKey != that.sensorKey)
+        return false;
+    }
+
     return true;
   }
 
@@ -495,6 +553,16 @@ import org.slf4j.LoggerFactory;
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetSensorKey()).compareTo(other.isSetSensorKey());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetSensorKey()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.sensorKey, other.sensorKey);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -548,6 +616,12 @@ import org.slf4j.LoggerFactory;
       }
       first = false;
     }
+    if (isSetSensorKey()) {
+      if (!first) sb.append(", ");
+      sb.append("sensorKey:");
+      sb.append(this.sensorKey);
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -567,6 +641,8 @@ import org.slf4j.LoggerFactory;
 
   private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
     try {
+      // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+      __isset_bitfield = 0;
       read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
     } catch (org.apache.thrift.TException te) {
       throw new java.io.IOException(te);
@@ -635,6 +711,14 @@ import org.slf4j.LoggerFactory;
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 5: // SENSOR_KEY
+            if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+              struct.sensorKey = iprot.readI64();
+              struct.setSensorKeyIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -680,6 +764,11 @@ import org.slf4j.LoggerFactory;
           oprot.writeFieldEnd();
         }
       }
+      if (struct.isSetSensorKey()) {
+        oprot.writeFieldBegin(SENSOR_KEY_FIELD_DESC);
+        oprot.writeI64(struct.sensorKey);
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -710,7 +799,10 @@ import org.slf4j.LoggerFactory;
       if (struct.isSetProperties()) {
         optionals.set(3);
       }
-      oprot.writeBitSet(optionals, 4);
+      if (struct.isSetSensorKey()) {
+        optionals.set(4);
+      }
+      oprot.writeBitSet(optionals, 5);
       if (struct.isSetSensorId()) {
         oprot.writeString(struct.sensorId);
       }
@@ -730,12 +822,15 @@ import org.slf4j.LoggerFactory;
           }
         }
       }
+      if (struct.isSetSensorKey()) {
+        oprot.writeI64(struct.sensorKey);
+      }
     }
 
     @Override
     public void read(org.apache.thrift.protocol.TProtocol prot, TSensorMessage struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
-      BitSet incoming = iprot.readBitSet(4);
+      BitSet incoming = iprot.readBitSet(5);
       if (incoming.get(0)) {
         struct.sensorId = iprot.readString();
         struct.setSensorIdIsSet(true);
@@ -763,6 +858,10 @@ import org.slf4j.LoggerFactory;
         }
         struct.setPropertiesIsSet(true);
       }
+      if (incoming.get(4)) {
+        struct.sensorKey = iprot.readI64();
+        struct.setSensorKeyIsSet(true);
+      }
     }
   }
 
@@ -117,6 +117,61 @@ public class SensorClient {
         return true;
     }
 
+    /**
+     * Add a broker to a transport of the sites, the channels the broker selection places on the new broker
+     * are moved to it
+     * @param sites the sites, empty for all the sites
+     * @param transportName name of the transport
+     * @param url url of the broker
+     * @param zone zone of the broker, can be null
+     * @return true if the request is accepted by the master
+     */
+    public boolean addBroker(List<String> sites, String transportName, String url, String zone) {
+        try {
+            TResponse response = client.addBroker(sites, transportName, url, zone);
+            return response.getState() == TResponseState.SUCCESS;
+        } catch (TException e) {
+            throw new RuntimeException("Failed to add the broker", e);
+        }
+    }
+
+    /**
+     * Remove a broker from a transport of the sites after moving its channels to the other brokers
+     * @param sites the sites, empty for all the sites
+     * @param transportName name of the transport
+     * @param url url of the broker
+     * @return true if the request is accepted by the master
+     */
+    public boolean removeBroker(List<String> sites, String transportName, String url) {
+        try {
+            TResponse response = client.removeBroker(sites, transportName, url);
+            return response.getState() == TResponseState.SUCCESS;
+        } catch (TException e) {
+            throw new RuntimeException("Failed to remove the broker", e);
+        }
+    }
+
+    /**
+     * Change the rate limit of the publishing channels of a sensor in the sites
+     * @param sites the sites, empty for all the sites
+     * @param sensorId id of the sensor
+     * @param channelName name of the channel, null or empty to share one limit among all the channels of the sensor
+     * @param messageRate messages per second, 0 for no limit
+     * @param byteRate bytes per second, 0 for no limit
+     * @param policy delay, drop or sample
+     * @return true if the request is accepted by the master
+     */
+    public boolean setRateLimit(List<String> sites, String sensorId, String channelName, double messageRate,
+                                double byteRate, String policy) {
+        try {
+            TResponse response = client.setRateLimit(sites, sensorId, channelName != null ? channelName : "",
+                    messageRate, byteRate, policy);
+            return response.getState() == TResponseState.SUCCESS;
+        } catch (TException e) {
+            throw new RuntimeException("Failed to set the rate limit", e);
+        }
+    }
+
     public void close() {
         transport.close();
     }
@@ -60,6 +60,56 @@ public class ClientEventController {
         }
     }
 
+    @Subscribe
+    public void handleBrokerEvents(MBrokerEvent event) {
+        List<String> sites = new ArrayList<String>(event.getSites());
+        if (sites.isEmpty()) {
+            sites.addAll(context.getSensorSites().keySet());
+        }
+
+        for (String site : sites) {
+            try {
+                SiteClient client = clientCache.getSiteClient(site);
+                if (client == null) {
+                    LOG.error("Requesting a broker change in no-exsisting site {}", site);
+                } else if (event.getType() == MBrokerEvent.Type.ADD) {
+                    LOG.info("Requesting sensor site {} to add the broker {} ", site, event.getUrl());
+                    client.addBroker(event.getTransport(), event.getUrl(), event.getZone());
+                } else {
+                    LOG.info("Requesting sensor site {} to remove the broker {} ", site, event.getUrl());
+                    client.removeBroker(event.getTransport(), event.getUrl());
+                }
+            } catch (Exception e) {
+                // there is nothing much we can do at this point except to log it
+                LOG.error("Failed to change the brokers of the site {}", site, e);
+            }
+        }
+    }
+
+    @Subscribe
+    public void handleRateLimitEvents(MRateLimitEvent event) {
+        List<String> sites = new ArrayList<String>(event.getSites());
+        if (sites.isEmpty()) {
+            sites.addAll(context.getSensorSites().keySet());
+        }
+
+        for (String site : sites) {
+            try {
+                SiteClient client = clientCache.getSiteClient(site);
+                if (client == null) {
+                    LOG.error("Requesting a rate limit change in no-exsisting site {}", site);
+                } else {
+                    LOG.info("Requesting sensor site {} to limit the sensor {} ", site, event.getSensorId());
+                    client.setRateLimit(event.getSensorId(), event.getChannelName(), event.getMessageRate(),
+                            event.getByteRate(), event.getPolicy());
+                }
+            } catch (Exception e) {
+                // there is nothing much we can do at this point except to log it
+                LOG.error("Failed to change the rate limit of the site {}", site, e);
+            }
+        }
+    }
+
     private void deploySensor(MSensorClientEvent deployEvent) {
         TSensorDeployDescriptor sensor = deployEvent.getSensorDeployDescriptor();
         SensorDeployDescriptor deployDescriptor = new SensorDeployDescriptor(sensor.getFilename(), sensor.getClassName());
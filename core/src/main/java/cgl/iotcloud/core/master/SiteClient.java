@@ -127,9 +127,63 @@ public class SiteClient {
         }
     }
 
+    public boolean addBroker(String transportName, String url, String zone) {
+        try {
+            TResponse response = this.client.addBroker(transportName, url, zone);
+
+            if (response.getState() == TResponseState.SUCCESS) {
+                return true;
+            } else if (response.getState() == TResponseState.FAILURE) {
+                LOG.error("Failed to add the broker {}: {}", url, response.getStatusMessage());
+                return false;
+            }
+            return false;
+        } catch (TException e) {
+            String msg = "Failed to add the broker";
+            LOG.error(msg, e);
+            throw new RuntimeException(msg, e);
+        }
+    }
+
+    public boolean removeBroker(String transportName, String url) {
+        try {
+            TResponse response = this.client.removeBroker(transportName, url);
+
+            if (response.getState() == TResponseState.SUCCESS) {
+                return true;
+            } else if (response.getState() == TResponseState.FAILURE) {
+                LOG.error("Failed to remove the broker {}: {}", url, response.getStatusMessage());
+                return false;
+            }
+            return false;
+        } catch (TException e) {
+            String msg = "Failed to remove the broker";
+            LOG.error(msg, e);
+            throw new RuntimeException(msg, e);
+        }
+    }
+
     public void close() {
         if (transport != null) {
             transport.close();
         }
     }
+
+    public boolean setRateLimit(String sensorId, String channelName, double messageRate, double byteRate, String policy) {
+        try {
+            TResponse response = this.client.setRateLimit(sensorId, channelName, messageRate, byteRate, policy);
+
+            if (response.getState() == TResponseState.SUCCESS) {
+                return true;
+            } else if (response.getState() == TResponseState.FAILURE) {
+                LOG.error("Failed to set the rate limit of sensor {}: {}", sensorId, response.getStatusMessage());
+                return false;
+            }
+            return false;
+        } catch (TException e) {
+            String msg = "Failed to set the rate limit";
+            LOG.error(msg, e);
+            throw new RuntimeException(msg, e);
+        }
+    }
 }
@@ -7,6 +7,8 @@ import cgl.iotcloud.core.api.thrift.TSite;
 import cgl.iotcloud.core.master.events.MSensorSiteEvent;
 import cgl.iotcloud.core.master.events.MSiteEvent;
 import cgl.iotcloud.core.sensorsite.SensorState;
+import cgl.iotcloud.core.utils.Codec;
+import cgl.iotcloud.core.utils.CodecRegistry;
 import cgl.iotcloud.core.zk.SensorUpdater;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
@@ -17,6 +19,8 @@ import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+
 public class SiteEventController {
     private Logger LOG = LoggerFactory.getLogger(SiteEventController.class);
 
@@ -26,10 +30,24 @@ public class SiteEventController {
 
     private CuratorFramework curatorFramework;
 
+    /**
+     * Encodes the site descriptors written to zookeeper
+     */
+    private Codec siteCodec;
+
+    /**
+     * Encodes the sensor and channel descriptors written to zookeeper
+     */
+    private Codec sensorCodec;
+
     public SiteEventController(MasterContext context, EventBus siteEvents) {
         this.context = context;
         this.heartBeats = new HeartBeats(siteEvents);
 
+        Map codecs = Configuration.getCodecs(context.getConf());
+        this.siteCodec = CodecRegistry.getCodec(codecs, CodecRegistry.ZK_SITE, CodecRegistry.JAVA);
+        this.sensorCodec = CodecRegistry.getCodec(codecs, CodecRegistry.ZK_SENSOR, CodecRegistry.THRIFT_BINARY);
+
         RetryPolicy retryPolicy = new ExponentialBackoffRetry(1000, 3);
         this.curatorFramework = CuratorFrameworkFactory.newClient(Configuration.getZkConnectionString(context.getConf()), retryPolicy);
     }
@@ -74,13 +92,13 @@ public class SiteEventController {
     private void sensorAdded(MSensorSiteEvent updateEvent) {
         context.addSensor(updateEvent.getSite(), updateEvent.getSensor());
 
-        SensorUpdater.addSensor(curatorFramework, context, updateEvent.getSite(), updateEvent.getSensor());
+        SensorUpdater.addSensor(curatorFramework, context, updateEvent.getSite(), updateEvent.getSensor(), sensorCodec);
     }
 
     private void sensorRemoved(MSensorSiteEvent updateEvent) {
         context.removeSensor(updateEvent.getSite(), updateEvent.getId());
 
-        SensorUpdater.markSensorForDeletion(curatorFramework, context, updateEvent.getSite(), updateEvent.getSensor());
+        SensorUpdater.markSensorForDeletion(curatorFramework, context, updateEvent.getSite(), updateEvent.getSensor(), sensorCodec);
     }
 
     private void addSite(MSiteEvent event) {
@@ -94,7 +112,7 @@ public class SiteEventController {
         descriptor.setMetadata(site.getMetadata());
         context.addSensorSite(descriptor);
 
-        SensorUpdater.addSite(curatorFramework, Configuration.getZkRoot(context.getConf()), site);
+        SensorUpdater.addSite(curatorFramework, Configuration.getZkRoot(context.getConf()), site, siteCodec);
         heartBeats.scheduleForSite(event.getSiteId(), descriptor.getHost(), descriptor.getPort());
         LOG.info("A new site added {} with host {} and port {}", event.getSiteId(), descriptor.getHost(), descriptor.getPort());
     }
@@ -102,7 +120,7 @@ public class SiteEventController {
     private void deactivateSite(MSiteEvent event) {
         // first get the sensors for this site
         for (TSensor sensor : context.getSensors(event.getSiteId())) {
-            SensorUpdater.markSensorForDeletion(curatorFramework, context, event.getSiteId(), sensor);
+            SensorUpdater.markSensorForDeletion(curatorFramework, context, event.getSiteId(), sensor, sensorCodec);
         }
 
         context.makeSiteOffline(event.getSiteId());
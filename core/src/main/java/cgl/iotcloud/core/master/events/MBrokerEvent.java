@@ -0,0 +1,58 @@
+package cgl.iotcloud.core.master.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A request from a client to add or remove a broker of a transport in the sites
+ */
+public class MBrokerEvent {
+    public enum Type {
+        ADD,
+        REMOVE
+    }
+
+    private Type type;
+
+    private List<String> sites = new ArrayList<String>();
+
+    private String transport;
+
+    private String url;
+
+    private String zone;
+
+    public MBrokerEvent(Type type, List<String> sites, String transport, String url, String zone) {
+        this.type = type;
+        if (sites != null) {
+            this.sites.addAll(sites);
+        }
+        this.transport = transport;
+        this.url = url;
+        this.zone = zone;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The sites to update, empty for all the sites
+     * @return the sites
+     */
+    public List<String> getSites() {
+        return sites;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getZone() {
+        return zone;
+    }
+}
@@ -0,0 +1,61 @@
+package cgl.iotcloud.core.master.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A request from a client to change the rate limit of the channels of a sensor in the sites
+ */
+public class MRateLimitEvent {
+    private List<String> sites = new ArrayList<String>();
+
+    private String sensorId;
+
+    private String channelName;
+
+    private double messageRate;
+
+    private double byteRate;
+
+    private String policy;
+
+    public MRateLimitEvent(List<String> sites, String sensorId, String channelName,
+                           double messageRate, double byteRate, String policy) {
+        if (sites != null) {
+            this.sites.addAll(sites);
+        }
+        this.sensorId = sensorId;
+        this.channelName = channelName;
+        this.messageRate = messageRate;
+        this.byteRate = byteRate;
+        this.policy = policy;
+    }
+
+    /**
+     * The sites to update, empty for all the sites
+     * @return the sites
+     */
+    public List<String> getSites() {
+        return sites;
+    }
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public String getChannelName() {
+        return channelName;
+    }
+
+    public double getMessageRate() {
+        return messageRate;
+    }
+
+    public double getByteRate() {
+        return byteRate;
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+}
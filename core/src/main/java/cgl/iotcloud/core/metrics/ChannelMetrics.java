@@ -0,0 +1,276 @@
+package cgl.iotcloud.core.metrics;
+
+/**
+ * Metrics of a channel. Outgoing channels count the published messages, what the back pressure policy
+ * did with the messages that found the transport queue full and the time spent handing a message to the
+ * transport queue. Incoming channels count the messages delivered to them and record the latencies of the
+ * sampled messages, see {@link cgl.iotcloud.core.transport.LatencyStamps}.
+ */
+public class ChannelMetrics implements ChannelMetricsMBean {
+    private final Meter published = new Meter();
+
+    private final Meter received = new Meter();
+
+    /**
+     * Publishes which found the queue full and had to wait
+     */
+    private final StripedCounter blocked = new StripedCounter();
+
+    private final StripedCounter timedOut = new StripedCounter();
+
+    private final StripedCounter droppedNewest = new StripedCounter();
+
+    private final StripedCounter droppedOldest = new StripedCounter();
+
+    private final StripedCounter rejected = new StripedCounter();
+
+    private final StripedCounter filtered = new StripedCounter();
+
+    private final StripedCounter throttled = new StripedCounter();
+
+    private final StripedCounter delayed = new StripedCounter();
+
+    private final LatencyHistogram publishLatency = new LatencyHistogram();
+
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+
+    private final LatencyHistogram transitLatency = new LatencyHistogram();
+
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+    private final LatencyHistogram listenerLatency = new LatencyHistogram();
+
+    private final LatencyHistogram endToEndLatency = new LatencyHistogram();
+
+    private volatile String backPressurePolicy;
+
+    public void setBackPressurePolicy(String backPressurePolicy) {
+        this.backPressurePolicy = backPressurePolicy;
+    }
+
+    public void markPublished() {
+        published.mark();
+    }
+
+    public void markReceived() {
+        received.mark();
+    }
+
+    public void markBlocked() {
+        blocked.increment();
+    }
+
+    public void markTimedOut() {
+        timedOut.increment();
+    }
+
+    public void markDroppedNewest() {
+        droppedNewest.increment();
+    }
+
+    public void markDroppedOldest() {
+        droppedOldest.increment();
+    }
+
+    public void markRejected() {
+        rejected.increment();
+    }
+
+    public void markFiltered() {
+        filtered.increment();
+    }
+
+    public void markThrottled() {
+        throttled.increment();
+    }
+
+    public void markDelayed() {
+        delayed.increment();
+    }
+
+    public void recordPublishLatency(long nanos) {
+        publishLatency.record(nanos);
+    }
+
+    public void recordQueueLatency(long nanos) {
+        queueLatency.record(nanos);
+    }
+
+    public void recordTransitLatency(long nanos) {
+        transitLatency.record(nanos);
+    }
+
+    public void recordDispatchLatency(long nanos) {
+        dispatchLatency.record(nanos);
+    }
+
+    public void recordListenerLatency(long nanos) {
+        listenerLatency.record(nanos);
+    }
+
+    public void recordEndToEndLatency(long nanos) {
+        endToEndLatency.record(nanos);
+    }
+
+    public Meter getPublishedMeter() {
+        return published;
+    }
+
+    public Meter getReceivedMeter() {
+        return received;
+    }
+
+    public LatencyHistogram getPublishLatency() {
+        return publishLatency;
+    }
+
+    /**
+     * Time the sampled messages waited in the channel queue of the publisher
+     */
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * Time from the sender of the publisher to the consuming worker of this channel
+     */
+    public LatencyHistogram getTransitLatency() {
+        return transitLatency;
+    }
+
+    /**
+     * Time the consuming worker took to give the sampled messages to this channel
+     */
+    public LatencyHistogram getDispatchLatency() {
+        return dispatchLatency;
+    }
+
+    /**
+     * Time the sampled messages waited for the receiver of the sensor
+     */
+    public LatencyHistogram getListenerLatency() {
+        return listenerLatency;
+    }
+
+    /**
+     * Time from the publish to the receiver of the sensor
+     */
+    public LatencyHistogram getEndToEndLatency() {
+        return endToEndLatency;
+    }
+
+    void tick(double intervalSeconds) {
+        published.tick(intervalSeconds);
+        received.tick(intervalSeconds);
+    }
+
+    @Override
+    public String getBackPressurePolicy() {
+        return backPressurePolicy;
+    }
+
+    @Override
+    public long getPublished() {
+        return published.getCount();
+    }
+
+    @Override
+    public double getPublishRate() {
+        return published.getRate();
+    }
+
+    @Override
+    public long getReceived() {
+        return received.getCount();
+    }
+
+    @Override
+    public double getReceiveRate() {
+        return received.getRate();
+    }
+
+    @Override
+    public long getBlocked() {
+        return blocked.sum();
+    }
+
+    @Override
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    @Override
+    public long getDroppedNewest() {
+        return droppedNewest.sum();
+    }
+
+    @Override
+    public long getDroppedOldest() {
+        return droppedOldest.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getFiltered() {
+        return filtered.sum();
+    }
+
+    @Override
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    @Override
+    public long getDelayed() {
+        return delayed.sum();
+    }
+
+    @Override
+    public double getPublishLatencyMeanMicros() {
+        return publishLatency.getMeanMicros();
+    }
+
+    @Override
+    public long getPublishLatency99Micros() {
+        return publishLatency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getSampledReceived() {
+        return endToEndLatency.getCount();
+    }
+
+    @Override
+    public double getEndToEndLatencyMeanMicros() {
+        return endToEndLatency.getMeanMicros();
+    }
+
+    @Override
+    public long getEndToEndLatency99Micros() {
+        return endToEndLatency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getQueueLatency99Micros() {
+        return queueLatency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getTransitLatency99Micros() {
+        return transitLatency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getDispatchLatency99Micros() {
+        return dispatchLatency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getListenerLatency99Micros() {
+        return listenerLatency.getPercentileMicros(99);
+    }
+}
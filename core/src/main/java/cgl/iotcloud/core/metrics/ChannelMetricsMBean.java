@@ -0,0 +1,50 @@
+package cgl.iotcloud.core.metrics;
+
+/**
+ * JMX view of the metrics of a channel
+ */
+public interface ChannelMetricsMBean {
+    String getBackPressurePolicy();
+
+    long getPublished();
+
+    double getPublishRate();
+
+    long getReceived();
+
+    double getReceiveRate();
+
+    long getBlocked();
+
+    long getTimedOut();
+
+    long getDroppedNewest();
+
+    long getDroppedOldest();
+
+    long getRejected();
+
+    long getFiltered();
+
+    long getThrottled();
+
+    long getDelayed();
+
+    double getPublishLatencyMeanMicros();
+
+    long getPublishLatency99Micros();
+
+    long getSampledReceived();
+
+    double getEndToEndLatencyMeanMicros();
+
+    long getEndToEndLatency99Micros();
+
+    long getQueueLatency99Micros();
+
+    long getTransitLatency99Micros();
+
+    long getDispatchLatency99Micros();
+
+    long getListenerLatency99Micros();
+}
@@ -0,0 +1,70 @@
+package cgl.iotcloud.core.metrics;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Metrics of a channel group for one broker. The queue depths are read from the queues shared by the
+ * channels and the producer or consumer of the broker, the consumed messages are counted by the worker
+ * routing the incoming messages to the channels.
+ */
+public class GroupMetrics implements GroupMetricsMBean {
+    private final BlockingQueue producerQueue;
+
+    private final BlockingQueue consumerQueue;
+
+    private final Meter consumed = new Meter();
+
+    private final StripedCounter discarded = new StripedCounter();
+
+    public GroupMetrics(BlockingQueue producerQueue, BlockingQueue consumerQueue) {
+        this.producerQueue = producerQueue;
+        this.consumerQueue = consumerQueue;
+    }
+
+    public void markConsumed() {
+        consumed.mark();
+    }
+
+    public void markDiscarded() {
+        discarded.increment();
+    }
+
+    void tick(double intervalSeconds) {
+        consumed.tick(intervalSeconds);
+    }
+
+    @Override
+    public int getProducerQueueDepth() {
+        return producerQueue.size();
+    }
+
+    @Override
+    public int getProducerQueueRemainingCapacity() {
+        return producerQueue.remainingCapacity();
+    }
+
+    @Override
+    public int getConsumerQueueDepth() {
+        return consumerQueue.size();
+    }
+
+    @Override
+    public int getConsumerQueueRemainingCapacity() {
+        return consumerQueue.remainingCapacity();
+    }
+
+    @Override
+    public long getConsumed() {
+        return consumed.getCount();
+    }
+
+    @Override
+    public double getConsumeRate() {
+        return consumed.getRate();
+    }
+
+    @Override
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+}
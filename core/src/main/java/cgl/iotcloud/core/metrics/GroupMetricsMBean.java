@@ -0,0 +1,20 @@
+package cgl.iotcloud.core.metrics;
+
+/**
+ * JMX view of the metrics of a channel group for one broker
+ */
+public interface GroupMetricsMBean {
+    int getProducerQueueDepth();
+
+    int getProducerQueueRemainingCapacity();
+
+    int getConsumerQueueDepth();
+
+    int getConsumerQueueRemainingCapacity();
+
+    long getConsumed();
+
+    double getConsumeRate();
+
+    long getDiscarded();
+}
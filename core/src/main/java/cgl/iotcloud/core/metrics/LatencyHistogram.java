@@ -0,0 +1,135 @@
+package cgl.iotcloud.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram with fixed power of two buckets in microseconds. Bucket i counts the values up to
+ * 2^i microseconds, the last bucket counts everything above. Recording is a few atomic adds and never
+ * allocates.
+ *
+ * Like {@link StripedCounter} the buckets start as a single array and are spread over one padded row of
+ * buckets per stripe once threads start to contend on them.
+ */
+public class LatencyHistogram {
+    /**
+     * The largest bucket bound is 2^24 microseconds, about 16 seconds
+     */
+    public static final int BUCKETS = 25;
+
+    /**
+     * Longs in a row of buckets, rounded up to whole cache lines
+     */
+    private static final int ROW = (BUCKETS + 1 + StripedCounter.PAD - 1) / StripedCounter.PAD * StripedCounter.PAD;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS + 1);
+
+    /**
+     * A row of buckets per stripe, null until the threads contend
+     */
+    private volatile AtomicLongArray stripes;
+
+    private final StripedCounter count = new StripedCounter();
+
+    private final StripedCounter sumNanos = new StripedCounter();
+
+    /**
+     * Record a latency
+     * @param nanos the latency in nano seconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        count.increment();
+        sumNanos.add(nanos);
+
+        int bucket = bucket(nanos / 1000);
+        AtomicLongArray s = stripes;
+        if (s == null) {
+            long b = buckets.get(bucket);
+            if (buckets.compareAndSet(bucket, b, b + 1)) {
+                return;
+            }
+            s = inflate();
+        }
+        s.getAndIncrement(StripedCounter.stripe() * ROW + bucket);
+    }
+
+    private synchronized AtomicLongArray inflate() {
+        if (stripes == null) {
+            stripes = new AtomicLongArray(StripedCounter.MAX_STRIPES * ROW);
+        }
+        return stripes;
+    }
+
+    private static int bucket(long micros) {
+        if (micros <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKETS, 64 - Long.numberOfLeadingZeros(micros - 1));
+    }
+
+    /**
+     * The upper bound of a bucket
+     * @param bucket bucket index
+     * @return bound in microseconds, Long.MAX_VALUE for the overflow bucket
+     */
+    public static long upperBoundMicros(int bucket) {
+        return bucket >= BUCKETS ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * The number of values in a bucket, not cumulative
+     * @param bucket bucket index from 0 to BUCKETS
+     * @return count
+     */
+    public long getBucketCount(int bucket) {
+        long sum = buckets.get(bucket);
+        AtomicLongArray s = stripes;
+        if (s != null) {
+            for (int i = bucket; i < s.length(); i += ROW) {
+                sum += s.get(i);
+            }
+        }
+        return sum;
+    }
+
+    public double getMeanMicros() {
+        long c = count.sum();
+        return c == 0 ? 0 : sumNanos.sum() / 1000.0 / c;
+    }
+
+    /**
+     * Approximate a percentile by the upper bound of the bucket it falls in
+     * @param percentile between 0 and 100
+     * @return the latency in microseconds
+     */
+    public long getPercentileMicros(double percentile) {
+        long total = 0;
+        long []counts = new long[BUCKETS + 1];
+        for (int i = 0; i <= BUCKETS; i++) {
+            counts[i] = getBucketCount(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i <= BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundMicros(i);
+            }
+        }
+        return upperBoundMicros(BUCKETS);
+    }
+}
@@ -0,0 +1,56 @@
+package cgl.iotcloud.core.metrics;
+
+/**
+ * Counts events and keeps an exponentially weighted moving average of their rate. The rate is
+ * updated by the registry every {@link MetricsRegistry#TICK_INTERVAL_SECONDS} seconds.
+ */
+public class Meter {
+    /**
+     * Weight of a new sample, gives a one minute moving average with the registry tick interval
+     */
+    private static final double ALPHA = 1 - Math.exp(-MetricsRegistry.TICK_INTERVAL_SECONDS / 60.0);
+
+    private final StripedCounter count = new StripedCounter();
+
+    private long lastCount = 0;
+
+    private volatile double rate = 0;
+
+    private boolean initialized = false;
+
+    public void mark() {
+        count.increment();
+    }
+
+    public void mark(long n) {
+        count.add(n);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * The one minute moving average of the rate
+     * @return events per second
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Update the rate, called by the registry thread
+     * @param intervalSeconds time since the last tick
+     */
+    void tick(double intervalSeconds) {
+        long current = count.sum();
+        double instantRate = (current - lastCount) / intervalSeconds;
+        lastCount = current;
+        if (initialized) {
+            rate += ALPHA * (instantRate - rate);
+        } else {
+            rate = instantRate;
+            initialized = true;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package cgl.iotcloud.core.metrics;
+
+/**
+ * Identifies a set of metrics by site, sensor, channel and broker. The sensor is null for the metrics
+ * of a channel group, the channel is the group name in that case.
+ */
+public class MetricKey {
+    private final String site;
+
+    private final String sensor;
+
+    private final String channel;
+
+    private final String broker;
+
+    public MetricKey(String site, String sensor, String channel, String broker) {
+        this.site = site;
+        this.sensor = sensor;
+        this.channel = channel;
+        this.broker = broker;
+    }
+
+    public String getSite() {
+        return site;
+    }
+
+    public String getSensor() {
+        return sensor;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getBroker() {
+        return broker;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        MetricKey that = (MetricKey) o;
+
+        if (site != null ? !site.equals(that.site) : that.site != null) return false;
+        if (sensor != null ? !sensor.equals(that.sensor) : that.sensor != null) return false;
+        if (channel != null ? !channel.equals(that.channel) : that.channel != null) return false;
+        if (broker != null ? !broker.equals(that.broker) : that.broker != null) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = site != null ? site.hashCode() : 0;
+        result = 31 * result + (sensor != null ? sensor.hashCode() : 0);
+        result = 31 * result + (channel != null ? channel.hashCode() : 0);
+        result = 31 * result + (broker != null ? broker.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricKey{site=" + site + ", sensor=" + sensor + ", channel=" + channel + ", broker=" + broker + "}";
+    }
+}
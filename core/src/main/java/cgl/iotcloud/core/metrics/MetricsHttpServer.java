@@ -0,0 +1,110 @@
+package cgl.iotcloud.core.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A small HTTP server exposing the metrics of a registry in text. /metrics returns all the metrics in the
+ * Prometheus text format and /top returns the sensors publishing the most messages, the number of sensors
+ * can be given with the n query parameter.
+ */
+public class MetricsHttpServer {
+    private static Logger LOG = LoggerFactory.getLogger(MetricsHttpServer.class);
+
+    private final MetricsRegistry registry;
+
+    private final String host;
+
+    private final int port;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public MetricsHttpServer(MetricsRegistry registry, String host, int port) {
+        this.registry = registry;
+        this.host = host;
+        this.port = port;
+    }
+
+    public void start() {
+        try {
+            InetSocketAddress address = host != null ? new InetSocketAddress(host, port) : new InetSocketAddress(port);
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            String msg = "Failed to start the metrics server on port " + port;
+            LOG.error(msg);
+            throw new RuntimeException(msg, e);
+        }
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StringWriter writer = new StringWriter();
+                registry.writeText(writer);
+                respond(exchange, "text/plain; version=0.0.4; charset=utf-8", writer.toString());
+            }
+        });
+        server.createContext("/top", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int n = MetricsRegistry.DEFAULT_TOP_SENSORS;
+                String query = exchange.getRequestURI().getQuery();
+                if (query != null && query.startsWith("n=")) {
+                    try {
+                        n = Integer.parseInt(query.substring(2));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                StringBuilder builder = new StringBuilder();
+                List<MetricsRegistry.SensorRate> top = registry.getTopSensors(n);
+                for (MetricsRegistry.SensorRate rate : top) {
+                    builder.append(rate.toString()).append("\n");
+                }
+                respond(exchange, "text/plain; charset=utf-8", builder.toString());
+            }
+        });
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "metrics-http");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+        LOG.info("Started the metrics server on port {}", port);
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte []bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
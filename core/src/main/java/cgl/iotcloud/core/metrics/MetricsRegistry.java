@@ -0,0 +1,404 @@
+package cgl.iotcloud.core.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Keeps the metrics of the channels and channel groups of a sensor site. The metrics are exported through
+ * JMX and can be written in the Prometheus text format. A background thread updates the rates every
+ * {@link #TICK_INTERVAL_SECONDS} seconds.
+ */
+public class MetricsRegistry implements MetricsRegistryMBean {
+    private static Logger LOG = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    public static final int TICK_INTERVAL_SECONDS = 5;
+
+    public static final int DEFAULT_TOP_SENSORS = 10;
+
+    private static final String DOMAIN = "cgl.iotcloud";
+
+    private static MetricsRegistry defaultRegistry;
+
+    private final ConcurrentMap<MetricKey, ChannelMetrics> channels = new ConcurrentHashMap<MetricKey, ChannelMetrics>();
+
+    private final ConcurrentMap<MetricKey, GroupMetrics> groups = new ConcurrentHashMap<MetricKey, GroupMetrics>();
+
+    private final boolean jmx;
+
+    private ScheduledExecutorService ticker;
+
+    private long lastTick;
+
+    public MetricsRegistry() {
+        this(true);
+    }
+
+    public MetricsRegistry(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+    /**
+     * The registry shared by the transports used outside a sensor site. It is created and started on the first
+     * call, so the transports of a process export their metrics under one JMX name.
+     * @return the shared registry
+     */
+    public static synchronized MetricsRegistry getDefault() {
+        if (defaultRegistry == null) {
+            defaultRegistry = new MetricsRegistry();
+            defaultRegistry.start();
+        }
+        return defaultRegistry;
+    }
+
+    /**
+     * Start updating the rates and register the registry with JMX. Calling it more than once has no effect.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        lastTick = System.nanoTime();
+        ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "metrics-ticker");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        ticker.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tick();
+                } catch (Throwable t) {
+                    LOG.error("Failed to update the metrics", t);
+                }
+            }
+        }, TICK_INTERVAL_SECONDS, TICK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        register(DOMAIN + ":type=Metrics", this);
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+            unRegister(DOMAIN + ":type=Metrics");
+        }
+    }
+
+    public void registerChannel(MetricKey key, ChannelMetrics metrics) {
+        channels.put(key, metrics);
+        register(channelName(key), metrics);
+    }
+
+    public void unRegisterChannel(MetricKey key) {
+        if (channels.remove(key) != null) {
+            unRegister(channelName(key));
+        }
+    }
+
+    public void registerGroup(MetricKey key, GroupMetrics metrics) {
+        groups.put(key, metrics);
+        register(groupName(key), metrics);
+    }
+
+    public void unRegisterGroup(MetricKey key) {
+        if (groups.remove(key) != null) {
+            unRegister(groupName(key));
+        }
+    }
+
+    public ChannelMetrics getChannel(MetricKey key) {
+        return channels.get(key);
+    }
+
+    public GroupMetrics getGroup(MetricKey key) {
+        return groups.get(key);
+    }
+
+    /**
+     * Update the rates of all the meters
+     */
+    synchronized void tick() {
+        long now = System.nanoTime();
+        double interval = (now - lastTick) / 1e9;
+        lastTick = now;
+        if (interval <= 0) {
+            return;
+        }
+        for (ChannelMetrics m : channels.values()) {
+            m.tick(interval);
+        }
+        for (GroupMetrics m : groups.values()) {
+            m.tick(interval);
+        }
+    }
+
+    /**
+     * Find the sensors publishing the most messages, by the one minute average of the publish rate
+     * summed over the channels of the sensor.
+     * @param n maximum number of sensors to return
+     * @return sensors ordered by decreasing rate
+     */
+    public List<SensorRate> getTopSensors(int n) {
+        Map<String, SensorRate> rates = new HashMap<String, SensorRate>();
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channels.entrySet()) {
+            MetricKey key = e.getKey();
+            String id = key.getSite() + "/" + key.getSensor();
+            SensorRate rate = rates.get(id);
+            if (rate == null) {
+                rate = new SensorRate(key.getSite(), key.getSensor());
+                rates.put(id, rate);
+            }
+            rate.rate += e.getValue().getPublishRate();
+            rate.published += e.getValue().getPublished();
+        }
+
+        List<SensorRate> sorted = new ArrayList<SensorRate>(rates.values());
+        Collections.sort(sorted, new Comparator<SensorRate>() {
+            @Override
+            public int compare(SensorRate o1, SensorRate o2) {
+                return Double.compare(o2.rate, o1.rate);
+            }
+        });
+        return sorted.size() > n ? new ArrayList<SensorRate>(sorted.subList(0, n)) : sorted;
+    }
+
+    @Override
+    public String[] getTopSensors() {
+        List<SensorRate> top = getTopSensors(DEFAULT_TOP_SENSORS);
+        String[] result = new String[top.size()];
+        for (int i = 0; i < top.size(); i++) {
+            result[i] = top.get(i).toString();
+        }
+        return result;
+    }
+
+    /**
+     * Write all the metrics in the Prometheus text exposition format
+     * @param writer the output
+     * @throws IOException if writing fails
+     */
+    public void writeText(Writer writer) throws IOException {
+        Map<MetricKey, ChannelMetrics> channelSnapshot = new TreeMap<MetricKey, ChannelMetrics>(KEY_ORDER);
+        channelSnapshot.putAll(channels);
+        Map<MetricKey, GroupMetrics> groupSnapshot = new TreeMap<MetricKey, GroupMetrics>(KEY_ORDER);
+        groupSnapshot.putAll(groups);
+
+        writeType(writer, "iotcloud_channel_published_total", "counter");
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channelSnapshot.entrySet()) {
+            writeSample(writer, "iotcloud_channel_published_total", channelLabels(e.getKey()), e.getValue().getPublished());
+        }
+        writeType(writer, "iotcloud_channel_publish_rate", "gauge");
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channelSnapshot.entrySet()) {
+            writeSample(writer, "iotcloud_channel_publish_rate", channelLabels(e.getKey()), e.getValue().getPublishRate());
+        }
+        writeType(writer, "iotcloud_channel_received_total", "counter");
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channelSnapshot.entrySet()) {
+            writeSample(writer, "iotcloud_channel_received_total", channelLabels(e.getKey()), e.getValue().getReceived());
+        }
+        writeType(writer, "iotcloud_channel_blocked_total", "counter");
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channelSnapshot.entrySet()) {
+            writeSample(writer, "iotcloud_channel_blocked_total", channelLabels(e.getKey()), e.getValue().getBlocked());
+        }
+        writeType(writer, "iotcloud_channel_dropped_total", "counter");
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channelSnapshot.entrySet()) {
+            String labels = channelLabels(e.getKey());
+            ChannelMetrics m = e.getValue();
+            writeSample(writer, "iotcloud_channel_dropped_total", labels + ",reason=\"timeout\"", m.getTimedOut());
+            writeSample(writer, "iotcloud_channel_dropped_total", labels + ",reason=\"newest\"", m.getDroppedNewest());
+            writeSample(writer, "iotcloud_channel_dropped_total", labels + ",reason=\"oldest\"", m.getDroppedOldest());
+            writeSample(writer, "iotcloud_channel_dropped_total", labels + ",reason=\"rejected\"", m.getRejected());
+            writeSample(writer, "iotcloud_channel_dropped_total", labels + ",reason=\"filtered\"", m.getFiltered());
+            writeSample(writer, "iotcloud_channel_dropped_total", labels + ",reason=\"throttled\"", m.getThrottled());
+        }
+        writeType(writer, "iotcloud_channel_throttle_delayed_total", "counter");
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channelSnapshot.entrySet()) {
+            writeSample(writer, "iotcloud_channel_throttle_delayed_total", channelLabels(e.getKey()), e.getValue().getDelayed());
+        }
+        writeType(writer, "iotcloud_channel_publish_latency_seconds", "histogram");
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channelSnapshot.entrySet()) {
+            writeHistogram(writer, "iotcloud_channel_publish_latency_seconds", channelLabels(e.getKey()),
+                    e.getValue().getPublishLatency());
+        }
+        // only the receiving channels with sampled messages have the hop latencies
+        writeType(writer, "iotcloud_channel_hop_latency_seconds", "histogram");
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channelSnapshot.entrySet()) {
+            ChannelMetrics m = e.getValue();
+            if (m.getEndToEndLatency().getCount() == 0) {
+                continue;
+            }
+            String labels = channelLabels(e.getKey());
+            writeHistogram(writer, "iotcloud_channel_hop_latency_seconds", labels + ",hop=\"queue\"", m.getQueueLatency());
+            writeHistogram(writer, "iotcloud_channel_hop_latency_seconds", labels + ",hop=\"transit\"", m.getTransitLatency());
+            writeHistogram(writer, "iotcloud_channel_hop_latency_seconds", labels + ",hop=\"dispatch\"", m.getDispatchLatency());
+            writeHistogram(writer, "iotcloud_channel_hop_latency_seconds", labels + ",hop=\"listener\"", m.getListenerLatency());
+        }
+        writeType(writer, "iotcloud_channel_end_to_end_latency_seconds", "histogram");
+        for (Map.Entry<MetricKey, ChannelMetrics> e : channelSnapshot.entrySet()) {
+            if (e.getValue().getEndToEndLatency().getCount() > 0) {
+                writeHistogram(writer, "iotcloud_channel_end_to_end_latency_seconds", channelLabels(e.getKey()),
+                        e.getValue().getEndToEndLatency());
+            }
+        }
+
+        writeType(writer, "iotcloud_group_producer_queue_depth", "gauge");
+        for (Map.Entry<MetricKey, GroupMetrics> e : groupSnapshot.entrySet()) {
+            writeSample(writer, "iotcloud_group_producer_queue_depth", groupLabels(e.getKey()), e.getValue().getProducerQueueDepth());
+        }
+        writeType(writer, "iotcloud_group_consumer_queue_depth", "gauge");
+        for (Map.Entry<MetricKey, GroupMetrics> e : groupSnapshot.entrySet()) {
+            writeSample(writer, "iotcloud_group_consumer_queue_depth", groupLabels(e.getKey()), e.getValue().getConsumerQueueDepth());
+        }
+        writeType(writer, "iotcloud_group_consumed_total", "counter");
+        for (Map.Entry<MetricKey, GroupMetrics> e : groupSnapshot.entrySet()) {
+            writeSample(writer, "iotcloud_group_consumed_total", groupLabels(e.getKey()), e.getValue().getConsumed());
+        }
+        writeType(writer, "iotcloud_group_discarded_total", "counter");
+        for (Map.Entry<MetricKey, GroupMetrics> e : groupSnapshot.entrySet()) {
+            writeSample(writer, "iotcloud_group_discarded_total", groupLabels(e.getKey()), e.getValue().getDiscarded());
+        }
+        writer.flush();
+    }
+
+    private static void writeHistogram(Writer writer, String name, String labels, LatencyHistogram histogram) throws IOException {
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            cumulative += histogram.getBucketCount(i);
+            double le = LatencyHistogram.upperBoundMicros(i) / 1e6;
+            writeSample(writer, name + "_bucket", labels + ",le=\"" + le + "\"", cumulative);
+        }
+        cumulative += histogram.getBucketCount(LatencyHistogram.BUCKETS);
+        writeSample(writer, name + "_bucket", labels + ",le=\"+Inf\"", cumulative);
+        writeSample(writer, name + "_sum", labels, histogram.getSumNanos() / 1e9);
+        writeSample(writer, name + "_count", labels, histogram.getCount());
+    }
+
+    private static void writeType(Writer writer, String name, String type) throws IOException {
+        writer.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static void writeSample(Writer writer, String name, String labels, Object value) throws IOException {
+        writer.write(name + "{" + labels + "} " + value + "\n");
+    }
+
+    private static String channelLabels(MetricKey key) {
+        return "site=\"" + escape(key.getSite()) + "\",sensor=\"" + escape(key.getSensor())
+                + "\",channel=\"" + escape(key.getChannel()) + "\",broker=\"" + escape(key.getBroker()) + "\"";
+    }
+
+    private static String groupLabels(MetricKey key) {
+        return "site=\"" + escape(key.getSite()) + "\",group=\"" + escape(key.getChannel())
+                + "\",broker=\"" + escape(key.getBroker()) + "\"";
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private String channelName(MetricKey key) {
+        return DOMAIN + ":type=Channel,site=" + ObjectName.quote(String.valueOf(key.getSite()))
+                + ",sensor=" + ObjectName.quote(String.valueOf(key.getSensor()))
+                + ",name=" + ObjectName.quote(String.valueOf(key.getChannel()))
+                + ",broker=" + ObjectName.quote(String.valueOf(key.getBroker()));
+    }
+
+    private String groupName(MetricKey key) {
+        return DOMAIN + ":type=ChannelGroup,site=" + ObjectName.quote(String.valueOf(key.getSite()))
+                + ",name=" + ObjectName.quote(String.valueOf(key.getChannel()))
+                + ",broker=" + ObjectName.quote(String.valueOf(key.getBroker()));
+    }
+
+    private void register(String name, Object bean) {
+        if (!jmx) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(bean, objectName);
+            } else {
+                LOG.warn("The MBean {} is already registered by another registry, it is not exported", name);
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to register the MBean {}", name, e);
+        }
+    }
+
+    private void unRegister(String name) {
+        if (!jmx) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to un-register the MBean {}", name, e);
+        }
+    }
+
+    private static final Comparator<MetricKey> KEY_ORDER = new Comparator<MetricKey>() {
+        @Override
+        public int compare(MetricKey o1, MetricKey o2) {
+            return o1.toString().compareTo(o2.toString());
+        }
+    };
+
+    /**
+     * The publish rate of a sensor
+     */
+    public static class SensorRate {
+        private final String site;
+
+        private final String sensor;
+
+        private double rate;
+
+        private long published;
+
+        SensorRate(String site, String sensor) {
+            this.site = site;
+            this.sensor = sensor;
+        }
+
+        public String getSite() {
+            return site;
+        }
+
+        public String getSensor() {
+            return sensor;
+        }
+
+        /**
+         * @return messages per second
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        public long getPublished() {
+            return published;
+        }
+
+        @Override
+        public String toString() {
+            return site + "/" + sensor + " " + String.format("%.2f", rate) + " msg/s " + published + " total";
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package cgl.iotcloud.core.metrics;
+
+/**
+ * JMX view of the registry
+ */
+public interface MetricsRegistryMBean {
+    /**
+     * The sensors publishing the most messages right now
+     * @return sensor ids with their publish rate in messages per second
+     */
+    String[] getTopSensors();
+}
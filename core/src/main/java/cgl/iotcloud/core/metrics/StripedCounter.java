@@ -0,0 +1,74 @@
+package cgl.iotcloud.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that starts as a single atomic value and spreads the updates over padded cells once
+ * threads start to contend on it. Most counters are updated by a single thread and never pay for
+ * the cells.
+ */
+public class StripedCounter {
+    /**
+     * Number of longs in a cache line, cells are this far apart to avoid false sharing
+     */
+    static final int PAD = 8;
+
+    static final int MAX_STRIPES = nextPowerOfTwo(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private final AtomicLong base = new AtomicLong(0);
+
+    private volatile AtomicLongArray cells;
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long x) {
+        AtomicLongArray cs = cells;
+        if (cs == null) {
+            long b = base.get();
+            if (base.compareAndSet(b, b + x)) {
+                return;
+            }
+            cs = inflate();
+        }
+        cs.getAndAdd(stripe() * PAD, x);
+    }
+
+    /**
+     * The current value. Not an atomic snapshot when there are concurrent updates.
+     * @return the sum of the counter
+     */
+    public long sum() {
+        long sum = base.get();
+        AtomicLongArray cs = cells;
+        if (cs != null) {
+            for (int i = 0; i < cs.length(); i += PAD) {
+                sum += cs.get(i);
+            }
+        }
+        return sum;
+    }
+
+    private synchronized AtomicLongArray inflate() {
+        if (cells == null) {
+            cells = new AtomicLongArray(MAX_STRIPES * PAD);
+        }
+        return cells;
+    }
+
+    /**
+     * The stripe of the current thread
+     * @return a stripe between 0 and MAX_STRIPES - 1
+     */
+    static int stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (MAX_STRIPES - 1);
+    }
+
+    private static int nextPowerOfTwo(int n) {
+        return 1 << (32 - Integer.numberOfLeadingZeros(n - 1));
+    }
+}
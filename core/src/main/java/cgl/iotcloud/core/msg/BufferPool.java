@@ -0,0 +1,233 @@
+package cgl.iotcloud.core.msg;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of message buffers. The memory is allocated in slabs which are cut in to chunks of power of two
+ * size classes. A released buffer goes back to the free list of its size class. Requests larger than the
+ * biggest size class, or requests made after the pool has reached its memory limit, get buffers which are
+ * not pooled and are left to the garbage collector.
+ *
+ * In debug mode every allocation records its stack trace and a buffer which is garbage collected before it
+ * is released is reported as a leak.
+ */
+public class BufferPool {
+    private static Logger LOG = LoggerFactory.getLogger(BufferPool.class);
+
+    public static final int MIN_CHUNK_SIZE = 256;
+
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 64 * 1024;
+
+    public static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+    public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+    private final boolean direct;
+
+    private final int maxChunkSize;
+
+    private final int slabSize;
+
+    private final long maxMemory;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> []freeLists;
+
+    /**
+     * Memory allocated for the slabs
+     */
+    private final AtomicLong allocatedMemory = new AtomicLong(0);
+
+    private final boolean leakDetection;
+
+    private final ReferenceQueue<MessageBuffer> leakQueue = new ReferenceQueue<MessageBuffer>();
+
+    private final Set<LeakRecord> liveRecords = Collections.newSetFromMap(new ConcurrentHashMap<LeakRecord, Boolean>());
+
+    private final AtomicLong leaks = new AtomicLong(0);
+
+    public BufferPool(boolean direct, boolean leakDetection) {
+        this(direct, DEFAULT_MAX_CHUNK_SIZE, DEFAULT_SLAB_SIZE, DEFAULT_MAX_MEMORY, leakDetection);
+    }
+
+    @SuppressWarnings("unchecked")
+    public BufferPool(boolean direct, int maxChunkSize, int slabSize, long maxMemory, boolean leakDetection) {
+        if (maxChunkSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("The maximum chunk size should be at least " + MIN_CHUNK_SIZE);
+        }
+        this.direct = direct;
+        this.maxChunkSize = roundUp(maxChunkSize);
+        this.slabSize = Math.max(slabSize, this.maxChunkSize);
+        this.maxMemory = maxMemory;
+        this.leakDetection = leakDetection;
+
+        int classes = sizeClass(this.maxChunkSize) + 1;
+        freeLists = new ConcurrentLinkedQueue[classes];
+        for (int i = 0; i < classes; i++) {
+            freeLists[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+        }
+    }
+
+    /**
+     * Allocate a buffer with at least the given capacity. The length of the returned buffer is set to the size.
+     * @param size the required size
+     * @return a buffer with a reference count of one
+     */
+    public MessageBuffer allocate(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("The size cannot be negative: " + size);
+        }
+        if (leakDetection) {
+            reportLeaks();
+        }
+
+        MessageBuffer buffer;
+        if (size > maxChunkSize) {
+            buffer = new MessageBuffer(this, allocateMemory(size), -1, size);
+        } else {
+            int sizeClass = sizeClass(size);
+            ByteBuffer chunk = freeLists[sizeClass].poll();
+            if (chunk == null) {
+                chunk = allocateChunk(sizeClass);
+            }
+            if (chunk != null) {
+                buffer = new MessageBuffer(this, chunk, sizeClass, size);
+            } else {
+                // the pool is at its limit
+                buffer = new MessageBuffer(this, allocateMemory(size), -1, size);
+            }
+        }
+
+        if (leakDetection) {
+            LeakRecord record = new LeakRecord(buffer, leakQueue, size);
+            liveRecords.add(record);
+            buffer.leak = record;
+        }
+        return buffer;
+    }
+
+    /**
+     * Called by a buffer when its reference count reaches zero
+     * @param buffer the buffer
+     */
+    void recycle(MessageBuffer buffer) {
+        LeakRecord record = buffer.leak;
+        if (record != null) {
+            liveRecords.remove(record);
+            record.clear();
+            buffer.leak = null;
+        }
+
+        int sizeClass = buffer.getSizeClass();
+        if (sizeClass >= 0) {
+            ByteBuffer chunk = buffer.getMemory();
+            chunk.clear();
+            freeLists[sizeClass].offer(chunk);
+        }
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public long getAllocatedMemory() {
+        return allocatedMemory.get();
+    }
+
+    /**
+     * Number of leaked buffers detected so far, always 0 when leak detection is off
+     * @return number of leaks
+     */
+    public long getLeakCount() {
+        if (leakDetection) {
+            reportLeaks();
+        }
+        return leaks.get();
+    }
+
+    private ByteBuffer allocateChunk(int sizeClass) {
+        int chunkSize = MIN_CHUNK_SIZE << sizeClass;
+        long current;
+        do {
+            current = allocatedMemory.get();
+            if (current + slabSize > maxMemory) {
+                return null;
+            }
+        } while (!allocatedMemory.compareAndSet(current, current + slabSize));
+
+        int chunks = slabSize / chunkSize;
+        ByteBuffer first;
+        if (direct) {
+            // one direct allocation for the whole slab, the chunks are slices of it
+            ByteBuffer slab = ByteBuffer.allocateDirect(chunks * chunkSize);
+            first = sliceChunk(slab, 0, chunkSize);
+            for (int i = 1; i < chunks; i++) {
+                freeLists[sizeClass].offer(sliceChunk(slab, i, chunkSize));
+            }
+        } else {
+            // separate arrays keep the array offset at 0 so the transports can read directly in to them
+            first = ByteBuffer.wrap(new byte[chunkSize]);
+            for (int i = 1; i < chunks; i++) {
+                freeLists[sizeClass].offer(ByteBuffer.wrap(new byte[chunkSize]));
+            }
+        }
+        return first;
+    }
+
+    private static ByteBuffer sliceChunk(ByteBuffer slab, int index, int chunkSize) {
+        ByteBuffer b = slab.duplicate();
+        b.position(index * chunkSize);
+        b.limit((index + 1) * chunkSize);
+        return b.slice();
+    }
+
+    private ByteBuffer allocateMemory(int size) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.wrap(new byte[size]);
+    }
+
+    private void reportLeaks() {
+        LeakRecord record;
+        while ((record = (LeakRecord) leakQueue.poll()) != null) {
+            if (liveRecords.remove(record)) {
+                leaks.incrementAndGet();
+                LOG.error("LEAK: a message buffer of size " + record.size
+                        + " was garbage collected before it was released. Allocated at:", record.allocation);
+            }
+        }
+    }
+
+    private int sizeClass(int size) {
+        if (size <= MIN_CHUNK_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+    }
+
+    private static int roundUp(int size) {
+        return 1 << (32 - Integer.numberOfLeadingZeros(size - 1));
+    }
+
+    /**
+     * Tracks a buffer without keeping it alive
+     */
+    static class LeakRecord extends PhantomReference<MessageBuffer> {
+        private final Throwable allocation;
+
+        private final int size;
+
+        LeakRecord(MessageBuffer referent, ReferenceQueue<MessageBuffer> queue, int size) {
+            super(referent, queue);
+            this.size = size;
+            this.allocation = new Throwable("Buffer allocation");
+        }
+    }
+}
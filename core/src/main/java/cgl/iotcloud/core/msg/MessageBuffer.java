@@ -0,0 +1,210 @@
+package cgl.iotcloud.core.msg;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted buffer holding the body of a message. The buffer is created with a reference count
+ * of one and is given back to its pool when the count reaches zero. Code that keeps the buffer after
+ * handing the message over must call {@link #retain()} and release it later.
+ */
+public class MessageBuffer {
+    private final BufferPool pool;
+
+    /**
+     * The memory of the buffer, the capacity can be larger than the length
+     */
+    private final ByteBuffer memory;
+
+    /**
+     * Size class of the pool this buffer belongs to, -1 if the buffer is not pooled
+     */
+    private final int sizeClass;
+
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    private int length;
+
+    /**
+     * Allocation record used by the leak detection, null when leak detection is off
+     */
+    BufferPool.LeakRecord leak;
+
+    MessageBuffer(BufferPool pool, ByteBuffer memory, int sizeClass, int length) {
+        this.pool = pool;
+        this.memory = memory;
+        this.sizeClass = sizeClass;
+        this.length = length;
+    }
+
+    /**
+     * Wrap an existing array in a buffer which is not pooled
+     * @param bytes the bytes
+     * @return the buffer
+     */
+    public static MessageBuffer wrap(byte []bytes) {
+        return new MessageBuffer(null, ByteBuffer.wrap(bytes), -1, bytes.length);
+    }
+
+    /**
+     * Wrap the remaining bytes of a byte buffer in a buffer which is not pooled, the bytes are not copied.
+     * Used by the transports to pass a slice of the buffer they read from the broker.
+     * @param bytes the bytes
+     * @return the buffer
+     */
+    public static MessageBuffer wrap(ByteBuffer bytes) {
+        ByteBuffer memory = bytes.slice();
+        return new MessageBuffer(null, memory, -1, memory.capacity());
+    }
+
+    int getSizeClass() {
+        return sizeClass;
+    }
+
+    ByteBuffer getMemory() {
+        return memory;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return memory.capacity();
+    }
+
+    /**
+     * Set the number of valid bytes in the buffer
+     * @param length number of bytes, must not exceed the capacity
+     */
+    public void setLength(int length) {
+        if (length < 0 || length > memory.capacity()) {
+            throw new IllegalArgumentException("Length " + length + " is out of the range of the buffer capacity " + memory.capacity());
+        }
+        this.length = length;
+    }
+
+    public boolean isDirect() {
+        return memory.isDirect();
+    }
+
+    /**
+     * True if the data can be accessed through {@link #array()}
+     * @return true if the buffer is backed by a heap array
+     */
+    public boolean hasArray() {
+        return memory.hasArray();
+    }
+
+    /**
+     * The array backing a heap buffer, the data starts at {@link #arrayOffset()}
+     * @return the backing array
+     */
+    public byte[] array() {
+        ensureAccessible();
+        return memory.array();
+    }
+
+    public int arrayOffset() {
+        return memory.arrayOffset();
+    }
+
+    /**
+     * A view of the valid bytes of the buffer. The view shares the memory of this buffer and must not
+     * be used after the buffer is released.
+     * @return a byte buffer with position 0 and limit set to the length
+     */
+    public ByteBuffer nioBuffer() {
+        ensureAccessible();
+        ByteBuffer b = memory.duplicate();
+        b.clear();
+        b.limit(length);
+        return b;
+    }
+
+    /**
+     * Copy bytes in to the buffer starting at the beginning and set the length
+     * @param src source array
+     * @param offset offset in the source
+     * @param len number of bytes
+     */
+    public void write(byte []src, int offset, int len) {
+        ensureAccessible();
+        ByteBuffer b = memory.duplicate();
+        b.clear();
+        b.put(src, offset, len);
+        setLength(len);
+    }
+
+    /**
+     * Copy the remaining bytes of the source in to the buffer and set the length.
+     * The position of the source is not changed.
+     * @param src the source
+     */
+    public void write(ByteBuffer src) {
+        ensureAccessible();
+        ByteBuffer b = memory.duplicate();
+        b.clear();
+        int len = src.remaining();
+        b.put(src.duplicate());
+        setLength(len);
+    }
+
+    /**
+     * Copy the valid bytes to a new array
+     * @return a new array
+     */
+    public byte[] toByteArray() {
+        byte []bytes = new byte[length];
+        nioBuffer().get(bytes);
+        return bytes;
+    }
+
+    public int refCount() {
+        return refCount.get();
+    }
+
+    /**
+     * Increment the reference count
+     * @return this buffer
+     */
+    public MessageBuffer retain() {
+        while (true) {
+            int count = refCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("The buffer is already released");
+            }
+            if (refCount.compareAndSet(count, count + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Decrement the reference count and give the buffer back to the pool when the count reaches zero
+     * @return true if the buffer was deallocated
+     */
+    public boolean release() {
+        while (true) {
+            int count = refCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("The buffer is already released");
+            }
+            if (refCount.compareAndSet(count, count - 1)) {
+                if (count == 1) {
+                    if (pool != null) {
+                        pool.recycle(this);
+                    }
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    private void ensureAccessible() {
+        if (refCount.get() <= 0) {
+            throw new IllegalStateException("The buffer is already released");
+        }
+    }
+}
@@ -1,16 +1,37 @@
 package cgl.iotcloud.core.msg;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 public class MessageContext implements Serializable {
+    /**
+     * The numeric sensor id of a message which only has the string id
+     */
+    public static final long NO_SENSOR_KEY = 0;
+
     private String sensorId;
 
-    private Map<String, Object> properties = new HashMap<String, Object>();
+    /**
+     * The site unique numeric id of the sensor, carried on the wire instead of the string id
+     */
+    private long sensorKey = NO_SENSOR_KEY;
+
+    /**
+     * Created when the first property is set, most messages don't have any
+     */
+    private MessageProperties properties;
 
     private byte[] body;
 
+    /**
+     * The body when it is held in a pooled buffer or a transport buffer slice. The message owns one reference
+     * to the buffer
+     */
+    private transient MessageBuffer buffer;
+
     public MessageContext(String sensorId, byte[] body) {
         this.sensorId = sensorId;
         this.body = body;
@@ -26,24 +47,236 @@ public class MessageContext implements Serializable {
         }
 
         this.sensorId = sensorId;
-        if (properties != null) {
-            this.properties = properties;
+        this.properties = toProperties(properties);
+        this.body = body;
+    }
+
+    public MessageContext(String sensorId, MessageBuffer buffer, Map<String, Object> properties) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("The body should be present");
         }
+
+        this.sensorId = sensorId;
+        this.properties = toProperties(properties);
+        this.buffer = buffer;
+    }
+
+    /**
+     * A message with the body in a slice of a transport buffer, the body is not copied
+     * @param sensorId the sensor id
+     * @param body the remaining bytes are the body
+     * @param properties the properties, can be null
+     */
+    public MessageContext(String sensorId, ByteBuffer body, Map<String, Object> properties) {
+        this(sensorId, body != null ? MessageBuffer.wrap(body) : null, properties);
+    }
+
+    /**
+     * A message received with only the numeric sensor id, the string id is set when it is routed to a channel
+     * @param sensorKey the numeric sensor id
+     * @param body the body
+     * @param properties the properties, can be null
+     */
+    public MessageContext(long sensorKey, byte[] body, Map<String, Object> properties) {
+        if (body == null) {
+            throw new IllegalArgumentException("The body should be present");
+        }
+
+        this.sensorKey = sensorKey;
+        this.properties = toProperties(properties);
         this.body = body;
     }
 
+    public MessageContext(long sensorKey, MessageBuffer buffer, Map<String, Object> properties) {
+        this((String) null, buffer, properties);
+        this.sensorKey = sensorKey;
+    }
+
+    public MessageContext(long sensorKey, ByteBuffer body, Map<String, Object> properties) {
+        this((String) null, body != null ? MessageBuffer.wrap(body) : null, properties);
+        this.sensorKey = sensorKey;
+    }
+
     public String getSensorId() {
         return sensorId;
     }
 
+    /**
+     * The numeric id of the sensor
+     * @return the id or {@link #NO_SENSOR_KEY} if the message only has the string id
+     */
+    public long getSensorKey() {
+        return sensorKey;
+    }
+
+    public void setSensorKey(long sensorKey) {
+        this.sensorKey = sensorKey;
+    }
+
     public Map<String, Object> getProperties() {
+        if (properties == null) {
+            properties = new MessageProperties();
+        }
         return properties;
     }
 
+    /**
+     * Read a property without creating or decoding the properties of the message
+     * @param name the name
+     * @return the value or null if the property is not present
+     */
+    public Object getProperty(String name) {
+        return properties != null ? properties.get(name) : null;
+    }
+
+    /**
+     * Read a numeric property without boxing, string values are parsed
+     * @param name the name
+     * @param defaultValue returned if the property is not present or not a number
+     * @return the value
+     */
+    public long getLongProperty(String name, long defaultValue) {
+        return properties != null ? properties.getLong(name, defaultValue) : defaultValue;
+    }
+
+    public boolean hasProperty(String name) {
+        return properties != null && properties.containsKey(name);
+    }
+
+    /**
+     * True if the message has properties, the senders skip copying the properties of messages without any
+     * @return true if there are properties
+     */
+    public boolean hasProperties() {
+        return properties != null && !properties.isEmpty();
+    }
+
+    /**
+     * Replace the properties of the message
+     * @param properties the properties, can be null
+     */
+    public void setProperties(Map<String, Object> properties) {
+        this.properties = toProperties(properties);
+    }
+
+    public void setProperty(String name, Object value) {
+        getProperties().put(name, value);
+    }
+
+    /**
+     * Remove a property without decoding the other properties of the message
+     * @param name the name
+     * @return true if the property was present
+     */
+    public boolean removeProperty(String name) {
+        return properties != null && properties.removeProperty(name);
+    }
+
+    public void setLongProperty(String name, long value) {
+        getProperties();
+        properties.putLong(name, value);
+    }
+
+    /**
+     * Get the body as an array. If the body is in a buffer it is copied to an array, use
+     * {@link #getBodyBuffer()} to read the data without the copy.
+     * @return the body
+     */
     public byte[] getBody() {
+        if (body == null && buffer != null) {
+            body = buffer.toByteArray();
+        }
         return body;
     }
 
+    /**
+     * A read only view of the body which does not copy it. The view of a buffer must not be used after the
+     * message is released, a receiver keeping the body after onMessage returns should copy it.
+     * @return the body with position 0 and limit set to the length, null if the message is released
+     */
+    public ByteBuffer getBodyBuffer() {
+        MessageBuffer b = buffer;
+        if (b != null) {
+            return b.nioBuffer().asReadOnlyBuffer();
+        }
+        return body != null ? ByteBuffer.wrap(body).asReadOnlyBuffer() : null;
+    }
+
+    /**
+     * Replace the body, a pooled buffer holding the old body is released
+     * @param body the new body
+     */
+    public void setBody(byte[] body) {
+        if (body == null) {
+            throw new IllegalArgumentException("The body should be present");
+        }
+        release();
+        this.body = body;
+    }
+
+    /**
+     * Length of the body without copying a pooled buffer
+     * @return the length in bytes
+     */
+    public int getBodyLength() {
+        MessageBuffer b = buffer;
+        if (b != null) {
+            return b.length();
+        }
+        return body != null ? body.length : 0;
+    }
+
+    /**
+     * The buffer holding the body, a pooled buffer or a slice of a transport buffer
+     * @return the buffer or null if the body is an array
+     */
+    public MessageBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Release the pooled buffer of this message. Called once the message is delivered, calling it more
+     * than once or on a message without a buffer has no effect.
+     */
+    public void release() {
+        MessageBuffer b = buffer;
+        if (b != null) {
+            buffer = null;
+            b.release();
+        }
+    }
+
+    /**
+     * Create a message context sharing the body of this one. A pooled buffer is retained, both messages
+     * must be released. The properties are copied.
+     * @return the new message context
+     */
+    public MessageContext duplicate() {
+        MessageProperties props = properties != null ? new MessageProperties(properties) : null;
+        MessageBuffer b = buffer;
+        MessageContext copy;
+        if (b != null) {
+            copy = new MessageContext(sensorId, b.retain(), props);
+        } else {
+            copy = new MessageContext(sensorId, body);
+            copy.properties = props;
+        }
+        copy.sensorKey = sensorKey;
+        return copy;
+    }
+
+    private static MessageProperties toProperties(Map<String, Object> properties) {
+        if (properties == null || properties instanceof MessageProperties) {
+            return (MessageProperties) properties;
+        }
+        return new MessageProperties(properties);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getBody();
+        out.defaultWriteObject();
+    }
+
     public void setSensorId(String sensorId) {
         this.sensorId = sensorId;
     }
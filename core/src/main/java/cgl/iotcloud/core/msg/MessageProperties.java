@@ -0,0 +1,497 @@
+package cgl.iotcloud.core.msg;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The properties of a message. A message has a handful of properties, they are kept in small inline arrays
+ * instead of a hash table and long values are kept without boxing.
+ *
+ * The properties of a received message can be read straight from the headers of the transport, see
+ * {@link Source}. Reading, counting or removing a single property does not decode the headers, they are
+ * copied in to the arrays when the properties are changed or iterated.
+ */
+public class MessageProperties extends AbstractMap<String, Object> implements Serializable {
+    /**
+     * The headers of a received message in the form the transport gives them
+     */
+    public interface Source {
+        /**
+         * Read a header
+         * @param name the name of the header
+         * @return the value or null if the header is not present
+         */
+        Object get(String name);
+
+        /**
+         * Count the headers without reading their values
+         * @return number of headers
+         */
+        int size();
+
+        /**
+         * Copy all the headers
+         * @param properties the headers are put in to these properties
+         */
+        void copyTo(MessageProperties properties);
+    }
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Marks a value kept in the numbers array
+     */
+    private static final Object LONG_VALUE = new Object();
+
+    private String[] keys;
+
+    private Object[] values;
+
+    private long[] numbers;
+
+    private int size;
+
+    /**
+     * The headers not decoded yet, null once they are copied
+     */
+    private transient Source source;
+
+    /**
+     * Headers removed before they were decoded, null if none
+     */
+    private transient String[] removed;
+
+    private transient Set<Entry<String, Object>> entrySet;
+
+    public MessageProperties() {
+    }
+
+    /**
+     * Create properties with a copy of the map
+     * @param properties the properties to copy
+     */
+    public MessageProperties(Map<String, ?> properties) {
+        if (properties instanceof MessageProperties) {
+            MessageProperties other = (MessageProperties) properties;
+            source = other.source;
+            removed = other.removed != null ? other.removed.clone() : null;
+            if (other.size > 0) {
+                keys = other.keys.clone();
+                values = other.values.clone();
+                numbers = other.numbers != null ? other.numbers.clone() : null;
+                size = other.size;
+            }
+        } else if (properties != null) {
+            for (Entry<String, ?> e : properties.entrySet()) {
+                put(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Properties reading the headers of the transport when they are needed
+     * @param source the headers
+     * @return the properties
+     */
+    public static MessageProperties wrap(Source source) {
+        MessageProperties properties = new MessageProperties();
+        properties.source = source;
+        return properties;
+    }
+
+    /**
+     * Properties reading a header map given by the transport, the map is not copied until the properties
+     * are changed or iterated
+     * @param headers the headers, must not be changed by the transport afterwards
+     * @return the properties
+     */
+    public static MessageProperties wrap(final Map<String, ?> headers) {
+        if (headers == null || headers.isEmpty()) {
+            return new MessageProperties();
+        }
+        return wrap(new Source() {
+            @Override
+            public Object get(String name) {
+                return headers.get(name);
+            }
+
+            @Override
+            public int size() {
+                return headers.size();
+            }
+
+            @Override
+            public void copyTo(MessageProperties properties) {
+                for (Entry<String, ?> e : headers.entrySet()) {
+                    properties.put(e.getKey(), e.getValue());
+                }
+            }
+        });
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = indexOf(key);
+        if (i >= 0) {
+            return valueAt(i);
+        }
+        return sourceGet(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0 || sourceGet(key) != null;
+    }
+
+    /**
+     * Read a property as a long without boxing, string values are parsed
+     * @param key the name
+     * @param defaultValue returned if the property is not present or not a number
+     * @return the value
+     */
+    public long getLong(String key, long defaultValue) {
+        int i = indexOf(key);
+        Object value;
+        if (i >= 0) {
+            if (values[i] == LONG_VALUE) {
+                return numbers[i];
+            }
+            value = values[i];
+        } else {
+            value = sourceGet(key);
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value != null) {
+            try {
+                return Long.parseLong(value.toString());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Set a property to a long without boxing
+     * @param key the name
+     * @param value the value
+     */
+    public void putLong(String key, long value) {
+        decode();
+        int i = indexOf(key);
+        if (i < 0) {
+            i = append(key);
+        }
+        if (numbers == null) {
+            numbers = new long[keys.length];
+        }
+        values[i] = LONG_VALUE;
+        numbers[i] = value;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (key == null) {
+            throw new NullPointerException("The property name should be present");
+        }
+        decode();
+        int i = indexOf(key);
+        if (i >= 0) {
+            Object old = valueAt(i);
+            values[i] = value;
+            return old;
+        }
+        i = append(key);
+        values[i] = value;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        decode();
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        Object old = valueAt(i);
+        removeAt(i);
+        return old;
+    }
+
+    /**
+     * Remove a property without decoding the headers of the transport
+     * @param key the name
+     * @return true if the property was present
+     */
+    public boolean removeProperty(String key) {
+        int i = indexOf(key);
+        if (i >= 0) {
+            removeAt(i);
+            return true;
+        }
+        if (sourceGet(key) == null) {
+            return false;
+        }
+        if (removed == null) {
+            removed = new String[]{key};
+        } else {
+            String[] r = new String[removed.length + 1];
+            System.arraycopy(removed, 0, r, 0, removed.length);
+            r[removed.length] = key;
+            removed = r;
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        Source s = source;
+        if (s != null) {
+            // the removed headers are all present in the source
+            return size + s.size() - (removed != null ? removed.length : 0);
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        source = null;
+        removed = null;
+        for (int i = 0; i < size; i++) {
+            keys[i] = null;
+            values[i] = null;
+        }
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * Copy the headers of the transport in to the arrays, called before the properties change
+     */
+    private void decode() {
+        Source s = source;
+        if (s != null) {
+            source = null;
+            s.copyTo(this);
+            if (removed != null) {
+                for (String key : removed) {
+                    int i = indexOf(key);
+                    if (i >= 0) {
+                        removeAt(i);
+                    }
+                }
+                removed = null;
+            }
+        }
+    }
+
+    /**
+     * Read a header which is not decoded yet
+     */
+    private Object sourceGet(Object key) {
+        Source s = source;
+        if (s == null || !(key instanceof String)) {
+            return null;
+        }
+        String[] r = removed;
+        if (r != null) {
+            for (String name : r) {
+                if (name.equals(key)) {
+                    return null;
+                }
+            }
+        }
+        return s.get((String) key);
+    }
+
+    private int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        // the names are mostly constants, compare the references before the contents
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object valueAt(int i) {
+        Object value = values[i];
+        return value == LONG_VALUE ? Long.valueOf(numbers[i]) : value;
+    }
+
+    private int append(String key) {
+        if (keys == null) {
+            keys = new String[INITIAL_CAPACITY];
+            values = new Object[INITIAL_CAPACITY];
+        } else if (size == keys.length) {
+            int capacity = keys.length * 2;
+            String[] k = new String[capacity];
+            Object[] v = new Object[capacity];
+            System.arraycopy(keys, 0, k, 0, size);
+            System.arraycopy(values, 0, v, 0, size);
+            keys = k;
+            values = v;
+            if (numbers != null) {
+                long[] n = new long[capacity];
+                System.arraycopy(numbers, 0, n, 0, size);
+                numbers = n;
+            }
+        }
+        keys[size] = key;
+        return size++;
+    }
+
+    private void removeAt(int i) {
+        int last = size - 1;
+        if (i < last) {
+            keys[i] = keys[last];
+            values[i] = values[last];
+            if (numbers != null) {
+                numbers[i] = numbers[last];
+            }
+        }
+        keys[last] = null;
+        values[last] = null;
+        size = last;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        decode();
+        // the marker of the unboxed values is not serializable
+        for (int i = 0; i < size; i++) {
+            if (values[i] == LONG_VALUE) {
+                values[i] = numbers[i];
+            }
+        }
+        out.defaultWriteObject();
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            decode();
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return MessageProperties.this.size();
+        }
+
+        @Override
+        public void clear() {
+            MessageProperties.this.clear();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int next = 0;
+
+        private int current = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            return new PropertyEntry(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            // the last entry moves in to the removed slot, visit it next
+            removeAt(current);
+            next = current;
+            current = -1;
+        }
+    }
+
+    private class PropertyEntry implements Entry<String, Object> {
+        private final String key;
+
+        private Object value;
+
+        PropertyEntry(int index) {
+            // the slots move when entries are removed, keep the key and value of the entry
+            this.key = keys[index];
+            this.value = valueAt(index);
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = this.value;
+            int i = indexOf(key);
+            if (i >= 0) {
+                values[i] = value;
+            }
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry e = (Entry) o;
+            return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -88,6 +88,7 @@ public class MasterClient {
                     }
                 }
                 tChannel.setSensorId(c.getSensorID());
+                tChannel.setSensorKey(c.getSensorKey());
                 tChannel.setGrouped(c.isGrouped());
                 tChannel.setSensor(context.getName());
                 tChannel.setSite(siteContext.getSiteId());
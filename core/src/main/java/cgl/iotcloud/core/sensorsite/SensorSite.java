@@ -2,8 +2,15 @@ package cgl.iotcloud.core.sensorsite;
 
 import cgl.iotcloud.core.Configuration;
 import cgl.iotcloud.core.Utils;
+import cgl.iotcloud.core.metrics.MetricsHttpServer;
+import cgl.iotcloud.core.metrics.MetricsRegistry;
 import cgl.iotcloud.core.sensorsite.thrift.TSensorSiteService;
+import cgl.iotcloud.core.transport.AbstractTransport;
+import cgl.iotcloud.core.transport.DrainReport;
+import cgl.iotcloud.core.transport.Drainable;
 import cgl.iotcloud.core.transport.Transport;
+import cgl.iotcloud.core.transport.scheduler.SchedulerAware;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import com.google.common.eventbus.EventBus;
 import org.apache.thrift.server.THsHaServer;
 import org.apache.thrift.transport.TNonblockingServerSocket;
@@ -35,6 +42,12 @@ public class SensorSite {
 
     private MasterUpdater masterUpdater;
 
+    private MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    private MetricsHttpServer metricsServer;
+
+    private TransportScheduler scheduler;
+
     public void start() {
         // read the configuration file
         conf = Utils.readConfig();
@@ -47,6 +60,18 @@ public class SensorSite {
         // create the site context
         siteContext = new SiteContext(siteId, conf);
 
+        metricsRegistry.start();
+        int metricsPort = Configuration.getSensorSiteMetricsPort(conf);
+        if (metricsPort > 0) {
+            metricsServer = new MetricsHttpServer(metricsRegistry, Configuration.getSensorSiteHost(conf), metricsPort);
+            metricsServer.start();
+        }
+
+        // the producers and consumers of all the transports share these threads
+        scheduler = new TransportScheduler(Configuration.getSensorSiteIOThreads(conf),
+                Configuration.getSensorSiteIOMaxPollInterval(conf));
+        scheduler.start();
+
         // read the available transports and register them
         Map transports = Configuration.getTransports(conf);
         if (transports == null) {
@@ -72,6 +97,12 @@ public class SensorSite {
                 }
 
                 Transport t = loadTransport((Map) tConf);
+                if (t instanceof AbstractTransport) {
+                    ((AbstractTransport) t).setMetricsRegistry(metricsRegistry);
+                }
+                if (t instanceof SchedulerAware) {
+                    ((SchedulerAware) t).setScheduler(scheduler);
+                }
                 // configure the transport, this doesn't start the transport
                 t.configure(siteId, (Map) tConf);
                 siteContext.addTransport((String) tName, t);
@@ -126,14 +157,41 @@ public class SensorSite {
         // we first un register from the master
         masterUpdater.unRegisterSite();
 
-        // stop the transports
-        for (Map.Entry<String, Transport> e : siteContext.getTransports().entrySet()) {
+        // stop accepting messages on all the transports first, so they drain together
+        Map<String, Transport> transports = siteContext.getTransports();
+        for (Transport transport : transports.values()) {
+            if (transport instanceof Drainable) {
+                ((Drainable) transport).quiesce();
+            }
+        }
+
+        // flush the queues within the shared deadline and stop the transports
+        long deadline = System.currentTimeMillis() + Configuration.getSensorSiteDrainTimeout(conf);
+        DrainReport report = new DrainReport();
+        for (Map.Entry<String, Transport> e : transports.entrySet()) {
             LOG.info("Stopping transport {}", e.getKey());
-            e.getValue().stop();
+            if (e.getValue() instanceof Drainable) {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                report.add(((Drainable) e.getValue()).drain(remaining));
+            } else {
+                e.getValue().stop();
+            }
         }
+        if (report.getLost() > 0) {
+            LOG.warn("Sensor site {} lost messages while stopping, {}", siteContext.getSiteId(), report);
+        } else {
+            LOG.info("Sensor site {} drained the transports, {}", siteContext.getSiteId(), report);
+        }
+
+        scheduler.stop();
 
         // stop the server
         server.stop();
+
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+        metricsRegistry.stop();
         LOG.info("Sensor site {} stopped        ", siteContext.getSiteId());
     }
 
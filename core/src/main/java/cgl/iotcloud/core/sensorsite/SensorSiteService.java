@@ -5,11 +5,20 @@ import cgl.iotcloud.core.master.thrift.THeartBeatRequest;
 import cgl.iotcloud.core.master.thrift.THeartBeatResponse;
 import cgl.iotcloud.core.sensorsite.events.SensorEvent;
 import cgl.iotcloud.core.sensorsite.thrift.TSensorSiteService;
+import cgl.iotcloud.core.transport.BrokerHost;
+import cgl.iotcloud.core.transport.BrokerMembership;
+import cgl.iotcloud.core.transport.Channel;
+import cgl.iotcloud.core.transport.Direction;
+import cgl.iotcloud.core.transport.RateLimit;
+import cgl.iotcloud.core.transport.RateLimiter;
+import cgl.iotcloud.core.transport.ThrottlePolicy;
+import cgl.iotcloud.core.transport.Transport;
 import com.google.common.eventbus.EventBus;
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Map;
 
 public class SensorSiteService implements TSensorSiteService.Iface {
@@ -76,4 +85,85 @@ public class SensorSiteService implements TSensorSiteService.Iface {
         sensorEvents.post(event);
         return new TResponse(TResponseState.SUCCESS, "sensor is scheduled to for de-activation");
     }
+
+    @Override
+    public TResponse addBroker(String transportName, String url, String zone) throws TException {
+        LOG.info("Request received for adding the broker {} to transport {}", url, transportName);
+        BrokerMembership membership = getBrokerMembership(transportName);
+        if (membership == null) {
+            return new TResponse(TResponseState.FAILURE, "transport " + transportName + " cannot change its brokers");
+        }
+
+        try {
+            membership.addBroker(new BrokerHost(url, zone));
+        } catch (RuntimeException e) {
+            LOG.error("Failed to add the broker {} to transport {}", url, transportName, e);
+            return new TResponse(TResponseState.FAILURE, "failed to add the broker: " + e.getMessage());
+        }
+        return new TResponse(TResponseState.SUCCESS, "broker is added");
+    }
+
+    @Override
+    public TResponse removeBroker(String transportName, String url) throws TException {
+        LOG.info("Request received for removing the broker {} from transport {}", url, transportName);
+        BrokerMembership membership = getBrokerMembership(transportName);
+        if (membership == null) {
+            return new TResponse(TResponseState.FAILURE, "transport " + transportName + " cannot change its brokers");
+        }
+
+        try {
+            membership.removeBroker(new BrokerHost(url));
+        } catch (RuntimeException e) {
+            LOG.error("Failed to remove the broker {} from transport {}", url, transportName, e);
+            return new TResponse(TResponseState.FAILURE, "failed to remove the broker: " + e.getMessage());
+        }
+        return new TResponse(TResponseState.SUCCESS, "broker is removed");
+    }
+
+    @Override
+    public TResponse setRateLimit(String sensorId, String channelName, double messageRate, double byteRate,
+                                  String policy) throws TException {
+        LOG.info("Request received for limiting the sensor {} to {} messages/s and {} bytes/s", sensorId, messageRate, byteRate);
+        SensorInstance instance = siteContext.getSensor(sensorId);
+        if (instance == null) {
+            return new TResponse(TResponseState.FAILURE, "sensor " + sensorId + " is not deployed in this site");
+        }
+
+        RateLimit rateLimit;
+        try {
+            if (messageRate > 0 || byteRate > 0) {
+                // the channels of the sensor share the limit when no channel is given
+                rateLimit = new RateLimit(new RateLimiter(messageRate, byteRate, RateLimit.DEFAULT_BURST),
+                        ThrottlePolicy.forName(policy), RateLimit.DEFAULT_SAMPLE);
+            } else {
+                rateLimit = null;
+            }
+        } catch (IllegalArgumentException e) {
+            return new TResponse(TResponseState.FAILURE, "invalid rate limit: " + e.getMessage());
+        }
+
+        int count = 0;
+        for (List<Channel> channels : instance.getSensorContext().getChannels().values()) {
+            for (Channel channel : channels) {
+                if (channel.getDirection() == Direction.OUT
+                        && (channelName == null || channelName.length() == 0 || channelName.equals(channel.getName()))) {
+                    channel.setRateLimit(rateLimit);
+                    count++;
+                }
+            }
+        }
+        if (count == 0) {
+            return new TResponse(TResponseState.FAILURE, "sensor " + sensorId + " has no publishing channel " + channelName);
+        }
+        return new TResponse(TResponseState.SUCCESS, "rate limit is set on " + count + " channels");
+    }
+
+    private BrokerMembership getBrokerMembership(String transportName) {
+        Transport transport = siteContext.getTransport(transportName);
+        if (transport instanceof BrokerMembership) {
+            return (BrokerMembership) transport;
+        }
+        LOG.warn("The transport {} is not present or does not support changing the brokers", transportName);
+        return null;
+    }
 }
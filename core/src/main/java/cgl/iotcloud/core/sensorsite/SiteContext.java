@@ -9,11 +9,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Holds information about an active site
  */
 public class SiteContext {
+    // number of bits of the numeric sensor id counting the sensors deployed since the site started
+    private static final int SENSOR_KEY_BITS = 20;
+
     // a unique id for the site
     private String siteId;
 
@@ -23,6 +27,9 @@ public class SiteContext {
     // static information about the deployed sensors
     private Map<String, SensorInstance> sensors = new HashMap<String, SensorInstance>();
 
+    // the numeric sensor ids start from the time the site started, so the ids of a restarted site are new
+    private AtomicLong nextSensorKey = new AtomicLong(System.currentTimeMillis() << SENSOR_KEY_BITS);
+
     private Map conf;
 
     public SiteContext(String siteId, Map conf) {
@@ -34,6 +41,14 @@ public class SiteContext {
         return siteId;
     }
 
+    /**
+     * Create a site unique numeric id for a sensor
+     * @return the id
+     */
+    public long nextSensorKey() {
+        return nextSensorKey.incrementAndGet();
+    }
+
     public void addSensor(SensorContext context, ISensor sensor) {
         SensorInstance details = new SensorInstance(context, sensor);
         sensors.put(context.getSensorID(), details);
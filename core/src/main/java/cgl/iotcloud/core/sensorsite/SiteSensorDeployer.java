@@ -25,12 +25,19 @@ public class SiteSensorDeployer {
 
     private Map conf;
 
+    /**
+     * Creates the threads of the sensors deployed to this site
+     */
+    private SensorThreadFactory threadFactory;
+
     private EventBus siteEventBus;
 
     public SiteSensorDeployer(Map conf, SiteContext siteContext, EventBus eventBus) {
         this.conf = conf;
         this.siteContext = siteContext;
         this.siteEventBus = eventBus;
+        this.threadFactory = SensorThreadFactory.forMode("sensor-" + siteContext.getSiteId(),
+                Configuration.getSensorThreadMode(conf));
     }
 
     @Subscribe
@@ -120,6 +127,9 @@ public class SiteSensorDeployer {
 
             // set the sensor id
             sensorContext.setSensorID(sensorID);
+            // the numeric id goes in to the messages
+            final long sensorKey = siteContext.nextSensorKey();
+            sensorContext.setSensorKey(sensorKey);
 
             // get the channels registered for this sensor
             Map<String, List<Channel>> channels = sensorContext.getChannels();
@@ -130,6 +140,7 @@ public class SiteSensorDeployer {
                     for (Channel c : entry.getValue()) {
                         // set the sensor id to channels
                         c.setSensorID(sensorID);
+                        c.setSensorKey(sensorKey);
                         // register with the transport
                         t.registerChannel(new ChannelName(sensorContext.getName(), c.getName()), c);
                         c.open();
@@ -137,9 +148,13 @@ public class SiteSensorDeployer {
                 }
             }
 
-            LOG.info("Deployed sensor with name: {} with: id {}", sensorContext.getName(), sensorContext.getSensorID());
+            LOG.info("Deployed sensor with name: {} with: id {} and key {}", sensorContext.getName(),
+                    sensorContext.getSensorID(), sensorKey);
 
             // open the sensor
+            if (sensor instanceof AbstractSensor) {
+                ((AbstractSensor) sensor).setThreadFactory(threadFactory);
+            }
             sensor.open(sensorContext);
             LOG.info("Open sensor with name: {} with: id {}", sensorContext.getName(), sensorContext.getSensorID());
             // add the sensor to the site
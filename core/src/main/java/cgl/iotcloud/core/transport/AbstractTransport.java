@@ -1,27 +1,44 @@
 package cgl.iotcloud.core.transport;
 
 import cgl.iotcloud.core.Configuration;
+import cgl.iotcloud.core.metrics.MetricsRegistry;
+import cgl.iotcloud.core.msg.BufferPool;
 import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.local.LocalBroker;
+import cgl.iotcloud.core.transport.queue.ArrayQueueFactory;
+import cgl.iotcloud.core.transport.queue.PriorityLaneQueueFactory;
+import cgl.iotcloud.core.transport.queue.QueueFactory;
+import cgl.iotcloud.core.transport.queue.RingBufferQueueFactory;
+import cgl.iotcloud.core.transport.scheduler.SchedulerAware;
+import cgl.iotcloud.core.transport.spool.Spool;
+import cgl.iotcloud.core.transport.spool.Spooler;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 
-public abstract class AbstractTransport implements Transport {
+public abstract class AbstractTransport implements Transport, SchedulerAware, BrokerMembership, Drainable {
     private static Logger LOG = LoggerFactory.getLogger(AbstractTransport.class);
 
+    private static final long DRAIN_CHECK_INTERVAL = 10;
+
+    private static final long DRAIN_REPORT_INTERVAL = 1000;
+
     /**
      * Id of the site
      */
     protected String siteId;
 
     /**
-     * This gateway is connected to these brokers
+     * This gateway is connected to these brokers, the list changes when brokers are added or removed
      */
-    protected List<BrokerHost> brokerHosts = new ArrayList<BrokerHost>();
+    protected List<BrokerHost> brokerHosts = new CopyOnWriteArrayList<BrokerHost>();
 
     /**
      * Every transport has a list of applications. A group has specific channels registers to
@@ -37,11 +54,88 @@ public abstract class AbstractTransport implements Transport {
     protected ExecutorService executorService;
 
     /**
-     * The index is used to pick the next broker available
+     * Creates the producer and consumer queues of the channel groups
+     */
+    protected QueueFactory queueFactory;
+
+    /**
+     * Pool for the message buffers, null if pooled buffers are not enabled
+     */
+    protected BufferPool bufferPool;
+
+    /**
+     * The metrics of the channels and groups are registered here
+     */
+    protected MetricsRegistry metricsRegistry;
+
+    /**
+     * Runs the producers and consumers of the channel groups
+     */
+    protected TransportScheduler scheduler;
+
+    /**
+     * Load and health of the brokers
+     */
+    protected Map<BrokerHost, BrokerStats> brokerStats = new ConcurrentHashMap<BrokerHost, BrokerStats>();
+
+    /**
+     * Places the channels on the brokers
+     */
+    protected BrokerSelector brokerSelector;
+
+    /**
+     * Probes the brokers, null if probing is disabled
      */
-    private int consumerIndex = 0;
+    protected BrokerMonitor brokerMonitor;
 
-    private int producerIndex = 0;
+    /**
+     * The local subscribers of the channel groups, null if local delivery is not enabled
+     */
+    protected LocalBroker localBroker;
+
+    /**
+     * Rate limiters shared by the channels of a sensor
+     */
+    private final Map<String, SensorRateLimiter> sensorRateLimiters = new HashMap<String, SensorRateLimiter>();
+
+    /**
+     * Configuration of the store and forward spools, null if none is configured
+     */
+    protected Map spoolConfiguration;
+
+    /**
+     * Get the rate limiter shared by the channels of a sensor. The first channel creates the limiter, a later
+     * channel asking for other rates gets the same limiter so the sensor as a whole keeps to one limit.
+     * Every channel getting the limiter must release it with {@link #releaseSensorRateLimiter(String)}.
+     * @param sensorId id of the sensor
+     * @param messageRate messages per second, 0 for no limit
+     * @param byteRate bytes per second, 0 for no limit
+     * @param burst seconds of traffic allowed at once
+     * @return the limiter
+     */
+    public synchronized RateLimiter getSensorRateLimiter(String sensorId, double messageRate, double byteRate, double burst) {
+        SensorRateLimiter shared = sensorRateLimiters.get(sensorId);
+        if (shared == null) {
+            shared = new SensorRateLimiter(new RateLimiter(messageRate, byteRate, burst));
+            sensorRateLimiters.put(sensorId, shared);
+        } else if (shared.limiter.getMessageRate() != messageRate || shared.limiter.getByteRate() != byteRate) {
+            LOG.warn("The channels of sensor {} ask for different rates, keeping {} messages/s and {} bytes/s",
+                    sensorId, shared.limiter.getMessageRate(), shared.limiter.getByteRate());
+        }
+        shared.channels++;
+        return shared.limiter;
+    }
+
+    /**
+     * Release the rate limiter of a sensor, it is removed when the last channel of the sensor releases it
+     * @param sensorId id of the sensor
+     */
+    public synchronized void releaseSensorRateLimiter(String sensorId) {
+        SensorRateLimiter shared = sensorRateLimiters.get(sensorId);
+        if (shared != null && --shared.channels <= 0) {
+            sensorRateLimiters.remove(sensorId);
+        }
+    }
 
     @Override
     public void configure(String siteId, Map properties) {
@@ -59,11 +153,19 @@ public abstract class AbstractTransport implements Transport {
             if (o instanceof String) {
                 String url = (String) o;
                 brokerHosts.add(new BrokerHost(url));
+            } else if (o instanceof Map && ((Map) o).get(TransportConstants.BROKER_URL_PROPERTY) instanceof String) {
+                Map broker = (Map) o;
+                Object zone = broker.get(TransportConstants.BROKER_ZONE_PROPERTY);
+                brokerHosts.add(new BrokerHost((String) broker.get(TransportConstants.BROKER_URL_PROPERTY),
+                        zone != null ? zone.toString() : null));
             } else {
-                LOG.error("Each broker URL should be a string");
-                throw new RuntimeException("Each broker URL should be a string");
+                LOG.error("Each broker URL should be a string or a map with the url and zone");
+                throw new RuntimeException("Each broker URL should be a string or a map with the url and zone");
             }
         }
+        for (BrokerHost host : brokerHosts) {
+            brokerStats.put(host, new BrokerStats(host));
+        }
 
         Map threads = (Map) transportConfiguration.get(TransportConstants.THREAD_PROPERTY);
         if (threads != null) {
@@ -72,25 +174,279 @@ public abstract class AbstractTransport implements Transport {
             executorService = new ThreadPoolExecutor(core, max, 5000, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1024));
         }
 
+        brokerSelector = createBrokerSelector(transportConfiguration);
+        long probeInterval = TransportUtils.getLong(transportConfiguration, TransportConstants.PROBE_INTERVAL_PROPERTY,
+                BrokerMonitor.DEFAULT_PROBE_INTERVAL);
+        if (probeInterval > 0) {
+            brokerMonitor = new BrokerMonitor(brokerStats.values(), probeInterval);
+            brokerMonitor.start();
+        }
+
+        queueFactory = createQueueFactory((Map) transportConfiguration.get(TransportConstants.QUEUE_PROPERTY));
+
+        if (metricsRegistry == null) {
+            // not running in a sensor site, share the registry of the process
+            metricsRegistry = MetricsRegistry.getDefault();
+        }
+
+        bufferPool = createBufferPool((Map) transportConfiguration.get(TransportConstants.BUFFER_PROPERTY));
+
+        if (TransportUtils.getBoolean(transportConfiguration, TransportConstants.LOCAL_DELIVERY_PROPERTY, false)) {
+            LOG.info("Delivering the messages to the subscribers of this site without the broker");
+            localBroker = new LocalBroker(siteId);
+        }
+
+        spoolConfiguration = (Map) transportConfiguration.get(TransportConstants.SPOOL_PROPERTY);
+
         configureTransport();
     }
 
+    /**
+     * Open the spool of a channel group for a broker. The spools are kept under the configured directory,
+     * the messages left by an earlier run are recovered.
+     * @param group name of the channel group
+     * @param host the broker
+     * @return the spool
+     */
+    public Spool createSpool(String group, BrokerHost host) {
+        Object dir = spoolConfiguration != null ? spoolConfiguration.get(TransportConstants.SPOOL_DIR_PROPERTY) : null;
+        File root = dir != null ? new File(dir.toString()) :
+                new File(System.getProperty("java.io.tmpdir"), "iotcloud-spool");
+        File spoolDir = new File(new File(new File(root, fileName(siteId)), fileName(group)), fileName(host.toString()));
+        Spool spool = new Spool(spoolDir,
+                TransportUtils.getInt(spoolConfiguration, TransportConstants.SPOOL_SEGMENT_SIZE_PROPERTY, Spool.DEFAULT_SEGMENT_SIZE),
+                TransportUtils.getLong(spoolConfiguration, TransportConstants.SPOOL_MAX_SIZE_PROPERTY, Spool.DEFAULT_MAX_SIZE),
+                TransportUtils.getLong(spoolConfiguration, TransportConstants.SPOOL_RETENTION_PROPERTY, Spool.DEFAULT_RETENTION));
+        try {
+            spool.open();
+        } catch (IOException e) {
+            String msg = "Failed to open the spool " + spoolDir;
+            LOG.error(msg);
+            throw new RuntimeException(msg, e);
+        }
+        return spool;
+    }
+
+    /**
+     * Milliseconds between the checkpoints of the spools
+     * @return the interval
+     */
+    public long getSpoolCheckpointInterval() {
+        return TransportUtils.getLong(spoolConfiguration, TransportConstants.SPOOL_CHECKPOINT_PROPERTY,
+                Spooler.DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    private static String fileName(String name) {
+        return name != null ? name.replaceAll("[^A-Za-z0-9._-]", "_") : "default";
+    }
+
+    /**
+     * Create the buffer pool from the buffers configuration of the transport.
+     * @param bufferConf buffer configuration, can be null
+     * @return the pool or null if pooled buffers are not enabled
+     */
+    protected BufferPool createBufferPool(Map bufferConf) {
+        if (!TransportUtils.getBoolean(bufferConf, TransportConstants.BUFFER_POOLED_PROPERTY, false)) {
+            return null;
+        }
+
+        boolean direct = TransportUtils.getBoolean(bufferConf, TransportConstants.BUFFER_DIRECT_PROPERTY, false);
+        boolean debug = TransportUtils.getBoolean(bufferConf, TransportConstants.BUFFER_DEBUG_PROPERTY, false);
+        int maxChunk = TransportUtils.getInt(bufferConf, TransportConstants.BUFFER_MAX_CHUNK_PROPERTY, BufferPool.DEFAULT_MAX_CHUNK_SIZE);
+        long maxMemory = TransportUtils.getLong(bufferConf, TransportConstants.BUFFER_MAX_MEMORY_PROPERTY, BufferPool.DEFAULT_MAX_MEMORY);
+        LOG.info("Using pooled {} buffers with {} bytes maximum memory, leak detection {}",
+                direct ? "direct" : "heap", maxMemory, debug ? "on" : "off");
+        return new BufferPool(direct, maxChunk, BufferPool.DEFAULT_SLAB_SIZE, maxMemory, debug);
+    }
+
+    /**
+     * Create the broker selector from the brokerSelection property, hash by default
+     * @param conf transport configuration
+     * @return the selector
+     */
+    protected BrokerSelector createBrokerSelector(Map conf) {
+        Object selection = conf.get(TransportConstants.BROKER_SELECTION_PROPERTY);
+        if (selection == null || TransportConstants.BROKER_SELECTION_HASH.equals(selection)) {
+            int virtualNodes = TransportUtils.getInt(conf, TransportConstants.VIRTUAL_NODES_PROPERTY,
+                    ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+            return new HashBrokerSelector(brokerHosts, brokerStats, virtualNodes);
+        } else if (TransportConstants.BROKER_SELECTION_LOAD.equals(selection)) {
+            String zone = (String) conf.get(TransportConstants.ZONE_PROPERTY);
+            LOG.info("Placing the channels on the least loaded brokers, zone {}", zone);
+            return new LoadBrokerSelector(brokerHosts, brokerStats, zone);
+        } else {
+            String msg = "Unknown broker selection: " + selection;
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+    }
+
+    public BrokerSelector getBrokerSelector() {
+        return brokerSelector;
+    }
+
+    public BrokerStats getBrokerStats(BrokerHost host) {
+        return brokerStats.get(host);
+    }
+
+    @Override
+    public synchronized void addBroker(BrokerHost host) {
+        if (brokerHosts.contains(host)) {
+            LOG.warn("The broker {} is already used by the transport", host);
+            return;
+        }
+        brokerStats.put(host, new BrokerStats(host));
+        brokerHosts.add(host);
+        for (ChannelGroup group : groups.values()) {
+            group.addBroker(host);
+        }
+        brokerSelector.addBroker(host);
+        // move the channels the selector now places on the new broker
+        for (ChannelGroup group : groups.values()) {
+            group.rebalance();
+        }
+        LOG.info("Added the broker {}", host);
+    }
+
+    @Override
+    public synchronized void removeBroker(BrokerHost host) {
+        if (!brokerHosts.contains(host)) {
+            LOG.warn("The broker {} is not used by the transport", host);
+            return;
+        }
+        if (brokerHosts.size() == 1) {
+            String msg = "Cannot remove the last broker " + host + " of the transport";
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+        brokerSelector.removeBroker(host);
+        brokerHosts.remove(host);
+        for (ChannelGroup group : groups.values()) {
+            group.removeBroker(host);
+        }
+        brokerStats.remove(host);
+        LOG.info("Removed the broker {}", host);
+    }
+
+    @Override
+    public List<BrokerHost> getBrokerHosts() {
+        return brokerHosts;
+    }
+
+    /**
+     * Set the registry for the metrics, must be called before the transport is configured
+     * @param metricsRegistry the registry
+     */
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Set the scheduler for the producers and consumers, must be called before the transport is configured
+     * @param scheduler the scheduler
+     */
+    @Override
+    public void setScheduler(TransportScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * The scheduler running the producers and consumers, the shared default if none is set
+     * @return the scheduler
+     */
+    public TransportScheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = TransportScheduler.getDefault();
+        }
+        return scheduler;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Create the queue factory from the queues configuration of the transport. If nothing is configured
+     * array blocking queues are used. With more than one lane every queue is a priority lane queue.
+     * @param queueConf queue configuration, can be null
+     * @return the queue factory
+     */
+    protected QueueFactory createQueueFactory(Map queueConf) {
+        if (queueConf == null) {
+            return new ArrayQueueFactory(TransportConstants.QUEUE_DEFAULT_SIZE);
+        }
+
+        int size = TransportUtils.getInt(queueConf, TransportConstants.QUEUE_SIZE_PROPERTY, TransportConstants.QUEUE_DEFAULT_SIZE);
+
+        QueueFactory factory;
+        Object type = queueConf.get(TransportConstants.QUEUE_TYPE_PROPERTY);
+        if (type == null || TransportConstants.QUEUE_TYPE_ARRAY.equals(type)) {
+            factory = new ArrayQueueFactory(size);
+        } else if (TransportConstants.QUEUE_TYPE_RING.equals(type)) {
+            String wait = (String) queueConf.get(TransportConstants.QUEUE_WAIT_PROPERTY);
+            LOG.info("Using ring buffer queues of size {} with wait strategy {}", size, wait);
+            factory = new RingBufferQueueFactory(size, wait);
+        } else {
+            String msg = "Unknown queue type: " + type;
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+
+        int lanes = TransportUtils.getInt(queueConf, TransportConstants.QUEUE_LANES_PROPERTY, 1);
+        if (lanes <= 1) {
+            return factory;
+        }
+        Object dequeue = queueConf.get(TransportConstants.QUEUE_LANE_DEQUEUE_PROPERTY);
+        int []weights = null;
+        if (TransportConstants.LANE_DEQUEUE_WEIGHTED.equals(dequeue)) {
+            weights = getLaneWeights(queueConf, lanes);
+        } else if (dequeue != null && !TransportConstants.LANE_DEQUEUE_STRICT.equals(dequeue)) {
+            String msg = "Unknown lane dequeue: " + dequeue;
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+        LOG.info("Using {} priority lanes with {} dequeue", lanes, weights != null ? "weighted" : "strict");
+        return new PriorityLaneQueueFactory(factory, lanes, weights);
+    }
+
+    /**
+     * The weights of the lanes, if they are not configured every lane gets twice the weight of the next one
+     */
+    private int[] getLaneWeights(Map queueConf, int lanes) {
+        int []weights = new int[lanes];
+        Object o = queueConf.get(TransportConstants.QUEUE_LANE_WEIGHTS_PROPERTY);
+        if (o instanceof List) {
+            List list = (List) o;
+            if (list.size() != lanes) {
+                String msg = "Expected " + lanes + " lane weights, found " + list.size();
+                LOG.error(msg);
+                throw new RuntimeException(msg);
+            }
+            for (int i = 0; i < lanes; i++) {
+                Object w = list.get(i);
+                weights[i] = w instanceof Number ? ((Number) w).intValue() : Integer.parseInt(w.toString());
+            }
+        } else {
+            for (int i = 0; i < lanes; i++) {
+                weights[i] = 1 << (lanes - 1 - i);
+            }
+        }
+        return weights;
+    }
+
     public abstract void configureTransport();
 
     @Override
-    public void registerChannel(ChannelName name, Channel channel) {
+    public synchronized void registerChannel(ChannelName name, Channel channel) {
         // check to see if we already have a group for this channel
         String groupName = getGroupName(channel, name);
         ChannelGroup group = groups.get(groupName);
         if (group == null) {
-            if (channel.getDirection() == Direction.OUT) {
-                group = new ChannelGroup(groupName, getPrefix(channel, name), brokerHosts, this, producerIndex);
-                incrementProducerIndex();
-            } else {
-                group = new ChannelGroup(groupName, getPrefix(channel, name), brokerHosts, this, consumerIndex);
-                incrementConsumerIndex();
-            }
-
+            group = new ChannelGroup(groupName, getPrefix(channel, name), brokerHosts, this, queueFactory);
             groups.put(groupName, group);
         }
         group.addChannel(channel);
@@ -146,6 +502,34 @@ public abstract class AbstractTransport implements Transport {
         }
     }
 
+    /**
+     * The local subscribers of the channel groups
+     * @return the local broker or null if local delivery is not enabled
+     */
+    public LocalBroker getLocalBroker() {
+        return localBroker;
+    }
+
+    /**
+     * Name of the broker destination of a channel. Producers and consumers with the same destination exchange
+     * messages, local delivery uses it to find the subscribers of a publishing channel.
+     * @param prefix prefix of the channel group
+     * @param channelConf channel configuration
+     * @return the destination
+     */
+    protected String getLocalDestination(String prefix, Map channelConf) {
+        return prefix + "." + Configuration.getChannelJmsDestination(channelConf);
+    }
+
+    /**
+     * True if more than one thread puts messages in to a consumer queue of this transport, the channel groups
+     * then create their consumer queues as multi producer queues
+     * @return false if a single receiver fills each consumer queue
+     */
+    public boolean hasSharedConsumerQueues() {
+        return false;
+    }
+
     public abstract Manageable registerProducer(BrokerHost host, String prefix, Map channelConf, BlockingQueue<MessageContext> queue);
 
     public abstract Manageable registerConsumer(BrokerHost host, String prefix, Map channelConf, BlockingQueue<MessageContext> queue);
@@ -158,25 +542,94 @@ public abstract class AbstractTransport implements Transport {
     }
 
     @Override
-    public void stop() {
+    public void quiesce() {
         for (ChannelGroup group : groups.values()) {
-            group.stop();
+            group.quiesce();
         }
     }
 
-    private void incrementConsumerIndex() {
-        if (consumerIndex == brokerHosts.size() - 1) {
-            consumerIndex = 0;
+    @Override
+    public DrainReport drain(long timeout) {
+        long start = System.currentTimeMillis();
+        long deadline = start + timeout;
+        quiesce();
+
+        long queued = countPending();
+        LOG.info("Draining {} queued messages of the transport", queued);
+        long pending = queued;
+        long lastReport = start;
+        boolean interrupted = false;
+        while (pending > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(DRAIN_CHECK_INTERVAL);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                break;
+            }
+            pending = countPending();
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= DRAIN_REPORT_INTERVAL) {
+                LOG.info("Draining the transport, {} of {} messages flushed", Math.max(0, queued - pending), queued);
+                lastReport = now;
+            }
+        }
+        boolean timedOut = pending > 0;
+
+        stop();
+        long spooled = 0;
+        for (Map.Entry<String, ChannelGroup> e : groups.entrySet()) {
+            ChannelGroup group = e.getValue();
+            try {
+                if (!interrupted && !group.awaitStages(Math.max(deadline, System.currentTimeMillis() + DRAIN_CHECK_INTERVAL))) {
+                    LOG.warn("The spools of the group {} did not close in time", e.getKey());
+                }
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+            spooled += group.countSpooled();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        DrainReport report = new DrainReport(queued, pending, spooled,
+                System.currentTimeMillis() - start, timedOut);
+        if (pending > 0) {
+            LOG.warn("Stopped the transport before the queues drained, {}", report);
         } else {
-            consumerIndex++;
+            LOG.info("Drained the transport, {}", report);
         }
+        return report;
     }
 
-    private void incrementProducerIndex() {
-        if (producerIndex == brokerHosts.size() - 1) {
-            producerIndex = 0;
-        } else {
-            producerIndex++;
+    private long countPending() {
+        long count = 0;
+        for (ChannelGroup group : groups.values()) {
+            count += group.countPending();
+        }
+        return count;
+    }
+
+    @Override
+    public void stop() {
+        for (ChannelGroup group : groups.values()) {
+            group.stop();
+        }
+        if (brokerMonitor != null) {
+            brokerMonitor.stop();
+        }
+    }
+
+    /**
+     * A rate limiter of a sensor with the number of channels using it
+     */
+    private static class SensorRateLimiter {
+        private final RateLimiter limiter;
+
+        private int channels = 0;
+
+        private SensorRateLimiter(RateLimiter limiter) {
+            this.limiter = limiter;
         }
     }
 }
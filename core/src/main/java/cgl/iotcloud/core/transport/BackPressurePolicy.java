@@ -0,0 +1,55 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * What a channel does when the transport queue it publishes to is full.
+ */
+public enum BackPressurePolicy {
+    /**
+     * Block the publisher until there is space in the queue
+     */
+    BLOCK("block"),
+    /**
+     * Block the publisher for at most the configured timeout and then drop the message
+     */
+    BLOCK_TIMEOUT("block-timeout"),
+    /**
+     * Drop the message being published
+     */
+    DROP_NEWEST("drop-newest"),
+    /**
+     * Remove the oldest message from the queue to make space. The queue is shared by the channels of
+     * the group, so the removed message can belong to another channel of the group.
+     */
+    DROP_OLDEST("drop-oldest"),
+    /**
+     * Throw a {@link ChannelFullException} to the publisher
+     */
+    FAIL_FAST("fail-fast");
+
+    private final String configName;
+
+    BackPressurePolicy(String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Get the policy from its configuration name. The default is block.
+     * @param name name of the policy, can be null
+     * @return the policy
+     */
+    public static BackPressurePolicy forName(String name) {
+        if (name == null) {
+            return BLOCK;
+        }
+        for (BackPressurePolicy policy : values()) {
+            if (policy.configName.equalsIgnoreCase(name) || policy.name().equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown back pressure policy: " + name);
+    }
+}
@@ -0,0 +1,67 @@
+package cgl.iotcloud.core.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects a batch from a queue without blocking. A scheduled sender fills the batch in every step and sends
+ * it when it is full or when the first element has waited for the maximum batch wait.
+ */
+public class BatchBuffer<E> {
+    /**
+     * The batch has no elements
+     */
+    public static final long EMPTY = -1;
+
+    /**
+     * The batch should be sent now
+     */
+    public static final long READY = 0;
+
+    private final List<E> elements = new ArrayList<E>();
+
+    /**
+     * Time the first element of the current batch was taken from the queue
+     */
+    private long firstNanos;
+
+    /**
+     * Move the available elements from the queue to the batch
+     * @param queue the queue
+     * @param maxElements maximum size of the batch
+     * @param maxWait maximum time in milliseconds the first element waits for the batch to fill up
+     * @return {@link #EMPTY}, {@link #READY} or the milliseconds left until the batch is ready
+     */
+    public long fill(BlockingQueue<E> queue, int maxElements, long maxWait) {
+        int size = elements.size();
+        if (size < maxElements) {
+            queue.drainTo(elements, maxElements - size);
+            if (size == 0 && !elements.isEmpty()) {
+                firstNanos = System.nanoTime();
+            }
+        }
+
+        if (elements.isEmpty()) {
+            return EMPTY;
+        }
+        if (elements.size() >= maxElements || maxWait <= 0) {
+            return READY;
+        }
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstNanos);
+        return waited >= maxWait ? READY : maxWait - waited;
+    }
+
+    public List<E> getElements() {
+        return elements;
+    }
+
+    public boolean isEmpty() {
+        return elements.isEmpty();
+    }
+
+    public void clear() {
+        elements.clear();
+    }
+}
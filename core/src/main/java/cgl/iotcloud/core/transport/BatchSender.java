@@ -0,0 +1,20 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * A sender that takes messages from its queue in batches and sends a batch to the broker in
+ * as few calls as the broker client allows. The channel group configures the batch limits before
+ * starting the sender.
+ */
+public interface BatchSender extends Manageable {
+    /**
+     * Set the maximum number of messages sent in one batch
+     * @param maxBatchSize maximum batch size, 1 disables batching
+     */
+    void setMaxBatchSize(int maxBatchSize);
+
+    /**
+     * Set the maximum time to wait for a batch to fill up after the first message is available
+     * @param maxBatchWait maximum wait in milliseconds
+     */
+    void setMaxBatchWait(long maxBatchWait);
+}
@@ -3,14 +3,28 @@ package cgl.iotcloud.core.transport;
 public class BrokerHost {
     private String url;
 
+    /**
+     * Optional region or zone of the broker, used to prefer brokers close to the site
+     */
+    private String zone;
+
     public BrokerHost(String url) {
         this.url = url;
     }
 
+    public BrokerHost(String url, String zone) {
+        this.url = url;
+        this.zone = zone;
+    }
+
     public String getUrl() {
         return url;
     }
 
+    public String getZone() {
+        return zone;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
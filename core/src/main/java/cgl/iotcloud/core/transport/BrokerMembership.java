@@ -0,0 +1,27 @@
+package cgl.iotcloud.core.transport;
+
+import java.util.List;
+
+/**
+ * Implemented by transports whose brokers can be added and removed while the channels are running.
+ * The affected channels are moved to their new brokers without stopping the publishing.
+ */
+public interface BrokerMembership {
+    /**
+     * Add a broker and move the channels the broker selection now places on it
+     * @param host the broker
+     */
+    void addBroker(BrokerHost host);
+
+    /**
+     * Move the channels of a broker to the remaining brokers and remove it
+     * @param host the broker
+     */
+    void removeBroker(BrokerHost host);
+
+    /**
+     * The current brokers
+     * @return the brokers
+     */
+    List<BrokerHost> getBrokerHosts();
+}
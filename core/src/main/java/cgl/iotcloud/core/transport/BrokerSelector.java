@@ -0,0 +1,33 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * Picks the broker for a new channel
+ */
+public interface BrokerSelector {
+    /**
+     * Select a broker
+     * @param key key of the channel, the sensor id
+     * @return the broker or null if there are no brokers
+     */
+    BrokerHost select(String key);
+
+    /**
+     * Start placing channels on a broker
+     * @param host the broker
+     */
+    void addBroker(BrokerHost host);
+
+    /**
+     * Stop placing channels on a broker
+     * @param host the broker
+     */
+    void removeBroker(BrokerHost host);
+
+    /**
+     * Check weather a channel already placed on a broker should stay there after the brokers have changed
+     * @param key key of the channel
+     * @param host the broker the channel is on
+     * @return false if the channel should be moved to the broker given by {@link #select(String)}
+     */
+    boolean isPlaced(String key, BrokerHost host);
+}
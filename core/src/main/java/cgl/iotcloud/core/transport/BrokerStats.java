@@ -0,0 +1,162 @@
+package cgl.iotcloud.core.transport;
+
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load and health of a broker as seen from this site. The senders report the time and the result of their
+ * sends, the channel groups register their queues for the broker and the {@link BrokerMonitor} measures the
+ * round trip time to the broker.
+ */
+public class BrokerStats {
+    /**
+     * Weight of a new sample in the moving averages
+     */
+    private static final double ALPHA = 0.2;
+
+    /**
+     * A broker with a higher error rate is not healthy
+     */
+    public static final double MAX_ERROR_RATE = 0.5;
+
+    /**
+     * Number of failed probes after which a broker is not healthy
+     */
+    public static final int MAX_PROBE_FAILURES = 2;
+
+    private final BrokerHost host;
+
+    private final CopyOnWriteArrayList<Queue<?>> queues = new CopyOnWriteArrayList<Queue<?>>();
+
+    /**
+     * Moving average of the send time of a message in nanoseconds
+     */
+    private double sendLatency = 0;
+
+    /**
+     * Moving average of the fraction of failed sends
+     */
+    private double errorRate = 0;
+
+    private volatile long roundTripNanos = -1;
+
+    private volatile int probeFailures = 0;
+
+    /**
+     * Number of channels placed on the broker
+     */
+    private final AtomicInteger channels = new AtomicInteger(0);
+
+    public BrokerStats(BrokerHost host) {
+        this.host = host;
+    }
+
+    public BrokerHost getHost() {
+        return host;
+    }
+
+    public void addQueue(Queue<?> queue) {
+        queues.addIfAbsent(queue);
+    }
+
+    public void removeQueue(Queue<?> queue) {
+        queues.remove(queue);
+    }
+
+    public void channelAdded() {
+        channels.incrementAndGet();
+    }
+
+    public void channelRemoved() {
+        channels.decrementAndGet();
+    }
+
+    public int getChannels() {
+        return channels.get();
+    }
+
+    /**
+     * Number of messages waiting in the queues for this broker
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Queue<?> q : queues) {
+            depth += q.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Record a successful send
+     * @param nanos time taken by the send
+     * @param messages number of messages sent
+     */
+    public synchronized void recordSend(long nanos, int messages) {
+        if (messages <= 0) {
+            return;
+        }
+        sendLatency += ALPHA * ((double) nanos / messages - sendLatency);
+        errorRate -= ALPHA * errorRate;
+    }
+
+    /**
+     * Record a failed send
+     */
+    public synchronized void recordError() {
+        errorRate += ALPHA * (1 - errorRate);
+    }
+
+    /**
+     * Record the result of a probe
+     * @param nanos round trip time, a negative value if the probe failed
+     */
+    public void recordProbe(long nanos) {
+        if (nanos < 0) {
+            probeFailures++;
+        } else {
+            probeFailures = 0;
+            roundTripNanos = nanos;
+        }
+    }
+
+    public synchronized double getSendLatencyMillis() {
+        return sendLatency / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * The last measured round trip time
+     * @return the round trip time in milliseconds or -1 if not measured
+     */
+    public double getRoundTripMillis() {
+        long rtt = roundTripNanos;
+        return rtt < 0 ? -1 : (double) rtt / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public boolean isHealthy() {
+        return probeFailures < MAX_PROBE_FAILURES && getErrorRate() < MAX_ERROR_RATE;
+    }
+
+    /**
+     * A score for the load of the broker, lower is better. Combines the channels and the messages waiting
+     * for the broker with the time it takes to send to it, and penalizes errors.
+     * @return the load score
+     */
+    public double getLoadScore() {
+        double latency = getSendLatencyMillis() + Math.max(0, getRoundTripMillis());
+        return (getChannels() + getQueueDepth() + 1) * (latency + 1) * (1 + 10 * getErrorRate());
+    }
+
+    @Override
+    public String toString() {
+        return "BrokerStats{host=" + host + ", channels=" + getChannels() + ", queueDepth=" + getQueueDepth()
+                + ", sendLatencyMillis=" + getSendLatencyMillis() + ", errorRate=" + getErrorRate()
+                + ", roundTripMillis=" + getRoundTripMillis() + ", healthy=" + isHealthy() + "}";
+    }
+}
@@ -0,0 +1,9 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * A sender which reports the results of its sends to the statistics of its broker.
+ * The channel group sets the statistics before starting the sender.
+ */
+public interface BrokerStatsAware {
+    void setBrokerStats(BrokerStats brokerStats);
+}
@@ -1,19 +1,35 @@
 package cgl.iotcloud.core.transport;
 
+import cgl.iotcloud.core.metrics.ChannelMetrics;
+import cgl.iotcloud.core.msg.BufferPool;
+import cgl.iotcloud.core.msg.MessageBuffer;
 import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.codec.ChannelEncoder;
+import cgl.iotcloud.core.transport.local.LocalRoute;
+import cgl.iotcloud.core.transport.queue.PriorityLaneQueue;
+import cgl.iotcloud.core.transport.scheduler.NotifyingQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 public class Channel {
     private static Logger LOG = LoggerFactory.getLogger(Channel.class);
 
     private BlockingQueue inQueue;
 
-    private BlockingQueue<MessageContext> outQueue;
+    /**
+     * The transport queue, switched to the queue of another broker when the channel is moved
+     */
+    private volatile BlockingQueue<MessageContext> outQueue;
 
     private Map properties = new HashMap();
 
@@ -23,18 +39,82 @@ public class Channel {
 
     private String sensorID;
 
+    private long sensorKey = MessageContext.NO_SENSOR_KEY;
+
     private boolean grouped = false;
 
+    /**
+     * Pool of the transport, null if the transport doesn't use pooled buffers
+     */
+    private BufferPool bufferPool;
+
+    private volatile BackPressurePolicy backPressurePolicy = BackPressurePolicy.BLOCK;
+
+    /**
+     * Maximum time to wait with the block with timeout policy, in milliseconds
+     */
+    private volatile long backPressureTimeout = TransportConstants.BACK_PRESSURE_DEFAULT_TIMEOUT;
+
+    private final ChannelMetrics metrics = new ChannelMetrics();
+
+    /**
+     * Subscribers of the channel destination in this process, null if local delivery is not enabled
+     */
+    private volatile LocalRoute localRoute;
+
+    /**
+     * Compresses the published messages, null if the channel does not use a codec
+     */
+    private volatile ChannelEncoder encoder;
+
+    private static final MessageInterceptor[] NO_INTERCEPTORS = new MessageInterceptor[0];
+
+    /**
+     * The interceptor chain, replaced as a whole when an interceptor is added so running it needs no locking
+     */
+    private volatile MessageInterceptor[] interceptors = NO_INTERCEPTORS;
+
+    /**
+     * The rate limit of the publishing, null if the channel is not limited
+     */
+    private volatile RateLimit rateLimit;
+
+    /**
+     * The priority lane given to the published messages which do not set their own, null for the default lane
+     */
+    private volatile Integer priority;
+
+    /**
+     * One in this many published messages is stamped for the latency metrics, 0 if the channel does not sample
+     */
+    private volatile int latencySample;
+
+    private volatile boolean latencyTrace;
+
+    /**
+     * Counts the published messages for the sampling, publishers racing on it only move the sampled messages
+     */
+    private int sampleCount;
+
     private enum State {
         OPEN,
         CLOSED
     }
 
-    private State state = State.OPEN;
+    /**
+     * Closed by the transport while the publishers are reading it
+     */
+    private volatile State state = State.OPEN;
+
+    /**
+     * True once a publish to the closed channel is logged, the publishers keep trying until they stop
+     */
+    private final AtomicBoolean closedLogged = new AtomicBoolean(false);
 
     public Channel(String name, Direction direction) {
         this.name = name;
         this.direction = direction;
+        metrics.setBackPressurePolicy(backPressurePolicy.getConfigName());
     }
 
     public void setInQueue(BlockingQueue<MessageContext> inQueue) {
@@ -45,6 +125,119 @@ public class Channel {
         this.outQueue = outQueue;
     }
 
+    /**
+     * Set the priority lane of the messages published to this channel. A message which has its own
+     * priority property keeps it.
+     * @param priority the lane, 0 is the highest priority, null for the default lane
+     */
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    /**
+     * Stamp a sample of the published messages with the publish time, the receiving channels record the latencies
+     * of the stamped messages, see {@link LatencyStamps}
+     * @param sample one in this many messages is stamped, 0 turns the sampling off
+     * @param trace true if the stamped messages get a trace id
+     */
+    public void setLatencySampling(int sample, boolean trace) {
+        if (sample < 0) {
+            throw new IllegalArgumentException("The latency sample should not be negative");
+        }
+        this.latencySample = sample;
+        this.latencyTrace = trace;
+    }
+
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Set what happens to a published message when the transport queue is full
+     * @param policy the policy
+     * @param timeout maximum wait in milliseconds for the block with timeout policy
+     */
+    public void setBackPressure(BackPressurePolicy policy, long timeout) {
+        if (policy == null) {
+            throw new IllegalArgumentException("The back pressure policy should be present");
+        }
+        this.backPressurePolicy = policy;
+        this.backPressureTimeout = timeout;
+        metrics.setBackPressurePolicy(policy.getConfigName());
+    }
+
+    public BackPressurePolicy getBackPressurePolicy() {
+        return backPressurePolicy;
+    }
+
+    /**
+     * Add an interceptor to the end of the chain of this channel
+     * @param interceptor the interceptor
+     */
+    public synchronized void addInterceptor(MessageInterceptor interceptor) {
+        if (interceptor == null) {
+            throw new IllegalArgumentException("The interceptor should be present");
+        }
+        MessageInterceptor[] chain = new MessageInterceptor[interceptors.length + 1];
+        System.arraycopy(interceptors, 0, chain, 0, interceptors.length);
+        chain[interceptors.length] = interceptor;
+        interceptors = chain;
+    }
+
+    public synchronized void removeInterceptor(MessageInterceptor interceptor) {
+        List<MessageInterceptor> chain = new ArrayList<MessageInterceptor>(Arrays.asList(interceptors));
+        if (chain.remove(interceptor)) {
+            interceptors = chain.toArray(new MessageInterceptor[chain.size()]);
+        }
+    }
+
+    /**
+     * Run the interceptor chain on a message
+     * @param message the message
+     * @return the message to continue with or null if an interceptor dropped it, a dropped message is released
+     */
+    public MessageContext intercept(MessageContext message) {
+        MessageInterceptor[] chain = interceptors;
+        for (int i = 0; i < chain.length; i++) {
+            MessageContext next = chain[i].intercept(this, message);
+            if (next == null) {
+                message.release();
+                metrics.markFiltered();
+                return null;
+            }
+            message = next;
+        }
+        return message;
+    }
+
+    /**
+     * Set the rate limit of the channel, can be changed while publishing
+     * @param rateLimit the limit or null to remove it
+     */
+    public void setRateLimit(RateLimit rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setEncoder(ChannelEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    public void setLocalRoute(LocalRoute localRoute) {
+        this.localRoute = localRoute;
+    }
+
+    public ChannelMetrics getMetrics() {
+        return metrics;
+    }
+
     public String getSensorID() {
         return sensorID;
     }
@@ -57,6 +250,18 @@ public class Channel {
         this.sensorID = sensorID;
     }
 
+    /**
+     * The numeric id of the sensor, put in to the published messages instead of the string id
+     * @return the id or {@link MessageContext#NO_SENSOR_KEY}
+     */
+    public long getSensorKey() {
+        return sensorKey;
+    }
+
+    public void setSensorKey(long sensorKey) {
+        this.sensorKey = sensorKey;
+    }
+
     public String getName() {
         return name;
     }
@@ -83,6 +288,7 @@ public class Channel {
 
     public void open() {
         this.state = State.OPEN;
+        closedLogged.set(false);
     }
 
     public boolean isGrouped() {
@@ -94,19 +300,71 @@ public class Channel {
         this.properties.putAll(properties);
     }
 
-    public void publish(MessageContext message) {
+    /**
+     * Publish a message. When the transport queue is full the back pressure policy of the channel decides
+     * what happens to the message.
+     * @param message the message
+     * @return the outcome
+     * @throws ChannelFullException if the queue is full and the policy is fail fast
+     */
+    public PublishStatus publish(MessageContext message) {
         checkOpen();
         message.setSensorId(sensorID);
+        message.setSensorKey(sensorKey);
         if (state == State.CLOSED) {
-            String msg = "The channel is in closed state and cannot send";
-            LOG.warn(msg);
-            return;
+            logClosed();
+            message.release();
+            return PublishStatus.CLOSED;
         }
 
-        try {
-            outQueue.put(message);
-        } catch (InterruptedException e) {
-            LOG.error("Failed to put the message to queue", e);
+        message = intercept(message);
+        if (message == null) {
+            return PublishStatus.FILTERED;
+        }
+        PublishStatus throttled = throttle(message);
+        if (throttled != null) {
+            return throttled;
+        }
+        return offer(message);
+    }
+
+    /**
+     * Apply the rate limit to a message
+     * @return null if the message can be published, otherwise the outcome of the dropped message
+     */
+    private PublishStatus throttle(MessageContext message) {
+        RateLimit limit = rateLimit;
+        if (limit == null) {
+            return null;
+        }
+        int size = message.getBodyLength();
+        long wait = limit.getLimiter().tryAcquire(size);
+        if (wait == 0) {
+            return null;
+        }
+
+        switch (limit.getPolicy()) {
+            case DELAY:
+                metrics.markDelayed();
+                do {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.interrupted()) {
+                        Thread.currentThread().interrupt();
+                        message.release();
+                        return PublishStatus.INTERRUPTED;
+                    }
+                    wait = limit.getLimiter().tryAcquire(size);
+                } while (wait > 0);
+                return null;
+            case SAMPLE:
+                if (limit.sample()) {
+                    return null;
+                }
+                // not a sample, drop it
+            default:
+                metrics.markThrottled();
+                message.release();
+                return PublishStatus.THROTTLED;
         }
     }
 
@@ -116,37 +374,192 @@ public class Channel {
         }
     }
 
-    public void publish(byte []message) {
-        MessageContext messageContext = new MessageContext(sensorID, message);
-        checkOpen();
+    public PublishStatus publish(byte []message) {
+        return publish(new MessageContext(sensorID, message));
+    }
 
-        if (state == State.CLOSED) {
-            String msg = "The channel is in closed state and cannot send";
-            LOG.warn(msg);
-            return;
+    public PublishStatus publish(byte []message, Map<String, Object> properties) {
+        return publish(new MessageContext(sensorID, message, properties));
+    }
+
+    /**
+     * Put the message to the transport queue according to the back pressure policy and record the time
+     * it took. A message which is not accepted is released.
+     */
+    private PublishStatus offer(MessageContext message) {
+        long start = System.nanoTime();
+        try {
+            int sample = latencySample;
+            if (sample > 0 && ++sampleCount >= sample) {
+                sampleCount = 0;
+                LatencyStamps.stampPublished(message, latencyTrace);
+            }
+            Integer p = priority;
+            if (p != null && !message.hasProperty(TransportConstants.PRIORITY_HEADER)) {
+                message.setLongProperty(TransportConstants.PRIORITY_HEADER, p);
+            }
+            ChannelEncoder e = encoder;
+            if (e != null) {
+                e.encode(message);
+            }
+            LocalRoute route = localRoute;
+            if (route != null) {
+                route.deliver(message);
+            }
+            return offerWithPolicy(message);
+        } finally {
+            metrics.recordPublishLatency(System.nanoTime() - start);
         }
+    }
+
+    /**
+     * Take the oldest message which can make room for the message. With priority lanes only the lane of the
+     * message is dropped from, the messages of the other lanes are kept.
+     */
+    private MessageContext pollOldest(MessageContext message) {
+        BlockingQueue<MessageContext> queue = outQueue;
+        if (queue instanceof NotifyingQueue) {
+            queue = ((NotifyingQueue<MessageContext>) queue).getQueue();
+        }
+        if (queue instanceof PriorityLaneQueue) {
+            return ((PriorityLaneQueue) queue).pollLane(message);
+        }
+        return queue.poll();
+    }
 
+    private PublishStatus offerWithPolicy(MessageContext message) {
+        if (outQueue.offer(message)) {
+            metrics.markPublished();
+            return PublishStatus.ACCEPTED;
+        }
+
+        BackPressurePolicy policy = backPressurePolicy;
         try {
-            outQueue.put(messageContext);
+            switch (policy) {
+                case BLOCK:
+                    metrics.markBlocked();
+                    outQueue.put(message);
+                    metrics.markPublished();
+                    return PublishStatus.ACCEPTED;
+                case BLOCK_TIMEOUT:
+                    metrics.markBlocked();
+                    if (outQueue.offer(message, backPressureTimeout, TimeUnit.MILLISECONDS)) {
+                        metrics.markPublished();
+                        return PublishStatus.ACCEPTED;
+                    }
+                    metrics.markTimedOut();
+                    message.release();
+                    return PublishStatus.TIMED_OUT;
+                case DROP_NEWEST:
+                    metrics.markDroppedNewest();
+                    message.release();
+                    return PublishStatus.DROPPED;
+                case DROP_OLDEST:
+                    do {
+                        MessageContext oldest = pollOldest(message);
+                        if (oldest != null) {
+                            metrics.markDroppedOldest();
+                            oldest.release();
+                        }
+                    } while (!outQueue.offer(message));
+                    metrics.markPublished();
+                    return PublishStatus.ACCEPTED_DROPPED_OLDEST;
+                default:
+                    metrics.markRejected();
+                    message.release();
+                    throw new ChannelFullException("The transport queue of channel " + name + " of sensor " + sensorID + " is full");
+            }
         } catch (InterruptedException e) {
             LOG.error("Failed to put the message to queue", e);
+            message.release();
+            Thread.currentThread().interrupt();
+            return PublishStatus.INTERRUPTED;
         }
     }
 
-    public void publish(byte []message, Map<String, Object> properties) {
-        MessageContext messageContext = new MessageContext(sensorID, message, properties);
-        checkOpen();
+    /**
+     * Allocate a buffer for a message body. The buffer comes from the pool of the transport when pooled
+     * buffers are enabled. Fill the buffer and publish it with {@link #publish(MessageBuffer, Map)}, the
+     * transport releases it after the message is sent.
+     * @param size size of the message body
+     * @return a buffer with its length set to the size
+     */
+    public MessageBuffer allocate(int size) {
+        if (bufferPool != null) {
+            return bufferPool.allocate(size);
+        }
+        return MessageBuffer.wrap(new byte[size]);
+    }
+
+    /**
+     * Publish a message held in a buffer. The ownership of the buffer is passed to the channel.
+     * @param buffer the message body
+     * @param properties message properties, can be null
+     */
+    public PublishStatus publish(MessageBuffer buffer, Map<String, Object> properties) {
+        return publish(new MessageContext(sensorID, buffer, properties));
+    }
 
+    /**
+     * Publish a list of messages. The messages are put in to the transport queue one by one in their order,
+     * they are not atomic, the messages of other publishers may come in between them. The back pressure
+     * policy is applied to every message, if the publisher is interrupted or the policy fails the batch the
+     * remaining messages are dropped and only a part of the batch is published.
+     * @param messages the messages to publish
+     * @return number of messages accepted by the transport queue
+     * @throws ChannelFullException if the queue is full and the policy is fail fast
+     */
+    public int publishBatch(List<MessageContext> messages) {
+        checkOpen();
         if (state == State.CLOSED) {
-            String msg = "The channel is in closed state and cannot send";
-            LOG.warn(msg);
-            return;
+            logClosed();
+            releaseFrom(messages, 0);
+            return 0;
         }
 
-        try {
-            outQueue.put(messageContext);
-        } catch (InterruptedException e) {
-            LOG.error("Failed to put the message to queue", e);
+        int accepted = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            MessageContext message = messages.get(i);
+            message.setSensorId(sensorID);
+            message.setSensorKey(sensorKey);
+            message = intercept(message);
+            if (message == null) {
+                continue;
+            }
+            PublishStatus status = throttle(message);
+            if (status == PublishStatus.THROTTLED) {
+                continue;
+            } else if (status == PublishStatus.INTERRUPTED) {
+                releaseFrom(messages, i + 1);
+                break;
+            }
+            try {
+                status = offer(message);
+            } catch (ChannelFullException e) {
+                releaseFrom(messages, i + 1);
+                throw e;
+            }
+            if (status.isAccepted()) {
+                accepted++;
+            } else if (status == PublishStatus.INTERRUPTED) {
+                releaseFrom(messages, i + 1);
+                break;
+            }
+        }
+        return accepted;
+    }
+
+    private void logClosed() {
+        if (closedLogged.compareAndSet(false, true)) {
+            LOG.warn("The channel {} is in closed state and cannot send", name);
+        } else {
+            LOG.debug("The channel {} is in closed state and cannot send", name);
+        }
+    }
+
+    private static void releaseFrom(List<MessageContext> messages, int index) {
+        for (int i = index; i < messages.size(); i++) {
+            messages.get(i).release();
         }
     }
 
@@ -0,0 +1,11 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * Thrown to the publisher by a channel with the fail fast back pressure policy when the transport
+ * queue is full.
+ */
+public class ChannelFullException extends RuntimeException {
+    public ChannelFullException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,19 @@
 package cgl.iotcloud.core.transport;
 
+import cgl.iotcloud.core.metrics.GroupMetrics;
+import cgl.iotcloud.core.metrics.MetricKey;
+import cgl.iotcloud.core.metrics.MetricsRegistry;
 import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.codec.PayloadCodecs;
+import cgl.iotcloud.core.transport.local.LocalBroker;
+import cgl.iotcloud.core.transport.local.LocalRoute;
+import cgl.iotcloud.core.transport.queue.PriorityLaneQueueFactory;
+import cgl.iotcloud.core.transport.queue.QueueFactory;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.NotifyingQueue;
+import cgl.iotcloud.core.transport.scheduler.ScheduledManageable;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.spool.Spooler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,33 +25,34 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * Contains a set of channels belonging to a particular group. The channels are
  * distributed across the available brokers. A Channel group consumes or produces messages from or
- * to a single logical queue.
+ * to a single logical queue. When the brokers change the channels are moved to the new brokers.
  */
 public class ChannelGroup {
     private static Logger LOG = LoggerFactory.getLogger(ChannelGroup.class);
+
     /**
-     * Name of the group, this name is a unique combination of sensor group and channel name
+     * Time the queue of a retired producer or consumer must stay empty before it is stopped
      */
-    private String name;
+    public static final long RETIRE_GRACE = 1000;
 
     /**
-     * Keep track of the channels for a broker host
+     * A retired producer or consumer is stopped after this time even if its queue is not empty
      */
-    protected Map<BrokerHost, List<Channel>> brokerHostToProducerChannelMap = new HashMap<BrokerHost, List<Channel>>();
+    public static final long RETIRE_TIMEOUT = 30000;
 
-    protected Map<BrokerHost, List<Channel>> brokerHostToConsumerChannelMap = new HashMap<BrokerHost, List<Channel>>();
+    private static final long RETIRE_CHECK_INTERVAL = 10;
 
     /**
-     * The available brokers
+     * Name of the group, this name is a unique combination of sensor group and channel name
      */
-    private List<BrokerHost> brokerHosts;
+    private String name;
 
     /**
-     * The index is used to pick the next broker available
+     * Keep track of the channels for a broker host
      */
-    private int consumerIndex = 0;
+    protected Map<BrokerHost, List<Channel>> brokerHostToProducerChannelMap = new HashMap<BrokerHost, List<Channel>>();
 
-    private int producerIndex = 0;
+    protected Map<BrokerHost, List<Channel>> brokerHostToConsumerChannelMap = new HashMap<BrokerHost, List<Channel>>();
 
     private Lock lock = new ReentrantLock();
 
@@ -58,86 +72,198 @@ public class ChannelGroup {
 
     protected Map<BrokerHost, ConsumingWorker> consumingWorkers = new HashMap<BrokerHost, ConsumingWorker>();
 
+    protected Map<BrokerHost, TaskHandle> workerHandles = new HashMap<BrokerHost, TaskHandle>();
+
+    /**
+     * The stages between the channels and the producer of a broker, like the coalescer and the spooler. The
+     * channels publish to the queue of the first stage, the last stage feeds the producer queue.
+     */
+    protected Map<BrokerHost, List<Stage>> producerStages = new HashMap<BrokerHost, List<Stage>>();
+
     protected boolean run;
 
     protected String prefix;
 
-    protected int brokerIndex;
+    protected MetricsRegistry metricsRegistry;
+
+    protected Map<BrokerHost, GroupMetrics> groupMetrics = new HashMap<BrokerHost, GroupMetrics>();
 
-    public ChannelGroup(String name, String prefix, List<BrokerHost> brokerHosts, AbstractTransport transport, int initialBrokerIndex) {
+    protected QueueFactory queueFactory;
+
+    /**
+     * Producers and consumers which lost their channels to other brokers and are stopped once their queues drain
+     */
+    protected Set<Retirement> retirements = new HashSet<Retirement>();
+
+    /**
+     * With local delivery the publishing channels of this site put the messages in to this queue directly and
+     * the local worker routes them to the receiving channels of the group
+     */
+    protected BlockingQueue<MessageContext> localQueue;
+
+    protected ConsumingWorker localWorker;
+
+    protected TaskHandle localHandle;
+
+    protected String localDestination;
+
+    public ChannelGroup(String name, String prefix, List<BrokerHost> brokerHosts, AbstractTransport transport,
+                        QueueFactory queueFactory) {
         this.name = name;
-        this.brokerHosts = brokerHosts;
         this.transport = transport;
         this.prefix = prefix;
-        this.brokerIndex = initialBrokerIndex;
-
+        this.queueFactory = queueFactory;
+        this.metricsRegistry = transport.getMetricsRegistry();
 
         for (BrokerHost brokerHost : brokerHosts) {
+            addBroker(brokerHost);
+        }
+
+        this.run = true;
+    }
+
+    /**
+     * Create the queues of a broker. Channels are placed on the broker by the broker selector of the transport.
+     * @param brokerHost the broker
+     */
+    public void addBroker(BrokerHost brokerHost) {
+        lock.lock();
+        try {
+            if (producerQueues.containsKey(brokerHost)) {
+                return;
+            }
             brokerHostToConsumerChannelMap.put(brokerHost, new ArrayList<Channel>());
             brokerHostToProducerChannelMap.put(brokerHost, new ArrayList<Channel>());
-            consumerQueues.put(brokerHost, new ArrayBlockingQueue<MessageContext>(1024));
-            producerQueues.put(brokerHost, new ArrayBlockingQueue<MessageContext>(1024));
+            // the queues wake up the scheduled senders and consumers when messages arrive
+            BlockingQueue<MessageContext> consumerQueue = transport.hasSharedConsumerQueues()
+                    ? queueFactory.createProducerQueue() : queueFactory.createConsumerQueue();
+            consumerQueues.put(brokerHost, new NotifyingQueue<MessageContext>(consumerQueue));
+            producerQueues.put(brokerHost, new NotifyingQueue<MessageContext>(queueFactory.createProducerQueue()));
+            // the messages waiting in the queues count for the load of the broker
+            BrokerStats stats = transport.getBrokerStats(brokerHost);
+            stats.addQueue(consumerQueues.get(brokerHost));
+            stats.addQueue(producerQueues.get(brokerHost));
+
+            GroupMetrics metrics = new GroupMetrics(producerQueues.get(brokerHost), consumerQueues.get(brokerHost));
+            groupMetrics.put(brokerHost, metrics);
+            metricsRegistry.registerGroup(groupKey(brokerHost), metrics);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        this.run = true;
+    /**
+     * Move the channels of a broker to the other brokers and forget the broker. The broker must already be
+     * removed from the broker selector. The producer and consumer of the broker keep running until the
+     * messages already in their queues are handled.
+     * @param brokerHost the broker
+     */
+    public void removeBroker(BrokerHost brokerHost) {
+        lock.lock();
+        try {
+            if (!producerQueues.containsKey(brokerHost)) {
+                return;
+            }
+            rebalance();
+
+            brokerHostToConsumerChannelMap.remove(brokerHost);
+            brokerHostToProducerChannelMap.remove(brokerHost);
+            BrokerStats stats = transport.getBrokerStats(brokerHost);
+            stats.removeQueue(consumerQueues.remove(brokerHost));
+            stats.removeQueue(producerQueues.remove(brokerHost));
+            List<Stage> stages = producerStages.remove(brokerHost);
+            if (stages != null) {
+                for (Stage stage : stages) {
+                    stats.removeQueue(stage.queue);
+                }
+            }
+            groupMetrics.remove(brokerHost);
+            metricsRegistry.unRegisterGroup(groupKey(brokerHost));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move the channels which are not on the broker the broker selector wants them on. The new producer or
+     * consumer is started before a channel is switched to it so publishing never stops.
+     */
+    public void rebalance() {
+        lock.lock();
+        try {
+            for (BrokerHost host : new ArrayList<BrokerHost>(brokerHostToProducerChannelMap.keySet())) {
+                for (Channel channel : new ArrayList<Channel>(brokerHostToProducerChannelMap.get(host))) {
+                    if (!transport.getBrokerSelector().isPlaced(channelKey(channel), host)) {
+                        moveProducerChannel(channel, host, selectHost(channel));
+                    }
+                }
+            }
+            for (BrokerHost host : new ArrayList<BrokerHost>(brokerHostToConsumerChannelMap.keySet())) {
+                for (Channel channel : new ArrayList<Channel>(brokerHostToConsumerChannelMap.get(host))) {
+                    if (!transport.getBrokerSelector().isPlaced(channelKey(channel), host)) {
+                        moveConsumerChannel(channel, host, selectHost(channel));
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     public BrokerHost addChannel(Channel channel) {
         lock.lock();
         try {
             // add the channel and return the broker host
-            Manageable manageable;
             if (channel.getDirection() == Direction.OUT) {
-                BrokerHost host = brokerHosts.get(brokerIndex);
-                List<Channel> producerChannels = brokerHostToProducerChannelMap.get(host);
-                BlockingQueue<MessageContext> channelOutQueue = producerQueues.get(host);
-
-                if (!producers.containsKey(host)) {
-                    manageable = transport.registerProducer(host, prefix, channel.getProperties(), producerQueues.get(host));
-                    producers.put(host, manageable);
-
-                    manageable.start();
+                BrokerHost host = selectHost(channel);
+                startProducer(host, channel);
+
+                channel.setBufferPool(transport.getBufferPool());
+                channel.setEncoder(PayloadCodecs.createEncoder(channel.getProperties()));
+                Object priority = channel.getProperties().get(TransportConstants.PRIORITY_PROPERTY);
+                if (priority != null) {
+                    channel.setPriority(TransportUtils.getInt(channel.getProperties(), TransportConstants.PRIORITY_PROPERTY, 0));
+                }
+                int sample = TransportUtils.getInt(channel.getProperties(), TransportConstants.LATENCY_SAMPLE_PROPERTY, 0);
+                if (sample > 0) {
+                    channel.setLatencySampling(sample, TransportUtils.getBoolean(channel.getProperties(),
+                            TransportConstants.LATENCY_TRACE_PROPERTY, false));
+                }
+                RateLimit rateLimit = createRateLimit(channel);
+                if (rateLimit != null) {
+                    channel.setRateLimit(rateLimit);
+                }
+                Object policy = channel.getProperties().get(TransportConstants.BACK_PRESSURE_PROPERTY);
+                if (policy != null) {
+                    channel.setBackPressure(BackPressurePolicy.forName(policy.toString()),
+                            TransportUtils.getLong(channel.getProperties(), TransportConstants.BACK_PRESSURE_TIMEOUT_PROPERTY,
+                                    TransportConstants.BACK_PRESSURE_DEFAULT_TIMEOUT));
+                }
+                LocalBroker localBroker = transport.getLocalBroker();
+                if (localBroker != null) {
+                    channel.setLocalRoute(new LocalRoute(localBroker,
+                            transport.getLocalDestination(prefix, channel.getProperties()), transport.siteId));
                 }
-
                 // now register the channel with the brokers map
-                // check weather you have a sender consumer for this host
-                channel.setOutQueue(channelOutQueue);
-                producerChannels.add(channel);
-                producerChannels.add(new Channel("", Direction.OUT));
+                channel.setOutQueue(channelQueue(host));
+                bindChannel(channel, host, brokerHostToProducerChannelMap);
 
                 LOG.info("Registering channel {} with group {} and host {}", channel.getName(), name, host.toString());
-                incrementProducerIndex();
 
                 return host;
 
             } else if (channel.getDirection() == Direction.IN) {
-                BrokerHost host = brokerHosts.get(brokerIndex);
-                List<Channel> consumerChannels = brokerHostToConsumerChannelMap.get(host);
-                if (!consumers.containsKey(host)) {
-                    BlockingQueue<MessageContext> channelInQueue = consumerQueues.get(host);
-                    manageable = transport.registerConsumer(host, prefix, channel.getProperties(), channelInQueue);
-                    consumers.put(host, manageable);
-
-                    ConsumingWorker worker;
-                    if (channel.isGrouped()) {
-                        worker = new ConsumingWorker(consumerChannels, channelInQueue);
-                    } else {
-                        worker = new ConsumingWorker(consumerChannels, channelInQueue, true);
-                    }
-                    Thread thread = new Thread(worker);
-                    thread.start();
-
-                    manageable.start();
-
-                    consumingWorkers.put(host, worker);
-                }
+                BrokerHost host = selectHost(channel);
+                startConsumer(host, channel);
 
                 // now register the channel with the brokers map
-                // check weather you have a sender consumer for this host
-                consumerChannels.add(channel);
+                bindChannel(channel, host, brokerHostToConsumerChannelMap);
+                consumingWorkers.get(host).addChannel(channel);
+                if (transport.getLocalBroker() != null) {
+                    subscribeLocal(channel);
+                }
 
                 LOG.info("Registering channel {} with group {} and host {}", channel.getName(), name, host.toString());
-                incrementConsumerIndex();
 
                 return host;
             }
@@ -147,56 +273,327 @@ public class ChannelGroup {
         return null;
     }
 
+    /**
+     * Create and start the producer of a broker if it is not running
+     */
+    private void startProducer(BrokerHost host, Channel channel) {
+        addBroker(host);
+        if (producers.containsKey(host)) {
+            return;
+        }
+        // a producer still sending the messages of the last channels of the broker is taken back
+        Retirement retirement = reclaim(host, producerQueues.get(host));
+        if (retirement != null) {
+            producers.put(host, retirement.producer);
+            if (retirement.stages != null) {
+                producerStages.put(host, retirement.stages);
+            }
+            return;
+        }
+        Manageable manageable = transport.registerProducer(host, prefix, channel.getProperties(), producerQueues.get(host));
+        if (manageable instanceof BatchSender) {
+            BatchSender sender = (BatchSender) manageable;
+            sender.setMaxBatchSize(TransportUtils.getInt(channel.getProperties(),
+                    TransportConstants.BATCH_SIZE_PROPERTY, 1));
+            sender.setMaxBatchWait(TransportUtils.getLong(channel.getProperties(),
+                    TransportConstants.BATCH_WAIT_PROPERTY, 0));
+        }
+        if (manageable instanceof ScheduledManageable) {
+            ((ScheduledManageable) manageable).setScheduler(transport.getScheduler(), name);
+        }
+        if (manageable instanceof BrokerStatsAware) {
+            ((BrokerStatsAware) manageable).setBrokerStats(transport.getBrokerStats(host));
+        }
+        producers.put(host, manageable);
+
+        manageable.start();
+        startStages(host, channel);
+    }
+
+    /**
+     * Create and start the stages the channel asks for in front of the producer of a broker
+     */
+    private void startStages(BrokerHost host, Channel channel) {
+        Map conf = channel.getProperties();
+        List<Stage> stages = new ArrayList<Stage>();
+        BlockingQueue<MessageContext> next = producerQueues.get(host);
+
+        if (TransportUtils.getBoolean(conf, TransportConstants.CHANNEL_SPOOL_PROPERTY, false)) {
+            BlockingQueue<MessageContext> queue = new NotifyingQueue<MessageContext>(queueFactory.createProducerQueue());
+            Spooler spooler = new Spooler(queue, next, transport.createSpool(name, host),
+                    transport.getSpoolCheckpointInterval());
+            spooler.setBrokerStats(transport.getBrokerStats(host));
+            stages.add(0, startStage(host, queue, spooler, "spooler"));
+            next = queue;
+        }
+
+        int maxMessages = TransportUtils.getInt(conf, TransportConstants.COALESCE_MESSAGES_PROPERTY, 1);
+        if (maxMessages > 1) {
+            BlockingQueue<MessageContext> queue = new NotifyingQueue<MessageContext>(queueFactory.createProducerQueue());
+            Coalescer coalescer = new Coalescer(queue, next, maxMessages,
+                    TransportUtils.getInt(conf, TransportConstants.COALESCE_BYTES_PROPERTY, TransportConstants.COALESCE_DEFAULT_BYTES),
+                    TransportUtils.getLong(conf, TransportConstants.COALESCE_LINGER_PROPERTY, TransportConstants.COALESCE_DEFAULT_LINGER));
+            if (queueFactory instanceof PriorityLaneQueueFactory) {
+                coalescer.setLaneCount(((PriorityLaneQueueFactory) queueFactory).getLaneCount());
+            }
+            stages.add(0, startStage(host, queue, coalescer, "coalescer"));
+        }
+
+        if (!stages.isEmpty()) {
+            producerStages.put(host, stages);
+        }
+    }
+
+    private Stage startStage(BrokerHost host, BlockingQueue<MessageContext> queue, ProducerStage task, String type) {
+        transport.getBrokerStats(host).addQueue(queue);
+        TaskHandle handle = transport.getScheduler().submit(name, task, type + "-" + name + "-" + host, queue);
+        return new Stage(queue, task, handle);
+    }
+
+    /**
+     * The queue the publishing channels of a broker put their messages in to
+     */
+    private BlockingQueue<MessageContext> channelQueue(BrokerHost host) {
+        List<Stage> stages = producerStages.get(host);
+        return stages != null ? stages.get(0).queue : producerQueues.get(host);
+    }
+
+    /**
+     * Create and start the consumer and the consuming worker of a broker if they are not running
+     */
+    private void startConsumer(BrokerHost host, Channel channel) {
+        addBroker(host);
+        if (consumers.containsKey(host)) {
+            return;
+        }
+        BlockingQueue<MessageContext> channelInQueue = consumerQueues.get(host);
+        Manageable manageable = transport.registerConsumer(host, prefix, channel.getProperties(), channelInQueue);
+        if (manageable instanceof ScheduledManageable) {
+            ((ScheduledManageable) manageable).setScheduler(transport.getScheduler(), name);
+        }
+        consumers.put(host, manageable);
+
+        // a worker still delivering the messages of the last channels of the broker is taken back
+        Retirement retirement = reclaim(host, channelInQueue);
+        if (retirement != null) {
+            manageable.start();
+            consumingWorkers.put(host, retirement.worker);
+            workerHandles.put(host, retirement.workerHandle);
+            return;
+        }
+
+        ConsumingWorker worker;
+        if (channel.isGrouped()) {
+            worker = new ConsumingWorker(channelInQueue);
+        } else {
+            worker = new ConsumingWorker(channelInQueue, true);
+        }
+        worker.setMetrics(groupMetrics.get(host));
+        worker.setDecoder(PayloadCodecs.createDecoder(channel.getProperties()));
+        if (transport.getLocalBroker() != null) {
+            worker.setLocalOrigin(transport.siteId);
+        }
+        TaskHandle handle = transport.getScheduler().submit(name, worker,
+                "consuming-worker-" + name + "-" + host, channelInQueue);
+
+        manageable.start();
+
+        consumingWorkers.put(host, worker);
+        workerHandles.put(host, handle);
+    }
+
+    /**
+     * Create the rate limit of a publishing channel from its properties
+     * @return the limit or null if the channel has no rate limit
+     */
+    private RateLimit createRateLimit(Channel channel) {
+        Map conf = channel.getProperties();
+        double messageRate = TransportUtils.getDouble(conf, TransportConstants.MESSAGE_RATE_PROPERTY, 0);
+        double byteRate = TransportUtils.getDouble(conf, TransportConstants.BYTE_RATE_PROPERTY, 0);
+        if (messageRate <= 0 && byteRate <= 0) {
+            return null;
+        }
+        double burst = TransportUtils.getDouble(conf, TransportConstants.RATE_BURST_PROPERTY, RateLimit.DEFAULT_BURST);
+        Object scope = conf.get(TransportConstants.RATE_SCOPE_PROPERTY);
+
+        RateLimiter limiter;
+        if (TransportConstants.RATE_SCOPE_SENSOR.equals(scope)) {
+            limiter = transport.getSensorRateLimiter(channel.getSensorID(), messageRate, byteRate, burst);
+        } else if (scope == null || TransportConstants.RATE_SCOPE_CHANNEL.equals(scope)) {
+            limiter = new RateLimiter(messageRate, byteRate, burst);
+        } else {
+            String msg = "Unknown rate limit scope: " + scope;
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+        Object policy = conf.get(TransportConstants.THROTTLE_POLICY_PROPERTY);
+        return new RateLimit(limiter, ThrottlePolicy.forName(policy != null ? policy.toString() : null),
+                TransportUtils.getInt(conf, TransportConstants.THROTTLE_SAMPLE_PROPERTY, RateLimit.DEFAULT_SAMPLE));
+    }
+
+    /**
+     * True if the channel got the rate limiter shared by the channels of its sensor when it was added
+     */
+    private boolean hasSensorRateLimit(Channel channel) {
+        Map conf = channel.getProperties();
+        return TransportConstants.RATE_SCOPE_SENSOR.equals(conf.get(TransportConstants.RATE_SCOPE_PROPERTY))
+                && (TransportUtils.getDouble(conf, TransportConstants.MESSAGE_RATE_PROPERTY, 0) > 0
+                || TransportUtils.getDouble(conf, TransportConstants.BYTE_RATE_PROPERTY, 0) > 0);
+    }
+
+    /**
+     * Subscribe the group to its destination on the local broker and route the local messages to the channel
+     */
+    private void subscribeLocal(Channel channel) {
+        if (localWorker == null) {
+            localDestination = transport.getLocalDestination(prefix, channel.getProperties());
+            // every publishing thread of the process and every local sender puts in to this queue
+            localQueue = new NotifyingQueue<MessageContext>(queueFactory.createProducerQueue());
+            localWorker = new ConsumingWorker(localQueue, !channel.isGrouped());
+            localWorker.setDecoder(PayloadCodecs.createDecoder(channel.getProperties()));
+            localHandle = transport.getScheduler().submit(name, localWorker, "local-worker-" + name, localQueue);
+            transport.getLocalBroker().subscribe(localDestination, localQueue);
+        }
+        localWorker.addChannel(channel);
+    }
+
+    private void unsubscribeLocal() {
+        if (localWorker != null) {
+            transport.getLocalBroker().unsubscribe(localDestination, localQueue);
+            localWorker.stop();
+            localHandle.wakeup();
+            localWorker = null;
+        }
+    }
+
+    private void bindChannel(Channel channel, BrokerHost host, Map<BrokerHost, List<Channel>> channelMap) {
+        channelMap.get(host).add(channel);
+        transport.getBrokerStats(host).channelAdded();
+        metricsRegistry.registerChannel(metricKey(channel, host), channel.getMetrics());
+    }
+
+    private void unbindChannel(Channel channel, BrokerHost host, Map<BrokerHost, List<Channel>> channelMap) {
+        channelMap.get(host).remove(channel);
+        transport.getBrokerStats(host).channelRemoved();
+        metricsRegistry.unRegisterChannel(metricKey(channel, host));
+    }
+
+    /**
+     * Switch a publishing channel to the producer of another broker. The messages already in the queue of
+     * the old broker are still sent by the old producer.
+     */
+    private void moveProducerChannel(Channel channel, BrokerHost from, BrokerHost to) {
+        if (from.equals(to)) {
+            return;
+        }
+        // make before break, the new producer is running before the channel switches to it
+        startProducer(to, channel);
+        channel.setOutQueue(channelQueue(to));
+        unbindChannel(channel, from, brokerHostToProducerChannelMap);
+        bindChannel(channel, to, brokerHostToProducerChannelMap);
+        if (brokerHostToProducerChannelMap.get(from).isEmpty()) {
+            retireProducer(from);
+        }
+        LOG.info("Moved channel {} of group {} from host {} to {}", channel.getName(), name, from, to);
+    }
+
+    /**
+     * Start consuming the messages of a channel from another broker. The old worker keeps the route to the
+     * channel so the messages already taken from the old broker are delivered.
+     */
+    private void moveConsumerChannel(Channel channel, BrokerHost from, BrokerHost to) {
+        if (from.equals(to)) {
+            return;
+        }
+        startConsumer(to, channel);
+        consumingWorkers.get(to).addChannel(channel);
+        unbindChannel(channel, from, brokerHostToConsumerChannelMap);
+        bindChannel(channel, to, brokerHostToConsumerChannelMap);
+        if (brokerHostToConsumerChannelMap.get(from).isEmpty()) {
+            retireConsumer(from);
+        }
+        LOG.info("Moved channel {} of group {} from host {} to {}", channel.getName(), name, from, to);
+    }
+
+    /**
+     * Stop the producer of a broker after it has sent the messages in its queue
+     */
+    private void retireProducer(BrokerHost host) {
+        Manageable producer = producers.remove(host);
+        if (producer != null) {
+            Retirement retirement = new Retirement(host, producerQueues.get(host), producer, null, null);
+            retirement.stages = producerStages.remove(host);
+            submitRetirement(retirement);
+        }
+    }
+
+    /**
+     * Stop the consumer of a broker now and its worker after the messages already consumed are delivered
+     */
+    private void retireConsumer(BrokerHost host) {
+        Manageable consumer = consumers.remove(host);
+        if (consumer != null) {
+            consumer.stop();
+            submitRetirement(new Retirement(host, consumerQueues.get(host), null,
+                    consumingWorkers.remove(host), workerHandles.remove(host)));
+        }
+    }
+
+    private void submitRetirement(Retirement retirement) {
+        retirements.add(retirement);
+        retirement.handle = transport.getScheduler().submit(name, retirement, "retire-" + name + "-" + retirement.host);
+    }
+
+    /**
+     * Cancel the retirement of the producer or consuming worker reading a queue of a broker. A channel added
+     * to the broker again uses it instead of starting a second one on the same queue.
+     * @return the cancelled retirement or null if nothing reading the queue is retiring
+     */
+    private Retirement reclaim(BrokerHost host, BlockingQueue<MessageContext> queue) {
+        for (Retirement retirement : retirements) {
+            if (retirement.host.equals(host) && retirement.queue == queue) {
+                retirement.cancel();
+                LOG.info("Took back the retiring {} of group {} and host {}", retirement.producer != null ?
+                        "producer" : "consumer", name, host);
+                return retirement;
+            }
+        }
+        return null;
+    }
+
     public void removeChannel(Channel channel) {
         lock.lock();
         try {
             if (channel.getDirection() == Direction.OUT) {
-                BrokerHost registeredHost = null;
-                for (Map.Entry<BrokerHost, List<Channel>> e : brokerHostToProducerChannelMap.entrySet()) {
-                    List<Channel> channels = e.getValue();
-                    Iterator<Channel> channelIterator = channels.iterator();
-                    while (channelIterator.hasNext()) {
-                        Channel c = channelIterator.next();
-                        if (c.equals(channel)) {
-                            registeredHost = e.getKey();
-                            channelIterator.remove();
-
-                            // if there are no more channels remove the producer
-                            if (channels.size() == 0) {
-                                Manageable producer = producers.remove(registeredHost);
-                                producer.stop();
-                            }
-                            break;
-                        }
+                BrokerHost registeredHost = findHost(channel, brokerHostToProducerChannelMap);
+                channel.setLocalRoute(null);
+                if (registeredHost != null) {
+                    unbindChannel(channel, registeredHost, brokerHostToProducerChannelMap);
+                    if (hasSensorRateLimit(channel)) {
+                        transport.releaseSensorRateLimiter(channel.getSensorID());
                     }
-                    if (registeredHost != null) {
-                        break;
+                    // if there are no more channels remove the producer
+                    if (brokerHostToProducerChannelMap.get(registeredHost).isEmpty()) {
+                        retireProducer(registeredHost);
                     }
                 }
             } else if (channel.getDirection() == Direction.IN) {
-                BrokerHost registeredHost = null;
-                for (Map.Entry<BrokerHost, List<Channel>> e : brokerHostToConsumerChannelMap.entrySet()) {
-                    List<Channel> channels = e.getValue();
-                    Iterator<Channel> channelIterator = channels.iterator();
-                    while (channelIterator.hasNext()) {
-                        Channel c = channelIterator.next();
-                        if (c.equals(channel)) {
-                            registeredHost = e.getKey();
-                            channelIterator.remove();
-
-                            // if there are no more channels remove the producer
-                            if (channels.size() == 0) {
-                                ConsumingWorker worker = consumingWorkers.remove(registeredHost);
-                                worker.stop();
-
-                                Manageable consumer = consumers.remove(registeredHost);
-                                consumer.stop();
-                            }
-                            break;
+                BrokerHost registeredHost = findHost(channel, brokerHostToConsumerChannelMap);
+                if (registeredHost != null) {
+                    unbindChannel(channel, registeredHost, brokerHostToConsumerChannelMap);
+                    // a worker of a broker the channel was moved from can still have a route to it
+                    for (ConsumingWorker worker : consumingWorkers.values()) {
+                        worker.removeChannel(channel);
+                    }
+                    if (localWorker != null) {
+                        localWorker.removeChannel(channel);
+                        if (!hasConsumerChannels()) {
+                            unsubscribeLocal();
                         }
                     }
-                    if (registeredHost != null) {
-                        break;
+                    // if there are no more channels remove the consumer
+                    if (brokerHostToConsumerChannelMap.get(registeredHost).isEmpty()) {
+                        retireConsumer(registeredHost);
                     }
                 }
             }
@@ -205,61 +602,65 @@ public class ChannelGroup {
         }
     }
 
-    private void incrementConsumerIndex() {
-        if (consumerIndex == brokerHosts.size() - 1) {
-            consumerIndex = 0;
-        } else {
-            consumerIndex++;
+    private boolean hasConsumerChannels() {
+        for (List<Channel> channels : brokerHostToConsumerChannelMap.values()) {
+            if (!channels.isEmpty()) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private void incrementProducerIndex() {
-        if (producerIndex == brokerHosts.size() - 1) {
-            producerIndex = 0;
-        } else {
-            producerIndex++;
+    private BrokerHost findHost(Channel channel, Map<BrokerHost, List<Channel>> channelMap) {
+        for (Map.Entry<BrokerHost, List<Channel>> e : channelMap.entrySet()) {
+            for (Channel c : e.getValue()) {
+                if (c.equals(channel)) {
+                    return e.getKey();
+                }
+            }
         }
+        return null;
+    }
+
+    private MetricKey metricKey(Channel channel, BrokerHost host) {
+        return new MetricKey(transport.siteId, channel.getSensorID(), channel.getName(), host.toString());
+    }
+
+    private MetricKey groupKey(BrokerHost host) {
+        return new MetricKey(transport.siteId, null, name, host.toString());
+    }
+
+    private String channelKey(Channel channel) {
+        return channel.getSensorID() != null ? channel.getSensorID() : channel.getName();
+    }
+
+    /**
+     * Pick the broker of a channel with the broker selector of the transport
+     * @param channel the channel
+     * @return the broker host
+     */
+    private BrokerHost selectHost(Channel channel) {
+        BrokerHost host = transport.getBrokerSelector().select(channelKey(channel));
+        if (host == null) {
+            String msg = "There are no brokers available for the group " + name;
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+        return host;
     }
 
     public BrokerHost getHostForChannel(Channel channel) {
-        BrokerHost registeredHost = null;
         lock.lock();
         try {
             if (channel.getDirection() == Direction.OUT) {
-                for (Map.Entry<BrokerHost, List<Channel>> e : brokerHostToProducerChannelMap.entrySet()) {
-                    List<Channel> channels = e.getValue();
-                    Iterator<Channel> channelIterator = channels.iterator();
-                    while (channelIterator.hasNext()) {
-                        Channel c = channelIterator.next();
-                        if (c.equals(channel)) {
-                            registeredHost = e.getKey();
-                            break;
-                        }
-                    }
-                    if (registeredHost != null) {
-                        break;
-                    }
-                }
+                return findHost(channel, brokerHostToProducerChannelMap);
             } else if (channel.getDirection() == Direction.IN) {
-                for (Map.Entry<BrokerHost, List<Channel>> e : brokerHostToConsumerChannelMap.entrySet()) {
-                    List<Channel> channels = e.getValue();
-                    Iterator<Channel> channelIterator = channels.iterator();
-                    while (channelIterator.hasNext()) {
-                        Channel c = channelIterator.next();
-                        if (c.equals(channel)) {
-                            registeredHost = e.getKey();
-                            break;
-                        }
-                    }
-                    if (registeredHost != null) {
-                        break;
-                    }
-                }
+                return findHost(channel, brokerHostToConsumerChannelMap);
             }
         } finally {
             lock.unlock();
         }
-        return registeredHost;
+        return null;
     }
 
     public void start() {
@@ -272,6 +673,127 @@ public class ChannelGroup {
         }
     }
 
+    /**
+     * Stop accepting new messages, the publishing channels are closed and the consumers stop taking messages
+     * from the brokers. The queued messages keep flowing.
+     */
+    public void quiesce() {
+        lock.lock();
+        try {
+            for (List<Channel> channels : brokerHostToProducerChannelMap.values()) {
+                for (Channel channel : channels) {
+                    channel.close();
+                }
+            }
+            for (Manageable consumer : consumers.values()) {
+                if (consumer instanceof QuiescingManageable) {
+                    ((QuiescingManageable) consumer).quiesce();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Messages in the queues of the group which would be lost if it stopped now. A message held by a
+     * producer, a worker or a stage counts as one even if there are more. The messages on the way to a
+     * spool are not counted, they are spooled when the group stops.
+     * @return number of messages
+     */
+    public int countPending() {
+        lock.lock();
+        try {
+            int count = 0;
+            for (BlockingQueue<MessageContext> queue : producerQueues.values()) {
+                count += queue.size();
+            }
+            for (BlockingQueue<MessageContext> queue : consumerQueues.values()) {
+                count += queue.size();
+            }
+            for (List<Stage> stages : producerStages.values()) {
+                for (Stage stage : stages) {
+                    if (stage.task instanceof Spooler) {
+                        continue;
+                    }
+                    int size = stage.queue.size();
+                    count += size;
+                    if (size == 0 && stage.task.hasPending()) {
+                        count++;
+                    }
+                }
+            }
+            for (Manageable producer : producers.values()) {
+                if (producer instanceof QuiescingManageable && ((QuiescingManageable) producer).hasPending()) {
+                    count++;
+                }
+            }
+            for (ConsumingWorker worker : consumingWorkers.values()) {
+                if (worker.hasPending()) {
+                    count++;
+                }
+            }
+            if (localWorker != null) {
+                count += localQueue.size();
+                if (localWorker.hasPending()) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Messages kept in the spools of the group, including the ones which are spooled when the group stops
+     * @return number of messages
+     */
+    public long countSpooled() {
+        lock.lock();
+        try {
+            long count = 0;
+            for (List<Stage> stages : producerStages.values()) {
+                for (Stage stage : stages) {
+                    if (stage.task instanceof Spooler) {
+                        count += ((Spooler) stage.task).getSpool().getPending() + stage.queue.size();
+                    }
+                }
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for the stages stopped by {@link #stop()} to finish, so the spools are closed
+     * @param deadline the time to give up waiting
+     * @return true if all the stages finished
+     */
+    public boolean awaitStages(long deadline) throws InterruptedException {
+        List<TaskHandle> handles = new ArrayList<TaskHandle>();
+        lock.lock();
+        try {
+            for (List<Stage> stages : producerStages.values()) {
+                for (Stage stage : stages) {
+                    handles.add(stage.handle);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (TaskHandle handle : handles) {
+            while (!handle.isDone()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    return false;
+                }
+                Thread.sleep(RETIRE_CHECK_INTERVAL);
+            }
+        }
+        return true;
+    }
+
     public void stop() {
         for (Manageable manageable : consumers.values()) {
             manageable.stop();
@@ -280,5 +802,172 @@ public class ChannelGroup {
         for (Manageable manageable : producers.values()) {
             manageable.stop();
         }
+
+        lock.lock();
+        try {
+            for (List<Stage> stages : producerStages.values()) {
+                for (Stage stage : stages) {
+                    stage.stop();
+                }
+            }
+            unsubscribeLocal();
+            for (Retirement retirement : new ArrayList<Retirement>(retirements)) {
+                retirement.finish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A running producer stage with its input queue
+     */
+    private static class Stage {
+        private final BlockingQueue<MessageContext> queue;
+
+        private final ProducerStage task;
+
+        private final TaskHandle handle;
+
+        private Stage(BlockingQueue<MessageContext> queue, ProducerStage task, TaskHandle handle) {
+            this.queue = queue;
+            this.task = task;
+            this.handle = handle;
+        }
+
+        private void stop() {
+            task.stop();
+            // run the stage once more so it can clean up
+            handle.wakeup();
+        }
+    }
+
+    /**
+     * Stops a producer or a consuming worker once its queue has been empty for {@link #RETIRE_GRACE}, the
+     * grace lets a sender finish the batch it has already taken from the queue.
+     */
+    private class Retirement implements IOTask {
+        private final BrokerHost host;
+
+        private final BlockingQueue<MessageContext> queue;
+
+        private final Manageable producer;
+
+        private final ConsumingWorker worker;
+
+        private final TaskHandle workerHandle;
+
+        /**
+         * The stages feeding a retired producer, null if the producer has none
+         */
+        private List<Stage> stages;
+
+        private TaskHandle handle;
+
+        private final long deadline = System.currentTimeMillis() + RETIRE_TIMEOUT;
+
+        private long drainedAt = 0;
+
+        private boolean finished = false;
+
+        private Retirement(BrokerHost host, BlockingQueue<MessageContext> queue, Manageable producer,
+                           ConsumingWorker worker, TaskHandle workerHandle) {
+            this.host = host;
+            this.queue = queue;
+            this.producer = producer;
+            this.worker = worker;
+            this.workerHandle = workerHandle;
+        }
+
+        @Override
+        public long step() {
+            long now = System.currentTimeMillis();
+            if (now < deadline) {
+                if (!isDrained()) {
+                    drainedAt = 0;
+                    return RETIRE_CHECK_INTERVAL;
+                } else if (drainedAt == 0) {
+                    drainedAt = now;
+                    return RETIRE_GRACE;
+                } else if (now - drainedAt < RETIRE_GRACE) {
+                    return RETIRE_GRACE - (now - drainedAt);
+                }
+            } else if (!isDrained()) {
+                LOG.warn("Stopping the retired {} of group {} and host {} with {} messages left", producer != null ?
+                        "producer" : "consumer", name, host, queue.size() + stagedMessages());
+            }
+
+            lock.lock();
+            try {
+                finish();
+            } finally {
+                lock.unlock();
+            }
+            return DONE;
+        }
+
+        /**
+         * True if the messages given to the producer or worker are all handled
+         */
+        private boolean isDrained() {
+            if (stages != null) {
+                for (Stage stage : stages) {
+                    if (stage.task.hasPending()) {
+                        return false;
+                    }
+                }
+            }
+            return queue.isEmpty() && (worker == null || !worker.hasPending());
+        }
+
+        private int stagedMessages() {
+            int count = 0;
+            if (stages != null) {
+                for (Stage stage : stages) {
+                    count += stage.queue.size();
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Stop the retirement and leave the producer or worker running, called while holding the lock of the group
+         */
+        private void cancel() {
+            finished = true;
+            retirements.remove(this);
+            if (handle != null) {
+                handle.cancel();
+            }
+        }
+
+        /**
+         * Stop the producer or worker, called while holding the lock of the group
+         */
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            retirements.remove(this);
+            if (stages != null) {
+                BrokerStats stats = transport.getBrokerStats(host);
+                for (Stage stage : stages) {
+                    stage.stop();
+                    if (stats != null) {
+                        stats.removeQueue(stage.queue);
+                    }
+                }
+            }
+            if (producer != null) {
+                producer.stop();
+            }
+            if (worker != null) {
+                worker.stop();
+                // run the worker once more so it can clean up
+                workerHandle.wakeup();
+            }
+            LOG.info("Retired the {} of group {} and host {}", producer != null ? "producer" : "consumer", name, host);
+        }
     }
 }
@@ -0,0 +1,159 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.queue.PriorityLaneQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Packs the small messages the channels publish in to envelopes before they reach the producer queue of a
+ * broker. An envelope is sent when it has the maximum number of messages or bytes, or when its first message
+ * has waited for the linger time. Runs as a task of the transport scheduler and never blocks.
+ */
+public class Coalescer implements ProducerStage {
+    /**
+     * Time to wait before trying again to put an envelope in to a full producer queue
+     */
+    public static final long PRODUCER_FULL_WAIT = 1;
+
+    private final BlockingQueue<MessageContext> input;
+
+    private final BlockingQueue<MessageContext> output;
+
+    private final int maxMessages;
+
+    private final int maxBytes;
+
+    private final long linger;
+
+    private final List<MessageContext> frames = new ArrayList<MessageContext>();
+
+    private int frameBytes = 0;
+
+    /**
+     * Number of messages waiting for the envelope to fill, read by other threads
+     */
+    private volatile int frameCount = 0;
+
+    private long firstFrameTime;
+
+    /**
+     * An envelope waiting for space in the producer queue
+     */
+    private volatile MessageContext pending;
+
+    private volatile boolean run = true;
+
+    /**
+     * Number of priority lanes of the queues, the messages of all but the last lane are not coalesced
+     */
+    private int laneCount = 1;
+
+    /**
+     * @param input the queue the channels publish to
+     * @param output the producer queue of the broker
+     * @param maxMessages maximum messages in an envelope
+     * @param maxBytes maximum size of the message bodies in an envelope
+     * @param linger maximum time in milliseconds a message waits for the envelope to fill
+     */
+    public Coalescer(BlockingQueue<MessageContext> input, BlockingQueue<MessageContext> output,
+                     int maxMessages, int maxBytes, long linger) {
+        this.input = input;
+        this.output = output;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.linger = linger;
+    }
+
+    public void setLaneCount(int laneCount) {
+        this.laneCount = laneCount;
+    }
+
+    @Override
+    public long step() {
+        if (!run) {
+            if (pending != null) {
+                pending.release();
+                pending = null;
+            }
+            for (MessageContext frame : frames) {
+                frame.release();
+            }
+            frames.clear();
+            frameCount = 0;
+            return DONE;
+        }
+
+        if (pending != null) {
+            if (!output.offer(pending)) {
+                return PRODUCER_FULL_WAIT;
+            }
+            pending = null;
+        }
+
+        MessageContext message;
+        while (frames.size() < maxMessages && frameBytes < maxBytes && (message = input.poll()) != null) {
+            if (laneCount > 1 && PriorityLaneQueue.laneOf(message, laneCount) < laneCount - 1) {
+                // a priority message does not wait for the envelope to fill
+                if (!output.offer(message)) {
+                    pending = message;
+                    return PRODUCER_FULL_WAIT;
+                }
+                continue;
+            }
+            if (frames.isEmpty()) {
+                firstFrameTime = System.currentTimeMillis();
+            }
+            frames.add(message);
+            frameBytes += message.getBodyLength();
+        }
+        frameCount = frames.size();
+
+        if (frames.isEmpty()) {
+            return WAIT;
+        }
+        if (frames.size() < maxMessages && frameBytes < maxBytes) {
+            long waited = System.currentTimeMillis() - firstFrameTime;
+            if (waited < linger) {
+                return linger - waited;
+            }
+        }
+        return flush() ? AGAIN : PRODUCER_FULL_WAIT;
+    }
+
+    private boolean flush() {
+        MessageContext envelope;
+        if (frames.size() == 1) {
+            // a single message is sent as it is
+            envelope = frames.get(0);
+        } else {
+            envelope = MessageEnvelope.pack(frames, frameBytes);
+        }
+        // the envelope is pending before the frames are cleared so hasPending never misses it
+        pending = envelope;
+        frames.clear();
+        frameBytes = 0;
+        frameCount = 0;
+        if (!output.offer(envelope)) {
+            return false;
+        }
+        pending = null;
+        return true;
+    }
+
+    /**
+     * True if messages are waiting to be packed or an envelope is waiting for the producer queue
+     * @return true if there are messages held by the coalescer
+     */
+    @Override
+    public boolean hasPending() {
+        return pending != null || frameCount > 0 || !input.isEmpty();
+    }
+
+    @Override
+    public void stop() {
+        run = false;
+    }
+}
@@ -0,0 +1,178 @@
+package cgl.iotcloud.core.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A consistent hash ring. Every node is placed on the ring at a number of points (virtual nodes) and a key
+ * belongs to the first node found clockwise from the hash of the key. When a node is added or removed only
+ * the keys of that node move, about 1/N of the keys.
+ *
+ * The points are computed from MD5 digests of the node names, each digest gives four points. Lookups do not
+ * lock, a change builds a new ring and replaces the old one.
+ */
+public class ConsistentHashRing<T> {
+    private static Logger LOG = LoggerFactory.getLogger(ConsistentHashRing.class);
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                String msg = "MD5 is not available";
+                LOG.error(msg);
+                throw new RuntimeException(msg, e);
+            }
+        }
+    };
+
+    private final int virtualNodes;
+
+    private final List<T> nodes = new ArrayList<T>();
+
+    private volatile TreeMap<Long, T> ring = new TreeMap<Long, T>();
+
+    public ConsistentHashRing(Collection<T> nodes, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("The number of virtual nodes should be positive: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+        for (T node : nodes) {
+            add(node);
+        }
+    }
+
+    public ConsistentHashRing(Collection<T> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Add a node to the ring
+     * @param node the node, its string form must be unique
+     */
+    public synchronized void add(T node) {
+        if (nodes.contains(node)) {
+            return;
+        }
+        TreeMap<Long, T> newRing = new TreeMap<Long, T>(ring);
+        for (long point : points(node)) {
+            newRing.put(point, node);
+        }
+        nodes.add(node);
+        ring = newRing;
+    }
+
+    /**
+     * Remove a node from the ring
+     * @param node the node
+     */
+    public synchronized void remove(T node) {
+        if (!nodes.remove(node)) {
+            return;
+        }
+        TreeMap<Long, T> newRing = new TreeMap<Long, T>(ring);
+        for (long point : points(node)) {
+            // a colliding point may belong to another node
+            if (node.equals(newRing.get(point))) {
+                newRing.remove(point);
+            }
+        }
+        ring = newRing;
+    }
+
+    /**
+     * Find the node of a key
+     * @param key the key
+     * @return the node or null if the ring is empty
+     */
+    public T get(String key) {
+        TreeMap<Long, T> r = ring;
+        if (r.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, T> e = r.ceilingEntry(point(md5(key), 0));
+        return e != null ? e.getValue() : r.firstEntry().getValue();
+    }
+
+    /**
+     * Find the node of a key skipping the excluded nodes. The key goes to the next node clockwise
+     * on the ring, so the keys of an excluded node spread over the others.
+     * @param key the key
+     * @param exclude nodes to skip
+     * @return the node or null if all the nodes are excluded
+     */
+    public T get(String key, Set<T> exclude) {
+        if (exclude.isEmpty()) {
+            return get(key);
+        }
+        TreeMap<Long, T> r = ring;
+        long hash = point(md5(key), 0);
+        for (T node : r.tailMap(hash, true).values()) {
+            if (!exclude.contains(node)) {
+                return node;
+            }
+        }
+        for (T node : r.headMap(hash, false).values()) {
+            if (!exclude.contains(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    public synchronized List<T> getNodes() {
+        return new ArrayList<T>(nodes);
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    private long[] points(T node) {
+        // each digest gives 4 points
+        int digests = (virtualNodes + 3) / 4;
+        long []points = new long[digests * 4];
+        String name = node.toString();
+        for (int i = 0; i < digests; i++) {
+            byte []digest = md5(name + "-" + i);
+            for (int j = 0; j < 4; j++) {
+                points[i * 4 + j] = point(digest, j);
+            }
+        }
+        return points;
+    }
+
+    private static long point(byte []digest, int index) {
+        return ((long) (digest[3 + index * 4] & 0xFF) << 24)
+                | ((long) (digest[2 + index * 4] & 0xFF) << 16)
+                | ((long) (digest[1 + index * 4] & 0xFF) << 8)
+                | (digest[index * 4] & 0xFF);
+    }
+
+    private static byte[] md5(String key) {
+        MessageDigest md5 = MD5.get();
+        md5.reset();
+        try {
+            return md5.digest(key.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
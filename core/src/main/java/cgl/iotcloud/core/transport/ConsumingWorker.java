@@ -1,79 +1,314 @@
 package cgl.iotcloud.core.transport;
 
+import cgl.iotcloud.core.metrics.GroupMetrics;
 import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.codec.PayloadDecoder;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-public class ConsumingWorker implements Runnable {
+/**
+ * Routes the messages taken from a consumer queue to the channels. Runs as a task of the transport scheduler
+ * and never blocks, a message that does not fit in to a full channel is kept until the next step.
+ */
+public class ConsumingWorker implements IOTask {
     private static Logger LOG = LoggerFactory.getLogger(ConsumingWorker.class);
 
-    private List<Channel> channels;
+    public static final int MAX_MESSAGES_PER_STEP = 64;
 
-    private boolean run;
+    /**
+     * Time to wait before trying again to deliver to a full channel
+     */
+    public static final long RECEIVER_FULL_WAIT = 1;
+
+    /**
+     * Index from the sensor id to the channel. The channel group updates it when channels are added
+     * or removed, lookups never block
+     */
+    private ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<String, Channel>();
+
+    /**
+     * Index from the numeric sensor id to the channel. The channel group updates it when channels are added
+     * or removed, lookups never block
+     */
+    private final SensorKeyIndex<Channel> keyedChannels = new SensorKeyIndex<Channel>();
+
+    /**
+     * The channel used when this worker serves a single channel
+     */
+    private volatile Channel firstChannel;
+
+    private volatile boolean run;
 
     private BlockingQueue<MessageContext> messageContexts;
 
     private boolean singleChannel;
 
-    public ConsumingWorker(List<Channel> channels, BlockingQueue<MessageContext> messageContexts, boolean singleChannel) {
+    private GroupMetrics metrics;
+
+    /**
+     * A message waiting for space in the queue of its channel
+     */
+    private Channel pending;
+
+    private volatile MessageContext pendingMessage;
+
+    /**
+     * Messages unpacked from an envelope which are not routed yet
+     */
+    private final Deque<MessageContext> unpacked = new ArrayDeque<MessageContext>();
+
+    private volatile int unpackedCount = 0;
+
+    /**
+     * Messages with this origin were already delivered locally and are dropped, null if local delivery is off
+     */
+    private String localOrigin;
+
+    /**
+     * Decompresses the messages compressed by the publishers, null if the messages are not decoded
+     */
+    private PayloadDecoder decoder;
+
+    public ConsumingWorker(BlockingQueue<MessageContext> messageContexts, boolean singleChannel) {
         this.messageContexts = messageContexts;
-        this.channels = channels;
         this.run = true;
         this.singleChannel = singleChannel;
     }
 
-    public ConsumingWorker(List<Channel> channels, BlockingQueue<MessageContext> messageContexts) {
-        this(channels, messageContexts, false);
+    public ConsumingWorker(BlockingQueue<MessageContext> messageContexts) {
+        this(messageContexts, false);
+    }
+
+    public void setMetrics(GroupMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setDecoder(PayloadDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    /**
+     * Drop the messages coming from the broker which were already delivered locally by this site
+     * @param localOrigin the site id
+     */
+    public void setLocalOrigin(String localOrigin) {
+        this.localOrigin = localOrigin;
+    }
+
+    /**
+     * Add a channel to the routing index. Called by the channel group while holding its lock.
+     * @param channel the channel
+     */
+    public void addChannel(Channel channel) {
+        channels.put(channel.getSensorID(), channel);
+        if (channel.getSensorKey() != MessageContext.NO_SENSOR_KEY) {
+            keyedChannels.put(channel.getSensorKey(), channel);
+        }
+        if (firstChannel == null) {
+            firstChannel = channel;
+        }
+    }
+
+    /**
+     * Remove a channel from the routing index. Called by the channel group while holding its lock.
+     * @param channel the channel
+     */
+    public void removeChannel(Channel channel) {
+        channels.remove(channel.getSensorID(), channel);
+        keyedChannels.remove(channel.getSensorKey(), channel);
+        if (channel.equals(firstChannel)) {
+            firstChannel = channels.isEmpty() ? null : channels.values().iterator().next();
+        }
     }
 
     @Override
-    public void run() {
-        while (run) {
-            try {
-                MessageContext message = messageContexts.take();
-                // find the channel responsible for this message
-                String sensorId = message.getSensorId();
-                if (sensorId == null) {
-                    String s = "The sensor id of a transport message should be present, discarding the message";
-                    LOG.warn(s);
-                    continue;
-                }
-
-                if (channels.size() == 0) {
-                    String s = "There must be at least one channel";
-                    LOG.error(s);
-                    throw new RuntimeException(s);
-                }
-
-                Channel matchingChannel = null;
-                if (!singleChannel) {
-                    for (Channel channel : channels) {
-                        if (channel.getSensorID().equals(sensorId)) {
-                            matchingChannel = channel;
-                            break;
-                        }
-                    }
-                } else {
-                    matchingChannel = channels.get(0);
-                }
-
-                if (matchingChannel != null) {
-                    BlockingQueue receiver = matchingChannel.getOutQueue();
-                    if (receiver == null) {
-                        String msg = "A receiving channel should specify a MessageReceiver";
-                        LOG.error(msg);
-                        throw new RuntimeException(msg);
-                    }
-
-                    receiver.put(message);
-                }
-            } catch (InterruptedException e) {
-                throw new RuntimeException("Failed to get the message from queue");
+    public long step() {
+        if (!run) {
+            if (pendingMessage != null) {
+                pendingMessage.release();
+                pendingMessage = null;
+            }
+            for (MessageContext message : unpacked) {
+                message.release();
+            }
+            unpacked.clear();
+            unpackedCount = 0;
+            return DONE;
+        }
+
+        // a message which did not fit in to the receiver last time goes first
+        if (pending != null) {
+            if (!pending.getOutQueue().offer(pendingMessage)) {
+                return RECEIVER_FULL_WAIT;
+            }
+            delivered(pending);
+            pending = null;
+            pendingMessage = null;
+        }
+
+        int count = 0;
+        MessageContext message;
+        while (count < MAX_MESSAGES_PER_STEP) {
+            // the rest of an envelope goes before the next message of the queue
+            message = unpacked.poll();
+            if (message != null) {
+                unpackedCount = unpacked.size();
+            } else if ((message = messageContexts.poll()) == null) {
+                break;
+            }
+            count++;
+            if (!route(message)) {
+                return RECEIVER_FULL_WAIT;
+            }
+        }
+        return count == MAX_MESSAGES_PER_STEP ? AGAIN : WAIT;
+    }
+
+    /**
+     * Replace an envelope with the messages packed in it
+     */
+    private void unpack(MessageContext envelope) {
+        long sent = envelope.getLongProperty(TransportConstants.SENT_HEADER, LatencyStamps.NO_STAMP);
+        List<MessageContext> frames = new ArrayList<MessageContext>();
+        try {
+            MessageEnvelope.unpack(envelope, frames);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Discarding an invalid message envelope", e);
+            if (metrics != null) {
+                metrics.markDiscarded();
+            }
+            return;
+        }
+        // the frames go in front of the rest of an envelope already unpacked, in their order
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            MessageContext frame = frames.get(i);
+            if (sent != LatencyStamps.NO_STAMP && LatencyStamps.isStamped(frame)) {
+                frame.setLongProperty(TransportConstants.SENT_HEADER, sent);
+            }
+            unpacked.push(frame);
+        }
+        unpackedCount = unpacked.size();
+    }
+
+    /**
+     * Give the message to its channel
+     * @param message the message
+     * @return false if the receiver of the channel is full, the message is kept as pending
+     */
+    @SuppressWarnings("unchecked")
+    private boolean route(MessageContext message) {
+        if (MessageEnvelope.isEnvelope(message)) {
+            unpack(message);
+            return true;
+        }
+        long taken = LatencyStamps.isStamped(message) ? LatencyStamps.now() : LatencyStamps.NO_STAMP;
+
+        // find the channel responsible for this message
+        String sensorId = message.getSensorId();
+        long sensorKey = message.getSensorKey();
+        if (sensorId == null && sensorKey == MessageContext.NO_SENSOR_KEY) {
+            String s = "The sensor id of a transport message should be present, discarding the message";
+            LOG.warn(s);
+            message.release();
+            if (metrics != null) {
+                metrics.markDiscarded();
             }
+            return true;
         }
+
+        if (localOrigin != null) {
+            Object origin = message.getProperty(TransportConstants.ORIGIN_PROPERTY);
+            // brokers may return the property in their own string types
+            if (origin != null && localOrigin.equals(origin.toString())) {
+                message.release();
+                return true;
+            }
+        }
+
+        if (decoder != null && !decoder.decode(message)) {
+            message.release();
+            if (metrics != null) {
+                metrics.markDiscarded();
+            }
+            return true;
+        }
+
+        Channel matchingChannel = null;
+        if (!singleChannel) {
+            if (sensorKey != MessageContext.NO_SENSOR_KEY) {
+                matchingChannel = keyedChannels.get(sensorKey);
+            }
+            // senders outside the sites only know the string id
+            if (matchingChannel == null && sensorId != null) {
+                matchingChannel = channels.get(sensorId);
+            }
+        } else {
+            matchingChannel = firstChannel;
+        }
+
+        if (matchingChannel == null && firstChannel == null) {
+            String s = "There must be at least one channel";
+            LOG.error(s);
+            throw new RuntimeException(s);
+        }
+
+        if (matchingChannel != null) {
+            BlockingQueue receiver = matchingChannel.getOutQueue();
+            if (receiver == null) {
+                String msg = "A receiving channel should specify a MessageReceiver";
+                LOG.error(msg);
+                throw new RuntimeException(msg);
+            }
+
+            if (message.getSensorId() == null) {
+                // the message came with only the numeric id
+                message.setSensorId(matchingChannel.getSensorID());
+            }
+            message = matchingChannel.intercept(message);
+            if (message == null) {
+                return true;
+            }
+            if (taken != LatencyStamps.NO_STAMP) {
+                LatencyStamps.recordRouted(matchingChannel.getMetrics(), message, taken);
+            }
+            if (!receiver.offer(message)) {
+                pending = matchingChannel;
+                pendingMessage = message;
+                return false;
+            }
+            delivered(matchingChannel);
+        } else {
+            message.release();
+            if (metrics != null) {
+                metrics.markDiscarded();
+            }
+        }
+        return true;
+    }
+
+    private void delivered(Channel channel) {
+        channel.getMetrics().markReceived();
+        if (metrics != null) {
+            metrics.markConsumed();
+        }
+    }
+
+    /**
+     * True if a message is waiting for space in the queue of its channel or messages of an envelope are
+     * not routed yet
+     * @return true if there is a pending message
+     */
+    public boolean hasPending() {
+        return pendingMessage != null || unpackedCount > 0;
     }
 
     public void stop() {
@@ -0,0 +1,93 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * The outcome of draining a transport
+ */
+public class DrainReport {
+    private long queued;
+
+    private long lost;
+
+    private long spooled;
+
+    private long elapsed;
+
+    private boolean timedOut;
+
+    public DrainReport() {
+    }
+
+    public DrainReport(long queued, long lost, long spooled, long elapsed, boolean timedOut) {
+        this.queued = queued;
+        this.lost = lost;
+        this.spooled = spooled;
+        this.elapsed = elapsed;
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * Add the report of another transport
+     * @param other the report
+     */
+    public void add(DrainReport other) {
+        queued += other.queued;
+        lost += other.lost;
+        spooled += other.spooled;
+        elapsed = Math.max(elapsed, other.elapsed);
+        timedOut |= other.timedOut;
+    }
+
+    /**
+     * Messages in the queues when the drain started
+     * @return number of messages
+     */
+    public long getQueued() {
+        return queued;
+    }
+
+    /**
+     * Messages handed to the brokers or the receiving channels during the drain
+     * @return number of messages
+     */
+    public long getFlushed() {
+        return Math.max(0, queued - lost);
+    }
+
+    /**
+     * Messages still in the queues when the transport was stopped
+     * @return number of messages
+     */
+    public long getLost() {
+        return lost;
+    }
+
+    /**
+     * Messages left in the spools, they are sent when the site starts again
+     * @return number of messages
+     */
+    public long getSpooled() {
+        return spooled;
+    }
+
+    /**
+     * Time the drain took in milliseconds
+     * @return the time
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * True if the queues did not drain before the timeout
+     * @return true if timed out
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public String toString() {
+        return "queued=" + queued + " flushed=" + getFlushed() + " lost=" + lost + " spooled=" + spooled
+                + " elapsed=" + elapsed + "ms" + (timedOut ? " timed out" : "");
+    }
+}
@@ -0,0 +1,20 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * Implemented by transports which can flush their queues before they stop, so a rolling restart does not
+ * lose the messages already published.
+ */
+public interface Drainable {
+    /**
+     * Stop accepting new messages. The publishing channels are closed and the consumers stop taking messages
+     * from the brokers, the messages already queued keep flowing.
+     */
+    void quiesce();
+
+    /**
+     * Quiesce the transport, wait for the queues to drain and stop it
+     * @param timeout maximum time in milliseconds to wait for the queues
+     * @return what happened to the queued messages
+     */
+    DrainReport drain(long timeout);
+}
@@ -0,0 +1,52 @@
+package cgl.iotcloud.core.transport;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Places a channel on the broker given by the consistent hash of its key. A sensor always goes to the same
+ * broker while that broker is healthy, the channels of an unhealthy broker go to the next brokers on the ring.
+ */
+public class HashBrokerSelector implements BrokerSelector {
+    private final ConsistentHashRing<BrokerHost> ring;
+
+    private final Map<BrokerHost, BrokerStats> stats;
+
+    public HashBrokerSelector(List<BrokerHost> hosts, Map<BrokerHost, BrokerStats> stats, int virtualNodes) {
+        this.ring = new ConsistentHashRing<BrokerHost>(hosts, virtualNodes);
+        this.stats = stats;
+    }
+
+    @Override
+    public BrokerHost select(String key) {
+        Set<BrokerHost> unhealthy = new HashSet<BrokerHost>();
+        for (BrokerStats s : stats.values()) {
+            if (!s.isHealthy()) {
+                unhealthy.add(s.getHost());
+            }
+        }
+        BrokerHost host = ring.get(key, unhealthy);
+        // if every broker is unhealthy use the hash anyway
+        return host != null ? host : ring.get(key);
+    }
+
+    @Override
+    public void addBroker(BrokerHost host) {
+        ring.add(host);
+    }
+
+    @Override
+    public void removeBroker(BrokerHost host) {
+        ring.remove(host);
+    }
+
+    /**
+     * A channel stays only on the broker its key hashes to, so adding a broker moves about 1/n of the channels
+     */
+    @Override
+    public boolean isPlaced(String key, BrokerHost host) {
+        return host.equals(select(key));
+    }
+}
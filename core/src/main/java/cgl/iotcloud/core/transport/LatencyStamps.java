@@ -0,0 +1,127 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.metrics.ChannelMetrics;
+import cgl.iotcloud.core.msg.MessageContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency stamps of the sampled messages. The publishing channel stamps the time a message is published, the
+ * sender the time it takes the message from the transport queue and the consuming worker the time it gives the
+ * message to the receiving channel. The hops are recorded in the metrics of the receiving channel:
+ * <ul>
+ *     <li>queue: published to sent, the wait in the channel queue and the stages in front of the sender</li>
+ *     <li>transit: sent to taken by the consuming worker, the broker and the consumer queue</li>
+ *     <li>dispatch: taken by the consuming worker to given to the channel</li>
+ *     <li>listener: given to the channel to taken by the receiver of the sensor</li>
+ * </ul>
+ * The stamps are nano seconds since the epoch, the hops between sites include the clock difference of the hosts.
+ */
+public final class LatencyStamps {
+    private static Logger LOG = LoggerFactory.getLogger(LatencyStamps.class);
+
+    /**
+     * A stamp which is not present
+     */
+    public static final long NO_STAMP = 0;
+
+    private static final long EPOCH_OFFSET = System.currentTimeMillis() * 1000000L - System.nanoTime();
+
+    private static final AtomicLong traceIds = new AtomicLong(new Random().nextLong());
+
+    private LatencyStamps() {
+    }
+
+    /**
+     * The current time with the resolution of System.nanoTime
+     * @return nano seconds since the epoch
+     */
+    public static long now() {
+        return EPOCH_OFFSET + System.nanoTime();
+    }
+
+    /**
+     * True if the message is sampled, reading the stamp does not decode the other properties
+     * @param message the message
+     * @return true if the message has the publish stamp
+     */
+    public static boolean isStamped(MessageContext message) {
+        return message.hasProperty(TransportConstants.PUBLISHED_HEADER);
+    }
+
+    /**
+     * Stamp a message as it is published
+     * @param message the message
+     * @param trace true if the message gets a trace id
+     */
+    public static void stampPublished(MessageContext message, boolean trace) {
+        message.setLongProperty(TransportConstants.PUBLISHED_HEADER, now());
+        if (trace) {
+            long id;
+            do {
+                id = traceIds.incrementAndGet();
+            } while (id == NO_STAMP);
+            message.setLongProperty(TransportConstants.TRACE_ID_HEADER, id);
+        }
+    }
+
+    /**
+     * Stamp the time a sender took a sampled message from the transport queue, other messages are not changed
+     * @param message the message
+     */
+    public static void stampSent(MessageContext message) {
+        if (isStamped(message)) {
+            message.setLongProperty(TransportConstants.SENT_HEADER, now());
+        }
+    }
+
+    /**
+     * Record the hops of a sampled message up to the receiving channel and stamp the time it is given to the
+     * channel
+     * @param metrics metrics of the receiving channel
+     * @param message the message
+     * @param taken the time the consuming worker took the message
+     */
+    static void recordRouted(ChannelMetrics metrics, MessageContext message, long taken) {
+        long published = message.getLongProperty(TransportConstants.PUBLISHED_HEADER, NO_STAMP);
+        long sent = message.getLongProperty(TransportConstants.SENT_HEADER, NO_STAMP);
+        // messages delivered in the process do not go through a sender
+        if (sent != NO_STAMP) {
+            metrics.recordQueueLatency(sent - published);
+            metrics.recordTransitLatency(taken - sent);
+        }
+        long routed = now();
+        metrics.recordDispatchLatency(routed - taken);
+        message.setLongProperty(TransportConstants.ROUTED_HEADER, routed);
+    }
+
+    /**
+     * Record the wait of a sampled message for the receiver of the sensor and the end to end latency, called
+     * before the message is given to the receiver
+     * @param metrics metrics of the receiving channel
+     * @param message the message, messages without the stamps are ignored
+     */
+    public static void recordReceived(ChannelMetrics metrics, MessageContext message) {
+        long published = message.getLongProperty(TransportConstants.PUBLISHED_HEADER, NO_STAMP);
+        if (published == NO_STAMP) {
+            return;
+        }
+        long received = now();
+        long routed = message.getLongProperty(TransportConstants.ROUTED_HEADER, NO_STAMP);
+        if (routed != NO_STAMP) {
+            metrics.recordListenerLatency(received - routed);
+        }
+        metrics.recordEndToEndLatency(received - published);
+
+        long traceId = message.getLongProperty(TransportConstants.TRACE_ID_HEADER, NO_STAMP);
+        if (traceId != NO_STAMP && LOG.isDebugEnabled()) {
+            long sent = message.getLongProperty(TransportConstants.SENT_HEADER, NO_STAMP);
+            LOG.debug("Trace {} of sensor {} published {} sent {} routed {} received {}, end to end {} us",
+                    Long.toHexString(traceId), message.getSensorId(), published, sent, routed, received,
+                    (received - published) / 1000);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package cgl.iotcloud.core.transport;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Places a channel on the least loaded healthy broker. Brokers in the zone of the site are preferred
+ * when one of them is healthy.
+ */
+public class LoadBrokerSelector implements BrokerSelector {
+    private final List<BrokerHost> hosts;
+
+    private final Map<BrokerHost, BrokerStats> stats;
+
+    /**
+     * Zone of the site, can be null
+     */
+    private final String zone;
+
+    public LoadBrokerSelector(List<BrokerHost> hosts, Map<BrokerHost, BrokerStats> stats, String zone) {
+        this.hosts = new CopyOnWriteArrayList<BrokerHost>(hosts);
+        this.stats = stats;
+        this.zone = zone;
+    }
+
+    @Override
+    public BrokerHost select(String key) {
+        BrokerHost best = null;
+        double bestScore = Double.MAX_VALUE;
+        // 0: healthy in the zone, 1: healthy, 2: unhealthy
+        int bestRank = Integer.MAX_VALUE;
+        for (BrokerHost host : hosts) {
+            BrokerStats s = stats.get(host);
+            int rank;
+            if (s != null && !s.isHealthy()) {
+                rank = 2;
+            } else if (zone != null && zone.equals(host.getZone())) {
+                rank = 0;
+            } else {
+                rank = 1;
+            }
+            double score = s != null ? s.getLoadScore() : 0;
+            if (rank < bestRank || (rank == bestRank && score < bestScore)) {
+                best = host;
+                bestRank = rank;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void addBroker(BrokerHost host) {
+        hosts.add(host);
+    }
+
+    @Override
+    public void removeBroker(BrokerHost host) {
+        hosts.remove(host);
+    }
+
+    /**
+     * Existing channels are not moved to balance the load, new channels fill up an added broker.
+     * Only the channels of a removed broker are moved.
+     */
+    @Override
+    public boolean isPlaced(String key, BrokerHost host) {
+        return hosts.contains(host);
+    }
+}
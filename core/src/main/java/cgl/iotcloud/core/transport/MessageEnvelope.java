@@ -0,0 +1,256 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.msg.MessageBuffer;
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.msg.MessageProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs many small messages in to one message so they are sent to the broker together. Every frame of the
+ * envelope keeps its sensor id, properties and body. Property values which are not strings, numbers or
+ * booleans are sent as strings.
+ */
+public class MessageEnvelope {
+    /**
+     * Version of the frame format, written at the start of every envelope and spooled message
+     */
+    public static final byte VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_BOOLEAN = 6;
+    private static final byte TYPE_SHORT = 7;
+    private static final byte TYPE_BYTE = 8;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Pack the messages in to an envelope. The messages are released.
+     * @param frames the messages, at least one
+     * @param size total size of the bodies, used to size the envelope
+     * @return the envelope, its sensor id is the one of the first frame
+     */
+    public static MessageContext pack(List<MessageContext> frames, int size) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size + frames.size() * 32 + 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        long published = LatencyStamps.NO_STAMP;
+        try {
+            out.writeByte(VERSION);
+            out.writeInt(frames.size());
+            for (MessageContext frame : frames) {
+                writeFrame(out, frame);
+                if (published == LatencyStamps.NO_STAMP) {
+                    published = frame.getLongProperty(TransportConstants.PUBLISHED_HEADER, LatencyStamps.NO_STAMP);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new RuntimeException("Failed to pack the messages", e);
+        } finally {
+            for (MessageContext frame : frames) {
+                frame.release();
+            }
+        }
+
+        MessageProperties properties = new MessageProperties();
+        properties.put(TransportConstants.ENVELOPE_HEADER, Integer.toString(frames.size()));
+        if (published != LatencyStamps.NO_STAMP) {
+            // the sender stamps the envelope, the stamp is given to the sampled frames when it is unpacked
+            properties.putLong(TransportConstants.PUBLISHED_HEADER, published);
+        }
+        MessageContext first = frames.get(0);
+        MessageContext envelope = new MessageContext(first.getSensorKey(), bytes.toByteArray(), properties);
+        envelope.setSensorId(first.getSensorId());
+        return envelope;
+    }
+
+    /**
+     * True if the message is an envelope
+     * @param message the message
+     * @return true if the message has the envelope property
+     */
+    public static boolean isEnvelope(MessageContext message) {
+        return message.hasProperty(TransportConstants.ENVELOPE_HEADER);
+    }
+
+    /**
+     * Unpack the messages of an envelope. The envelope is released.
+     * @param envelope the envelope
+     * @param frames the messages are added to this list
+     * @throws IllegalArgumentException if the envelope is not valid
+     */
+    public static void unpack(MessageContext envelope, List<MessageContext> frames) {
+        byte[] body = envelope.getBody();
+        envelope.release();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        List<MessageContext> unpacked = new ArrayList<MessageContext>();
+        try {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown envelope version " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                unpacked.add(readFrame(in));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The envelope is truncated", e);
+        }
+        frames.addAll(unpacked);
+    }
+
+    /**
+     * Write the sensor id, properties and body of a message. The string id is only written when the message
+     * has no numeric id
+     * @param out the stream
+     * @param message the message, it is not released
+     * @throws IOException if the stream fails
+     */
+    public static void writeFrame(DataOutputStream out, MessageContext message) throws IOException {
+        long sensorKey = message.getSensorKey();
+        out.writeLong(sensorKey);
+        if (sensorKey == MessageContext.NO_SENSOR_KEY) {
+            writeString(out, message.getSensorId() != null ? message.getSensorId() : "");
+        }
+        if (message.hasProperties()) {
+            Map<String, Object> properties = message.getProperties();
+            out.writeInt(properties.size());
+            for (Map.Entry<String, Object> e : properties.entrySet()) {
+                writeString(out, e.getKey());
+                writeValue(out, e.getValue());
+            }
+        } else {
+            out.writeInt(0);
+        }
+        MessageBuffer buffer = message.getBuffer();
+        if (buffer != null && buffer.hasArray()) {
+            out.writeInt(buffer.length());
+            out.write(buffer.array(), buffer.arrayOffset(), buffer.length());
+        } else {
+            byte[] body = message.getBody();
+            out.writeInt(body.length);
+            out.write(body);
+        }
+    }
+
+    /**
+     * Read a message written by {@link #writeFrame(DataOutputStream, MessageContext)}
+     * @param in the stream, reading from memory
+     * @return the message
+     * @throws IOException if the stream is truncated
+     */
+    public static MessageContext readFrame(DataInputStream in) throws IOException {
+        long sensorKey = in.readLong();
+        String sensorId = null;
+        if (sensorKey == MessageContext.NO_SENSOR_KEY) {
+            sensorId = readString(in);
+            if (sensorId.length() == 0) {
+                sensorId = null;
+            }
+        }
+        int propertyCount = in.readInt();
+        MessageProperties properties = propertyCount > 0 ? new MessageProperties() : null;
+        for (int j = 0; j < propertyCount; j++) {
+            String key = readString(in);
+            properties.put(key, readValue(in));
+        }
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IllegalArgumentException("Invalid frame length " + length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        MessageContext message = new MessageContext(sensorKey, body, properties);
+        message.setSensorId(sensorId);
+        return message;
+    }
+
+    /**
+     * Write a string as its length and UTF-8 bytes, unlike writeUTF strings longer than 64KB are allowed
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        } else {
+            out.writeByte(TYPE_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_INT:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_FLOAT:
+                return in.readFloat();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_SHORT:
+                return in.readShort();
+            case TYPE_BYTE:
+                return in.readByte();
+            default:
+                throw new IllegalArgumentException("Unknown property type " + type);
+        }
+    }
+}
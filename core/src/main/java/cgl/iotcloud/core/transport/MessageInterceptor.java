@@ -0,0 +1,20 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.msg.MessageContext;
+
+/**
+ * A step run on every message of a channel. On a publishing channel the interceptors run before the message
+ * is compressed and put in to the transport queue, on a receiving channel before the message is given to
+ * the sensor. The interceptors of a channel run in the order they are added, from the thread publishing
+ * or consuming the message, so they must be fast and thread safe.
+ */
+public interface MessageInterceptor {
+    /**
+     * Filter, transform or tag a message
+     * @param channel the channel of the message
+     * @param message the message
+     * @return the message to continue with, or null to drop the message. The channel releases a dropped
+     * message. An interceptor returning a different message must release the original if it is done with it
+     */
+    MessageContext intercept(Channel channel, MessageContext message);
+}
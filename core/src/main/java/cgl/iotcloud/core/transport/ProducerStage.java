@@ -0,0 +1,20 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+
+/**
+ * A task between the publishing channels and the producer of a broker. A stage takes the messages from its
+ * own queue and passes them on to the queue of the next stage or the producer.
+ */
+public interface ProducerStage extends IOTask {
+    /**
+     * True if the stage holds messages which are not passed on yet
+     * @return true if there are pending messages
+     */
+    boolean hasPending();
+
+    /**
+     * Stop the stage, it cleans up on its next step
+     */
+    void stop();
+}
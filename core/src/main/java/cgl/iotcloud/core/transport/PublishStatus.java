@@ -0,0 +1,43 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * The outcome of publishing a message to a channel.
+ */
+public enum PublishStatus {
+    /**
+     * The message is in the transport queue
+     */
+    ACCEPTED,
+    /**
+     * The message is in the transport queue after the oldest messages were dropped to make space
+     */
+    ACCEPTED_DROPPED_OLDEST,
+    /**
+     * The queue was full and the message was dropped
+     */
+    DROPPED,
+    /**
+     * The queue stayed full for the configured timeout and the message was dropped
+     */
+    TIMED_OUT,
+    /**
+     * An interceptor of the channel dropped the message
+     */
+    FILTERED,
+    /**
+     * The message was above the rate limit of the channel and was dropped
+     */
+    THROTTLED,
+    /**
+     * The channel is closed and the message was dropped
+     */
+    CLOSED,
+    /**
+     * The publisher was interrupted while waiting and the message was dropped
+     */
+    INTERRUPTED;
+
+    public boolean isAccepted() {
+        return this == ACCEPTED || this == ACCEPTED_DROPPED_OLDEST;
+    }
+}
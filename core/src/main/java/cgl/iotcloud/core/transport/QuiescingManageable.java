@@ -0,0 +1,18 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * A producer or consumer which takes part in the drain of a transport. A drained transport first quiesces
+ * its consumers, waits until the messages already taken are handled and then stops everything.
+ */
+public interface QuiescingManageable extends Manageable {
+    /**
+     * Stop taking new messages from the broker. A producer keeps sending the messages in its queue.
+     */
+    void quiesce();
+
+    /**
+     * True if messages taken from the queue or the broker are not handed on yet
+     * @return true if there are pending messages
+     */
+    boolean hasPending();
+}
@@ -0,0 +1,46 @@
+package cgl.iotcloud.core.transport;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The rate limit of a channel, a limiter and what to do with the messages above it. The limiter can be
+ * shared by the channels of a sensor.
+ */
+public class RateLimit {
+    public static final double DEFAULT_BURST = 1.0;
+
+    public static final int DEFAULT_SAMPLE = 10;
+
+    private final RateLimiter limiter;
+
+    private final ThrottlePolicy policy;
+
+    private final int sample;
+
+    private final AtomicLong throttled = new AtomicLong(0);
+
+    public RateLimit(RateLimiter limiter, ThrottlePolicy policy, int sample) {
+        if (limiter == null || policy == null) {
+            throw new IllegalArgumentException("The limiter and the policy should be present");
+        }
+        this.limiter = limiter;
+        this.policy = policy;
+        this.sample = Math.max(sample, 1);
+    }
+
+    public RateLimiter getLimiter() {
+        return limiter;
+    }
+
+    public ThrottlePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Count a throttled message with the sample policy
+     * @return true if the message should go through as a sample
+     */
+    boolean sample() {
+        return throttled.incrementAndGet() % sample == 0;
+    }
+}
@@ -0,0 +1,103 @@
+package cgl.iotcloud.core.transport;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the messages per second and the bytes per second of one or more channels. Each limit is a token
+ * bucket kept as the theoretical arrival time of the next message (GCRA), updated with a compare and set so
+ * publishers never take a lock. A full bucket allows a burst of the configured number of seconds of traffic.
+ */
+public class RateLimiter {
+    private final Bucket messages;
+
+    private final Bucket bytes;
+
+    /**
+     * @param messageRate messages per second, 0 for no limit
+     * @param byteRate bytes per second, 0 for no limit
+     * @param burst seconds of traffic a full bucket allows at once
+     */
+    public RateLimiter(double messageRate, double byteRate, double burst) {
+        if (burst <= 0) {
+            throw new IllegalArgumentException("The burst should be positive: " + burst);
+        }
+        this.messages = messageRate > 0 ? new Bucket(messageRate, burst) : null;
+        this.bytes = byteRate > 0 ? new Bucket(byteRate, burst) : null;
+    }
+
+    /**
+     * Take the tokens for a message
+     * @param size size of the message in bytes
+     * @return 0 if the message is allowed, otherwise nanoseconds until it would be allowed
+     */
+    public long tryAcquire(int size) {
+        long now = System.nanoTime();
+        if (messages != null) {
+            long wait = messages.tryAcquire(1, now);
+            if (wait > 0) {
+                return wait;
+            }
+        }
+        if (bytes != null) {
+            long wait = bytes.tryAcquire(size, now);
+            if (wait > 0) {
+                if (messages != null) {
+                    messages.refund(1);
+                }
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    public double getMessageRate() {
+        return messages != null ? messages.rate : 0;
+    }
+
+    public double getByteRate() {
+        return bytes != null ? bytes.rate : 0;
+    }
+
+    private static final class Bucket {
+        private final double rate;
+
+        /**
+         * Nanoseconds one token is worth
+         */
+        private final double interval;
+
+        /**
+         * How far the arrival time can run ahead of now, the size of the bucket in nanoseconds
+         */
+        private final long tolerance;
+
+        private final AtomicLong arrival = new AtomicLong(System.nanoTime());
+
+        private Bucket(double rate, double burst) {
+            this.rate = rate;
+            this.interval = 1000000000.0 / rate;
+            this.tolerance = (long) (burst * 1000000000.0);
+        }
+
+        private long tryAcquire(int tokens, long now) {
+            long cost = (long) (tokens * interval);
+            while (true) {
+                long current = arrival.get();
+                long base = current - now > 0 ? current : now;
+                long next = base + cost;
+                long over = next - now - tolerance;
+                // a message bigger than the bucket goes through when the bucket is full
+                if (over > 0 && base != now) {
+                    return over;
+                }
+                if (arrival.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        private void refund(int tokens) {
+            arrival.addAndGet(-(long) (tokens * interval));
+        }
+    }
+}
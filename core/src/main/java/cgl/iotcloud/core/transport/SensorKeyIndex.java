@@ -0,0 +1,167 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.msg.MessageContext;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An open addressing map from the numeric sensor ids to values. Lookups never lock. Changes are made in place
+ * by one writer at a time, the caller holds a lock for them, so adding a key costs O(1) amortized. A removed
+ * key keeps its slot until the table is rebuilt, the rebuilt table is published through a volatile field.
+ * @param <V> type of the values
+ */
+final class SensorKeyIndex<V> {
+    private static final int MIN_CAPACITY = 8;
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+
+    /**
+     * Number of keys mapped to a value, guarded by the writer lock
+     */
+    private int size;
+
+    /**
+     * Number of slots with a key, including the removed keys, guarded by the writer lock
+     */
+    private int used;
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        if (key == MessageContext.NO_SENSOR_KEY) {
+            return null;
+        }
+        Table t = table;
+        int i = slot(key, t.mask);
+        long k;
+        while ((k = t.keys.get(i)) != MessageContext.NO_SENSOR_KEY) {
+            if (k == key) {
+                // null if the key was removed
+                return (V) t.values.get(i);
+            }
+            i = (i + 1) & t.mask;
+        }
+        return null;
+    }
+
+    /**
+     * Map the key to the value. The caller must hold the writer lock.
+     * @param key the numeric sensor id, not {@link MessageContext#NO_SENSOR_KEY}
+     * @param value the value
+     */
+    void put(long key, V value) {
+        if (key == MessageContext.NO_SENSOR_KEY) {
+            throw new IllegalArgumentException("The sensor key should be set");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("The value should be set");
+        }
+        Table t = table;
+        int i = find(t, key);
+        if (t.keys.get(i) == key) {
+            if (t.values.get(i) == null) {
+                size++;
+            }
+            t.values.set(i, value);
+            return;
+        }
+
+        if ((used + 1) * 2 > t.capacity()) {
+            // rebuild without the removed keys, the readers keep using the old table until it is published
+            t = rebuild(size + 1);
+            i = find(t, key);
+            insert(t, i, key, value);
+            table = t;
+        } else {
+            insert(t, i, key, value);
+        }
+        used++;
+        size++;
+    }
+
+    /**
+     * Remove the key if it is mapped to the value. The caller must hold the writer lock.
+     * @param key the numeric sensor id
+     * @param value the value
+     * @return true if the key was removed
+     */
+    boolean remove(long key, V value) {
+        if (key == MessageContext.NO_SENSOR_KEY) {
+            return false;
+        }
+        Table t = table;
+        int i = find(t, key);
+        Object current = t.values.get(i);
+        if (t.keys.get(i) != key || current == null || !current.equals(value)) {
+            return false;
+        }
+        t.values.set(i, null);
+        size--;
+        return true;
+    }
+
+    /**
+     * The slot of the key or the empty slot where it goes
+     */
+    private static int find(Table t, long key) {
+        int i = slot(key, t.mask);
+        long k;
+        while ((k = t.keys.get(i)) != MessageContext.NO_SENSOR_KEY && k != key) {
+            i = (i + 1) & t.mask;
+        }
+        return i;
+    }
+
+    private static void insert(Table t, int i, long key, Object value) {
+        // the value goes first so a reader finding the key sees its value
+        t.values.set(i, value);
+        t.keys.set(i, key);
+    }
+
+    private Table rebuild(int newSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < newSize * 2) {
+            capacity <<= 1;
+        }
+        Table old = table;
+        Table t = new Table(capacity);
+        int count = 0;
+        for (int i = 0; i < old.capacity(); i++) {
+            long key = old.keys.get(i);
+            Object value = old.values.get(i);
+            if (key != MessageContext.NO_SENSOR_KEY && value != null) {
+                insert(t, find(t, key), key, value);
+                count++;
+            }
+        }
+        used = count;
+        return t;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static final class Table {
+        final AtomicLongArray keys;
+
+        final AtomicReferenceArray<Object> values;
+
+        final int mask;
+
+        Table(int capacity) {
+            keys = new AtomicLongArray(capacity);
+            values = new AtomicReferenceArray<Object>(capacity);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package cgl.iotcloud.core.transport;
+
+/**
+ * What a channel does with a message published above its rate limit.
+ */
+public enum ThrottlePolicy {
+    /**
+     * Wait until the rate limit allows the message
+     */
+    DELAY("delay"),
+    /**
+     * Drop the message
+     */
+    DROP("drop"),
+    /**
+     * Drop the message but let one in every configured number of throttled messages through, so the
+     * consumers still see a thinned stream
+     */
+    SAMPLE("sample");
+
+    private final String configName;
+
+    ThrottlePolicy(String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Get the policy from its configuration name. The default is drop.
+     * @param name name of the policy, can be null
+     * @return the policy
+     */
+    public static ThrottlePolicy forName(String name) {
+        if (name == null || name.length() == 0) {
+            return DROP;
+        }
+        for (ThrottlePolicy policy : values()) {
+            if (policy.configName.equalsIgnoreCase(name) || policy.name().equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown throttle policy: " + name);
+    }
+}
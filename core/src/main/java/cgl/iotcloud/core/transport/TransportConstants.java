@@ -7,9 +7,136 @@ public interface TransportConstants {
     public static final String CORE_PROPERTY = "core";
     public static final String MAX_PROPERTY = "max";
 
+    // the queues used by the channel groups
+    public static final String QUEUE_PROPERTY = "queues";
+    public static final String QUEUE_TYPE_PROPERTY = "type";
+    public static final String QUEUE_SIZE_PROPERTY = "size";
+    public static final String QUEUE_WAIT_PROPERTY = "wait";
+
+    public static final String QUEUE_TYPE_ARRAY = "array";
+    public static final String QUEUE_TYPE_RING = "ring";
+    public static final int QUEUE_DEFAULT_SIZE = 1024;
+    // priority lanes, lane 0 has the highest priority and the messages without a priority go to the last lane
+    public static final String QUEUE_LANES_PROPERTY = "lanes";
+    // strict (default) or weighted
+    public static final String QUEUE_LANE_DEQUEUE_PROPERTY = "laneDequeue";
+    public static final String QUEUE_LANE_WEIGHTS_PROPERTY = "laneWeights";
+    public static final String LANE_DEQUEUE_STRICT = "strict";
+    public static final String LANE_DEQUEUE_WEIGHTED = "weighted";
+
+    // channel properties for the batch senders
+    public static final String BATCH_SIZE_PROPERTY = "batchSize";
+    public static final String BATCH_WAIT_PROPERTY = "batchWait";
+
+    // channel properties for the back pressure policy
+    public static final String BACK_PRESSURE_PROPERTY = "backPressure";
+    public static final String BACK_PRESSURE_TIMEOUT_PROPERTY = "backPressureTimeout";
+    public static final long BACK_PRESSURE_DEFAULT_TIMEOUT = 1000;
+
+    // pooled message buffers
+    public static final String BUFFER_PROPERTY = "buffers";
+    public static final String BUFFER_POOLED_PROPERTY = "pooled";
+    public static final String BUFFER_DIRECT_PROPERTY = "direct";
+    public static final String BUFFER_DEBUG_PROPERTY = "debug";
+    public static final String BUFFER_MAX_CHUNK_PROPERTY = "maxChunk";
+    public static final String BUFFER_MAX_MEMORY_PROPERTY = "maxMemory";
+
+    // number of points of each broker on the consistent hash ring
+    public static final String VIRTUAL_NODES_PROPERTY = "virtualNodes";
+
+    // placement of the channels on the brokers
+    public static final String BROKER_SELECTION_PROPERTY = "brokerSelection";
+    public static final String BROKER_SELECTION_HASH = "hash";
+    public static final String BROKER_SELECTION_LOAD = "load";
+    public static final String PROBE_INTERVAL_PROPERTY = "probeInterval";
+    // zone of the site, brokers in the same zone are preferred
+    public static final String ZONE_PROPERTY = "zone";
+    // a broker can be given as a map with the url and the zone
+    public static final String BROKER_URL_PROPERTY = "url";
+    public static final String BROKER_ZONE_PROPERTY = "zone";
+
+    // channel property with the class names of the interceptors, run in the given order
+    public static final String INTERCEPTORS_PROPERTY = "interceptors";
+
+    // channel properties for the rate limits, the rates are per second and 0 means no limit
+    public static final String MESSAGE_RATE_PROPERTY = "messageRate";
+    public static final String BYTE_RATE_PROPERTY = "byteRate";
+    // seconds of traffic allowed at once
+    public static final String RATE_BURST_PROPERTY = "rateBurst";
+    // channel (default) or sensor, a sensor limit is shared by the channels of the sensor in the transport
+    public static final String RATE_SCOPE_PROPERTY = "rateScope";
+    public static final String RATE_SCOPE_CHANNEL = "channel";
+    public static final String RATE_SCOPE_SENSOR = "sensor";
+    // delay, drop (default) or sample
+    public static final String THROTTLE_POLICY_PROPERTY = "throttlePolicy";
+    public static final String THROTTLE_SAMPLE_PROPERTY = "throttleSample";
+
+    // channel properties for the payload compression
+    public static final String CODEC_PROPERTY = "codec";
+    public static final String CODEC_MIN_SIZE_PROPERTY = "codecMinSize";
+    public static final String CODEC_ADAPTIVE_PROPERTY = "codecAdaptive";
+    public static final String CODEC_DICTIONARY_PROPERTY = "codecDictionary";
+    // largest body a receiving channel decompresses, longer claimed lengths are discarded
+    public static final String CODEC_MAX_DECODED_SIZE_PROPERTY = "codecMaxDecodedSize";
+
+    public static final String CODEC_NONE = "none";
+    public static final String CODEC_DEFLATE = "deflate";
+    public static final String CODEC_LZ4 = "lz4";
+    public static final String CODEC_DICTIONARY = "dictionary";
+    public static final int CODEC_DEFAULT_MIN_SIZE = 128;
+    public static final int CODEC_DEFAULT_MAX_DECODED_SIZE = 64 * 1024 * 1024;
+    // message property with the codec of the body
+    public static final String CODEC_HEADER = "iotCodec";
+
+    // channel properties for packing many small messages in to one broker message, on when coalesceMessages > 1
+    public static final String COALESCE_MESSAGES_PROPERTY = "coalesceMessages";
+    public static final String COALESCE_BYTES_PROPERTY = "coalesceBytes";
+    // milliseconds a message waits for the envelope to fill
+    public static final String COALESCE_LINGER_PROPERTY = "coalesceLinger";
+    public static final int COALESCE_DEFAULT_BYTES = 64 * 1024;
+    public static final long COALESCE_DEFAULT_LINGER = 5;
+    // message property marking an envelope, the value is the number of messages in it
+    public static final String ENVELOPE_HEADER = "iotEnvelope";
+
+    // store and forward spool of the transport, dir, segmentSize, maxSize and retention (ms) of the files
+    public static final String SPOOL_PROPERTY = "spool";
+    public static final String SPOOL_DIR_PROPERTY = "dir";
+    public static final String SPOOL_SEGMENT_SIZE_PROPERTY = "segmentSize";
+    public static final String SPOOL_MAX_SIZE_PROPERTY = "maxSize";
+    public static final String SPOOL_RETENTION_PROPERTY = "retention";
+    public static final String SPOOL_CHECKPOINT_PROPERTY = "checkpointInterval";
+    // channel property turning on the spool for the group of the channel
+    public static final String CHANNEL_SPOOL_PROPERTY = "spool";
+
+    // channel property with the priority lane of the messages of the channel
+    public static final String PRIORITY_PROPERTY = "priority";
+    // message property with the priority lane, set by the publisher or by the channel
+    public static final String PRIORITY_HEADER = "iotPriority";
+
+    // channel property, one in this many published messages is stamped for the latency metrics, 0 turns it off
+    public static final String LATENCY_SAMPLE_PROPERTY = "latencySample";
+    // channel property giving the sampled messages a trace id, their hop latencies are logged at debug level
+    public static final String LATENCY_TRACE_PROPERTY = "latencyTrace";
+    // message properties of the sampled messages, the times they were published, taken from the transport queue by
+    // the sender and given to the receiving channel in nano seconds since the epoch
+    public static final String PUBLISHED_HEADER = "iotPublished";
+    public static final String SENT_HEADER = "iotSent";
+    public static final String ROUTED_HEADER = "iotRouted";
+    public static final String TRACE_ID_HEADER = "iotTraceId";
+
+    // deliver the messages to the subscribers in the same process without the round trip through the broker
+    public static final String LOCAL_DELIVERY_PROPERTY = "localDelivery";
+    // message property with the site which delivered the message locally
+    public static final String ORIGIN_PROPERTY = "iotOrigin";
+
     // this property is used by some transports like rabbitmq to send the sensorID
     public static final String SENSOR_ID = "sensorID";
 
+    /**
+     * The numeric sensor id, sent instead of the string id when the sensor has one
+     */
+    public static final String SENSOR_KEY = "sensorKey";
+
     public static final String TRANSPORT_RABBITMQ = "rabbitmq";
     public static final String TRANSPORT_KAFKA = "kafka";
 }
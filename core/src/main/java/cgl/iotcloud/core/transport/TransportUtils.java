@@ -0,0 +1,121 @@
+package cgl.iotcloud.core.transport;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility functions shared by the transports
+ */
+public class TransportUtils {
+    /**
+     * Drain a batch of elements from the queue. Blocks until at least one element is available and then
+     * waits at most maxWait for the batch to fill up to maxElements.
+     *
+     * @param queue the queue to drain
+     * @param buffer the elements are added to this collection
+     * @param maxElements maximum number of elements to drain
+     * @param maxWait maximum time to wait after the first element
+     * @param unit unit of the maxWait
+     * @return number of elements added to the buffer
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static <E> int drain(BlockingQueue<E> queue, Collection<? super E> buffer,
+                                int maxElements, long maxWait, TimeUnit unit) throws InterruptedException {
+        buffer.add(queue.take());
+        int added = 1;
+        if (added >= maxElements) {
+            return added;
+        }
+
+        added += queue.drainTo(buffer, maxElements - added);
+        long deadline = System.nanoTime() + unit.toNanos(maxWait);
+        while (added < maxElements) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            E e = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (e == null) {
+                break;
+            }
+            buffer.add(e);
+            added++;
+            added += queue.drainTo(buffer, maxElements - added);
+        }
+        return added;
+    }
+
+    /**
+     * Read an integer property which can be given as a number or a string
+     * @param conf configuration
+     * @param name name of the property
+     * @param defaultValue value to use if the property is not present
+     * @return the value
+     */
+    public static int getInt(Map conf, String name, int defaultValue) {
+        Object o = conf != null ? conf.get(name) : null;
+        if (o == null) {
+            return defaultValue;
+        } else if (o instanceof Number) {
+            return ((Number) o).intValue();
+        } else {
+            return Integer.parseInt(o.toString());
+        }
+    }
+
+    /**
+     * Read a long property which can be given as a number or a string
+     * @param conf configuration
+     * @param name name of the property
+     * @param defaultValue value to use if the property is not present
+     * @return the value
+     */
+    public static long getLong(Map conf, String name, long defaultValue) {
+        Object o = conf != null ? conf.get(name) : null;
+        if (o == null) {
+            return defaultValue;
+        } else if (o instanceof Number) {
+            return ((Number) o).longValue();
+        } else {
+            return Long.parseLong(o.toString());
+        }
+    }
+
+    /**
+     * Read a double property which can be given as a number or a string
+     * @param conf configuration
+     * @param name name of the property
+     * @param defaultValue value to use if the property is not present
+     * @return the value
+     */
+    public static double getDouble(Map conf, String name, double defaultValue) {
+        Object o = conf != null ? conf.get(name) : null;
+        if (o == null) {
+            return defaultValue;
+        } else if (o instanceof Number) {
+            return ((Number) o).doubleValue();
+        } else {
+            return Double.parseDouble(o.toString());
+        }
+    }
+
+    /**
+     * Read a boolean property which can be given as a boolean or a string
+     * @param conf configuration
+     * @param name name of the property
+     * @param defaultValue value to use if the property is not present
+     * @return the value
+     */
+    public static boolean getBoolean(Map conf, String name, boolean defaultValue) {
+        Object o = conf != null ? conf.get(name) : null;
+        if (o == null) {
+            return defaultValue;
+        } else if (o instanceof Boolean) {
+            return (Boolean) o;
+        } else {
+            return Boolean.parseBoolean(o.toString());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package cgl.iotcloud.core.transport.codec;
+
+import cgl.iotcloud.core.msg.MessageBuffer;
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.TransportConstants;
+
+/**
+ * Compresses the messages of a publishing channel and names the codec in the message header. In adaptive
+ * mode small messages are sent as they are, and a message which does not get smaller is sent as it is and
+ * the next few messages are not tried.
+ */
+public class ChannelEncoder {
+    /**
+     * Messages not tried after an incompressible message
+     */
+    public static final int INCOMPRESSIBLE_BACKOFF = 16;
+
+    private final PayloadCodec codec;
+
+    private final int minSize;
+
+    private final boolean adaptive;
+
+    /**
+     * Messages to send without trying the codec, updated without synchronization as it is only a hint
+     */
+    private int skip = 0;
+
+    public ChannelEncoder(PayloadCodec codec, int minSize, boolean adaptive) {
+        this.codec = codec;
+        this.minSize = minSize;
+        this.adaptive = adaptive;
+    }
+
+    public PayloadCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Compress the body of a message in place. A pooled buffer holding the body is released.
+     * @param message the message
+     */
+    public void encode(MessageContext message) {
+        MessageBuffer buffer = message.getBuffer();
+        byte[] src;
+        int offset;
+        int length;
+        if (buffer != null && buffer.hasArray()) {
+            src = buffer.array();
+            offset = buffer.arrayOffset();
+            length = buffer.length();
+        } else {
+            src = message.getBody();
+            offset = 0;
+            length = src.length;
+        }
+
+        if (length == 0) {
+            return;
+        }
+        if (adaptive) {
+            if (length < minSize) {
+                return;
+            }
+            if (skip > 0) {
+                skip--;
+                return;
+            }
+        }
+
+        byte[] encoded = codec.encode(src, offset, length);
+        // worth it only if at least an eighth is saved
+        if (adaptive && encoded.length > length - (length >>> 3)) {
+            skip = INCOMPRESSIBLE_BACKOFF;
+            return;
+        }
+        message.setBody(encoded);
+        message.setProperty(TransportConstants.CODEC_HEADER, codec.getName());
+    }
+}
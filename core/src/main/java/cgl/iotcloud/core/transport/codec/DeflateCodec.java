@@ -0,0 +1,115 @@
+package cgl.iotcloud.core.transport.codec;
+
+import cgl.iotcloud.core.transport.TransportConstants;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression at the fastest level. The encoded data starts with the original length. Every thread
+ * keeps its own deflater and inflater.
+ */
+public class DeflateCodec implements PayloadCodec {
+    /**
+     * The most deflate can compress, a longer block of zeros is still encoded in about 1032 times fewer bytes
+     */
+    private static final int MAX_RATIO = 1032;
+
+    private final int maxDecodedSize;
+
+    private final ThreadLocal<Deflater> deflater = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+
+    private final ThreadLocal<Inflater> inflater = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    public DeflateCodec() {
+        this(TransportConstants.CODEC_DEFAULT_MAX_DECODED_SIZE);
+    }
+
+    /**
+     * @param maxDecodedSize largest data decoded, a longer original length is rejected
+     */
+    public DeflateCodec(int maxDecodedSize) {
+        this.maxDecodedSize = maxDecodedSize;
+    }
+
+    @Override
+    public String getName() {
+        return TransportConstants.CODEC_DEFLATE;
+    }
+
+    @Override
+    public byte[] encode(byte[] src, int offset, int length) {
+        Deflater d = deflater.get();
+        d.reset();
+        setDictionary(d);
+        d.setInput(src, offset, length);
+        d.finish();
+
+        byte[] out = new byte[PayloadCodecs.HEADER_SIZE + length + 64];
+        PayloadCodecs.writeLength(out, length);
+        int pos = PayloadCodecs.HEADER_SIZE;
+        while (!d.finished()) {
+            if (pos == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            pos += d.deflate(out, pos, out.length - pos);
+        }
+        return Arrays.copyOf(out, pos);
+    }
+
+    @Override
+    public byte[] decode(byte[] src, int offset, int length) {
+        int originalLength = PayloadCodecs.readLength(src, offset, length, MAX_RATIO, maxDecodedSize);
+        Inflater i = inflater.get();
+        i.reset();
+        i.setInput(src, offset + PayloadCodecs.HEADER_SIZE, length - PayloadCodecs.HEADER_SIZE);
+
+        byte[] out = new byte[originalLength];
+        int pos = 0;
+        try {
+            while (pos < originalLength) {
+                int n = i.inflate(out, pos, originalLength - pos);
+                if (n == 0) {
+                    if (i.needsDictionary()) {
+                        setDictionary(i);
+                    } else {
+                        break;
+                    }
+                }
+                pos += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid " + getName() + " data", e);
+        }
+        if (pos != originalLength) {
+            throw new IllegalArgumentException("Invalid " + getName() + " data, expected " + originalLength
+                    + " bytes but got " + pos);
+        }
+        return out;
+    }
+
+    /**
+     * Set the preset dictionary of a deflater before the data is compressed
+     */
+    protected void setDictionary(Deflater d) {
+    }
+
+    /**
+     * Set the preset dictionary of an inflater when the data was compressed with one
+     */
+    protected void setDictionary(Inflater i) {
+        throw new IllegalArgumentException("The " + getName() + " data needs a dictionary");
+    }
+}
@@ -0,0 +1,54 @@
+package cgl.iotcloud.core.transport.codec;
+
+import cgl.iotcloud.core.transport.TransportConstants;
+
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate with a preset dictionary. Short repetitive text payloads like JSON readings compress well when
+ * their common strings are in the dictionary. The producers and the consumers must use the same dictionary.
+ */
+public class DictionaryCodec extends DeflateCodec {
+    private final byte[] dictionary;
+
+    private final long dictionaryId;
+
+    public DictionaryCodec(byte[] dictionary) {
+        this(dictionary, TransportConstants.CODEC_DEFAULT_MAX_DECODED_SIZE);
+    }
+
+    /**
+     * @param dictionary the preset dictionary
+     * @param maxDecodedSize largest data decoded, a longer original length is rejected
+     */
+    public DictionaryCodec(byte[] dictionary, int maxDecodedSize) {
+        super(maxDecodedSize);
+        if (dictionary == null || dictionary.length == 0) {
+            throw new IllegalArgumentException("The dictionary should be present");
+        }
+        this.dictionary = dictionary;
+        Adler32 adler = new Adler32();
+        adler.update(dictionary);
+        this.dictionaryId = adler.getValue();
+    }
+
+    @Override
+    public String getName() {
+        return TransportConstants.CODEC_DICTIONARY;
+    }
+
+    @Override
+    protected void setDictionary(Deflater d) {
+        d.setDictionary(dictionary);
+    }
+
+    @Override
+    protected void setDictionary(Inflater i) {
+        if ((i.getAdler() & 0xffffffffL) != dictionaryId) {
+            throw new IllegalArgumentException("The data was compressed with a different dictionary");
+        }
+        i.setDictionary(dictionary);
+    }
+}
@@ -0,0 +1,203 @@
+package cgl.iotcloud.core.transport.codec;
+
+import cgl.iotcloud.core.transport.TransportConstants;
+
+/**
+ * A fast compressor writing the LZ4 block format. It uses a single hash probe per position and skips
+ * faster through data without matches, trading some ratio for speed. The encoded data starts with the
+ * original length.
+ */
+public class Lz4Codec implements PayloadCodec {
+    private static final int MIN_MATCH = 4;
+
+    private static final int HASH_LOG = 12;
+
+    private static final int MAX_OFFSET = 65535;
+
+    /**
+     * The last literals and the last match must leave these many bytes, as required by the format
+     */
+    private static final int LAST_LITERALS = 5;
+
+    private static final int MF_LIMIT = 12;
+
+    private static final int SKIP_STRENGTH = 6;
+
+    /**
+     * Every byte of a sequence length adds at most 255 bytes, the data cannot expand more than this
+     */
+    private static final int MAX_RATIO = 255;
+
+    private final int maxDecodedSize;
+
+    public Lz4Codec() {
+        this(TransportConstants.CODEC_DEFAULT_MAX_DECODED_SIZE);
+    }
+
+    /**
+     * @param maxDecodedSize largest data decoded, a longer original length is rejected
+     */
+    public Lz4Codec(int maxDecodedSize) {
+        this.maxDecodedSize = maxDecodedSize;
+    }
+
+    @Override
+    public String getName() {
+        return TransportConstants.CODEC_LZ4;
+    }
+
+    @Override
+    public byte[] encode(byte[] src, int offset, int length) {
+        byte[] out = new byte[PayloadCodecs.HEADER_SIZE + length + length / 255 + 16];
+        PayloadCodecs.writeLength(out, length);
+        int op = PayloadCodecs.HEADER_SIZE;
+
+        int end = offset + length;
+        int anchor = offset;
+        if (length >= MF_LIMIT + 1) {
+            int[] table = new int[1 << HASH_LOG];
+            int matchLimit = end - LAST_LITERALS;
+            int mfLimit = end - MF_LIMIT;
+            int ip = offset;
+            while (ip < mfLimit) {
+                int sequence = readInt(src, ip);
+                int h = hash(sequence);
+                // the table keeps positions plus one, zero is an empty slot
+                int ref = table[h] - 1;
+                table[h] = ip + 1;
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip += 1 + ((ip - anchor) >>> SKIP_STRENGTH);
+                    continue;
+                }
+
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+                    matchLength++;
+                }
+                op = writeSequence(out, op, src, anchor, ip - anchor, ip - ref, matchLength);
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+        op = writeLiterals(out, op, src, anchor, end - anchor);
+        byte[] result = new byte[op];
+        System.arraycopy(out, 0, result, 0, op);
+        return result;
+    }
+
+    @Override
+    public byte[] decode(byte[] src, int offset, int length) {
+        int originalLength = PayloadCodecs.readLength(src, offset, length, MAX_RATIO, maxDecodedSize);
+        byte[] out = new byte[originalLength];
+        int ip = offset + PayloadCodecs.HEADER_SIZE;
+        int end = offset + length;
+        int op = 0;
+        try {
+            while (ip < end) {
+                int token = src[ip++] & 0xff;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        literals += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, out, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip >= end) {
+                    break;
+                }
+
+                int matchOffset = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+                ip += 2;
+                int matchLength = token & 0x0f;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                int ref = op - matchOffset;
+                if (matchOffset == 0 || ref < 0) {
+                    throw new IllegalArgumentException("Invalid " + getName() + " data, bad match offset");
+                }
+                if (matchOffset >= matchLength) {
+                    System.arraycopy(out, ref, out, op, matchLength);
+                    op += matchLength;
+                } else {
+                    // the match overlaps the bytes it produces
+                    for (int i = 0; i < matchLength; i++) {
+                        out[op++] = out[ref++];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid " + getName() + " data", e);
+        }
+        if (op != originalLength) {
+            throw new IllegalArgumentException("Invalid " + getName() + " data, expected " + originalLength
+                    + " bytes but got " + op);
+        }
+        return out;
+    }
+
+    private static int writeSequence(byte[] out, int op, byte[] src, int literalStart, int literals,
+                                     int matchOffset, int matchLength) {
+        int tokenPos = op++;
+        int token;
+        if (literals >= 15) {
+            token = 15 << 4;
+            op = writeLength(out, op, literals - 15);
+        } else {
+            token = literals << 4;
+        }
+        System.arraycopy(src, literalStart, out, op, literals);
+        op += literals;
+
+        out[op++] = (byte) matchOffset;
+        out[op++] = (byte) (matchOffset >>> 8);
+
+        int ml = matchLength - MIN_MATCH;
+        if (ml >= 15) {
+            token |= 15;
+            op = writeLength(out, op, ml - 15);
+        } else {
+            token |= ml;
+        }
+        out[tokenPos] = (byte) token;
+        return op;
+    }
+
+    private static int writeLiterals(byte[] out, int op, byte[] src, int literalStart, int literals) {
+        if (literals >= 15) {
+            out[op++] = (byte) (15 << 4);
+            op = writeLength(out, op, literals - 15);
+        } else {
+            out[op++] = (byte) (literals << 4);
+        }
+        System.arraycopy(src, literalStart, out, op, literals);
+        return op + literals;
+    }
+
+    private static int writeLength(byte[] out, int op, int length) {
+        while (length >= 255) {
+            out[op++] = (byte) 255;
+            length -= 255;
+        }
+        out[op++] = (byte) length;
+        return op;
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xff) | ((b[i + 1] & 0xff) << 8) | ((b[i + 2] & 0xff) << 16) | ((b[i + 3] & 0xff) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
@@ -0,0 +1,32 @@
+package cgl.iotcloud.core.transport.codec;
+
+/**
+ * Compresses the message bodies. The name of the codec travels with the message so the consumers can
+ * decode it. The implementations must be thread safe.
+ */
+public interface PayloadCodec {
+    /**
+     * Name of the codec, put in to the message header
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Encode a body
+     * @param src the data
+     * @param offset start of the data
+     * @param length length of the data
+     * @return the encoded data
+     */
+    byte[] encode(byte[] src, int offset, int length);
+
+    /**
+     * Decode a body encoded by this codec
+     * @param src the encoded data
+     * @param offset start of the data
+     * @param length length of the data
+     * @return the original data
+     * @throws IllegalArgumentException if the data is not valid
+     */
+    byte[] decode(byte[] src, int offset, int length);
+}
@@ -0,0 +1,130 @@
+package cgl.iotcloud.core.transport.codec;
+
+import cgl.iotcloud.core.transport.TransportConstants;
+import cgl.iotcloud.core.transport.TransportUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Creates the codecs of the channels from their properties
+ */
+public class PayloadCodecs {
+    private static Logger LOG = LoggerFactory.getLogger(PayloadCodecs.class);
+
+    /**
+     * The encoded data starts with the original length
+     */
+    static final int HEADER_SIZE = 4;
+
+    private static final PayloadCodec DEFLATE = new DeflateCodec();
+
+    private static final PayloadCodec LZ4 = new Lz4Codec();
+
+    /**
+     * Create the encoder of a publishing channel
+     * @param channelConf channel properties
+     * @return the encoder or null if the channel does not compress its messages
+     */
+    public static ChannelEncoder createEncoder(Map channelConf) {
+        Object name = channelConf.get(TransportConstants.CODEC_PROPERTY);
+        if (name == null || TransportConstants.CODEC_NONE.equals(name)) {
+            return null;
+        }
+
+        PayloadCodec codec;
+        if (TransportConstants.CODEC_DEFLATE.equals(name)) {
+            codec = DEFLATE;
+        } else if (TransportConstants.CODEC_LZ4.equals(name)) {
+            codec = LZ4;
+        } else if (TransportConstants.CODEC_DICTIONARY.equals(name)) {
+            codec = createDictionaryCodec(channelConf);
+            if (codec == null) {
+                String msg = "The " + TransportConstants.CODEC_DICTIONARY + " codec needs the "
+                        + TransportConstants.CODEC_DICTIONARY_PROPERTY + " property";
+                LOG.error(msg);
+                throw new RuntimeException(msg);
+            }
+        } else {
+            String msg = "Unknown codec: " + name;
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+
+        int minSize = TransportUtils.getInt(channelConf, TransportConstants.CODEC_MIN_SIZE_PROPERTY,
+                TransportConstants.CODEC_DEFAULT_MIN_SIZE);
+        boolean adaptive = TransportUtils.getBoolean(channelConf, TransportConstants.CODEC_ADAPTIVE_PROPERTY, true);
+        return new ChannelEncoder(codec, minSize, adaptive);
+    }
+
+    /**
+     * Create the decoder of a receiving channel. Deflate and lz4 are always decoded, the dictionary codec
+     * only if the channel has the dictionary.
+     * @param channelConf channel properties
+     * @return the decoder
+     */
+    public static PayloadDecoder createDecoder(Map channelConf) {
+        int maxDecodedSize = TransportUtils.getInt(channelConf, TransportConstants.CODEC_MAX_DECODED_SIZE_PROPERTY,
+                TransportConstants.CODEC_DEFAULT_MAX_DECODED_SIZE);
+        PayloadDecoder decoder = new PayloadDecoder();
+        if (maxDecodedSize == TransportConstants.CODEC_DEFAULT_MAX_DECODED_SIZE) {
+            decoder.addCodec(DEFLATE);
+            decoder.addCodec(LZ4);
+        } else {
+            decoder.addCodec(new DeflateCodec(maxDecodedSize));
+            decoder.addCodec(new Lz4Codec(maxDecodedSize));
+        }
+        PayloadCodec dictionary = createDictionaryCodec(channelConf);
+        if (dictionary != null) {
+            decoder.addCodec(dictionary);
+        }
+        return decoder;
+    }
+
+    private static PayloadCodec createDictionaryCodec(Map channelConf) {
+        Object dictionary = channelConf.get(TransportConstants.CODEC_DICTIONARY_PROPERTY);
+        if (dictionary == null) {
+            return null;
+        }
+        int maxDecodedSize = TransportUtils.getInt(channelConf, TransportConstants.CODEC_MAX_DECODED_SIZE_PROPERTY,
+                TransportConstants.CODEC_DEFAULT_MAX_DECODED_SIZE);
+        return new DictionaryCodec(dictionary.toString().getBytes(Charset.forName("UTF-8")), maxDecodedSize);
+    }
+
+    static void writeLength(byte[] out, int length) {
+        out[0] = (byte) (length >>> 24);
+        out[1] = (byte) (length >>> 16);
+        out[2] = (byte) (length >>> 8);
+        out[3] = (byte) length;
+    }
+
+    /**
+     * Read the original length. The length comes from the network, it is checked against what the encoded
+     * data can expand to before the decoded data is allocated.
+     * @param maxRatio the most a codec can expand its encoded data
+     * @param maxLength the largest decoded data accepted
+     * @return the original length
+     * @throws IllegalArgumentException if the length is not valid
+     */
+    static int readLength(byte[] src, int offset, int length, int maxRatio, int maxLength) {
+        if (length < HEADER_SIZE) {
+            throw new IllegalArgumentException("The encoded data is too short");
+        }
+        int originalLength = ((src[offset] & 0xff) << 24) | ((src[offset + 1] & 0xff) << 16)
+                | ((src[offset + 2] & 0xff) << 8) | (src[offset + 3] & 0xff);
+        if (originalLength < 0) {
+            throw new IllegalArgumentException("Invalid length of the encoded data: " + originalLength);
+        }
+        if (originalLength > maxLength) {
+            throw new IllegalArgumentException("The decoded data of " + originalLength
+                    + " bytes is larger than the maximum " + maxLength);
+        }
+        if (originalLength > (long) (length - HEADER_SIZE) * maxRatio) {
+            throw new IllegalArgumentException("Invalid length of the encoded data: " + originalLength
+                    + ", " + (length - HEADER_SIZE) + " encoded bytes cannot expand to it");
+        }
+        return originalLength;
+    }
+}
@@ -0,0 +1,58 @@
+package cgl.iotcloud.core.transport.codec;
+
+import cgl.iotcloud.core.msg.MessageBuffer;
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.TransportConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes the messages compressed by the channel encoders, using the codec named in the message header
+ */
+public class PayloadDecoder {
+    private static Logger LOG = LoggerFactory.getLogger(PayloadDecoder.class);
+
+    private final Map<String, PayloadCodec> codecs = new HashMap<String, PayloadCodec>();
+
+    public void addCodec(PayloadCodec codec) {
+        codecs.put(codec.getName(), codec);
+    }
+
+    /**
+     * Decompress the body of a message in place if it has a codec header, the header is removed
+     * @param message the message
+     * @return false if the message cannot be decoded
+     */
+    public boolean decode(MessageContext message) {
+        Object name = message.getProperty(TransportConstants.CODEC_HEADER);
+        if (name == null) {
+            return true;
+        }
+        message.removeProperty(TransportConstants.CODEC_HEADER);
+
+        PayloadCodec codec = codecs.get(name.toString());
+        if (codec == null) {
+            LOG.warn("Message received with the unknown codec {}, discarding", name);
+            return false;
+        }
+
+        MessageBuffer buffer = message.getBuffer();
+        try {
+            byte[] decoded;
+            if (buffer != null && buffer.hasArray()) {
+                decoded = codec.decode(buffer.array(), buffer.arrayOffset(), buffer.length());
+            } else {
+                byte[] body = message.getBody();
+                decoded = codec.decode(body, 0, body.length);
+            }
+            message.setBody(decoded);
+            return true;
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Failed to decode a message with the codec {}, discarding", name, e);
+            return false;
+        }
+    }
+}
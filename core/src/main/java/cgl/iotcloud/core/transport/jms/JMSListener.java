@@ -1,18 +1,19 @@
 package cgl.iotcloud.core.transport.jms;
 
+import cgl.iotcloud.core.msg.BufferPool;
+import cgl.iotcloud.core.msg.MessageBuffer;
 import cgl.iotcloud.core.msg.MessageContext;
-import cgl.iotcloud.core.transport.Manageable;
+import cgl.iotcloud.core.msg.MessageProperties;
+import cgl.iotcloud.core.transport.QuiescingManageable;
 import cgl.iotcloud.core.transport.TransportConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jms.*;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
-public class JMSListener implements Manageable {
+public class JMSListener implements QuiescingManageable {
     private static Logger LOG = LoggerFactory.getLogger(JMSListener.class);
 
     private Connection connection;
@@ -31,6 +32,8 @@ public class JMSListener implements Manageable {
 
     private String destination;
 
+    private BufferPool bufferPool;
+
     public JMSListener(ConnectionFactory conFactory, String destination, boolean topic, BlockingQueue<MessageContext> inQueue) {
 
         if (conFactory == null || destination == null || inQueue == null) {
@@ -42,6 +45,15 @@ public class JMSListener implements Manageable {
         this.destination = destination;
     }
 
+    /**
+     * Read the message bodies in to pooled buffers. Only heap pools are used, the JMS client can only
+     * read in to arrays.
+     * @param bufferPool the pool, can be null
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
     public void start(){
         try {
             this.connection = conFactory.createConnection();
@@ -58,22 +70,40 @@ public class JMSListener implements Manageable {
             consumer.setMessageListener(new MessageListener() {
                 @Override
                 public void onMessage(Message message) {
+                    MessageBuffer buffer = null;
+                    MessageContext messageContext = null;
                     try {
                         if (message instanceof BytesMessage) {
                             BytesMessage bytesMessage = (BytesMessage) message;
-                            String sensorId = message.getStringProperty(TransportConstants.SENSOR_ID);
-
-                            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
-                            bytesMessage.readBytes(bytes);
-
-                            Map<String, Object> properties = getMessageProperties(message);
-                            MessageContext messageContext = new MessageContext(sensorId, bytes, properties);
+                            // messages from the sensor sites carry the numeric id, others the string id
+                            long sensorKey = message.propertyExists(TransportConstants.SENSOR_KEY)
+                                    ? message.getLongProperty(TransportConstants.SENSOR_KEY) : MessageContext.NO_SENSOR_KEY;
+                            String sensorId = sensorKey == MessageContext.NO_SENSOR_KEY
+                                    ? message.getStringProperty(TransportConstants.SENSOR_ID) : null;
+
+                            int length = (int) bytesMessage.getBodyLength();
+                            // the properties are read from the JMS message when they are used
+                            MessageProperties properties = MessageProperties.wrap(new JMSHeaders(message));
+                            if (bufferPool != null && !bufferPool.isDirect()) {
+                                buffer = bufferPool.allocate(length);
+                                // pooled heap chunks start at offset 0 of their array
+                                bytesMessage.readBytes(buffer.array(), length);
+                                messageContext = new MessageContext(sensorKey, buffer, properties);
+                            } else {
+                                byte[] bytes = new byte[length];
+                                bytesMessage.readBytes(bytes);
+                                messageContext = new MessageContext(sensorKey, bytes, properties);
+                            }
+                            messageContext.setSensorId(sensorId);
                             inQueue.put(messageContext);
                         }
                     } catch (InterruptedException e) {
                         LOG.error("Failed to put the message to queue", e);
+                        release(buffer, messageContext);
+                        Thread.currentThread().interrupt();
                     } catch (JMSException e) {
-                        LOG.warn("Message received without a sensor ID, discarding");
+                        LOG.warn("Failed to read a received message, discarding", e);
+                        release(buffer, messageContext);
                     }
                 }
             });
@@ -84,15 +114,79 @@ public class JMSListener implements Manageable {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private static HashMap<String, Object> getMessageProperties(Message msg) throws JMSException {
-        HashMap<String, Object> properties = new HashMap<String, Object>();
-        Enumeration srcProperties = msg.getPropertyNames();
-        while (srcProperties.hasMoreElements()) {
-            String propertyName = (String) srcProperties.nextElement();
-            properties.put(propertyName, msg.getObjectProperty(propertyName));
+    /**
+     * Give back the pooled buffer of a message which is not put in to the queue
+     */
+    private static void release(MessageBuffer buffer, MessageContext messageContext) {
+        if (messageContext != null) {
+            messageContext.release();
+        } else if (buffer != null) {
+            buffer.release();
+        }
+    }
+
+    /**
+     * The properties of a received JMS message
+     */
+    private static class JMSHeaders implements MessageProperties.Source {
+        private final Message message;
+
+        JMSHeaders(Message message) {
+            this.message = message;
         }
-        return properties;
+
+        @Override
+        public Object get(String name) {
+            try {
+                return message.getObjectProperty(name);
+            } catch (JMSException e) {
+                LOG.warn("Failed to read the property {} of a message", name);
+                return null;
+            }
+        }
+
+        @Override
+        public int size() {
+            int count = 0;
+            try {
+                Enumeration names = message.getPropertyNames();
+                while (names.hasMoreElements()) {
+                    names.nextElement();
+                    count++;
+                }
+            } catch (JMSException e) {
+                LOG.warn("Failed to read the properties of a message", e);
+            }
+            return count;
+        }
+
+        @Override
+        public void copyTo(MessageProperties properties) {
+            try {
+                Enumeration names = message.getPropertyNames();
+                while (names.hasMoreElements()) {
+                    String name = (String) names.nextElement();
+                    properties.put(name, message.getObjectProperty(name));
+                }
+            } catch (JMSException e) {
+                LOG.warn("Failed to read the properties of a message", e);
+            }
+        }
+    }
+
+    @Override
+    public void quiesce() {
+        try {
+            // returns after the message being delivered is put in to the queue
+            connection.stop();
+        } catch (JMSException e) {
+            LOG.error("Error occurred while stopping the JMS connection", e);
+        }
+    }
+
+    @Override
+    public boolean hasPending() {
+        return false;
     }
 
     public void stop() {
@@ -1,8 +1,19 @@
 package cgl.iotcloud.core.transport.jms;
 
+import cgl.iotcloud.core.msg.MessageBuffer;
 import cgl.iotcloud.core.msg.MessageContext;
-import cgl.iotcloud.core.transport.Manageable;
+import cgl.iotcloud.core.transport.BatchBuffer;
+import cgl.iotcloud.core.transport.BatchSender;
+import cgl.iotcloud.core.transport.BrokerStats;
+import cgl.iotcloud.core.transport.BrokerStatsAware;
+import cgl.iotcloud.core.transport.LatencyStamps;
+import cgl.iotcloud.core.transport.QuiescingManageable;
 import cgl.iotcloud.core.transport.TransportConstants;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.RetryBackoff;
+import cgl.iotcloud.core.transport.scheduler.ScheduledManageable;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,7 +21,7 @@ import javax.jms.*;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
-public class JMSSender implements Manageable {
+public class JMSSender implements BatchSender, ScheduledManageable, BrokerStatsAware, QuiescingManageable {
     private static Logger LOG = LoggerFactory.getLogger(JMSSender.class);
 
     private Connection connection;
@@ -29,6 +40,30 @@ public class JMSSender implements Manageable {
 
     String destination;
 
+    private volatile int maxBatchSize = 1;
+
+    private volatile long maxBatchWait = 0;
+
+    /**
+     * When batching, the messages of a batch are sent in a single transaction
+     */
+    private boolean transacted;
+
+    private TransportScheduler scheduler;
+
+    private String group;
+
+    private TaskHandle handle;
+
+    private volatile BrokerStats brokerStats;
+
+    private volatile boolean run = false;
+
+    /**
+     * Number of messages taken from the queue and not sent yet
+     */
+    private volatile int held = 0;
+
     public JMSSender(ConnectionFactory conFactory, String destination, boolean topic,
                      BlockingQueue<MessageContext> outQueue) {
         if (conFactory == null || destination == null || outQueue == null) {
@@ -40,21 +75,40 @@ public class JMSSender implements Manageable {
         this.destination = destination;
     }
 
+    @Override
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void setMaxBatchWait(long maxBatchWait) {
+        this.maxBatchWait = maxBatchWait;
+    }
+
+    @Override
+    public void setBrokerStats(BrokerStats brokerStats) {
+        this.brokerStats = brokerStats;
+    }
+
+    @Override
+    public void setScheduler(TransportScheduler scheduler, String group) {
+        this.scheduler = scheduler;
+        this.group = group;
+    }
+
     public void start(){
+        if (handle != null) {
+            return;
+        }
         try {
-            this.connection = conFactory.createConnection();
-            this.connection.start();
-
-            this.session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-            if (topic) {
-                dest = session.createTopic(destination);
-            } else {
-                dest = session.createQueue(destination);
+            connect();
+            // run the sender on the shared transport threads
+            run = true;
+            if (scheduler == null) {
+                scheduler = TransportScheduler.getDefault();
             }
-            producer = session.createProducer(dest);
-            // start the thread to listen
-            Thread t = new Thread(new Worker());
-            t.start();
+            // the sends block on the broker, the sender gets a thread of its own
+            handle = scheduler.submitBlocking(new Worker(), "jms-sender-" + destination, outQueue);
         } catch (JMSException e) {
             String msg = "Failed to create a message producer for destination: " + destination;
             LOG.error(msg);
@@ -62,50 +116,169 @@ public class JMSSender implements Manageable {
         }
     }
 
+    @Override
+    public void quiesce() {
+        // the sender keeps sending until the queue is empty
+    }
+
+    @Override
+    public boolean hasPending() {
+        return held > 0;
+    }
+
     public void stop() {
-        try {
-            producer.close();
-            session.close();
-            connection.close();
-        } catch (JMSException e) {
-            LOG.error("Error occurred while closing JMS connections");
+        run = false;
+        if (handle != null) {
+            handle.wakeup();
+            // the worker closes the connection after its last step, a send blocked for longer is ended by
+            // closing the connection from here
+            if (!handle.awaitDone(TransportScheduler.STOP_TIMEOUT)) {
+                LOG.warn("The JMS sender of destination {} did not stop in time, closing its connection", destination);
+            }
         }
+        disconnect();
+    }
+
+    private synchronized void connect() throws JMSException {
+        connection = conFactory.createConnection();
+        connection.start();
 
+        // a transacted session lets the broker client send the whole batch with a single commit
+        transacted = maxBatchSize > 1;
+        if (transacted) {
+            session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        } else {
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        }
+        if (topic) {
+            dest = session.createTopic(destination);
+        } else {
+            dest = session.createQueue(destination);
+        }
+        producer = session.createProducer(dest);
     }
 
-    private class Worker implements Runnable {
+    /**
+     * Close the connection, the session and the producer are closed with it
+     */
+    private synchronized void disconnect() {
+        Connection c = connection;
+        producer = null;
+        session = null;
+        connection = null;
+        if (c != null) {
+            try {
+                c.close();
+            } catch (JMSException e) {
+                LOG.error("Error occurred while closing JMS connections");
+            }
+        }
+    }
+
+    private class Worker implements IOTask {
+        private final RetryBackoff backoff = new RetryBackoff();
+
+        private BatchBuffer<MessageContext> batch = new BatchBuffer<MessageContext>();
+
         @Override
-        public void run() {
-            boolean run = true;
-            int errorCount = 0;
-            while (run) {
+        public long step() {
+            if (!run) {
+                releaseBatch();
+                disconnect();
+                return DONE;
+            }
+            long retry = backoff.remaining();
+            if (retry > 0) {
+                return retry;
+            }
+
+            try {
+                if (producer == null) {
+                    connect();
+                    LOG.info("Reconnected the JMS sender of destination {}", destination);
+                }
+                long ready = batch.fill(outQueue, maxBatchSize, maxBatchWait);
+                held = batch.getElements().size();
+                if (ready == BatchBuffer.EMPTY) {
+                    return WAIT;
+                } else if (ready > 0) {
+                    // wait for the batch to fill up, new messages wake us up earlier
+                    return ready;
+                }
+
+                long start = System.nanoTime();
+                boolean sent = false;
                 try {
-                    try {
-                        MessageContext input = outQueue.take();
+                    for (MessageContext input : batch.getElements()) {
+                        LatencyStamps.stampSent(input);
                         // create a bytemessae
                         BytesMessage bytesMessage = session.createBytesMessage();
-                        bytesMessage.setStringProperty(TransportConstants.SENSOR_ID, input.getSensorId());
-                        setMessageProperties(bytesMessage, input.getProperties());
+                        // the numeric id replaces the string id, the receivers resolve it through the channels in ZK
+                        if (input.getSensorKey() != MessageContext.NO_SENSOR_KEY) {
+                            bytesMessage.setLongProperty(TransportConstants.SENSOR_KEY, input.getSensorKey());
+                        } else {
+                            bytesMessage.setStringProperty(TransportConstants.SENSOR_ID, input.getSensorId());
+                        }
+                        if (input.hasProperties()) {
+                            setMessageProperties(bytesMessage, input.getProperties());
+                        }
 
-                        bytesMessage.writeBytes(input.getBody());
+                        MessageBuffer buffer = input.getBuffer();
+                        if (buffer != null && buffer.hasArray()) {
+                            bytesMessage.writeBytes(buffer.array(), buffer.arrayOffset(), buffer.length());
+                        } else {
+                            bytesMessage.writeBytes(input.getBody());
+                        }
 
                         producer.send(dest, bytesMessage);
-                    } catch (InterruptedException e) {
-                        LOG.error("Exception occurred in the worker listening for consumer changes", e);
                     }
-                } catch (Throwable t) {
-                    errorCount++;
-                    if (errorCount <= 3) {
-                        LOG.error("Error occurred " + errorCount + " times.. trying to continue the worker");
+                    if (transacted) {
+                        session.commit();
+                    }
+                    sent = true;
+                    if (brokerStats != null) {
+                        brokerStats.recordSend(System.nanoTime() - start, batch.getElements().size());
+                    }
+                } finally {
+                    if (sent || !transacted) {
+                        // the messages are delivered, or some of them may be and sending again would duplicate them
+                        releaseBatch();
                     } else {
-                        LOG.error("Error occurred " + errorCount + " times.. terminating the worker");
-                        run = false;
+                        // none of the batch reached the broker, it is sent again in the next step
+                        rollback();
                     }
                 }
+                backoff.succeeded();
+                return AGAIN;
+            } catch (Throwable t) {
+                if (brokerStats != null) {
+                    brokerStats.recordError();
+                }
+                // the connection is opened again after the delay, a rolled back batch is sent on it
+                long delay = backoff.failed();
+                LOG.error("Error occurred " + backoff.getErrors() + " times in a row.. reconnecting to "
+                        + destination + " in " + delay + "ms", t);
+                disconnect();
+                return delay;
+            }
+        }
+
+        private void rollback() {
+            try {
+                if (session != null) {
+                    session.rollback();
+                }
+            } catch (JMSException e) {
+                LOG.warn("Failed to rollback the transaction of a batch", e);
+            }
+        }
+
+        private void releaseBatch() {
+            for (MessageContext input : batch.getElements()) {
+                input.release();
             }
-            String message = "Unexpected notification type";
-            LOG.error(message);
-            throw new RuntimeException(message);
+            batch.clear();
+            held = 0;
         }
     }
 
@@ -30,9 +30,8 @@ public class JMSTransport extends AbstractTransport {
 
         ActiveMQConnectionFactory conFactory = new ActiveMQConnectionFactory(host.getUrl());
 
-        JMSSender sender = new JMSSender(conFactory, prefix + "." + destination, topic, queue);
-        sender.start();
-        return sender;
+        // the channel group starts the sender after configuring it
+        return new JMSSender(conFactory, prefix + "." + destination, topic, queue);
     }
 
     @Override
@@ -48,7 +47,7 @@ public class JMSTransport extends AbstractTransport {
         ActiveMQConnectionFactory conFactory = new ActiveMQConnectionFactory(host.getUrl());
 
         JMSListener listener = new JMSListener(conFactory, prefix + "." + destination, topic, queue);
-        listener.start();
+        listener.setBufferPool(bufferPool);
         return listener;
     }
 
@@ -0,0 +1,90 @@
+package cgl.iotcloud.core.transport.local;
+
+import cgl.iotcloud.core.msg.MessageContext;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An in-memory broker. The subscribers of a destination are the queues of the consumers, the messages are
+ * handed to them by reference without any serialization. Every subscriber of a destination gets each message.
+ */
+public class LocalBroker {
+    private static final ConcurrentMap<String, LocalBroker> brokers = new ConcurrentHashMap<String, LocalBroker>();
+
+    private final String name;
+
+    private final ConcurrentMap<String, List<BlockingQueue<MessageContext>>> subscribers =
+            new ConcurrentHashMap<String, List<BlockingQueue<MessageContext>>>();
+
+    public LocalBroker(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the broker of an url, the broker is created the first time it is used. All the transports of the
+     * process using the same url share the broker.
+     * @param url url of the broker, for example local://default
+     * @return the broker
+     */
+    public static LocalBroker get(String url) {
+        LocalBroker broker = brokers.get(url);
+        if (broker == null) {
+            LocalBroker newBroker = new LocalBroker(url);
+            broker = brokers.putIfAbsent(url, newBroker);
+            if (broker == null) {
+                broker = newBroker;
+            }
+        }
+        return broker;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void subscribe(String destination, BlockingQueue<MessageContext> queue) {
+        List<BlockingQueue<MessageContext>> queues = subscribers.get(destination);
+        if (queues == null) {
+            List<BlockingQueue<MessageContext>> newQueues = new CopyOnWriteArrayList<BlockingQueue<MessageContext>>();
+            queues = subscribers.putIfAbsent(destination, newQueues);
+            if (queues == null) {
+                queues = newQueues;
+            }
+        }
+        queues.add(queue);
+    }
+
+    public void unsubscribe(String destination, BlockingQueue<MessageContext> queue) {
+        List<BlockingQueue<MessageContext>> queues = subscribers.get(destination);
+        if (queues != null) {
+            queues.remove(queue);
+        }
+    }
+
+    /**
+     * The queues subscribed to a destination
+     * @param destination the destination
+     * @return the subscribers, empty if there are none
+     */
+    public List<BlockingQueue<MessageContext>> getSubscribers(String destination) {
+        List<BlockingQueue<MessageContext>> queues = subscribers.get(destination);
+        if (queues == null) {
+            return Collections.emptyList();
+        }
+        return queues;
+    }
+
+    public boolean hasSubscribers(String destination) {
+        return !getSubscribers(destination).isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,52 @@
+package cgl.iotcloud.core.transport.local;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.Manageable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Subscribes a consumer queue to a destination of a local broker, the senders put the messages directly
+ * in to the queue.
+ */
+public class LocalReceiver implements Manageable {
+    private static Logger LOG = LoggerFactory.getLogger(LocalReceiver.class);
+
+    private LocalBroker broker;
+
+    private String destination;
+
+    private BlockingQueue<MessageContext> inQueue;
+
+    private boolean subscribed = false;
+
+    public LocalReceiver(LocalBroker broker, String destination, BlockingQueue<MessageContext> inQueue) {
+        if (broker == null || destination == null || inQueue == null) {
+            throw new IllegalArgumentException("All the parameters are mandatory");
+        }
+        this.broker = broker;
+        this.destination = destination;
+        this.inQueue = inQueue;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (subscribed) {
+            return;
+        }
+        broker.subscribe(destination, inQueue);
+        subscribed = true;
+        LOG.info("Subscribed to destination {} on broker {}", destination, broker);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!subscribed) {
+            return;
+        }
+        broker.unsubscribe(destination, inQueue);
+        subscribed = false;
+    }
+}
@@ -0,0 +1,54 @@
+package cgl.iotcloud.core.transport.local;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.TransportConstants;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Delivers the messages a channel publishes to the subscribers of the same destination in this process,
+ * in addition to sending them to the broker. A message given to all the local subscribers is marked with
+ * the origin so the consumers of this site can drop the copy coming back from the broker.
+ */
+public class LocalRoute {
+    private final LocalBroker broker;
+
+    private final String destination;
+
+    private final String origin;
+
+    public LocalRoute(LocalBroker broker, String destination, String origin) {
+        this.broker = broker;
+        this.destination = destination;
+        this.origin = origin;
+    }
+
+    /**
+     * Give a copy of the message to the local subscribers, called once before the message is put in to the
+     * transport queue. Never blocks, if a subscriber is full the message is not marked and the subscriber
+     * gets it through the broker.
+     * @param message the message
+     */
+    public void deliver(MessageContext message) {
+        List<BlockingQueue<MessageContext>> subscribers = broker.getSubscribers(destination);
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        boolean all = true;
+        for (BlockingQueue<MessageContext> subscriber : subscribers) {
+            MessageContext copy = message.duplicate();
+            if (!subscriber.offer(copy)) {
+                copy.release();
+                all = false;
+            }
+        }
+        if (all) {
+            message.setProperty(TransportConstants.ORIGIN_PROPERTY, origin);
+        }
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+}
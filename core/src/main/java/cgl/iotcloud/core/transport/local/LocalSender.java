@@ -0,0 +1,178 @@
+package cgl.iotcloud.core.transport.local;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.BrokerStats;
+import cgl.iotcloud.core.transport.BrokerStatsAware;
+import cgl.iotcloud.core.transport.LatencyStamps;
+import cgl.iotcloud.core.transport.QuiescingManageable;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.ScheduledManageable;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands the messages of a producer queue to the subscribers of a destination of a local broker. Each
+ * subscriber gets its own message context sharing the body, the last one gets the original. A message
+ * is dropped if the destination has no subscribers, like a topic without consumers.
+ */
+public class LocalSender implements ScheduledManageable, BrokerStatsAware, QuiescingManageable {
+    private static Logger LOG = LoggerFactory.getLogger(LocalSender.class);
+
+    public static final int MAX_MESSAGES_PER_STEP = 64;
+
+    /**
+     * Time to wait before trying again to deliver to a full subscriber
+     */
+    public static final long SUBSCRIBER_FULL_WAIT = 1;
+
+    private LocalBroker broker;
+
+    private String destination;
+
+    private BlockingQueue<MessageContext> outQueue;
+
+    private TransportScheduler scheduler;
+
+    private String group;
+
+    private TaskHandle handle;
+
+    private volatile BrokerStats brokerStats;
+
+    private volatile boolean run = false;
+
+    private Worker worker;
+
+    public LocalSender(LocalBroker broker, String destination, BlockingQueue<MessageContext> outQueue) {
+        if (broker == null || destination == null || outQueue == null) {
+            throw new IllegalArgumentException("All the parameters are mandatory");
+        }
+        this.broker = broker;
+        this.destination = destination;
+        this.outQueue = outQueue;
+    }
+
+    @Override
+    public void setScheduler(TransportScheduler scheduler, String group) {
+        this.scheduler = scheduler;
+        this.group = group;
+    }
+
+    @Override
+    public void setBrokerStats(BrokerStats brokerStats) {
+        this.brokerStats = brokerStats;
+    }
+
+    @Override
+    public void start() {
+        if (handle != null) {
+            return;
+        }
+        run = true;
+        if (scheduler == null) {
+            scheduler = TransportScheduler.getDefault();
+        }
+        worker = new Worker();
+        handle = scheduler.submit(group, worker, "local-sender-" + destination, outQueue);
+        LOG.info("Started the local sender of destination {} on broker {}", destination, broker);
+    }
+
+    @Override
+    public void quiesce() {
+        // the sender keeps delivering until the queue is empty
+    }
+
+    @Override
+    public boolean hasPending() {
+        return worker != null && worker.pending != null;
+    }
+
+    @Override
+    public void stop() {
+        run = false;
+        if (handle != null) {
+            handle.wakeup();
+        }
+    }
+
+    private class Worker implements IOTask {
+        /**
+         * A message which did not fit in to a subscriber and the subscribers it still has to go to
+         */
+        private volatile MessageContext pending;
+
+        private List<BlockingQueue<MessageContext>> pendingSubscribers;
+
+        private int pendingIndex;
+
+        @Override
+        public long step() {
+            if (!run) {
+                if (pending != null) {
+                    pending.release();
+                    pending = null;
+                }
+                return DONE;
+            }
+
+            long start = System.nanoTime();
+            int count = 0;
+            if (pending != null) {
+                if (!deliver(pending, pendingSubscribers, pendingIndex)) {
+                    return SUBSCRIBER_FULL_WAIT;
+                }
+                count++;
+            }
+
+            MessageContext message;
+            while (count < MAX_MESSAGES_PER_STEP && (message = outQueue.poll()) != null) {
+                count++;
+                LatencyStamps.stampSent(message);
+                if (!deliver(message, broker.getSubscribers(destination), 0)) {
+                    record(start, count - 1);
+                    return SUBSCRIBER_FULL_WAIT;
+                }
+            }
+            record(start, count);
+            return count == MAX_MESSAGES_PER_STEP ? AGAIN : WAIT;
+        }
+
+        /**
+         * Give the message to the subscribers starting from the index
+         * @return false if a subscriber is full, the message is kept as pending
+         */
+        private boolean deliver(MessageContext message, List<BlockingQueue<MessageContext>> subscribers, int index) {
+            int size = subscribers.size();
+            if (size == 0) {
+                message.release();
+            }
+            for (int i = index; i < size; i++) {
+                boolean last = i == size - 1;
+                MessageContext m = last ? message : message.duplicate();
+                if (!subscribers.get(i).offer(m)) {
+                    if (!last) {
+                        m.release();
+                    }
+                    pending = message;
+                    pendingSubscribers = subscribers;
+                    pendingIndex = i;
+                    return false;
+                }
+            }
+            pending = null;
+            pendingSubscribers = null;
+            return true;
+        }
+
+        private void record(long start, int count) {
+            if (brokerStats != null && count > 0) {
+                brokerStats.recordSend(System.nanoTime() - start, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package cgl.iotcloud.core.transport.local;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.AbstractTransport;
+import cgl.iotcloud.core.transport.BrokerHost;
+import cgl.iotcloud.core.transport.Manageable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A transport which moves the messages between the channels of the same process without a broker. Each url
+ * like local://default names an in-memory broker, the message contexts are passed by reference from the
+ * producer queues to the consumer queues. The destinations are named as in the JMS transport.
+ */
+public class LocalTransport extends AbstractTransport {
+    private static Logger LOG = LoggerFactory.getLogger(LocalTransport.class);
+
+    @Override
+    public void configureTransport() {}
+
+    /**
+     * The senders of all the groups publishing to a destination put in to its consumer queues
+     */
+    @Override
+    public boolean hasSharedConsumerQueues() {
+        return true;
+    }
+
+    @Override
+    public Manageable registerProducer(BrokerHost host, String prefix, Map channelConf, BlockingQueue<MessageContext> queue) {
+        LOG.info("Registering producer to host {}", host);
+        return new LocalSender(LocalBroker.get(host.getUrl()), getLocalDestination(prefix, channelConf), queue);
+    }
+
+    @Override
+    public Manageable registerConsumer(BrokerHost host, String prefix, Map channelConf, BlockingQueue<MessageContext> queue) {
+        LOG.info("Registering consumer to host {}", host);
+        return new LocalReceiver(LocalBroker.get(host.getUrl()), getLocalDestination(prefix, channelConf), queue);
+    }
+}
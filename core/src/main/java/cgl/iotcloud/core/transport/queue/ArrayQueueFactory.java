@@ -0,0 +1,27 @@
+package cgl.iotcloud.core.transport.queue;
+
+import cgl.iotcloud.core.msg.MessageContext;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The default queue factory, creates lock based array blocking queues.
+ */
+public class ArrayQueueFactory implements QueueFactory {
+    private int size;
+
+    public ArrayQueueFactory(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public BlockingQueue<MessageContext> createProducerQueue() {
+        return new ArrayBlockingQueue<MessageContext>(size);
+    }
+
+    @Override
+    public BlockingQueue<MessageContext> createConsumerQueue() {
+        return new ArrayBlockingQueue<MessageContext>(size);
+    }
+}
@@ -0,0 +1,60 @@
+package cgl.iotcloud.core.transport.queue;
+
+/**
+ * Ring buffer queue for many producers and a single consumer. This is the queue used between the channels
+ * of a group and the transport sender. Producers claim a slot with a CAS on the tail.
+ *
+ * The consumer side also claims with a CAS. It is uncontended when there is only one consumer, and it keeps
+ * the queue safe for the occasional helper consumer, for example a channel evicting the oldest message.
+ */
+public class MpscRingBufferQueue<E> extends RingBufferQueue<E> {
+    public MpscRingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+
+    @Override
+    protected boolean offerElement(E e) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, e);
+                    // publish the element
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // the consumer hasn't freed this slot yet, the queue is full
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    @Override
+    protected E pollElement() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    // free the slot for the producer one lap ahead
+                    sequences.lazySet(index, pos + capacity);
+                    return e;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+}
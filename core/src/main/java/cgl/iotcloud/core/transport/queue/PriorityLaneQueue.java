@@ -0,0 +1,290 @@
+package cgl.iotcloud.core.transport.queue;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.TransportConstants;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A queue made of several lanes, lane 0 has the highest priority. A message goes to the lane given by its
+ * priority property, messages without one go to the last lane. Every lane is a bounded queue of its own,
+ * so bulk traffic filling its lane never blocks the other lanes.
+ *
+ * With strict dequeue a lane is only taken from when all the lanes before it are empty. With weighted
+ * dequeue the lanes are visited in turn and each lane gives up to its weight of messages per round, so a
+ * high priority message waits for at most the sum of the weights of the other lanes.
+ *
+ * The lanes are taken from by a single consumer, which is how the channel groups use their queues.
+ */
+public class PriorityLaneQueue extends AbstractQueue<MessageContext> implements BlockingQueue<MessageContext> {
+    private static final long NO_PRIORITY = Long.MIN_VALUE;
+
+    private final BlockingQueue<MessageContext> []lanes;
+
+    /**
+     * Messages taken from a lane per round, null for strict dequeue
+     */
+    private final int []weights;
+
+    private int currentLane = 0;
+
+    private int credit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Consumers waiting in the blocking takes, the producers only lock when this is not zero
+     */
+    private final AtomicInteger waiters = new AtomicInteger(0);
+
+    /**
+     * @param lanes the lane queues, the first one has the highest priority
+     * @param weights messages taken from each lane per round, null for strict dequeue
+     */
+    public PriorityLaneQueue(List<BlockingQueue<MessageContext>> lanes, int []weights) {
+        if (lanes.isEmpty()) {
+            throw new IllegalArgumentException("There should be at least one lane");
+        }
+        if (weights != null && weights.length != lanes.size()) {
+            throw new IllegalArgumentException("There should be a weight for every lane");
+        }
+        this.lanes = lanes.toArray(new BlockingQueue[lanes.size()]);
+        this.weights = weights;
+        this.credit = weights != null ? weights[0] : 0;
+    }
+
+    /**
+     * The lane of a message
+     * @param message the message
+     * @return the lane of the priority property, or the last lane if the message has none
+     */
+    public int laneOf(MessageContext message) {
+        return laneOf(message, lanes.length);
+    }
+
+    /**
+     * The lane of a message when there are the given number of lanes
+     * @param message the message
+     * @param laneCount number of lanes
+     * @return the lane of the priority property, or the last lane if the message has none
+     */
+    public static int laneOf(MessageContext message, int laneCount) {
+        // brokers may return the property as a string, it is parsed
+        long lane = message.getLongProperty(TransportConstants.PRIORITY_HEADER, NO_PRIORITY);
+        if (lane == NO_PRIORITY) {
+            return laneCount - 1;
+        }
+        return lane < 0 ? 0 : (lane >= laneCount ? laneCount - 1 : (int) lane);
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Number of messages in a lane
+     * @param lane the lane
+     * @return the size of the lane
+     */
+    public int laneSize(int lane) {
+        return lanes[lane].size();
+    }
+
+    /**
+     * Take the oldest message of the lane of the given message, used to make room for the message
+     * without dropping messages of the other lanes
+     * @param message the message
+     * @return the oldest message of its lane or null if the lane is empty
+     */
+    public MessageContext pollLane(MessageContext message) {
+        return lanes[laneOf(message)].poll();
+    }
+
+    private void signalWaiters() {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(MessageContext message) {
+        if (lanes[laneOf(message)].offer(message)) {
+            signalWaiters();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void put(MessageContext message) throws InterruptedException {
+        lanes[laneOf(message)].put(message);
+        signalWaiters();
+    }
+
+    @Override
+    public boolean offer(MessageContext message, long timeout, TimeUnit unit) throws InterruptedException {
+        if (lanes[laneOf(message)].offer(message, timeout, unit)) {
+            signalWaiters();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public MessageContext poll() {
+        if (weights == null) {
+            for (BlockingQueue<MessageContext> lane : lanes) {
+                MessageContext message = lane.poll();
+                if (message != null) {
+                    return message;
+                }
+            }
+            return null;
+        }
+
+        // visit the current lane and then every other lane once
+        for (int i = 0; i <= lanes.length; i++) {
+            if (credit > 0) {
+                MessageContext message = lanes[currentLane].poll();
+                if (message != null) {
+                    credit--;
+                    return message;
+                }
+            }
+            // an empty lane loses the rest of its turn
+            currentLane = (currentLane + 1) % lanes.length;
+            credit = weights[currentLane];
+        }
+        return null;
+    }
+
+    @Override
+    public MessageContext take() throws InterruptedException {
+        MessageContext message = poll();
+        if (message != null) {
+            return message;
+        }
+        lock.lockInterruptibly();
+        waiters.incrementAndGet();
+        try {
+            // check again after registering as a waiter so an offer in between is not missed
+            while ((message = poll()) == null) {
+                notEmpty.await();
+            }
+            return message;
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public MessageContext poll(long timeout, TimeUnit unit) throws InterruptedException {
+        MessageContext message = poll();
+        if (message != null) {
+            return message;
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        waiters.incrementAndGet();
+        try {
+            while ((message = poll()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return message;
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public MessageContext peek() {
+        for (BlockingQueue<MessageContext> lane : lanes) {
+            MessageContext message = lane.peek();
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (BlockingQueue<MessageContext> lane : lanes) {
+            size += lane.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (BlockingQueue<MessageContext> lane : lanes) {
+            if (!lane.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        int remaining = 0;
+        for (BlockingQueue<MessageContext> lane : lanes) {
+            remaining += lane.remainingCapacity();
+        }
+        return remaining;
+    }
+
+    @Override
+    public int drainTo(Collection<? super MessageContext> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super MessageContext> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int count = 0;
+        MessageContext message;
+        while (count < maxElements && (message = poll()) != null) {
+            c.add(message);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<MessageContext> iterator() {
+        // a snapshot in lane order, the lanes are not locked together
+        List<MessageContext> messages = new ArrayList<MessageContext>();
+        for (BlockingQueue<MessageContext> lane : lanes) {
+            messages.addAll(lane);
+        }
+        return messages.iterator();
+    }
+}
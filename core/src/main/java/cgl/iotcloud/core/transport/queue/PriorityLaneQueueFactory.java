@@ -0,0 +1,65 @@
+package cgl.iotcloud.core.transport.queue;
+
+import cgl.iotcloud.core.msg.MessageContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Creates priority lane queues. The lanes are created by another queue factory, so every lane has the
+ * type and the size configured for the queues.
+ */
+public class PriorityLaneQueueFactory implements QueueFactory {
+    private final QueueFactory laneFactory;
+
+    private final int laneCount;
+
+    private final int []weights;
+
+    /**
+     * @param laneFactory creates the lanes
+     * @param laneCount number of lanes
+     * @param weights messages taken from each lane per round, null for strict dequeue
+     */
+    public PriorityLaneQueueFactory(QueueFactory laneFactory, int laneCount, int []weights) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("There should be at least one lane");
+        }
+        if (weights != null && weights.length != laneCount) {
+            throw new IllegalArgumentException("Expected " + laneCount + " lane weights, found " + weights.length);
+        }
+        if (weights != null) {
+            for (int weight : weights) {
+                if (weight < 1) {
+                    throw new IllegalArgumentException("The lane weights should be at least 1");
+                }
+            }
+        }
+        this.laneFactory = laneFactory;
+        this.laneCount = laneCount;
+        this.weights = weights;
+    }
+
+    public int getLaneCount() {
+        return laneCount;
+    }
+
+    @Override
+    public BlockingQueue<MessageContext> createProducerQueue() {
+        List<BlockingQueue<MessageContext>> lanes = new ArrayList<BlockingQueue<MessageContext>>();
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(laneFactory.createProducerQueue());
+        }
+        return new PriorityLaneQueue(lanes, weights);
+    }
+
+    @Override
+    public BlockingQueue<MessageContext> createConsumerQueue() {
+        List<BlockingQueue<MessageContext>> lanes = new ArrayList<BlockingQueue<MessageContext>>();
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(laneFactory.createConsumerQueue());
+        }
+        return new PriorityLaneQueue(lanes, weights);
+    }
+}
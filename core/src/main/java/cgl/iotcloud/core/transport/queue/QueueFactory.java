@@ -0,0 +1,26 @@
+package cgl.iotcloud.core.transport.queue;
+
+import cgl.iotcloud.core.msg.MessageContext;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Creates the queues used by a channel group to hand over messages between the channels and
+ * the transport producers and consumers.
+ */
+public interface QueueFactory {
+    /**
+     * Create a queue for the producer lane. Many channels put messages to this queue and a
+     * single transport sender takes them. Also used for the consumer queues which are filled by
+     * more than one thread, like the local subscriptions.
+     * @return a new queue
+     */
+    BlockingQueue<MessageContext> createProducerQueue();
+
+    /**
+     * Create a queue for the consumer lane. A single transport receiver puts messages to this queue
+     * and a single consuming worker takes them.
+     * @return a new queue
+     */
+    BlockingQueue<MessageContext> createConsumerQueue();
+}
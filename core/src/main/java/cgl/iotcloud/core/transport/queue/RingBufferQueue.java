@@ -0,0 +1,246 @@
+package cgl.iotcloud.core.transport.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock free queue backed by a ring buffer. Every slot carries a sequence number which tells
+ * producers and consumers whether the slot is free or holds a published element. The sub classes decide
+ * how the head and tail counters are claimed.
+ *
+ * The blocking operations use a {@link WaitStrategy} instead of locks.
+ */
+public abstract class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    protected final int capacity;
+
+    protected final int mask;
+
+    protected final AtomicReferenceArray<E> buffer;
+
+    protected final AtomicLongArray sequences;
+
+    /**
+     * The next position to consume
+     */
+    protected final AtomicLong head = new AtomicLong(0);
+
+    /**
+     * The next position to produce
+     */
+    protected final AtomicLong tail = new AtomicLong(0);
+
+    protected final WaitStrategy waitStrategy;
+
+    protected RingBufferQueue(int requestedCapacity, WaitStrategy waitStrategy) {
+        if (requestedCapacity <= 0) {
+            throw new IllegalArgumentException("The capacity of the queue should be positive");
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("A wait strategy should be present");
+        }
+
+        // with one slot a full slot has the sequence of a free one, so a ring has at least two
+        int c = 2;
+        while (c < requestedCapacity) {
+            c <<= 1;
+        }
+        this.capacity = c;
+        this.mask = c - 1;
+        this.buffer = new AtomicReferenceArray<E>(c);
+        this.sequences = new AtomicLongArray(c);
+        for (int i = 0; i < c; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Try to insert the element without waiting
+     * @param e element
+     * @return true if inserted
+     */
+    protected abstract boolean offerElement(E e);
+
+    /**
+     * Try to remove an element without waiting
+     * @return the element or null if the queue is empty
+     */
+    protected abstract E pollElement();
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (offerElement(e)) {
+            waitStrategy.signal();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public E poll() {
+        E e = pollElement();
+        if (e != null) {
+            waitStrategy.signal();
+        }
+        return e;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        int attempt = 0;
+        while (!offerElement(e)) {
+            waitStrategy.idle(++attempt);
+        }
+        waitStrategy.signal();
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        while (!offerElement(e)) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            waitStrategy.idle(++attempt);
+        }
+        waitStrategy.signal();
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        int attempt = 0;
+        E e;
+        while ((e = pollElement()) == null) {
+            waitStrategy.idle(++attempt);
+        }
+        waitStrategy.signal();
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        E e;
+        while ((e = pollElement()) == null) {
+            if (System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            waitStrategy.idle(++attempt);
+        }
+        waitStrategy.signal();
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        long pos = head.get();
+        int index = (int) (pos & mask);
+        if (sequences.get(index) == pos + 1) {
+            return buffer.get(index);
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        // read the head first so that a concurrent consumer can only make the size smaller
+        long h = head.get();
+        long size = tail.get() - h;
+        if (size < 0) {
+            return 0;
+        }
+        return size > capacity ? capacity : (int) size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int count = 0;
+        E e;
+        while (count < maxElements && (e = pollElement()) != null) {
+            c.add(e);
+            count++;
+        }
+        if (count > 0) {
+            waitStrategy.signal();
+        }
+        return count;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over a snapshot of the queue. Removal is not supported.
+     * @return iterator
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<E>();
+        long end = tail.get();
+        for (long pos = head.get(); pos < end; pos++) {
+            E e = buffer.get((int) (pos & mask));
+            if (e != null) {
+                snapshot.add(e);
+            }
+        }
+        final Iterator<E> it = snapshot.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Removing through the iterator is not supported");
+            }
+        };
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,33 @@
+package cgl.iotcloud.core.transport.queue;
+
+import cgl.iotcloud.core.msg.MessageContext;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Creates lock free ring buffer queues. The producer lanes get a multi producer queue because
+ * all the channels of a group publish to it, the consumer lanes get a single producer queue.
+ */
+public class RingBufferQueueFactory implements QueueFactory {
+    private int size;
+
+    private String waitStrategy;
+
+    public RingBufferQueueFactory(int size, String waitStrategy) {
+        this.size = size;
+        this.waitStrategy = waitStrategy;
+        // fail early on a bad configuration
+        WaitStrategies.forName(waitStrategy);
+    }
+
+    @Override
+    public BlockingQueue<MessageContext> createProducerQueue() {
+        // every queue gets its own wait strategy, the blocking strategy keeps per queue state
+        return new MpscRingBufferQueue<MessageContext>(size, WaitStrategies.forName(waitStrategy));
+    }
+
+    @Override
+    public BlockingQueue<MessageContext> createConsumerQueue() {
+        return new SpscRingBufferQueue<MessageContext>(size, WaitStrategies.forName(waitStrategy));
+    }
+}
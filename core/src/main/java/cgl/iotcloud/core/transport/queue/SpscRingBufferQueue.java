@@ -0,0 +1,39 @@
+package cgl.iotcloud.core.transport.queue;
+
+/**
+ * Ring buffer queue for exactly one producer and one consumer thread. This fits the consumer lanes where
+ * the transport receiver is the only producer and the ConsumingWorker is the only consumer. No CAS is
+ * needed on either side.
+ */
+public class SpscRingBufferQueue<E> extends RingBufferQueue<E> {
+    public SpscRingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+
+    @Override
+    protected boolean offerElement(E e) {
+        long pos = tail.get();
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos) {
+            return false;
+        }
+        buffer.lazySet(index, e);
+        sequences.lazySet(index, pos + 1);
+        tail.lazySet(pos + 1);
+        return true;
+    }
+
+    @Override
+    protected E pollElement() {
+        long pos = head.get();
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E e = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequences.lazySet(index, pos + capacity);
+        head.lazySet(pos + 1);
+        return e;
+    }
+}
@@ -0,0 +1,147 @@
+package cgl.iotcloud.core.transport.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The available wait strategies for the ring buffer queues.
+ */
+public final class WaitStrategies {
+    public static final String SPIN = "spin";
+    public static final String YIELD = "yield";
+    public static final String PARK = "park";
+    public static final String BLOCK = "block";
+
+    private static final int SPIN_TRIES = 100;
+
+    private static final int YIELD_TRIES = 200;
+
+    private WaitStrategies() {
+    }
+
+    /**
+     * Create a wait strategy from its configuration name. The default is park.
+     * @param name name of the strategy
+     * @return the wait strategy
+     */
+    public static WaitStrategy forName(String name) {
+        if (name == null || PARK.equals(name)) {
+            return new ParkingWaitStrategy();
+        } else if (SPIN.equals(name)) {
+            return new BusySpinWaitStrategy();
+        } else if (YIELD.equals(name)) {
+            return new YieldingWaitStrategy();
+        } else if (BLOCK.equals(name)) {
+            return new BlockingWaitStrategy();
+        }
+        throw new IllegalArgumentException("Unknown wait strategy: " + name);
+    }
+
+    private static void checkInterrupt() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Lowest latency, burns a core while waiting. Only use it when there are spare cores for every waiting thread
+     */
+    public static class BusySpinWaitStrategy implements WaitStrategy {
+        @Override
+        public void idle(int attempt) throws InterruptedException {
+            checkInterrupt();
+        }
+
+        @Override
+        public void signal() {
+        }
+    }
+
+    /**
+     * Spin for a while and then yield the CPU to other threads
+     */
+    public static class YieldingWaitStrategy implements WaitStrategy {
+        @Override
+        public void idle(int attempt) throws InterruptedException {
+            checkInterrupt();
+            if (attempt > SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public void signal() {
+        }
+    }
+
+    /**
+     * Spin, then yield and finally park the thread for short periods. A good balance between latency
+     * and CPU usage for most sites.
+     */
+    public static class ParkingWaitStrategy implements WaitStrategy {
+        private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+        @Override
+        public void idle(int attempt) throws InterruptedException {
+            checkInterrupt();
+            if (attempt > YIELD_TRIES) {
+                long park = Math.min(MAX_PARK_NANOS, 1000L << Math.min(attempt - YIELD_TRIES, 10));
+                LockSupport.parkNanos(park);
+            } else if (attempt > SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public void signal() {
+        }
+    }
+
+    /**
+     * Waiting threads block on a condition and are woken up by the other side. Uses the least CPU,
+     * but every successful operation pays for a signal when there are waiters.
+     */
+    public static class BlockingWaitStrategy implements WaitStrategy {
+        private final Lock lock = new ReentrantLock();
+
+        private final Condition notEmptyOrFull = lock.newCondition();
+
+        private final AtomicInteger waiters = new AtomicInteger(0);
+
+        @Override
+        public void idle(int attempt) throws InterruptedException {
+            if (attempt <= SPIN_TRIES) {
+                checkInterrupt();
+                return;
+            }
+            waiters.incrementAndGet();
+            try {
+                lock.lockInterruptibly();
+                try {
+                    // the timed wait protects against a signal that happens between the failed attempt and here
+                    notEmptyOrFull.await(1, TimeUnit.MILLISECONDS);
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void signal() {
+            if (waiters.get() > 0) {
+                lock.lock();
+                try {
+                    notEmptyOrFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
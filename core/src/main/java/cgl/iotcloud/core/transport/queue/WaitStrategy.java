@@ -0,0 +1,19 @@
+package cgl.iotcloud.core.transport.queue;
+
+/**
+ * Decides what a thread does while it waits on a ring buffer queue that is full (producers)
+ * or empty (consumers).
+ */
+public interface WaitStrategy {
+    /**
+     * Called every time an operation on the queue could not make progress.
+     * @param attempt number of consecutive unsuccessful attempts by the calling thread
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void idle(int attempt) throws InterruptedException;
+
+    /**
+     * Called after an element is added or removed so that waiting threads can retry
+     */
+    void signal();
+}
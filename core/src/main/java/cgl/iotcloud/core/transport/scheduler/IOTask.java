@@ -0,0 +1,30 @@
+package cgl.iotcloud.core.transport.scheduler;
+
+/**
+ * A unit of transport work run by the {@link TransportScheduler}. Instead of owning a thread and blocking,
+ * a task does a bounded amount of work in every step and tells the scheduler when it wants to run again.
+ */
+public interface IOTask {
+    /**
+     * Run again as soon as the group of the task gets its turn
+     */
+    long AGAIN = 0;
+
+    /**
+     * The task is finished and is removed from the scheduler
+     */
+    long DONE = -1;
+
+    /**
+     * There is nothing to do until new work arrives. A task watching a notifying queue is woken up when
+     * an element is added, otherwise the task is polled with an increasing delay.
+     */
+    long WAIT = -2;
+
+    /**
+     * Do a bounded amount of work. Must not block for long, the thread is shared with the other tasks.
+     * @return {@link #AGAIN}, {@link #WAIT}, {@link #DONE} or a positive number of milliseconds to sleep,
+     * a sleeping task is run earlier if it is woken up
+     */
+    long step();
+}
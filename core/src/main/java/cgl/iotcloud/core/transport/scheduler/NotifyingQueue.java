@@ -0,0 +1,105 @@
+package cgl.iotcloud.core.transport.scheduler;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A blocking queue which wakes up its consumer when an element is added, so a scheduled task does not
+ * have to poll the queue.
+ */
+public class NotifyingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private final BlockingQueue<E> queue;
+
+    private volatile Wakeable listener;
+
+    public NotifyingQueue(BlockingQueue<E> queue) {
+        this.queue = queue;
+    }
+
+    public void setListener(Wakeable listener) {
+        this.listener = listener;
+    }
+
+    public BlockingQueue<E> getQueue() {
+        return queue;
+    }
+
+    private void notifyListener() {
+        Wakeable l = listener;
+        if (l != null) {
+            l.wakeup();
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (queue.offer(e)) {
+            notifyListener();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        queue.put(e);
+        notifyListener();
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (queue.offer(e, timeout, unit)) {
+            notifyListener();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return queue.take();
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    @Override
+    public E poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return queue.drainTo(c);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        return queue.drainTo(c, maxElements);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return queue.iterator();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,75 @@
+package cgl.iotcloud.core.transport.scheduler;
+
+/**
+ * The delay of a task trying again after errors. The delay doubles with every error in a row up to a maximum
+ * and starts again after a success. A task woken up by new work during the delay checks {@link #remaining()}
+ * so it does not try again too early. Used by a single task.
+ */
+public class RetryBackoff {
+    public static final long DEFAULT_MIN_DELAY = 10;
+
+    public static final long DEFAULT_MAX_DELAY = 5000;
+
+    private final long minDelay;
+
+    private final long maxDelay;
+
+    private long delay = 0;
+
+    private long retryTime = 0;
+
+    private int errors = 0;
+
+    public RetryBackoff() {
+        this(DEFAULT_MIN_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * @param minDelay delay after the first error in milliseconds
+     * @param maxDelay maximum delay in milliseconds
+     */
+    public RetryBackoff(long minDelay, long maxDelay) {
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Record an error
+     * @return the milliseconds to wait before trying again
+     */
+    public long failed() {
+        errors++;
+        delay = delay == 0 ? minDelay : Math.min(maxDelay, delay * 2);
+        retryTime = System.currentTimeMillis() + delay;
+        return delay;
+    }
+
+    /**
+     * Record a success, the next error waits the minimum delay again
+     */
+    public void succeeded() {
+        errors = 0;
+        delay = 0;
+        retryTime = 0;
+    }
+
+    /**
+     * The time left before the task may try again
+     * @return milliseconds to wait, 0 if the task may try now
+     */
+    public long remaining() {
+        if (retryTime == 0) {
+            return 0;
+        }
+        long left = retryTime - System.currentTimeMillis();
+        return left > 0 ? left : 0;
+    }
+
+    /**
+     * Number of errors in a row
+     * @return the errors since the last success
+     */
+    public int getErrors() {
+        return errors;
+    }
+}
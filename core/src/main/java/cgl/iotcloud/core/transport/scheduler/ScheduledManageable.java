@@ -0,0 +1,11 @@
+package cgl.iotcloud.core.transport.scheduler;
+
+import cgl.iotcloud.core.transport.Manageable;
+
+/**
+ * A producer or consumer whose work runs on a {@link TransportScheduler}. The channel group sets the
+ * scheduler and the group used for fair scheduling before starting it.
+ */
+public interface ScheduledManageable extends Manageable {
+    void setScheduler(TransportScheduler scheduler, String group);
+}
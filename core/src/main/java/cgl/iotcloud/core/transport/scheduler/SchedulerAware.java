@@ -0,0 +1,9 @@
+package cgl.iotcloud.core.transport.scheduler;
+
+/**
+ * Implemented by transports which run their producers and consumers on a {@link TransportScheduler}.
+ * The sensor site sets its scheduler before configuring the transport.
+ */
+public interface SchedulerAware {
+    void setScheduler(TransportScheduler scheduler);
+}
@@ -0,0 +1,196 @@
+package cgl.iotcloud.core.transport.scheduler;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The scheduler side of a task. Keeps the state of the task so that it is queued at most once and never
+ * runs on two threads at the same time.
+ */
+public class TaskHandle implements Wakeable {
+    private static final int IDLE = 0;
+    private static final int QUEUED = 1;
+    private static final int RUNNING = 2;
+    private static final int DONE = 3;
+
+    private final TransportScheduler scheduler;
+
+    private final TransportScheduler.GroupQueue group;
+
+    private final IOTask task;
+
+    private final String name;
+
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    /**
+     * Set when a wakeup arrives while the task is running
+     */
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+
+    /**
+     * True if a notifying queue wakes up the task when work arrives
+     */
+    private volatile boolean watched = false;
+
+    /**
+     * Number of consecutive idle steps, used for the polling back off
+     */
+    private int idleCount = 0;
+
+    /**
+     * The timer wakeup of the task, a task has at most one. Only used by the step that is running.
+     */
+    private ScheduledFuture<?> timeout;
+
+    /**
+     * Time in nanoseconds the timer wakeup is due
+     */
+    private long timeoutDeadline;
+
+    TaskHandle(TransportScheduler scheduler, TransportScheduler.GroupQueue group, IOTask task, String name) {
+        this.scheduler = scheduler;
+        this.group = group;
+        this.task = task;
+        this.name = name;
+    }
+
+    void setWatched(boolean watched) {
+        this.watched = watched;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Run the task as soon as possible
+     */
+    @Override
+    public void wakeup() {
+        while (true) {
+            int s = state.get();
+            if (s == IDLE) {
+                if (state.compareAndSet(IDLE, QUEUED)) {
+                    group.enqueue(this);
+                    return;
+                }
+            } else if (s == RUNNING) {
+                wakeupPending.set(true);
+                // the task may have gone idle before it saw the flag
+                if (state.get() != IDLE) {
+                    return;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop scheduling the task. A step that is running completes.
+     */
+    public void cancel() {
+        finished();
+    }
+
+    public boolean isDone() {
+        return state.get() == DONE;
+    }
+
+    /**
+     * Wait for the task to return {@link IOTask#DONE}. A task told to stop returns it from its next step.
+     * @param timeout maximum time to wait in milliseconds
+     * @return true if the task is done, false after the timeout or if the thread is interrupted
+     */
+    public boolean awaitDone(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (this) {
+            while (!isDone()) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return false;
+                }
+                try {
+                    wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void finished() {
+        state.set(DONE);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Run a step of the task, called by a scheduler thread
+     */
+    void run() {
+        if (!state.compareAndSet(QUEUED, RUNNING)) {
+            return;
+        }
+        wakeupPending.set(false);
+
+        long next;
+        try {
+            next = task.step();
+        } catch (Throwable t) {
+            TransportScheduler.LOG.error("Task {} failed, removing it from the scheduler", name, t);
+            next = IOTask.DONE;
+        }
+
+        if (next == IOTask.DONE) {
+            finished();
+            if (timeout != null) {
+                timeout.cancel(false);
+                timeout = null;
+            }
+            return;
+        }
+
+        if (next == IOTask.AGAIN || wakeupPending.getAndSet(false)) {
+            idleCount = 0;
+            if (state.compareAndSet(RUNNING, QUEUED)) {
+                group.enqueue(this);
+            }
+            return;
+        }
+
+        long delay;
+        if (next > 0) {
+            idleCount = 0;
+            delay = TimeUnit.MILLISECONDS.toNanos(next);
+        } else if (watched) {
+            delay = scheduler.getWatchedPollNanos();
+        } else {
+            delay = scheduler.getPollNanos(idleCount++);
+        }
+
+        // a wakeup due earlier is kept, the task sets the timer again when it runs. A timer past its deadline
+        // has woken up this step even if its future is not done yet.
+        long now = System.nanoTime();
+        long deadline = now + delay;
+        if (timeout == null || timeout.isDone() || timeoutDeadline - now <= 0 || deadline - timeoutDeadline < 0) {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            timeout = scheduler.wakeupLater(this, delay);
+            timeoutDeadline = deadline;
+        }
+
+        if (state.compareAndSet(RUNNING, IDLE)) {
+            if (wakeupPending.getAndSet(false)) {
+                wakeup();
+            }
+        }
+    }
+}
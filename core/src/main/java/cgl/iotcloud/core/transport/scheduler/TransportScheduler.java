@@ -0,0 +1,355 @@
+package cgl.iotcloud.core.transport.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the producers and consumers of the transports on a bounded set of threads, so the number of
+ * threads depends on the number of cores and not on the number of channels.
+ *
+ * Every task belongs to a group, usually a channel group. Each group has its own run queue and the
+ * worker threads take groups in round robin order, running one step of one task of a group at a time.
+ * A busy group can not starve the others.
+ *
+ * Tasks which wait on the brokers, such as synchronous sends, run on a thread of their own so a slow broker
+ * does not hold up the other groups.
+ */
+public class TransportScheduler {
+    static Logger LOG = LoggerFactory.getLogger(TransportScheduler.class);
+
+    public static final long DEFAULT_MAX_POLL_INTERVAL = 20;
+
+    /**
+     * Interval of the safety poll for tasks woken up by a notifying queue
+     */
+    public static final long WATCHED_POLL_INTERVAL = 1000;
+
+    /**
+     * Time a transport waits for the running step of its task before it closes the broker connection
+     */
+    public static final long STOP_TIMEOUT = 5000;
+
+    private static TransportScheduler defaultScheduler;
+
+    private final int threads;
+
+    private final long maxPollNanos;
+
+    private final ConcurrentMap<String, GroupQueue> groups = new ConcurrentHashMap<String, GroupQueue>();
+
+    /**
+     * Groups which have tasks ready to run
+     */
+    private final BlockingQueue<GroupQueue> readyGroups = new LinkedBlockingQueue<GroupQueue>();
+
+    private final List<Thread> workers = new ArrayList<Thread>();
+
+    /**
+     * Threads of the blocking tasks, a thread ends with its task
+     */
+    private final List<Thread> blockingWorkers = new ArrayList<Thread>();
+
+    private ScheduledExecutorService timer;
+
+    private volatile boolean running = false;
+
+    public TransportScheduler() {
+        this(defaultThreads(), DEFAULT_MAX_POLL_INTERVAL);
+    }
+
+    /**
+     * Create a scheduler
+     * @param threads number of worker threads, a value less than 1 uses the number of cores
+     * @param maxPollInterval maximum interval in milliseconds between polls of an idle task that is not
+     *                        woken up by a queue
+     */
+    public TransportScheduler(int threads, long maxPollInterval) {
+        this.threads = threads > 0 ? threads : defaultThreads();
+        this.maxPollNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, maxPollInterval));
+    }
+
+    /**
+     * The scheduler shared by the transports that are not given one explicitly. It is created on the first
+     * call and its threads are daemons.
+     * @return the shared scheduler
+     */
+    public static synchronized TransportScheduler getDefault() {
+        if (defaultScheduler == null) {
+            defaultScheduler = new TransportScheduler();
+            defaultScheduler.start();
+        }
+        return defaultScheduler;
+    }
+
+    private static int defaultThreads() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        timer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("iot-io-timer"));
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(new Worker(readyGroups, null), "iot-io-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+        LOG.info("Started the transport scheduler with {} threads", threads);
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Thread t : workers) {
+            t.interrupt();
+        }
+        workers.clear();
+        for (Thread t : blockingWorkers) {
+            t.interrupt();
+        }
+        blockingWorkers.clear();
+        timer.shutdownNow();
+        LOG.info("Stopped the transport scheduler");
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Submit a task, it runs its first step as soon as possible
+     * @param group group of the task, tasks of the same group share a run queue
+     * @param task the task
+     * @param name name of the task used in the logs and as the group if the group is null
+     * @return handle to wake up or cancel the task
+     */
+    public TaskHandle submit(String group, IOTask task, String name) {
+        return submit(group, task, name, null);
+    }
+
+    /**
+     * Submit a task which consumes from a queue. If the queue is a {@link NotifyingQueue} the task is woken up
+     * when elements are added and the scheduler does not need to poll it.
+     * @param group group of the task, tasks of the same group share a run queue
+     * @param task the task
+     * @param name name of the task used in the logs
+     * @param queue the queue consumed by the task, can be null
+     * @return handle to wake up or cancel the task
+     */
+    public TaskHandle submit(String group, IOTask task, String name, BlockingQueue<?> queue) {
+        if (!running) {
+            String msg = "The transport scheduler is not running";
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+        // a task without a group gets a run queue of its own
+        String key = group != null ? group : name;
+        GroupQueue groupQueue = groups.get(key);
+        if (groupQueue == null) {
+            groupQueue = new GroupQueue(key);
+            GroupQueue existing = groups.putIfAbsent(key, groupQueue);
+            if (existing != null) {
+                groupQueue = existing;
+            }
+        }
+
+        TaskHandle handle = new TaskHandle(this, groupQueue, task, name);
+        watch(handle, queue);
+        handle.wakeup();
+        return handle;
+    }
+
+    /**
+     * Submit a task whose steps block on broker calls. The task runs on a thread of its own which ends when
+     * the task is done.
+     * @param task the task
+     * @param name name of the task used in the logs and for its thread
+     * @param queue the queue consumed by the task, can be null
+     * @return handle to wake up or cancel the task
+     */
+    public synchronized TaskHandle submitBlocking(IOTask task, String name, BlockingQueue<?> queue) {
+        if (!running) {
+            String msg = "The transport scheduler is not running";
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+        GroupQueue groupQueue = new GroupQueue(name, new LinkedBlockingQueue<GroupQueue>());
+        TaskHandle handle = new TaskHandle(this, groupQueue, task, name);
+        watch(handle, queue);
+
+        Thread t = new Thread(new Worker(groupQueue.readyQueue, handle), "iot-io-" + name);
+        t.setDaemon(true);
+        blockingWorkers.add(t);
+        t.start();
+        handle.wakeup();
+        return handle;
+    }
+
+    private void watch(TaskHandle handle, BlockingQueue<?> queue) {
+        if (queue instanceof NotifyingQueue) {
+            ((NotifyingQueue<?>) queue).setListener(handle);
+            handle.setWatched(true);
+        }
+    }
+
+    private synchronized void blockingWorkerDone(Thread t) {
+        blockingWorkers.remove(t);
+    }
+
+    /**
+     * Wake up the task after the delay
+     * @return the timer task, null if the scheduler is stopped
+     */
+    ScheduledFuture<?> wakeupLater(final TaskHandle handle, long delayNanos) {
+        if (!running) {
+            return null;
+        }
+        return timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                handle.wakeup();
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    long getWatchedPollNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(WATCHED_POLL_INTERVAL);
+    }
+
+    /**
+     * Poll interval of an idle task that is not watching a queue. Starts at one millisecond and doubles with
+     * every idle step up to the maximum.
+     * @param idleCount number of consecutive idle steps
+     * @return the interval in nanoseconds
+     */
+    long getPollNanos(int idleCount) {
+        long interval = TimeUnit.MILLISECONDS.toNanos(1) << Math.min(idleCount, 20);
+        return Math.min(interval, maxPollNanos);
+    }
+
+    /**
+     * The run queue of a group. The group is in the ready queue at most once.
+     */
+    class GroupQueue {
+        private final String name;
+
+        private final ConcurrentLinkedQueue<TaskHandle> tasks = new ConcurrentLinkedQueue<TaskHandle>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        /**
+         * The queue of the threads running this group
+         */
+        private final BlockingQueue<GroupQueue> readyQueue;
+
+        GroupQueue(String name) {
+            this(name, readyGroups);
+        }
+
+        GroupQueue(String name, BlockingQueue<GroupQueue> readyQueue) {
+            this.name = name;
+            this.readyQueue = readyQueue;
+        }
+
+        void enqueue(TaskHandle handle) {
+            tasks.offer(handle);
+            if (scheduled.compareAndSet(false, true)) {
+                readyQueue.offer(this);
+            }
+        }
+
+        /**
+         * Take the next task and put the group back at the end of the ready queue if it has more
+         * @return the next task or null
+         */
+        TaskHandle next() {
+            TaskHandle handle = tasks.poll();
+            scheduled.set(false);
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                readyQueue.offer(this);
+            }
+            return handle;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final BlockingQueue<GroupQueue> readyQueue;
+
+        /**
+         * The task of a blocking worker, null for the shared workers
+         */
+        private final TaskHandle owner;
+
+        private Worker(BlockingQueue<GroupQueue> readyQueue, TaskHandle owner) {
+            this.readyQueue = readyQueue;
+            this.owner = owner;
+        }
+
+        @Override
+        public void run() {
+            while (running && (owner == null || !owner.isDone())) {
+                try {
+                    GroupQueue group = readyQueue.poll(100, TimeUnit.MILLISECONDS);
+                    if (group == null) {
+                        continue;
+                    }
+                    TaskHandle handle = group.next();
+                    if (handle != null) {
+                        handle.run();
+                    }
+                } catch (InterruptedException e) {
+                    if (running) {
+                        LOG.warn("Transport scheduler thread interrupted while running");
+                    }
+                } catch (Throwable t) {
+                    LOG.error("Unexpected error in the transport scheduler", t);
+                }
+            }
+            if (owner != null) {
+                blockingWorkerDone(Thread.currentThread());
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        private DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name + "-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package cgl.iotcloud.core.transport.scheduler;
+
+/**
+ * Something that can be told that new work is available
+ */
+public interface Wakeable {
+    void wakeup();
+}
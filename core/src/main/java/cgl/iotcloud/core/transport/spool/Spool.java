@@ -0,0 +1,440 @@
+package cgl.iotcloud.core.transport.spool;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.MessageEnvelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append only message store made of memory mapped segment files. The messages are read back in the
+ * order they were appended. The read position is saved in a checkpoint file, after a crash the messages
+ * after the last checkpoint are read again.
+ *
+ * When the spool reaches its maximum size the oldest segment is dropped, and segments older than the
+ * retention are dropped without being read. A spool is used by a single thread.
+ */
+public class Spool {
+    private static Logger LOG = LoggerFactory.getLogger(Spool.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_SIZE = 1024L * 1024 * 1024;
+
+    public static final long DEFAULT_RETENTION = 24 * 60 * 60 * 1000L;
+
+    static final String CHECKPOINT = "checkpoint";
+
+    private final File dir;
+
+    private final int segmentSize;
+
+    private final long maxSize;
+
+    private final long retention;
+
+    /**
+     * The segments in the order they were written, the first is read and the last is written
+     */
+    private final Deque<SpoolSegment> segments = new ArrayDeque<SpoolSegment>();
+
+    /**
+     * Segments read to the end, deleted after the next checkpoint so a crash before it reads them again
+     */
+    private final List<SpoolSegment> readSegments = new ArrayList<SpoolSegment>();
+
+    private long totalSize = 0;
+
+    private long nextId = 0;
+
+    private int readPosition = 0;
+
+    /**
+     * Length of the record returned by the last peek, 0 if there is none
+     */
+    private int peekedLength = 0;
+
+    private boolean dirty = false;
+
+    private volatile boolean empty = true;
+
+    /**
+     * Messages in the spool which are not read yet
+     */
+    private volatile long pending = 0;
+
+    private volatile long appended = 0;
+
+    private volatile long replayed = 0;
+
+    private volatile long dropped = 0;
+
+    private final RecordBuffer record = new RecordBuffer();
+
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+
+    /**
+     * @param dir directory of the segment files
+     * @param segmentSize size of a segment file
+     * @param maxSize maximum size of all the segments
+     * @param retention milliseconds a message is kept, 0 to keep the messages until they are read
+     */
+    public Spool(File dir, int segmentSize, long maxSize, long retention) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.retention = retention;
+    }
+
+    /**
+     * Open the spool and recover the messages left by an earlier run
+     * @throws IOException if the files cannot be read
+     */
+    public void open() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create the spool directory " + dir);
+        }
+
+        long checkpointId = -1;
+        int checkpointPosition = 0;
+        long []checkpoint = readCheckpoint();
+        if (checkpoint != null) {
+            checkpointId = checkpoint[0];
+            checkpointPosition = (int) checkpoint[1];
+        }
+
+        File []files = dir.listFiles();
+        List<Long> ids = new ArrayList<Long>();
+        for (File file : files != null ? files : new File[0]) {
+            String fileName = file.getName();
+            if (fileName.endsWith(SpoolSegment.SUFFIX)) {
+                try {
+                    ids.add(Long.parseLong(fileName.substring(0, fileName.length() - SpoolSegment.SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    LOG.warn("Ignoring the file {} in the spool directory", file);
+                }
+            }
+        }
+        Long []sorted = ids.toArray(new Long[ids.size()]);
+        Arrays.sort(sorted);
+        for (long id : sorted) {
+            File file = new File(dir, SpoolSegment.fileName(id));
+            if (id < checkpointId) {
+                // already read before the checkpoint
+                deleteFile(file);
+                continue;
+            }
+            SpoolSegment segment = SpoolSegment.open(file, id);
+            segments.addLast(segment);
+            totalSize += segment.getSize();
+            nextId = id + 1;
+        }
+        // the ids keep growing after the segments were all dropped, a new segment below the checkpoint would
+        // be taken as already read by the next open
+        nextId = Math.max(nextId, checkpointId);
+        SpoolSegment first = segments.peekFirst();
+        if (first != null && first.getId() == checkpointId) {
+            readPosition = checkpointPosition;
+        }
+        int position = readPosition;
+        for (SpoolSegment segment : segments) {
+            pending += segment.countRecords(position);
+            position = 0;
+        }
+        expire();
+        updateEmpty();
+        if (!empty) {
+            LOG.info("Recovered {} messages in {} spool segments from {}", pending, segments.size(), dir);
+        }
+    }
+
+    /**
+     * Append a message, the message is not released
+     * @param message the message
+     * @return false if the message is larger than the spool and was dropped
+     * @throws IOException if a segment cannot be created
+     */
+    public boolean append(MessageContext message) throws IOException {
+        record.reset();
+        recordOut.writeByte(MessageEnvelope.VERSION);
+        MessageEnvelope.writeFrame(recordOut, message);
+        int length = record.size();
+
+        SpoolSegment last = segments.peekLast();
+        if (last == null || !last.append(record.array(), length)) {
+            int size = Math.max(segmentSize, SpoolSegment.RECORD_HEADER + length);
+            if (size > maxSize) {
+                LOG.warn("A message of {} bytes does not fit in to the spool {}", length, dir);
+                dropped++;
+                return false;
+            }
+            if (last != null) {
+                // the full segment is not written any more
+                last.force();
+            }
+            // make room by dropping the oldest messages
+            while (totalSize + size > maxSize && !segments.isEmpty()) {
+                SpoolSegment oldest = segments.peekFirst();
+                LOG.warn("The spool {} is full, dropping the segment {}", dir, oldest.getFile());
+                dropFirst();
+            }
+            SpoolSegment segment = SpoolSegment.create(dir, nextId++, size);
+            segments.addLast(segment);
+            totalSize += size;
+            segment.append(record.array(), length);
+        }
+        appended++;
+        pending++;
+        dirty = true;
+        empty = false;
+        return true;
+    }
+
+    /**
+     * Read the oldest message without removing it
+     * @return the message or null if the spool is empty
+     */
+    public MessageContext peek() {
+        while (true) {
+            SpoolSegment segment = segments.peekFirst();
+            if (segment == null) {
+                return null;
+            }
+            byte []data = segment.read(readPosition);
+            if (data == null) {
+                if (segment == segments.peekLast()) {
+                    return null;
+                }
+                // the segment is read to the end
+                segments.removeFirst();
+                totalSize -= segment.getSize();
+                readPosition = 0;
+                readSegments.add(segment);
+                dirty = true;
+                continue;
+            }
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+                byte version = in.readByte();
+                if (version != MessageEnvelope.VERSION) {
+                    throw new IllegalArgumentException("Unknown spool record version " + version);
+                }
+                MessageContext message = MessageEnvelope.readFrame(in);
+                peekedLength = data.length;
+                return message;
+            } catch (Exception e) {
+                LOG.warn("Skipping an invalid message in the spool " + dir, e);
+                readPosition += SpoolSegment.RECORD_HEADER + data.length;
+                dropped++;
+                pending--;
+            }
+        }
+    }
+
+    /**
+     * Remove the message returned by the last peek
+     * @return false if the message was dropped from the spool after the peek
+     */
+    public boolean remove() {
+        if (peekedLength == 0) {
+            return false;
+        }
+        readPosition += SpoolSegment.RECORD_HEADER + peekedLength;
+        peekedLength = 0;
+        replayed++;
+        pending--;
+        dirty = true;
+        updateEmpty();
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Drop the segments older than the retention
+     */
+    public void expire() {
+        if (retention <= 0) {
+            return;
+        }
+        long oldest = System.currentTimeMillis() - retention;
+        while (!segments.isEmpty() && segments.peekFirst().getLastWrite() < oldest) {
+            LOG.warn("Dropping the spool segment {} which is older than the retention", segments.peekFirst().getFile());
+            dropFirst();
+        }
+        updateEmpty();
+    }
+
+    /**
+     * Write the segments and the read position to the disk. A crash after the checkpoint does not lose the
+     * messages appended and does not read again the messages removed before it.
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void checkpoint() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        SpoolSegment last = segments.peekLast();
+        if (last != null) {
+            last.force();
+        }
+        SpoolSegment first = segments.peekFirst();
+        writeCheckpoint(first != null ? first.getId() : nextId, first != null ? readPosition : 0);
+        dirty = false;
+        for (SpoolSegment segment : readSegments) {
+            deleteFile(segment.getFile());
+        }
+        readSegments.clear();
+    }
+
+    /**
+     * Checkpoint and close the spool, the segments stay on the disk for the next run
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void close() throws IOException {
+        checkpoint();
+        segments.clear();
+    }
+
+    /**
+     * Drop the oldest segment with the messages not read from it
+     */
+    private void dropFirst() {
+        SpoolSegment segment = segments.removeFirst();
+        int records = segment.countRecords(readPosition);
+        dropped += records;
+        pending -= records;
+        totalSize -= segment.getSize();
+        readPosition = 0;
+        peekedLength = 0;
+        deleteFile(segment.getFile());
+        dirty = true;
+    }
+
+    private void updateEmpty() {
+        SpoolSegment first = segments.peekFirst();
+        empty = first == null || (first == segments.peekLast() && readPosition >= first.getWritePosition());
+    }
+
+    private void deleteFile(File file) {
+        if (!file.delete()) {
+            LOG.warn("Failed to delete the spool file {}", file);
+        }
+    }
+
+    private long[] readCheckpoint() {
+        File file = new File(dir, CHECKPOINT);
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            long id = in.readLong();
+            int position = in.readInt();
+            long checksum = in.readLong();
+            if (checksum != checksum(id, position)) {
+                LOG.warn("Ignoring the corrupted spool checkpoint {}", file);
+                return null;
+            }
+            return new long[]{id, position};
+        } catch (IOException e) {
+            LOG.warn("Ignoring the unreadable spool checkpoint " + file, e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void writeCheckpoint(long id, int position) throws IOException {
+        File tmp = new File(dir, CHECKPOINT + ".tmp");
+        FileOutputStream stream = new FileOutputStream(tmp);
+        try {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeLong(id);
+            out.writeInt(position);
+            out.writeLong(checksum(id, position));
+            out.flush();
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+        // the rename replaces the old checkpoint at once
+        if (!tmp.renameTo(new File(dir, CHECKPOINT))) {
+            throw new IOException("Failed to write the spool checkpoint in " + dir);
+        }
+    }
+
+    private static long checksum(long id, int position) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < 8; i++) {
+            crc.update((int) (id >>> (i * 8)));
+        }
+        for (int i = 0; i < 4; i++) {
+            crc.update(position >>> (i * 8));
+        }
+        return crc.getValue();
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Bytes of the segment files
+     * @return the size
+     */
+    public long getSize() {
+        return totalSize;
+    }
+
+    /**
+     * Messages in the spool which are not read yet
+     * @return number of messages
+     */
+    public long getPending() {
+        return pending;
+    }
+
+    public long getAppended() {
+        return appended;
+    }
+
+    public long getReplayed() {
+        return replayed;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Gives access to the bytes written so a record is not copied
+     */
+    private static class RecordBuffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package cgl.iotcloud.core.transport.spool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * A memory mapped spool file. The records are appended as a length, a checksum and the data. The length is
+ * written last, so a record cut by a crash reads as the end of the segment.
+ */
+class SpoolSegment {
+    static final int RECORD_HEADER = 8;
+
+    static final String SUFFIX = ".seg";
+
+    private final long id;
+
+    private final File file;
+
+    private final int size;
+
+    private final MappedByteBuffer map;
+
+    private final CRC32 crc = new CRC32();
+
+    private int writePosition;
+
+    private long lastWrite;
+
+    private SpoolSegment(long id, File file, int size, MappedByteBuffer map, long lastWrite) {
+        this.id = id;
+        this.file = file;
+        this.size = size;
+        this.map = map;
+        this.lastWrite = lastWrite;
+    }
+
+    /**
+     * Create an empty segment
+     */
+    static SpoolSegment create(File dir, long id, int size) throws IOException {
+        File file = new File(dir, fileName(id));
+        MappedByteBuffer map = map(file, size);
+        return new SpoolSegment(id, file, size, map, System.currentTimeMillis());
+    }
+
+    /**
+     * Open a segment left by an earlier run, the write position is after the last valid record
+     */
+    static SpoolSegment open(File file, long id) throws IOException {
+        int size = (int) file.length();
+        MappedByteBuffer map = map(file, size);
+        SpoolSegment segment = new SpoolSegment(id, file, size, map, file.lastModified());
+        int position = 0;
+        int length;
+        while ((length = segment.recordLength(position, true)) > 0) {
+            position += RECORD_HEADER + length;
+        }
+        segment.writePosition = position;
+        return segment;
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // the mapping stays valid after the file is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    static String fileName(long id) {
+        return String.format("%020d%s", id, SUFFIX);
+    }
+
+    /**
+     * Append a record
+     * @return false if the record does not fit in to the segment
+     */
+    boolean append(byte []data, int length) {
+        if (writePosition + RECORD_HEADER + length > size) {
+            return false;
+        }
+        crc.reset();
+        crc.update(data, 0, length);
+        ByteBuffer target = map.duplicate();
+        target.position(writePosition + RECORD_HEADER);
+        target.put(data, 0, length);
+        map.putInt(writePosition + 4, (int) crc.getValue());
+        // the length makes the record visible
+        map.putInt(writePosition, length);
+        writePosition += RECORD_HEADER + length;
+        lastWrite = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Read the record at a position
+     * @return the data or null if there is no valid record at the position
+     */
+    byte[] read(int position) {
+        int length = recordLength(position, false);
+        if (length <= 0) {
+            return null;
+        }
+        byte []data = new byte[length];
+        ByteBuffer source = map.duplicate();
+        source.position(position + RECORD_HEADER);
+        source.get(data);
+        crc.reset();
+        crc.update(data, 0, length);
+        if ((int) crc.getValue() != map.getInt(position + 4)) {
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * The length of the record at a position, 0 if there is none
+     */
+    private int recordLength(int position, boolean verify) {
+        if (position + RECORD_HEADER > size) {
+            return 0;
+        }
+        int length = map.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER + length > size) {
+            return 0;
+        }
+        if (verify && read(position) == null) {
+            return 0;
+        }
+        return length;
+    }
+
+    /**
+     * Number of records from a position to the end of the segment, a record cut by a crash is not counted
+     */
+    int countRecords(int position) {
+        int count = 0;
+        int length;
+        while (position < writePosition && (length = recordLength(position, false)) > 0) {
+            position += RECORD_HEADER + length;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Write the changes to the disk
+     */
+    void force() {
+        map.force();
+        file.setLastModified(lastWrite);
+    }
+
+    boolean delete() {
+        return file.delete();
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    long getLastWrite() {
+        return lastWrite;
+    }
+}
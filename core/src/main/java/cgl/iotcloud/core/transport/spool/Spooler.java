@@ -0,0 +1,174 @@
+package cgl.iotcloud.core.transport.spool;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.BrokerStats;
+import cgl.iotcloud.core.transport.ProducerStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Passes the messages to the producer queue of a broker and spools them to the disk while the broker is
+ * down or too slow to keep up. The spooled messages are replayed in order once the broker takes messages
+ * again, and the new messages go behind them in the spool until it is empty.
+ */
+public class Spooler implements ProducerStage {
+    private static Logger LOG = LoggerFactory.getLogger(Spooler.class);
+
+    public static final int MAX_MESSAGES_PER_STEP = 64;
+
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 1000;
+
+    /**
+     * Time to wait before trying again to replay to a full producer queue or an unhealthy broker
+     */
+    public static final long REPLAY_WAIT = 10;
+
+    private final BlockingQueue<MessageContext> input;
+
+    private final BlockingQueue<MessageContext> output;
+
+    private final Spool spool;
+
+    private final long checkpointInterval;
+
+    private volatile BrokerStats brokerStats;
+
+    /**
+     * A message read from the spool which the producer queue did not take yet
+     */
+    private volatile MessageContext replaying;
+
+    private long lastCheckpoint = System.currentTimeMillis();
+
+    private volatile boolean run = true;
+
+    /**
+     * @param input the queue the channels publish to
+     * @param output the producer queue of the broker
+     * @param spool an open spool
+     * @param checkpointInterval milliseconds between the checkpoints of the spool
+     */
+    public Spooler(BlockingQueue<MessageContext> input, BlockingQueue<MessageContext> output, Spool spool,
+                   long checkpointInterval) {
+        this.input = input;
+        this.output = output;
+        this.spool = spool;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Spool the messages while the broker is not healthy even if its producer queue has room, only one
+     * message at a time is passed on to find out when the broker is back
+     * @param brokerStats health of the broker
+     */
+    public void setBrokerStats(BrokerStats brokerStats) {
+        this.brokerStats = brokerStats;
+    }
+
+    @Override
+    public long step() {
+        if (!run) {
+            if (replaying != null) {
+                replaying.release();
+                replaying = null;
+            }
+            try {
+                // the messages not passed on yet are kept for the next run
+                MessageContext message;
+                while ((message = input.poll()) != null) {
+                    spool.append(message);
+                    message.release();
+                }
+                spool.close();
+            } catch (IOException e) {
+                LOG.error("Failed to close the spool " + spool.getDirectory(), e);
+            }
+            return DONE;
+        }
+
+        // the spooled messages go first so the order is kept
+        int replayedCount = 0;
+        boolean blocked = false;
+        while (replayedCount < MAX_MESSAGES_PER_STEP) {
+            if (replaying == null) {
+                replaying = spool.peek();
+                if (replaying == null) {
+                    break;
+                }
+            }
+            if (!brokerAvailable() || !output.offer(replaying)) {
+                blocked = true;
+                break;
+            }
+            spool.remove();
+            replaying = null;
+            replayedCount++;
+        }
+
+        int taken = 0;
+        MessageContext message;
+        while (taken < MAX_MESSAGES_PER_STEP && (message = input.poll()) != null) {
+            taken++;
+            if (!blocked && replaying == null && spool.isEmpty() && brokerAvailable() && output.offer(message)) {
+                continue;
+            }
+            blocked = true;
+            try {
+                spool.append(message);
+            } catch (IOException e) {
+                LOG.error("Failed to spool a message to " + spool.getDirectory() + ", dropping it", e);
+            }
+            message.release();
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastCheckpoint >= checkpointInterval || (spool.isEmpty() && replayedCount > 0)) {
+            checkpoint(now);
+        }
+
+        if (taken == MAX_MESSAGES_PER_STEP || (!blocked && replayedCount == MAX_MESSAGES_PER_STEP)) {
+            return AGAIN;
+        }
+        if (replaying != null || !spool.isEmpty()) {
+            // nothing wakes us when the producer queue gets room
+            return Math.min(REPLAY_WAIT, checkpointInterval);
+        }
+        return WAIT;
+    }
+
+    private void checkpoint(long now) {
+        lastCheckpoint = now;
+        spool.expire();
+        try {
+            spool.checkpoint();
+        } catch (IOException e) {
+            LOG.error("Failed to checkpoint the spool " + spool.getDirectory(), e);
+        }
+    }
+
+    /**
+     * True if messages may go to the producer queue. The error rate of a broker only comes down with
+     * successful sends, so an unhealthy broker still gets one message at a time to try with.
+     */
+    private boolean brokerAvailable() {
+        BrokerStats stats = brokerStats;
+        return stats == null || stats.isHealthy() || output.isEmpty();
+    }
+
+    public Spool getSpool() {
+        return spool;
+    }
+
+    @Override
+    public boolean hasPending() {
+        return replaying != null || !spool.isEmpty() || !input.isEmpty();
+    }
+
+    @Override
+    public void stop() {
+        run = false;
+    }
+}
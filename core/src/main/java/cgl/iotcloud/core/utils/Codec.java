@@ -0,0 +1,34 @@
+package cgl.iotcloud.core.utils;
+
+import java.io.IOException;
+
+/**
+ * Turns objects in to bytes and back. A codec is shared by many threads and must be thread safe.
+ */
+public interface Codec {
+    /**
+     * The name used to select this codec in the configuration
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Encode an object
+     * @param object the object
+     * @return the bytes
+     * @throws IOException if the codec cannot encode this object
+     */
+    byte[] encode(Object object) throws IOException;
+
+    /**
+     * Decode an object written by {@link #encode(Object)}. Codecs reading in place may keep a view of the
+     * array in the returned object.
+     * @param bytes the array with the encoded object
+     * @param offset start of the encoded object in the array
+     * @param length length of the encoded object
+     * @param type the type of the object
+     * @return the object
+     * @throws IOException if the bytes are not a valid encoding of the type
+     */
+    <T> T decode(byte[] bytes, int offset, int length, Class<T> type) throws IOException;
+}
@@ -0,0 +1,77 @@
+package cgl.iotcloud.core.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The codecs known to this process by name. The configuration selects a codec for every use site with a map
+ * from the use site to the codec name, a use site without an entry uses its default codec. Modules with
+ * their own codecs register them before the codecs are looked up.
+ */
+public class CodecRegistry {
+    private static Logger LOG = LoggerFactory.getLogger(CodecRegistry.class);
+
+    public static final String JAVA = "java";
+    public static final String THRIFT_BINARY = "thrift-binary";
+    public static final String THRIFT_COMPACT = "thrift-compact";
+    public static final String KRYO = "kryo";
+
+    // the site descriptors written to zookeeper by the master
+    public static final String ZK_SITE = "zk.site";
+    // the sensor and channel descriptors written to zookeeper by the master
+    public static final String ZK_SENSOR = "zk.sensor";
+    // the sensor messages sent through kafka
+    public static final String KAFKA_MESSAGE = "kafka.message";
+    // the consumer offsets kept in zookeeper by the kafka transport
+    public static final String KAFKA_OFFSETS = "kafka.offsets";
+
+    private static final ConcurrentMap<String, Codec> codecs = new ConcurrentHashMap<String, Codec>();
+
+    static {
+        register(new JavaCodec());
+        register(ThriftCodec.binary());
+        register(ThriftCodec.compact());
+        register(new KryoCodec());
+    }
+
+    /**
+     * Add a codec, replaces a codec with the same name
+     * @param codec the codec
+     */
+    public static void register(Codec codec) {
+        codecs.put(codec.getName(), codec);
+    }
+
+    /**
+     * Get a codec by name
+     * @param name the name
+     * @return the codec
+     * @throws RuntimeException if there is no codec with this name
+     */
+    public static Codec getCodec(String name) {
+        Codec codec = codecs.get(name);
+        if (codec == null) {
+            String msg = "Unknown codec: " + name;
+            LOG.error(msg);
+            throw new RuntimeException(msg);
+        }
+        return codec;
+    }
+
+    /**
+     * Get the codec configured for a use site
+     * @param siteCodecs map from the use site to the codec name, can be null
+     * @param useSite the use site
+     * @param defaultName the codec used when the use site is not configured
+     * @return the codec
+     * @throws RuntimeException if the configured codec is not known
+     */
+    public static Codec getCodec(Map siteCodecs, String useSite, String defaultName) {
+        Object name = siteCodecs != null ? siteCodecs.get(useSite) : null;
+        return getCodec(name != null ? name.toString() : defaultName);
+    }
+}
@@ -0,0 +1,45 @@
+package cgl.iotcloud.core.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Java serialization, works for any serializable object
+ */
+public class JavaCodec implements Codec {
+    @Override
+    public String getName() {
+        return CodecRegistry.JAVA;
+    }
+
+    @Override
+    public byte[] encode(Object object) throws IOException {
+        if (!(object instanceof Serializable)) {
+            throw new NotSerializableException(object == null ? "null" : object.getClass().getName());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, int offset, int length, Class<T> type) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length));
+        try {
+            return type.cast(in.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in the serialized object: " + e.getMessage());
+        } catch (ClassCastException e) {
+            throw new IOException("The serialized object is not a " + type.getName());
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package cgl.iotcloud.core.utils;
+
+import cgl.iotcloud.core.api.thrift.TBroker;
+import cgl.iotcloud.core.api.thrift.TChannel;
+import cgl.iotcloud.core.api.thrift.TSensor;
+import cgl.iotcloud.core.api.thrift.TSensorMessage;
+import cgl.iotcloud.core.api.thrift.TSite;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * Kryo encoding. The class of the object is written with it so an object can be decoded as one of its
+ * super types. The thrift api classes are registered and written as small ids, other classes by name.
+ * A Kryo instance and its output buffer are kept per thread.
+ */
+public class KryoCodec implements Codec {
+    private static final int MAX_BUFFER_SIZE = 64 * 1024 * 1024;
+
+    private final ThreadLocal<Kryo> kryos = new ThreadLocal<Kryo>() {
+        @Override
+        protected Kryo initialValue() {
+            Kryo kryo = new Kryo();
+            // the thrift objects keep their binary fields in byte buffers which have no usable constructor
+            Kryo.DefaultInstantiatorStrategy strategy = new Kryo.DefaultInstantiatorStrategy();
+            strategy.setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
+            kryo.setInstantiatorStrategy(strategy);
+            kryo.addDefaultSerializer(ByteBuffer.class, new ByteBufferSerializer());
+            // lists given to the thrift objects by Arrays.asList are read back as array lists
+            kryo.addDefaultSerializer(Arrays.asList().getClass(), new ArraysAsListSerializer());
+            // the ids depend on the order of registration, new classes go to the end
+            kryo.register(TSensorMessage.class);
+            kryo.register(TSensor.class);
+            kryo.register(TChannel.class);
+            kryo.register(TSite.class);
+            kryo.register(TBroker.class);
+            kryo.register(HashMap.class);
+            kryo.register(ArrayList.class);
+            return kryo;
+        }
+    };
+
+    private final ThreadLocal<Output> outputs = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output(1024, MAX_BUFFER_SIZE);
+        }
+    };
+
+    @Override
+    public String getName() {
+        return CodecRegistry.KRYO;
+    }
+
+    @Override
+    public byte[] encode(Object object) throws IOException {
+        Output output = outputs.get();
+        output.clear();
+        try {
+            kryos.get().writeClassAndObject(output, object);
+            return output.toBytes();
+        } catch (KryoException e) {
+            throw new IOException("Failed to encode the object", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Failed to encode the object", e);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, int offset, int length, Class<T> type) throws IOException {
+        try {
+            return type.cast(kryos.get().readClassAndObject(new Input(bytes, offset, length)));
+        } catch (KryoException e) {
+            throw new IOException("Failed to decode the object", e);
+        } catch (ClassCastException e) {
+            throw new IOException("The encoded object is not a " + type.getName());
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer, reads them back in to a heap buffer
+     */
+    private static class ByteBufferSerializer extends Serializer<ByteBuffer> {
+        @Override
+        public void write(Kryo kryo, Output output, ByteBuffer buffer) {
+            int length = buffer.remaining();
+            output.writeInt(length, true);
+            if (buffer.hasArray()) {
+                output.writeBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            } else {
+                byte[] bytes = new byte[length];
+                buffer.duplicate().get(bytes);
+                output.writeBytes(bytes);
+            }
+        }
+
+        @Override
+        public ByteBuffer read(Kryo kryo, Input input, Class<ByteBuffer> type) {
+            int length = input.readInt(true);
+            return ByteBuffer.wrap(input.readBytes(length));
+        }
+    }
+
+    private static class ArraysAsListSerializer extends CollectionSerializer {
+        @Override
+        protected Collection create(Kryo kryo, Input input, Class<Collection> type) {
+            return new ArrayList();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package cgl.iotcloud.core.utils;
+
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TMemoryInputTransport;
+
+import java.io.IOException;
+
+/**
+ * Thrift encoding of the thrift objects with the binary or the compact protocol. The serializers are kept
+ * per thread instead of created for every object, decoding reads in place so binary fields of the decoded
+ * object are views of the given array.
+ */
+public class ThriftCodec implements Codec {
+    private final String name;
+
+    private final TProtocolFactory protocolFactory;
+
+    private final ThreadLocal<TSerializer> serializers = new ThreadLocal<TSerializer>() {
+        @Override
+        protected TSerializer initialValue() {
+            return new TSerializer(protocolFactory);
+        }
+    };
+
+    private ThriftCodec(String name, TProtocolFactory protocolFactory) {
+        this.name = name;
+        this.protocolFactory = protocolFactory;
+    }
+
+    public static ThriftCodec binary() {
+        return new ThriftCodec(CodecRegistry.THRIFT_BINARY, new TBinaryProtocol.Factory());
+    }
+
+    public static ThriftCodec compact() {
+        return new ThriftCodec(CodecRegistry.THRIFT_COMPACT, new TCompactProtocol.Factory());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public byte[] encode(Object object) throws IOException {
+        if (!(object instanceof TBase)) {
+            throw new IOException("The " + name + " codec only encodes thrift objects");
+        }
+        try {
+            return serializers.get().serialize((TBase) object);
+        } catch (TException e) {
+            throw new IOException("Failed to encode the thrift object", e);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, int offset, int length, Class<T> type) throws IOException {
+        if (!TBase.class.isAssignableFrom(type)) {
+            throw new IOException("The " + name + " codec only decodes thrift objects");
+        }
+        try {
+            T object = type.newInstance();
+            ((TBase) object).read(protocolFactory.getProtocol(new TMemoryInputTransport(bytes, offset, length)));
+            return object;
+        } catch (TException e) {
+            throw new IOException("Failed to decode the thrift object", e);
+        } catch (InstantiationException e) {
+            throw new IOException("Failed to create the thrift object", e);
+        } catch (IllegalAccessException e) {
+            throw new IOException("Failed to create the thrift object", e);
+        }
+    }
+}
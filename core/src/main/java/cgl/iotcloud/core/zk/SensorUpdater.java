@@ -5,7 +5,7 @@ import cgl.iotcloud.core.api.thrift.TSensor;
 import cgl.iotcloud.core.api.thrift.TSensorState;
 import cgl.iotcloud.core.api.thrift.TSite;
 import cgl.iotcloud.core.master.MasterContext;
-import cgl.iotcloud.core.utils.SerializationUtils;
+import cgl.iotcloud.core.utils.Codec;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.zookeeper.CreateMode;
 import org.slf4j.Logger;
@@ -18,14 +18,14 @@ public class SensorUpdater {
 
     public static final String SENSORS_NODE = "sensors";
 
-    public static void addSite(CuratorFramework client, String parent, TSite descriptor) {
+    public static void addSite(CuratorFramework client, String parent, TSite descriptor, Codec codec) {
         // this will create the given ZNode with the given data
         try {
             if (client.checkExists().forPath(parent + "/" + descriptor.getSiteId()) != null) {
                 client.delete().forPath(parent + "/" + descriptor.getSiteId());
             }
 
-            client.create().forPath(parent + "/" + descriptor.getSiteId(), SerializationUtils.serializeToBytes(descriptor));
+            client.create().forPath(parent + "/" + descriptor.getSiteId(), codec.encode(descriptor));
         } catch (Exception e) {
             String msg = "Failed to register the site: " + getSitePath(parent, descriptor) + " in ZK";
             LOG.error(msg, e);
@@ -42,7 +42,7 @@ public class SensorUpdater {
         }
     }
 
-    public static void addSensor(CuratorFramework client, MasterContext context, String site, TSensor descriptor) {
+    public static void addSensor(CuratorFramework client, MasterContext context, String site, TSensor descriptor, Codec codec) {
         // this will create the given ZNode with the given data
         try {
             if (client.checkExists().forPath(context.getParentPath() + "/" + SENSORS_NODE) == null) {
@@ -61,7 +61,7 @@ public class SensorUpdater {
 
             client.create().withMode(CreateMode.PERSISTENT).forPath(
                     context.getParentPath() + "/" + SENSORS_NODE + "/" + descriptor.getName() + "/" + descriptor.getSensorId(),
-                            SerializationUtils.serializeThriftObject(descriptor));
+                            codec.encode(descriptor));
 
             // now get the channels for this sensor and add them to the zookeeper
             // for each channel we need
@@ -78,7 +78,7 @@ public class SensorUpdater {
                 }
                 client.create().withMode(CreateMode.PERSISTENT).forPath(
                         context.getParentPath() + "/" + SENSORS_NODE + "/" + descriptor.getName() + "/" + descriptor.getSensorId() + "/" + channel.getName(),
-                        SerializationUtils.serializeThriftObject(channel));
+                        codec.encode(channel));
             }
         } catch (Exception e) {
             String msg = "Failed to register the sensor in ZK";
@@ -108,7 +108,7 @@ public class SensorUpdater {
         }
     }
 
-    public static void markSensorForDeletion(CuratorFramework client, MasterContext context, String site, TSensor descriptor) {
+    public static void markSensorForDeletion(CuratorFramework client, MasterContext context, String site, TSensor descriptor, Codec codec) {
         String path = context.getParentPath() + "/" + SENSORS_NODE + "/" + descriptor.getName() + "/" + descriptor.getSensorId();
         try {
             if (client.checkExists().forPath(path) == null) {
@@ -117,7 +117,7 @@ public class SensorUpdater {
                 throw new RuntimeException(msg);
             }
             descriptor.setState(TSensorState.UN_DEPLOY);
-            client.setData().forPath(path, SerializationUtils.serializeThriftObject(descriptor));
+            client.setData().forPath(path, codec.encode(descriptor));
         } catch (Exception e) {
             String msg = "Failed to remove the sensor: " + path + " from ZK";
             LOG.error(msg, e);
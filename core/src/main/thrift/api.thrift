@@ -24,6 +24,7 @@ struct TChannel {
     7:optional string sensor
     8:optional bool grouped
     9:optional string sensorId
+    10:optional i64 sensorKey        # the site unique numeric id of the sensor, used in the messages
 }
 
 struct TBroker {
@@ -79,4 +80,5 @@ struct TSensorMessage {
     2:string site
     3:binary body
     4:optional map<string, string> properties
+    5:optional i64 sensorKey         # set instead of the sensorId by the sensor sites, see TChannel.sensorKey
 }
@@ -18,4 +18,9 @@ service TMasterAPIService {
 
     list<api.TSensor> getSensors(1:string siteId)
     list<api.TSensor> getAllSensors()
+
+    api.TResponse addBroker(1:list<string> sites, 2:string transportName, 3:string url, 4:string zone)
+    api.TResponse removeBroker(1:list<string> sites, 2:string transportName, 3:string url)
+
+    api.TResponse setRateLimit(1:list<string> sites, 2:string sensorId, 3:string channelName, 4:double messageRate, 5:double byteRate, 6:string policy)
 }
\ No newline at end of file
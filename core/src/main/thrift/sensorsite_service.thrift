@@ -11,4 +11,10 @@ service TSensorSiteService {
 
     api.TResponse startSensor(1:string id)
     api.TResponse stopSensor(1:string id)
+
+    api.TResponse addBroker(1:string transportName, 2:string url, 3:string zone)
+    api.TResponse removeBroker(1:string transportName, 2:string url)
+
+    // rates are messages and bytes per second, an empty channel name limits all the channels of the sensor
+    api.TResponse setRateLimit(1:string sensorId, 2:string channelName, 3:double messageRate, 4:double byteRate, 5:string policy)
 }
\ No newline at end of file
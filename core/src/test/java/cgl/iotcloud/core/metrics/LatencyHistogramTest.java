@@ -0,0 +1,53 @@
+package cgl.iotcloud.core.metrics;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LatencyHistogramTest extends TestCase {
+    private static final int PER_THREAD = 100000;
+
+    public void testBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(500);
+        histogram.record(3000);
+        histogram.record(3000);
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(5, histogram.getCount());
+        assertEquals(2, histogram.getBucketCount(0));
+        assertEquals(2, histogram.getBucketCount(2));
+        assertEquals(1, histogram.getBucketCount(LatencyHistogram.BUCKETS));
+        assertEquals(4, histogram.getPercentileMicros(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileMicros(100));
+    }
+
+    public void testConcurrentRecords() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final long nanos = (t + 1) * 1000L;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        histogram.record(nanos);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 1, 2, 3 and 4 microseconds fall in the buckets up to 1, 2, 4 and 4
+        assertEquals(4 * PER_THREAD, histogram.getCount());
+        assertEquals(PER_THREAD, histogram.getBucketCount(0));
+        assertEquals(PER_THREAD, histogram.getBucketCount(1));
+        assertEquals(2 * PER_THREAD, histogram.getBucketCount(2));
+    }
+}
@@ -0,0 +1,86 @@
+package cgl.iotcloud.core.msg;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class MessagePropertiesTest extends TestCase {
+    /**
+     * Headers which count the decodes
+     */
+    private static class CountingSource implements MessageProperties.Source {
+        private final Map<String, Object> headers = new HashMap<String, Object>();
+
+        private int copies = 0;
+
+        @Override
+        public Object get(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public int size() {
+            return headers.size();
+        }
+
+        @Override
+        public void copyTo(MessageProperties properties) {
+            copies++;
+            for (Map.Entry<String, Object> e : headers.entrySet()) {
+                properties.put(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    public void testSizeWithoutDecode() {
+        CountingSource source = new CountingSource();
+        MessageProperties empty = MessageProperties.wrap(source);
+        assertTrue(empty.isEmpty());
+
+        source.headers.put("a", "1");
+        source.headers.put("b", 2L);
+        MessageProperties properties = MessageProperties.wrap(source);
+        assertFalse(properties.isEmpty());
+        assertEquals(2, properties.size());
+        assertEquals("1", properties.get("a"));
+        assertEquals(2, properties.getLong("b", -1));
+        assertEquals(0, source.copies);
+    }
+
+    public void testRemoveWithoutDecode() {
+        CountingSource source = new CountingSource();
+        source.headers.put("codec", "gzip");
+        source.headers.put("a", "1");
+        MessageProperties properties = MessageProperties.wrap(source);
+
+        assertTrue(properties.removeProperty("codec"));
+        assertFalse(properties.removeProperty("codec"));
+        assertFalse(properties.removeProperty("missing"));
+        assertNull(properties.get("codec"));
+        assertFalse(properties.containsKey("codec"));
+        assertEquals(1, properties.size());
+        assertEquals(0, source.copies);
+
+        // the removed header stays removed once the headers are decoded
+        properties.put("c", "3");
+        assertEquals(1, source.copies);
+        assertEquals(2, properties.size());
+        assertNull(properties.get("codec"));
+        assertEquals("1", properties.get("a"));
+
+        assertTrue(properties.removeProperty("c"));
+        assertEquals(1, properties.size());
+    }
+
+    public void testCopyKeepsRemovals() {
+        CountingSource source = new CountingSource();
+        source.headers.put("codec", "gzip");
+        MessageProperties properties = MessageProperties.wrap(source);
+        properties.removeProperty("codec");
+
+        MessageProperties copy = new MessageProperties(properties);
+        assertTrue(copy.isEmpty());
+        assertTrue(copy.entrySet().isEmpty());
+    }
+}
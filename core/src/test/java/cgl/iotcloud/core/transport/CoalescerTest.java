@@ -0,0 +1,119 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class CoalescerTest extends TestCase {
+    private BlockingQueue<MessageContext> input;
+
+    private BlockingQueue<MessageContext> output;
+
+    @Override
+    protected void setUp() throws Exception {
+        input = new ArrayBlockingQueue<MessageContext>(64);
+        output = new ArrayBlockingQueue<MessageContext>(2);
+    }
+
+    private static MessageContext message(int i, int size) {
+        MessageContext message = new MessageContext("sensor", new byte[size], null);
+        message.setLongProperty("index", i);
+        return message;
+    }
+
+    private static List<MessageContext> unpack(MessageContext envelope) {
+        assertTrue(MessageEnvelope.isEnvelope(envelope));
+        List<MessageContext> frames = new ArrayList<MessageContext>();
+        MessageEnvelope.unpack(envelope, frames);
+        return frames;
+    }
+
+    public void testPackByCount() {
+        Coalescer coalescer = new Coalescer(input, output, 4, 1024, 60000);
+        for (int i = 0; i < 6; i++) {
+            input.add(message(i, 10));
+        }
+        assertEquals(IOTask.AGAIN, coalescer.step());
+        List<MessageContext> frames = unpack(output.poll());
+        assertEquals(4, frames.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, frames.get(i).getLongProperty("index", -1));
+        }
+
+        // the rest waits for the linger time
+        assertTrue(coalescer.step() > 0);
+        assertTrue(output.isEmpty());
+        assertTrue(coalescer.hasPending());
+    }
+
+    public void testPackByBytes() {
+        Coalescer coalescer = new Coalescer(input, output, 100, 25, 60000);
+        for (int i = 0; i < 5; i++) {
+            input.add(message(i, 10));
+        }
+        coalescer.step();
+        // the envelope is sent once its bodies reach the maximum bytes
+        assertEquals(3, unpack(output.poll()).size());
+    }
+
+    public void testLinger() throws InterruptedException {
+        Coalescer coalescer = new Coalescer(input, output, 100, 1024, 20);
+        input.add(message(0, 10));
+        input.add(message(1, 10));
+        long wait = coalescer.step();
+        assertTrue(wait > 0 && wait <= 20);
+        assertTrue(output.isEmpty());
+
+        Thread.sleep(wait + 5);
+        assertEquals(IOTask.AGAIN, coalescer.step());
+        assertEquals(2, unpack(output.poll()).size());
+        assertEquals(IOTask.WAIT, coalescer.step());
+        assertFalse(coalescer.hasPending());
+    }
+
+    public void testSingleMessageIsNotPacked() {
+        Coalescer coalescer = new Coalescer(input, output, 100, 1024, 0);
+        input.add(message(0, 10));
+        coalescer.step();
+        MessageContext sent = output.poll();
+        assertFalse(MessageEnvelope.isEnvelope(sent));
+        assertEquals(0, sent.getLongProperty("index", -1));
+    }
+
+    public void testFullOutput() {
+        Coalescer coalescer = new Coalescer(input, output, 1, 1024, 0);
+        for (int i = 0; i < 3; i++) {
+            input.add(message(i, 10));
+        }
+        assertEquals(IOTask.AGAIN, coalescer.step());
+        assertEquals(IOTask.AGAIN, coalescer.step());
+        // the third message is kept until the producer queue has space
+        assertEquals(Coalescer.PRODUCER_FULL_WAIT, coalescer.step());
+        assertTrue(coalescer.hasPending());
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(i, output.poll().getLongProperty("index", -1));
+        }
+        assertEquals(IOTask.WAIT, coalescer.step());
+        assertEquals(2, output.poll().getLongProperty("index", -1));
+        assertFalse(coalescer.hasPending());
+    }
+
+    public void testPriorityMessagesAreNotDelayed() {
+        Coalescer coalescer = new Coalescer(input, output, 100, 1024, 60000);
+        coalescer.setLaneCount(2);
+        input.add(message(0, 10));
+        MessageContext control = message(1, 10);
+        control.setLongProperty(TransportConstants.PRIORITY_HEADER, 0);
+        input.add(control);
+
+        assertTrue(coalescer.step() > 0);
+        assertSame(control, output.poll());
+        assertTrue(output.isEmpty());
+    }
+}
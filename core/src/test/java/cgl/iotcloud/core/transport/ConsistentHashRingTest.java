@@ -0,0 +1,73 @@
+package cgl.iotcloud.core.transport;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+public class ConsistentHashRingTest extends TestCase {
+    private static final int KEYS = 10000;
+
+    public void testEmptyRing() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<String>(Collections.<String>emptyList());
+        assertNull(ring.get("key"));
+        assertNull(ring.get("key", Collections.singleton("a")));
+    }
+
+    public void testKeysAreSpread() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<String>(Arrays.asList("a", "b", "c", "d"));
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int i = 0; i < KEYS; i++) {
+            String node = ring.get("sensor-" + i);
+            counts.put(node, counts.containsKey(node) ? counts.get(node) + 1 : 1);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            // a fair share is 2500
+            assertTrue("Unbalanced ring " + counts, count > 1500 && count < 3500);
+        }
+    }
+
+    public void testOnlyKeysOfChangedNodeMove() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<String>(Arrays.asList("a", "b", "c"));
+        String []before = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            before[i] = ring.get("sensor-" + i);
+        }
+
+        ring.add("d");
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String node = ring.get("sensor-" + i);
+            if (!node.equals(before[i])) {
+                assertEquals("d", node);
+                moved++;
+            }
+        }
+        assertTrue("Moved " + moved + " keys", moved > 0 && moved < KEYS / 2);
+
+        ring.remove("d");
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(before[i], ring.get("sensor-" + i));
+        }
+    }
+
+    public void testExcludedNodes() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<String>(Arrays.asList("a", "b", "c"));
+        HashSet<String> exclude = new HashSet<String>(Arrays.asList("a"));
+        for (int i = 0; i < 1000; i++) {
+            String key = "sensor-" + i;
+            String node = ring.get(key, exclude);
+            assertFalse("a".equals(node));
+            if (!"a".equals(ring.get(key))) {
+                // the keys of the other nodes stay where they are
+                assertEquals(ring.get(key), node);
+            }
+        }
+        exclude.addAll(Arrays.asList("b", "c"));
+        assertNull(ring.get("sensor", exclude));
+    }
+}
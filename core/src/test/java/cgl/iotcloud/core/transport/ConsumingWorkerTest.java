@@ -0,0 +1,72 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import junit.framework.TestCase;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class ConsumingWorkerTest extends TestCase {
+    private BlockingQueue<MessageContext> consumed;
+
+    private ConsumingWorker worker;
+
+    private Channel first;
+
+    private Channel second;
+
+    @Override
+    protected void setUp() throws Exception {
+        consumed = new ArrayBlockingQueue<MessageContext>(16);
+        worker = new ConsumingWorker(consumed);
+        first = channel("sensor-1", 11);
+        second = channel("sensor-2", 12);
+        worker.addChannel(first);
+        worker.addChannel(second);
+    }
+
+    private static Channel channel(String sensorId, long sensorKey) {
+        Channel channel = new Channel("in", Direction.IN);
+        channel.setSensorID(sensorId);
+        channel.setSensorKey(sensorKey);
+        channel.setOutQueue(new ArrayBlockingQueue<MessageContext>(16));
+        return channel;
+    }
+
+    public void testRouteByKey() {
+        consumed.add(new MessageContext(12L, new byte[]{1}, null));
+        worker.step();
+
+        assertTrue(first.getOutQueue().isEmpty());
+        MessageContext message = (MessageContext) second.getOutQueue().poll();
+        assertNotNull(message);
+        // the receivers get the string id of the sensor the key was resolved to
+        assertEquals("sensor-2", message.getSensorId());
+    }
+
+    public void testRouteById() {
+        consumed.add(new MessageContext("sensor-1", new byte[]{1}, null));
+        worker.step();
+
+        assertNotNull(first.getOutQueue().poll());
+        assertTrue(second.getOutQueue().isEmpty());
+    }
+
+    public void testUnknownKeyIsDiscarded() {
+        consumed.add(new MessageContext(13L, new byte[]{1}, null));
+        worker.step();
+
+        assertTrue(first.getOutQueue().isEmpty());
+        assertTrue(second.getOutQueue().isEmpty());
+    }
+
+    public void testRemovedChannel() {
+        worker.removeChannel(second);
+        consumed.add(new MessageContext(12L, new byte[]{1}, null));
+        consumed.add(new MessageContext("sensor-2", new byte[]{1}, null));
+        worker.step();
+
+        assertTrue(second.getOutQueue().isEmpty());
+        assertTrue(first.getOutQueue().isEmpty());
+    }
+}
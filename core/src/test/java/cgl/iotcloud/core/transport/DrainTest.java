@@ -0,0 +1,165 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.Configuration;
+import cgl.iotcloud.core.metrics.MetricsRegistry;
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DrainTest extends TestCase {
+    private static final int MESSAGES = 20;
+
+    private TransportScheduler scheduler;
+
+    private TestTransport transport;
+
+    private Channel channel;
+
+    @Override
+    protected void setUp() throws Exception {
+        scheduler = new TransportScheduler(2, 10);
+        scheduler.start();
+
+        transport = new TestTransport();
+        transport.setScheduler(scheduler);
+        transport.setMetricsRegistry(new MetricsRegistry());
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(TransportConstants.PROP_URLS, Arrays.asList("tcp://localhost:61616"));
+        conf.put(TransportConstants.PROBE_INTERVAL_PROPERTY, 0);
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(Configuration.TRANSPORT_PROPERTIES, conf);
+        transport.configure("site", properties);
+        transport.start();
+
+        channel = new Channel("out", Direction.OUT);
+        channel.setSensorID("sensor-1");
+        transport.registerChannel(new ChannelName("sensor", "out"), channel);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        scheduler.stop();
+    }
+
+    private void publish() {
+        for (int i = 0; i < MESSAGES; i++) {
+            assertEquals(PublishStatus.ACCEPTED, channel.publish(new byte[]{(byte) i}));
+        }
+    }
+
+    public void testDrainFlushesTheQueues() {
+        publish();
+        DrainReport report = transport.drain(5000);
+
+        assertEquals(MESSAGES, report.getQueued());
+        assertEquals(MESSAGES, report.getFlushed());
+        assertEquals(0, report.getLost());
+        assertFalse(report.isTimedOut());
+        assertEquals(MESSAGES, transport.producer.sent.get());
+        assertTrue(transport.producer.stopped);
+
+        // the channel is closed for good once the drain started
+        assertEquals(PublishStatus.CLOSED, channel.publish(new byte[]{1}));
+    }
+
+    public void testDrainTimesOut() {
+        transport.producer.stuck = true;
+        publish();
+        DrainReport report = transport.drain(100);
+
+        assertTrue(report.isTimedOut());
+        assertEquals(MESSAGES, report.getQueued());
+        assertEquals(MESSAGES, report.getLost());
+        assertEquals(0, transport.producer.sent.get());
+    }
+
+    /**
+     * A producer which starts sending once the transport is quiesced so the drain has messages to flush
+     */
+    private static class TestProducer implements Manageable {
+        private final BlockingQueue<MessageContext> queue;
+
+        private final CountDownLatch quiesced = new CountDownLatch(1);
+
+        private final AtomicInteger sent = new AtomicInteger(0);
+
+        private volatile boolean stuck = false;
+
+        private volatile boolean stopped = false;
+
+        private Thread thread;
+
+        private TestProducer(BlockingQueue<MessageContext> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void start() {
+            thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        quiesced.await();
+                        // let the drain count the queued messages first
+                        Thread.sleep(50);
+                        while (!stopped) {
+                            if (stuck) {
+                                Thread.sleep(10);
+                                continue;
+                            }
+                            MessageContext message = queue.poll(10, TimeUnit.MILLISECONDS);
+                            if (message != null) {
+                                Thread.sleep(1);
+                                sent.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+            thread.interrupt();
+        }
+    }
+
+    private static class TestTransport extends AbstractTransport {
+        private TestProducer producer;
+
+        @Override
+        public void configureTransport() {
+        }
+
+        @Override
+        public Manageable registerProducer(BrokerHost host, String prefix, Map channelConf,
+                                           BlockingQueue<MessageContext> queue) {
+            producer = new TestProducer(queue);
+            return producer;
+        }
+
+        @Override
+        public Manageable registerConsumer(BrokerHost host, String prefix, Map channelConf,
+                                           BlockingQueue<MessageContext> queue) {
+            return null;
+        }
+
+        @Override
+        public void quiesce() {
+            super.quiesce();
+            producer.quiesced.countDown();
+        }
+    }
+}
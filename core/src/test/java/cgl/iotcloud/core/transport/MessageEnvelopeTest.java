@@ -0,0 +1,104 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MessageEnvelopeTest extends TestCase {
+    public void testRoundTrip() {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("string", "value");
+        properties.put("int", 1);
+        properties.put("long", 2L);
+        properties.put("double", 3.5);
+        properties.put("float", 4.5f);
+        properties.put("boolean", true);
+        properties.put("short", (short) 5);
+        properties.put("byte", (byte) 6);
+        properties.put("null", null);
+
+        List<MessageContext> frames = new ArrayList<MessageContext>();
+        MessageContext keyed = new MessageContext(42L, new byte[]{1, 2, 3}, properties);
+        keyed.setSensorId("sensor-1");
+        frames.add(keyed);
+        frames.add(new MessageContext("sensor-2", new byte[0], null));
+        frames.add(new MessageContext(7L, new byte[]{4}, null));
+
+        MessageContext envelope = MessageEnvelope.pack(frames, 4);
+        assertTrue(MessageEnvelope.isEnvelope(envelope));
+        assertEquals("sensor-1", envelope.getSensorId());
+        assertEquals(42L, envelope.getSensorKey());
+
+        List<MessageContext> unpacked = new ArrayList<MessageContext>();
+        MessageEnvelope.unpack(envelope, unpacked);
+        assertEquals(3, unpacked.size());
+
+        MessageContext first = unpacked.get(0);
+        // the numeric id replaces the string id in the frame
+        assertNull(first.getSensorId());
+        assertEquals(42L, first.getSensorKey());
+        assertTrue(Arrays.equals(new byte[]{1, 2, 3}, first.getBody()));
+        assertEquals(properties, first.getProperties());
+
+        MessageContext second = unpacked.get(1);
+        assertEquals("sensor-2", second.getSensorId());
+        assertEquals(MessageContext.NO_SENSOR_KEY, second.getSensorKey());
+        assertEquals(0, second.getBody().length);
+        assertFalse(second.hasProperties());
+
+        MessageContext third = unpacked.get(2);
+        assertNull(third.getSensorId());
+        assertEquals(7L, third.getSensorKey());
+    }
+
+    public void testLongStrings() {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 100000) {
+            builder.append("reading é中 ");
+        }
+        String value = builder.toString();
+
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("value", value);
+        properties.put(value, "key");
+        List<MessageContext> frames = new ArrayList<MessageContext>();
+        frames.add(new MessageContext(value, new byte[]{1}, properties));
+
+        List<MessageContext> unpacked = new ArrayList<MessageContext>();
+        MessageEnvelope.unpack(MessageEnvelope.pack(frames, 1), unpacked);
+        assertEquals(value, unpacked.get(0).getSensorId());
+        assertEquals(value, unpacked.get(0).getProperty("value"));
+        assertEquals("key", unpacked.get(0).getProperty(value));
+    }
+
+    public void testTruncatedEnvelope() {
+        List<MessageContext> frames = new ArrayList<MessageContext>();
+        frames.add(new MessageContext("sensor", new byte[100], null));
+        byte []body = MessageEnvelope.pack(frames, 100).getBody();
+
+        for (int length : new int[]{0, 1, 5, 20, body.length - 1}) {
+            MessageContext envelope = new MessageContext("sensor", Arrays.copyOf(body, length), null);
+            List<MessageContext> unpacked = new ArrayList<MessageContext>();
+            try {
+                MessageEnvelope.unpack(envelope, unpacked);
+                fail("An envelope cut to " + length + " bytes was unpacked");
+            } catch (IllegalArgumentException expected) {
+            }
+            assertTrue(unpacked.isEmpty());
+        }
+    }
+
+    public void testUnknownVersion() {
+        MessageContext envelope = new MessageContext("sensor", new byte[]{0, 0, 0, 0, 0}, null);
+        try {
+            MessageEnvelope.unpack(envelope, new ArrayList<MessageContext>());
+            fail("An envelope of an unknown version was unpacked");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiterTest extends TestCase {
+    public void testMessageBurst() {
+        // 10 messages a second with a burst of one second, a message is worth 100ms
+        RateLimiter limiter = new RateLimiter(10, 0, 1.0);
+        int allowed = 0;
+        while (limiter.tryAcquire(1) == 0 && allowed < 100) {
+            allowed++;
+        }
+        assertTrue("Allowed " + allowed + " messages", allowed >= 10 && allowed <= 12);
+
+        long wait = limiter.tryAcquire(1);
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    public void testByteLimit() {
+        RateLimiter limiter = new RateLimiter(0, 1000, 1.0);
+        assertEquals(0, limiter.tryAcquire(600));
+        assertTrue(limiter.tryAcquire(600) > 0);
+        assertEquals(0, limiter.tryAcquire(300));
+    }
+
+    public void testLargeMessageWhenFull() {
+        // a message bigger than the bucket is not blocked for ever
+        RateLimiter limiter = new RateLimiter(0, 1000, 1.0);
+        assertEquals(0, limiter.tryAcquire(5000));
+        assertTrue(limiter.tryAcquire(1) > 0);
+    }
+
+    public void testNoLimit() {
+        RateLimiter limiter = new RateLimiter(0, 0, 1.0);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(0, limiter.tryAcquire(1000000));
+        }
+    }
+
+    public void testRefillsOverTime() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(100, 0, 0.1);
+        while (limiter.tryAcquire(1) == 0) {
+        }
+        Thread.sleep(50);
+        assertEquals(0, limiter.tryAcquire(1));
+    }
+
+    public void testSensorLimiterIsShared() {
+        AbstractTransport transport = new AbstractTransport() {
+            @Override
+            public void configureTransport() {
+            }
+
+            @Override
+            public Manageable registerProducer(BrokerHost host, String prefix, Map channelConf,
+                                               BlockingQueue<MessageContext> queue) {
+                return null;
+            }
+
+            @Override
+            public Manageable registerConsumer(BrokerHost host, String prefix, Map channelConf,
+                                               BlockingQueue<MessageContext> queue) {
+                return null;
+            }
+        };
+        RateLimiter first = transport.getSensorRateLimiter("sensor", 10, 0, 1.0);
+        // the second channel asks for another rate and gets the limiter of the sensor
+        RateLimiter second = transport.getSensorRateLimiter("sensor", 20, 0, 1.0);
+        assertSame(first, second);
+        assertEquals(10.0, second.getMessageRate());
+
+        transport.releaseSensorRateLimiter("sensor");
+        assertSame(first, transport.getSensorRateLimiter("sensor", 10, 0, 1.0));
+        transport.releaseSensorRateLimiter("sensor");
+        transport.releaseSensorRateLimiter("sensor");
+
+        // the limiter is created again once every channel of the sensor released it
+        assertNotSame(first, transport.getSensorRateLimiter("sensor", 20, 0, 1.0));
+    }
+}
@@ -0,0 +1,71 @@
+package cgl.iotcloud.core.transport;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import junit.framework.TestCase;
+
+public class SensorKeyIndexTest extends TestCase {
+    public void testPutGetRemove() {
+        SensorKeyIndex<String> index = new SensorKeyIndex<String>();
+        // keys sharing their low bits collide in the table
+        for (long k = 1; k <= 1000; k++) {
+            index.put(k << 20, "v" + k);
+        }
+        assertEquals(1000, index.size());
+        for (long k = 1; k <= 1000; k++) {
+            assertEquals("v" + k, index.get(k << 20));
+        }
+        assertNull(index.get(1001L << 20));
+        assertNull(index.get(MessageContext.NO_SENSOR_KEY));
+
+        for (long k = 1; k <= 1000; k += 2) {
+            assertTrue(index.remove(k << 20, "v" + k));
+        }
+        assertEquals(500, index.size());
+        for (long k = 1; k <= 1000; k++) {
+            assertEquals(k % 2 == 1 ? null : "v" + k, index.get(k << 20));
+        }
+    }
+
+    public void testRemoveOnlyMatchingValue() {
+        SensorKeyIndex<String> index = new SensorKeyIndex<String>();
+        index.put(5, "a");
+        assertFalse(index.remove(5, "b"));
+        assertFalse(index.remove(6, "a"));
+        assertEquals("a", index.get(5));
+        assertTrue(index.remove(5, "a"));
+        assertFalse(index.remove(5, "a"));
+        assertEquals(0, index.size());
+    }
+
+    public void testReplaceAndReuseRemovedKeys() {
+        SensorKeyIndex<String> index = new SensorKeyIndex<String>();
+        index.put(1, "a");
+        index.put(1, "b");
+        assertEquals(1, index.size());
+        assertEquals("b", index.get(1));
+
+        // adding and removing keeps rebuilding the table without the removed keys
+        for (long k = 2; k < 10000; k++) {
+            index.put(k, "v" + k);
+            assertTrue(index.remove(k, "v" + k));
+        }
+        assertEquals(1, index.size());
+        assertEquals("b", index.get(1));
+        index.put(2, "c");
+        assertEquals("c", index.get(2));
+    }
+
+    public void testInvalidArguments() {
+        SensorKeyIndex<String> index = new SensorKeyIndex<String>();
+        try {
+            index.put(MessageContext.NO_SENSOR_KEY, "a");
+            fail("The missing key was accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            index.put(1, null);
+            fail("A null value was accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package cgl.iotcloud.core.transport.codec;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.TransportConstants;
+import junit.framework.TestCase;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PayloadCodecTest extends TestCase {
+    private static final byte[] DICTIONARY = "{\"sensor\":\"temperature\",\"value\":".getBytes(Charset.forName("UTF-8"));
+
+    private static PayloadCodec[] codecs() {
+        return new PayloadCodec[]{new Lz4Codec(), new DeflateCodec(), new DictionaryCodec(DICTIONARY)};
+    }
+
+    private static byte[][] payloads() {
+        Random random = new Random(7);
+        byte []noise = new byte[5000];
+        random.nextBytes(noise);
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            json.append("{\"sensor\":\"temperature\",\"value\":").append(random.nextInt(100)).append("}");
+        }
+        byte []repeated = new byte[100000];
+        Arrays.fill(repeated, (byte) 'a');
+        return new byte[][]{new byte[0], new byte[]{1}, "short text".getBytes(), noise,
+                json.toString().getBytes(), repeated};
+    }
+
+    public void testRoundTrip() {
+        for (PayloadCodec codec : codecs()) {
+            for (byte[] payload : payloads()) {
+                byte []encoded = codec.encode(payload, 0, payload.length);
+                byte []decoded = codec.decode(encoded, 0, encoded.length);
+                assertTrue(codec.getName() + " changed a payload of " + payload.length + " bytes",
+                        Arrays.equals(payload, decoded));
+            }
+        }
+    }
+
+    public void testRoundTripWithOffsets() {
+        byte []payload = payloads()[4];
+        for (PayloadCodec codec : codecs()) {
+            byte []source = new byte[payload.length + 20];
+            System.arraycopy(payload, 0, source, 10, payload.length);
+            byte []encoded = codec.encode(source, 10, payload.length);
+            byte []framed = new byte[encoded.length + 6];
+            System.arraycopy(encoded, 0, framed, 3, encoded.length);
+            assertTrue(Arrays.equals(payload, codec.decode(framed, 3, encoded.length)));
+        }
+    }
+
+    public void testCorruptData() {
+        byte []payload = payloads()[4];
+        for (PayloadCodec codec : codecs()) {
+            byte []encoded = codec.encode(payload, 0, payload.length);
+            for (int length : new int[]{0, 3, encoded.length / 2}) {
+                try {
+                    codec.decode(encoded, 0, length);
+                    fail(codec.getName() + " decoded data cut to " + length + " bytes");
+                } catch (IllegalArgumentException expected) {
+                }
+            }
+        }
+    }
+
+    public void testDecodedLengthIsBounded() {
+        // 3 bytes of data claiming to be 10MB
+        byte []encoded = new byte[]{0, (byte) 0x98, (byte) 0x96, (byte) 0x80, 0, 1, 2};
+        for (PayloadCodec codec : codecs()) {
+            try {
+                codec.decode(encoded, 0, encoded.length);
+                fail(codec.getName() + " accepted a length the data cannot expand to");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+
+        byte []payload = payloads()[5];
+        for (PayloadCodec codec : new PayloadCodec[]{new Lz4Codec(1000), new DeflateCodec(1000)}) {
+            byte []compressed = codec.encode(payload, 0, payload.length);
+            try {
+                codec.decode(compressed, 0, compressed.length);
+                fail(codec.getName() + " decoded more than its maximum");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    public void testDictionaryMismatch() {
+        byte []payload = payloads()[4];
+        byte []encoded = new DictionaryCodec(DICTIONARY).encode(payload, 0, payload.length);
+        try {
+            new DictionaryCodec("other".getBytes()).decode(encoded, 0, encoded.length);
+            fail("Data was decoded with a different dictionary");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testEncoderAndDecoder() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(TransportConstants.CODEC_PROPERTY, TransportConstants.CODEC_LZ4);
+        ChannelEncoder encoder = PayloadCodecs.createEncoder(conf);
+        PayloadDecoder decoder = PayloadCodecs.createDecoder(conf);
+
+        byte []payload = payloads()[4];
+        MessageContext message = new MessageContext("sensor", payload.clone(), null);
+        encoder.encode(message);
+        assertEquals(TransportConstants.CODEC_LZ4, message.getProperty(TransportConstants.CODEC_HEADER));
+        assertTrue(message.getBody().length < payload.length);
+
+        assertTrue(decoder.decode(message));
+        assertTrue(Arrays.equals(payload, message.getBody()));
+        assertNull(message.getProperty(TransportConstants.CODEC_HEADER));
+    }
+}
@@ -0,0 +1,135 @@
+package cgl.iotcloud.core.transport.queue;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.TransportConstants;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PriorityLaneQueueTest extends TestCase {
+    private static PriorityLaneQueue queue(int laneCount, int capacity, int []weights) {
+        List<BlockingQueue<MessageContext>> lanes = new ArrayList<BlockingQueue<MessageContext>>();
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ArrayBlockingQueue<MessageContext>(capacity));
+        }
+        return new PriorityLaneQueue(lanes, weights);
+    }
+
+    private static MessageContext message(int lane, int index) {
+        MessageContext message = message(index);
+        message.setLongProperty(TransportConstants.PRIORITY_HEADER, lane);
+        return message;
+    }
+
+    private static MessageContext message(int index) {
+        MessageContext message = new MessageContext("sensor", new byte[]{1}, null);
+        message.setLongProperty("index", index);
+        return message;
+    }
+
+    private static long index(MessageContext message) {
+        return message.getLongProperty("index", -1);
+    }
+
+    public void testLaneOf() {
+        PriorityLaneQueue queue = queue(3, 4, null);
+        assertEquals(0, queue.laneOf(message(0, 0)));
+        assertEquals(1, queue.laneOf(message(1, 0)));
+        // out of range priorities go to the first or the last lane
+        assertEquals(0, queue.laneOf(message(-5, 0)));
+        assertEquals(2, queue.laneOf(message(7, 0)));
+        // messages without a priority go to the last lane
+        assertEquals(2, queue.laneOf(message(0)));
+
+        MessageContext fromBroker = message(0);
+        fromBroker.setProperty(TransportConstants.PRIORITY_HEADER, "1");
+        assertEquals(1, queue.laneOf(fromBroker));
+    }
+
+    public void testStrictDequeue() {
+        PriorityLaneQueue queue = queue(3, 8, null);
+        for (int i = 0; i < 3; i++) {
+            queue.offer(message(2, 20 + i));
+        }
+        queue.offer(message(1, 10));
+        queue.offer(message(0, 0));
+
+        assertEquals(5, queue.size());
+        assertEquals(0, index(queue.peek()));
+        assertEquals(0, index(queue.poll()));
+        assertEquals(10, index(queue.poll()));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(20 + i, index(queue.poll()));
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testWeightedDequeue() {
+        PriorityLaneQueue queue = queue(2, 16, new int[]{3, 1});
+        for (int i = 0; i < 6; i++) {
+            queue.offer(message(0, i));
+            queue.offer(message(1, 100 + i));
+        }
+        // three messages of the first lane for every message of the second
+        long []expected = {0, 1, 2, 100, 3, 4, 5, 101, 102, 103, 104, 105};
+        for (long index : expected) {
+            assertEquals(index, index(queue.poll()));
+        }
+        assertNull(queue.poll());
+    }
+
+    public void testFullLaneDoesNotBlockOtherLanes() {
+        PriorityLaneQueue queue = queue(2, 2, null);
+        assertTrue(queue.offer(message(1, 0)));
+        assertTrue(queue.offer(message(1, 1)));
+        assertFalse(queue.offer(message(1, 2)));
+        assertTrue(queue.offer(message(0, 3)));
+        assertEquals(1, queue.laneSize(0));
+        assertEquals(2, queue.laneSize(1));
+
+        // room is made in the lane of the message, the other lane is kept
+        assertEquals(0, index(queue.pollLane(message(1, 4))));
+        assertEquals(1, queue.laneSize(0));
+        assertEquals(1, queue.laneSize(1));
+    }
+
+    public void testTakeWakesUp() throws InterruptedException {
+        final PriorityLaneQueue queue = queue(2, 4, null);
+        final AtomicReference<MessageContext> taken = new AtomicReference<MessageContext>();
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    taken.set(queue.take());
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        consumer.start();
+        Thread.sleep(20);
+        queue.offer(message(1, 7));
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertEquals(7, index(taken.get()));
+
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    public void testDrainTo() {
+        PriorityLaneQueue queue = queue(2, 4, null);
+        queue.offer(message(1, 1));
+        queue.offer(message(0, 0));
+        queue.offer(message(1, 2));
+        List<MessageContext> drained = new ArrayList<MessageContext>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertEquals(0, index(drained.get(0)));
+        assertEquals(1, index(drained.get(1)));
+        assertEquals(1, queue.size());
+    }
+}
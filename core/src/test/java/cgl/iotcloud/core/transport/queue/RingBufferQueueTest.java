@@ -0,0 +1,137 @@
+package cgl.iotcloud.core.transport.queue;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RingBufferQueueTest extends TestCase {
+    private static final int PER_PRODUCER = 100000;
+
+    public void testCapacityIsRoundedUp() {
+        RingBufferQueue<Integer> queue = new MpscRingBufferQueue<Integer>(5, WaitStrategies.forName(null));
+        assertEquals(8, queue.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(8));
+        assertEquals(8, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+    }
+
+    public void testFifoAndWrapAround() {
+        for (RingBufferQueue<Integer> queue : queues(4)) {
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+            // go around the ring many times
+            for (int i = 0; i < 100; i++) {
+                assertTrue(queue.offer(2 * i));
+                assertTrue(queue.offer(2 * i + 1));
+                assertEquals(Integer.valueOf(2 * i), queue.peek());
+                assertEquals(Integer.valueOf(2 * i), queue.poll());
+                assertEquals(Integer.valueOf(2 * i + 1), queue.poll());
+            }
+            assertTrue(queue.isEmpty());
+            assertEquals(0, queue.size());
+        }
+    }
+
+    public void testDrainTo() {
+        for (RingBufferQueue<Integer> queue : queues(16)) {
+            for (int i = 0; i < 10; i++) {
+                queue.offer(i);
+            }
+            List<Integer> drained = new ArrayList<Integer>();
+            assertEquals(4, queue.drainTo(drained, 4));
+            assertEquals(6, queue.drainTo(drained));
+            for (int i = 0; i < 10; i++) {
+                assertEquals(Integer.valueOf(i), drained.get(i));
+            }
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    public void testNullIsRejected() {
+        for (RingBufferQueue<Integer> queue : queues(4)) {
+            try {
+                queue.offer(null);
+                fail("A null element was accepted");
+            } catch (NullPointerException expected) {
+            }
+        }
+    }
+
+    public void testTimedOperations() throws InterruptedException {
+        for (RingBufferQueue<Integer> queue : queues(1)) {
+            assertEquals(2, queue.capacity());
+            assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+            assertTrue(queue.offer(1, 10, TimeUnit.MILLISECONDS));
+            assertTrue(queue.offer(2, 10, TimeUnit.MILLISECONDS));
+            assertFalse(queue.offer(3, 10, TimeUnit.MILLISECONDS));
+            assertEquals(Integer.valueOf(1), queue.poll(10, TimeUnit.MILLISECONDS));
+            assertEquals(Integer.valueOf(2), queue.poll(10, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    public void testManyProducers() throws InterruptedException {
+        for (String strategy : new String[]{WaitStrategies.PARK, WaitStrategies.BLOCK, WaitStrategies.YIELD}) {
+            transfer(new MpscRingBufferQueue<Long>(64, WaitStrategies.forName(strategy)), 4);
+        }
+    }
+
+    public void testSingleProducer() throws InterruptedException {
+        for (String strategy : new String[]{WaitStrategies.PARK, WaitStrategies.BLOCK, WaitStrategies.YIELD}) {
+            transfer(new SpscRingBufferQueue<Long>(64, WaitStrategies.forName(strategy)), 1);
+        }
+    }
+
+    /**
+     * Put from the producers and take from one consumer through a small queue. Every producer puts its id
+     * in the high bits, its sequence must arrive complete and in order.
+     */
+    private static void transfer(final BlockingQueue<Long> queue, int producers) throws InterruptedException {
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final long id = p;
+            Thread producer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (long i = 0; i < PER_PRODUCER; i++) {
+                            queue.put((id << 32) | i);
+                        }
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    }
+                }
+            };
+            threads.add(producer);
+            producer.start();
+        }
+
+        long []next = new long[producers];
+        for (long i = 0; i < (long) producers * PER_PRODUCER; i++) {
+            Long value = queue.poll(10, TimeUnit.SECONDS);
+            assertNotNull("The queue stalled after " + i + " elements", value);
+            int producer = (int) (value >>> 32);
+            assertEquals("Out of order element of producer " + producer, next[producer], value & 0xffffffffL);
+            next[producer]++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+        assertTrue(queue.isEmpty());
+    }
+
+    private static List<RingBufferQueue<Integer>> queues(int capacity) {
+        List<RingBufferQueue<Integer>> queues = new ArrayList<RingBufferQueue<Integer>>();
+        queues.add(new MpscRingBufferQueue<Integer>(capacity, WaitStrategies.forName(null)));
+        queues.add(new SpscRingBufferQueue<Integer>(capacity, WaitStrategies.forName(null)));
+        return queues;
+    }
+}
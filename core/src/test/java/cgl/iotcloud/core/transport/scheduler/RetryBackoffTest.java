@@ -0,0 +1,29 @@
+package cgl.iotcloud.core.transport.scheduler;
+
+import junit.framework.TestCase;
+
+public class RetryBackoffTest extends TestCase {
+    public void testDelayGrowsAndResets() {
+        RetryBackoff backoff = new RetryBackoff(10, 50);
+        assertEquals(0, backoff.remaining());
+        assertEquals(10, backoff.failed());
+        assertEquals(20, backoff.failed());
+        assertEquals(40, backoff.failed());
+        assertEquals(50, backoff.failed());
+        assertEquals(50, backoff.failed());
+        assertEquals(5, backoff.getErrors());
+        assertTrue(backoff.remaining() > 0 && backoff.remaining() <= 50);
+
+        backoff.succeeded();
+        assertEquals(0, backoff.getErrors());
+        assertEquals(0, backoff.remaining());
+        assertEquals(10, backoff.failed());
+    }
+
+    public void testRemaining() throws InterruptedException {
+        RetryBackoff backoff = new RetryBackoff(20, 100);
+        backoff.failed();
+        Thread.sleep(30);
+        assertEquals(0, backoff.remaining());
+    }
+}
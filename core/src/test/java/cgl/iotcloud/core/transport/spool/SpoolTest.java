@@ -0,0 +1,189 @@
+package cgl.iotcloud.core.transport.spool;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SpoolTest extends TestCase {
+    private static final int SEGMENT_SIZE = 4096;
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("spool", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdirs());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File []files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private Spool open() throws IOException {
+        Spool spool = new Spool(dir, SEGMENT_SIZE, 1024 * 1024, 0);
+        spool.open();
+        return spool;
+    }
+
+    private static MessageContext message(int i) {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("index", i);
+        return new MessageContext("sensor-" + i, new byte[]{(byte) i, (byte) (i >> 8)}, properties);
+    }
+
+    private static void assertMessage(int i, MessageContext message) {
+        assertNotNull("Message " + i + " is missing", message);
+        assertEquals("sensor-" + i, message.getSensorId());
+        assertEquals(i, message.getProperty("index"));
+        assertEquals((byte) i, message.getBody()[0]);
+        assertEquals((byte) (i >> 8), message.getBody()[1]);
+    }
+
+    public void testReadInOrder() throws IOException {
+        Spool spool = open();
+        assertTrue(spool.isEmpty());
+        // enough messages for several segments
+        for (int i = 0; i < 500; i++) {
+            assertTrue(spool.append(message(i)));
+        }
+        assertEquals(500, spool.getPending());
+        for (int i = 0; i < 500; i++) {
+            assertMessage(i, spool.peek());
+            assertTrue(spool.remove());
+        }
+        assertNull(spool.peek());
+        assertTrue(spool.isEmpty());
+        assertEquals(0, spool.getPending());
+        spool.close();
+    }
+
+    public void testRecoverAfterCheckpoint() throws IOException {
+        Spool spool = open();
+        for (int i = 0; i < 300; i++) {
+            spool.append(message(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            spool.peek();
+            spool.remove();
+        }
+        spool.checkpoint();
+        // read after the checkpoint, these are read again after the crash
+        for (int i = 100; i < 110; i++) {
+            spool.peek();
+            spool.remove();
+        }
+
+        // the spool is not closed, the next run opens the files as a crash left them
+        Spool recovered = open();
+        assertEquals(200, recovered.getPending());
+        for (int i = 100; i < 300; i++) {
+            assertMessage(i, recovered.peek());
+            assertTrue(recovered.remove());
+        }
+        assertTrue(recovered.isEmpty());
+        recovered.close();
+    }
+
+    public void testRecoverWithoutCheckpoint() throws IOException {
+        Spool spool = open();
+        for (int i = 0; i < 10; i++) {
+            spool.append(message(i));
+        }
+
+        Spool recovered = open();
+        assertEquals(10, recovered.getPending());
+        for (int i = 0; i < 10; i++) {
+            assertMessage(i, recovered.peek());
+            recovered.remove();
+        }
+        recovered.close();
+    }
+
+    public void testRecoverTruncatedRecord() throws IOException {
+        Spool spool = open();
+        for (int i = 0; i < 3; i++) {
+            spool.append(message(i));
+        }
+        spool.checkpoint();
+
+        // a crash while the last record was written leaves its length without all of its data
+        File segment = new File(dir, SpoolSegment.fileName(0));
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            int position = 0;
+            for (int i = 0; i < 2; i++) {
+                file.seek(position);
+                position += SpoolSegment.RECORD_HEADER + file.readInt();
+            }
+            file.seek(position);
+            int length = file.readInt();
+            file.seek(position + SpoolSegment.RECORD_HEADER + length / 2);
+            file.write(new byte[length - length / 2]);
+        } finally {
+            file.close();
+        }
+
+        Spool recovered = open();
+        assertEquals(2, recovered.getPending());
+        assertMessage(0, recovered.peek());
+        recovered.remove();
+        assertMessage(1, recovered.peek());
+        recovered.remove();
+        assertNull(recovered.peek());
+        assertTrue(recovered.isEmpty());
+
+        // the next message replaces the truncated record
+        assertTrue(recovered.append(message(3)));
+        assertMessage(3, recovered.peek());
+        recovered.remove();
+        recovered.close();
+    }
+
+    public void testSegmentIdsGrowAfterExpiry() throws Exception {
+        Spool spool = new Spool(dir, SEGMENT_SIZE, 1024 * 1024, 10);
+        spool.open();
+        spool.append(message(0));
+        Thread.sleep(30);
+        // every segment is dropped, the checkpoint points after them
+        spool.expire();
+        assertTrue(spool.isEmpty());
+        spool.close();
+
+        Spool next = open();
+        assertTrue(next.append(message(1)));
+        // a crash before the next checkpoint must not lose the message written after the checkpoint
+        Spool recovered = open();
+        assertEquals(1, recovered.getPending());
+        assertMessage(1, recovered.peek());
+        recovered.close();
+    }
+
+    public void testDropOldestWhenFull() throws IOException {
+        Spool spool = new Spool(dir, SEGMENT_SIZE, 2 * SEGMENT_SIZE, 0);
+        spool.open();
+        int count = 0;
+        while (spool.getDropped() == 0) {
+            spool.append(message(count++));
+        }
+        assertTrue(spool.getSize() <= 2 * SEGMENT_SIZE);
+        assertEquals(count, spool.getPending() + spool.getDropped());
+
+        // the remaining messages are the newest ones
+        MessageContext first = spool.peek();
+        assertEquals(spool.getDropped(), ((Integer) first.getProperty("index")).longValue());
+        spool.close();
+    }
+}
@@ -0,0 +1,134 @@
+package cgl.iotcloud.core.transport.spool;
+
+import cgl.iotcloud.core.msg.MessageContext;
+import cgl.iotcloud.core.transport.BrokerHost;
+import cgl.iotcloud.core.transport.BrokerStats;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class SpoolerTest extends TestCase {
+    private File dir;
+
+    private BlockingQueue<MessageContext> input;
+
+    private BlockingQueue<MessageContext> output;
+
+    private Spool spool;
+
+    private Spooler spooler;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("spooler", "");
+        assertTrue(dir.delete());
+        input = new ArrayBlockingQueue<MessageContext>(64);
+        output = new ArrayBlockingQueue<MessageContext>(2);
+        spool = new Spool(dir, 4096, 1024 * 1024, 0);
+        spool.open();
+        spooler = new Spooler(input, output, spool, 60000);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File []files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static MessageContext message(int i) {
+        MessageContext message = new MessageContext("sensor", new byte[]{(byte) i}, null);
+        message.setLongProperty("index", i);
+        return message;
+    }
+
+    private static long index(MessageContext message) {
+        return message.getLongProperty("index", -1);
+    }
+
+    public void testPassThrough() {
+        input.add(message(0));
+        assertEquals(IOTask.WAIT, spooler.step());
+        assertEquals(0, index(output.poll()));
+        assertTrue(spool.isEmpty());
+        assertFalse(spooler.hasPending());
+    }
+
+    public void testSpoolAndReplayInOrder() {
+        for (int i = 0; i < 5; i++) {
+            input.add(message(i));
+        }
+        // the producer queue takes two, the rest is spooled
+        assertTrue(spooler.step() > 0);
+        assertEquals(3, spool.getPending());
+        assertTrue(spooler.hasPending());
+
+        // new messages go behind the spooled ones
+        input.add(message(5));
+        int next = 0;
+        while (next < 6) {
+            MessageContext message = output.poll();
+            if (message == null) {
+                spooler.step();
+                continue;
+            }
+            assertEquals(next++, index(message));
+        }
+        spooler.step();
+        assertFalse(spooler.hasPending());
+        assertTrue(spool.isEmpty());
+    }
+
+    public void testUnhealthyBroker() {
+        BrokerStats stats = new BrokerStats(new BrokerHost("tcp://localhost:61616"));
+        for (int i = 0; i < 10; i++) {
+            stats.recordError();
+        }
+        assertFalse(stats.isHealthy());
+        spooler.setBrokerStats(stats);
+
+        for (int i = 0; i < 3; i++) {
+            input.add(message(i));
+        }
+        spooler.step();
+        // one message goes on to try the broker, the rest waits in the spool
+        assertEquals(1, output.size());
+        assertEquals(2, spool.getPending());
+
+        // the sender took the message and its send succeeded
+        assertEquals(0, index(output.poll()));
+        for (int i = 0; i < 10; i++) {
+            stats.recordSend(1000, 1);
+        }
+        assertTrue(stats.isHealthy());
+        spooler.step();
+        assertEquals(1, index(output.poll()));
+        assertEquals(2, index(output.poll()));
+    }
+
+    public void testStopKeepsTheMessages() throws Exception {
+        output.add(message(-1));
+        output.add(message(-1));
+        input.add(message(0));
+        spooler.step();
+        input.add(message(1));
+        spooler.stop();
+        assertEquals(IOTask.DONE, spooler.step());
+
+        // the next run replays both messages
+        Spool reopened = new Spool(dir, 4096, 1024 * 1024, 0);
+        reopened.open();
+        assertEquals(2, reopened.getPending());
+        assertEquals(0, index(reopened.peek()));
+        reopened.remove();
+        assertEquals(1, index(reopened.peek()));
+        reopened.close();
+    }
+}
@@ -31,7 +31,7 @@ public class RabbitMQSensor extends AbstractSensor {
         final Channel sendChannel = context.getChannel("rabbitmq", "sender");
         final Channel receiveChannel = context.getChannel("rabbitmq", "receiver");
 
-        Thread t = new Thread(new Runnable() {
+        startThread(new Runnable() {
             @Override
             public void run() {
                 while (run) {
@@ -44,7 +44,6 @@ public class RabbitMQSensor extends AbstractSensor {
                 }
             }
         });
-        t.start();
 
         startListen(receiveChannel, new MessageReceiver() {
             @Override
@@ -29,7 +29,7 @@ public class KafkaWordGeneratingSensor extends AbstractSensor {
         final Channel sendChannel = context.getChannel("kafka", "sentence");
         final Channel receiveChannel = context.getChannel("kafka", "count");
         final Random rand = new Random();
-        Thread t = new Thread(new Runnable() {
+        startThread(new Runnable() {
             @Override
             public void run() {
                 while (run) {
@@ -43,7 +43,6 @@ public class KafkaWordGeneratingSensor extends AbstractSensor {
                 }
             }
         });
-        t.start();
 
         startListen(receiveChannel, new MessageReceiver() {
             @Override
@@ -0,0 +1,44 @@
+package cgl.iotcloud.transport.kafka;
+
+import cgl.iotcloud.core.utils.Codec;
+import org.json.simple.JSONValue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON encoding of maps and lists of strings, numbers and booleans. Numbers are decoded as longs and doubles.
+ */
+public class JsonCodec implements Codec {
+    public static final String NAME = "json";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object object) throws IOException {
+        if (!(object instanceof Map) && !(object instanceof List)) {
+            throw new IOException("The json codec only encodes maps and lists");
+        }
+        return JSONValue.toJSONString(object).getBytes(UTF_8);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, int offset, int length, Class<T> type) throws IOException {
+        Object object = JSONValue.parse(new String(bytes, offset, length, UTF_8));
+        if (object == null) {
+            throw new IOException("Invalid json");
+        }
+        try {
+            return type.cast(object);
+        } catch (ClassCastException e) {
+            throw new IOException("The json value is not a " + type.getName());
+        }
+    }
+}
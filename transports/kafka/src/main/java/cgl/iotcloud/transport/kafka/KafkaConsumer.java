@@ -133,12 +133,11 @@ public class KafkaConsumer implements Manageable {
                     readOffset = messageAndOffset.nextOffset();
                     ByteBuffer payload = messageAndOffset.message().payload();
 
-                    byte[] bytes = new byte[payload.limit()];
-                    payload.get(bytes);
                     numRead++;
 
                     // todo: we need to set the sensorID
-                    MessageContext message = new MessageContext(topic, bytes);
+                    // the body is a slice of the fetch response, it is not copied
+                    MessageContext message = new MessageContext(topic, payload, null);
                     try {
                         inQueue.put(message);
                     } catch (InterruptedException e) {
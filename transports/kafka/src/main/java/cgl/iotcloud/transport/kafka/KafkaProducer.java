@@ -1,9 +1,20 @@
 package cgl.iotcloud.transport.kafka;
 
 import cgl.iotcloud.core.api.thrift.TSensorMessage;
+import cgl.iotcloud.core.msg.MessageBuffer;
 import cgl.iotcloud.core.msg.MessageContext;
-import cgl.iotcloud.core.transport.Manageable;
-import cgl.iotcloud.core.utils.SerializationUtils;
+import cgl.iotcloud.core.transport.BatchBuffer;
+import cgl.iotcloud.core.transport.BatchSender;
+import cgl.iotcloud.core.transport.BrokerStats;
+import cgl.iotcloud.core.transport.BrokerStatsAware;
+import cgl.iotcloud.core.transport.LatencyStamps;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.RetryBackoff;
+import cgl.iotcloud.core.transport.scheduler.ScheduledManageable;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
+import cgl.iotcloud.core.utils.Codec;
+import cgl.iotcloud.core.utils.CodecRegistry;
 import kafka.javaapi.producer.Producer;
 import kafka.producer.KeyedMessage;
 import kafka.producer.ProducerConfig;
@@ -11,11 +22,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
 
-public class KafkaProducer implements Manageable {
+public class KafkaProducer implements BatchSender, ScheduledManageable, BrokerStatsAware {
     private static Logger LOG = LoggerFactory.getLogger(KafkaProducer.class);
 
     private Producer<byte[], byte []> producer;
@@ -32,10 +45,27 @@ public class KafkaProducer implements Manageable {
 
     private String requestRequiredAcks;
 
-    private boolean run = true;
+    private volatile boolean run = false;
 
     private String siteId;
 
+    private volatile int maxBatchSize = 1;
+
+    private volatile long maxBatchWait = 0;
+
+    private TransportScheduler scheduler;
+
+    private String group;
+
+    private TaskHandle handle;
+
+    private volatile BrokerStats brokerStats;
+
+    /**
+     * Encodes the thrift messages sent to the broker
+     */
+    private Codec codec = CodecRegistry.getCodec(CodecRegistry.THRIFT_BINARY);
+
     public KafkaProducer(BlockingQueue outQueue,
                          String topic, String brokerList, String serializerClass,
                          String partitionClass, String requestRequiredAcks, String siteId) {
@@ -49,6 +79,9 @@ public class KafkaProducer implements Manageable {
     }
 
     public void start() {
+        if (handle != null) {
+            return;
+        }
         Properties props = new Properties();
         props.put("metadata.broker.list", brokerList);
         if (serializerClass != null) {
@@ -63,53 +96,153 @@ public class KafkaProducer implements Manageable {
         ProducerConfig config = new ProducerConfig(props);
         producer = new Producer<byte[], byte []>(config);
 
-        Thread t = new Thread(new Worker());
-        t.start();
+        // run the sender on the shared transport threads
+        run = true;
+        if (scheduler == null) {
+            scheduler = TransportScheduler.getDefault();
+        }
+        // the sends wait for the brokers, the producer gets a thread of its own
+        handle = scheduler.submitBlocking(new Worker(), "kafka-producer-" + topic, outQueue);
     }
 
     public void stop() {
         run = false;
+        if (handle != null) {
+            handle.wakeup();
+            // the producer is closed after the last send
+            if (!handle.awaitDone(TransportScheduler.STOP_TIMEOUT)) {
+                LOG.warn("The Kafka producer of topic {} did not stop in time, closing it", topic);
+            }
+        }
+        if (producer != null) {
+            producer.close();
+        }
+    }
+
+    public void setCodec(Codec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public void setBrokerStats(BrokerStats brokerStats) {
+        this.brokerStats = brokerStats;
+    }
+
+    @Override
+    public void setScheduler(TransportScheduler scheduler, String group) {
+        this.scheduler = scheduler;
+        this.group = group;
+    }
+
+    @Override
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
     }
 
-    private class Worker implements Runnable {
+    @Override
+    public void setMaxBatchWait(long maxBatchWait) {
+        this.maxBatchWait = maxBatchWait;
+    }
+
+    private class Worker implements IOTask {
+        private final RetryBackoff backoff = new RetryBackoff();
+
+        private BatchBuffer<Object> batch = new BatchBuffer<Object>();
+
+        private List<KeyedMessage<byte[], byte []>> keyedMessages = new ArrayList<KeyedMessage<byte[], byte []>>();
+
+        @SuppressWarnings("unchecked")
         @Override
-        public void run() {
-            int errorCount = 0;
-            while (run) {
+        public long step() {
+            if (!run) {
+                releaseBatch();
+                return DONE;
+            }
+            long retry = backoff.remaining();
+            if (retry > 0) {
+                return retry;
+            }
+
+            try {
+                long ready = batch.fill(outQueue, maxBatchSize, maxBatchWait);
+                if (ready == BatchBuffer.EMPTY) {
+                    return WAIT;
+                } else if (ready > 0) {
+                    // wait for the batch to fill up, new messages wake us up earlier
+                    return ready;
+                }
+
+                long start = System.nanoTime();
                 try {
-                    try {
-                        Object input = outQueue.take();
+                    keyedMessages.clear();
+                    for (Object input : batch.getElements()) {
                         if (input instanceof MessageContext) {
                             MessageContext messageContext = (MessageContext) input;
-                            String sensorId = messageContext.getSensorId();
-
-                            ByteBuffer buffer = ByteBuffer.wrap(messageContext.getBody());
-                            TSensorMessage message = new TSensorMessage(sensorId, siteId, buffer);
-                            for (Map.Entry<String, Object> e : messageContext.getProperties().entrySet()) {
-                                message.putToProperties(e.getKey(), e.getValue().toString());
+                            LatencyStamps.stampSent(messageContext);
+                            long sensorKey = messageContext.getSensorKey();
+
+                            // a pooled body is serialized straight from its buffer
+                            MessageBuffer messageBuffer = messageContext.getBuffer();
+                            ByteBuffer buffer = messageBuffer != null ? messageBuffer.nioBuffer() : ByteBuffer.wrap(messageContext.getBody());
+                            TSensorMessage message = new TSensorMessage();
+                            message.setSite(siteId);
+                            message.setBody(buffer);
+                            byte[] key;
+                            if (sensorKey != MessageContext.NO_SENSOR_KEY) {
+                                // the numeric id replaces the string id in the message and the partition key, the
+                                // consumers resolve it through the channels registered in ZK
+                                message.setSensorKey(sensorKey);
+                                key = ByteBuffer.allocate(8).putLong(0, sensorKey).array();
+                            } else {
+                                message.setSensorId(messageContext.getSensorId());
+                                key = messageContext.getSensorId().getBytes();
+                            }
+                            if (messageContext.hasProperties()) {
+                                for (Map.Entry<String, Object> e : messageContext.getProperties().entrySet()) {
+                                    message.putToProperties(e.getKey(), e.getValue().toString());
+                                }
                             }
 
-                            byte body[] = SerializationUtils.serializeThriftObject(message);
-                            KeyedMessage<byte[], byte []> data = new KeyedMessage<byte[], byte []>(topic,
-                                    sensorId.getBytes(), body);
-
-                            producer.send(data);
+                            byte body[] = codec.encode(message);
+                            keyedMessages.add(new KeyedMessage<byte[], byte []>(topic, key, body));
                         } else {
                             LOG.error("Unexpected message type");
                         }
-                    } catch (InterruptedException e) {
-                        LOG.error("Exception occurred in the worker listening for consumer changes", e);
                     }
-                } catch (Throwable t) {
-                    errorCount++;
-                    if (errorCount <= 3) {
-                        LOG.error("Error occurred " + errorCount + " times.. trying to continue the worker", t);
-                    } else {
-                        LOG.error("Error occurred " + errorCount + " times.. terminating the worker", t);
-                        run = false;
+
+                    // the whole batch goes to the broker in one request
+                    if (keyedMessages.size() == 1) {
+                        producer.send(keyedMessages.get(0));
+                    } else if (keyedMessages.size() > 1) {
+                        producer.send(keyedMessages);
+                    }
+                    if (brokerStats != null) {
+                        brokerStats.recordSend(System.nanoTime() - start, batch.getElements().size());
                     }
+                } finally {
+                    releaseBatch();
+                }
+                backoff.succeeded();
+                return AGAIN;
+            } catch (Throwable t) {
+                if (brokerStats != null) {
+                    brokerStats.recordError();
+                }
+                // the producer connects again to the brokers on the next send
+                long delay = backoff.failed();
+                LOG.error("Error occurred " + backoff.getErrors() + " times in a row.. trying again in "
+                        + delay + "ms", t);
+                return delay;
+            }
+        }
+
+        private void releaseBatch() {
+            for (Object input : batch.getElements()) {
+                if (input instanceof MessageContext) {
+                    ((MessageContext) input).release();
                 }
             }
+            batch.clear();
         }
     }
 }
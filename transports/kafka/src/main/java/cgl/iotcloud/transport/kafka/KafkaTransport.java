@@ -2,6 +2,8 @@ package cgl.iotcloud.transport.kafka;
 
 import cgl.iotcloud.core.msg.MessageContext;
 import cgl.iotcloud.core.transport.*;
+import cgl.iotcloud.core.utils.Codec;
+import cgl.iotcloud.core.utils.CodecRegistry;
 import cgl.iotcloud.transport.kafka.consumer.ConsumerConfig;
 import cgl.iotcloud.transport.kafka.consumer.KConsumer;
 import cgl.iotcloud.transport.kafka.consumer.ZkHosts;
@@ -27,6 +29,12 @@ public class KafkaTransport extends AbstractTransport {
     public static final String PROP_BUFFER_SIZE = "bufferSize";
     public static final String PROP_FETCH_SIZE = "fetchSize";
     public static final String PROP_POLLING_INTERVAL = "pollingInterval";
+    public static final String PROP_FETCH_MAX_WAIT = "fetchMaxWait";
+
+    /**
+     * A fetch holds one of the shared transport threads, keep the long poll short
+     */
+    public static final int DEFAULT_FETCH_MAX_WAIT = 100;
 
     public static final String PROP_SERIALIZER_CLASS = "serializerClass";
     public static final String PROP_PARTITION_CLASS = "partitionClass";
@@ -35,9 +43,15 @@ public class KafkaTransport extends AbstractTransport {
     public static final String TRANSPORT_BROKER_ZK = "broker.zk.servers";
     public static final String TRANSPORT_BROKER_PATH = "broker.zk.path";
     public static final String TRANSPORT_ZK_SERVERS = "trp.zk.servers";
+    // map from the use site, kafka.message or kafka.offsets, to the codec name
+    public static final String TRANSPORT_CODECS = "codecs";
 
     private Map<String, Integer> urls = new HashMap<String, Integer>();
 
+    private Codec messageCodec;
+
+    private Codec offsetCodec;
+
     @Override
     public void configureTransport() {
         for (BrokerHost o : brokerHosts) {
@@ -49,6 +63,12 @@ public class KafkaTransport extends AbstractTransport {
                 urls.put(tokens[0], KAFKA_DEFAULT_PORT);
             }
         }
+
+        CodecRegistry.register(new JsonCodec());
+        Object codecs = transportConfiguration.get(TRANSPORT_CODECS);
+        Map siteCodecs = codecs instanceof Map ? (Map) codecs : null;
+        messageCodec = CodecRegistry.getCodec(siteCodecs, CodecRegistry.KAFKA_MESSAGE, CodecRegistry.THRIFT_BINARY);
+        offsetCodec = CodecRegistry.getCodec(siteCodecs, CodecRegistry.KAFKA_OFFSETS, JsonCodec.NAME);
     }
 
     @Override
@@ -69,8 +89,10 @@ public class KafkaTransport extends AbstractTransport {
             }
         }
 
-        return new KafkaProducer(queue, prefix + "." +  topic, brokerList.toString(),
+        KafkaProducer producer = new KafkaProducer(queue, prefix + "." +  topic, brokerList.toString(),
                 serializerClass, partitionClass, requestRequiredAcks, siteId);
+        producer.setCodec(messageCodec);
+        return producer;
     }
 
     @Override
@@ -87,6 +109,15 @@ public class KafkaTransport extends AbstractTransport {
             }
             consumerConfig.zkServers = servers;
         }
-        return new KConsumer(siteId, queue, consumerConfig);
+        consumerConfig.fetchMaxWait = TransportUtils.getInt(channelConf, PROP_FETCH_MAX_WAIT, DEFAULT_FETCH_MAX_WAIT);
+        consumerConfig.messageCodec = messageCodec.getName();
+        consumerConfig.offsetCodec = offsetCodec.getName();
+        KConsumer consumer = new KConsumer(siteId, queue, consumerConfig);
+        return consumer;
+    }
+
+    @Override
+    protected String getLocalDestination(String prefix, Map channelConf) {
+        return prefix + "." + channelConf.get(PROP_TOPIC);
     }
 }
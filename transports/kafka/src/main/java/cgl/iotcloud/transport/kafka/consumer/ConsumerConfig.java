@@ -1,5 +1,8 @@
 package cgl.iotcloud.transport.kafka.consumer;
 
+import cgl.iotcloud.core.utils.CodecRegistry;
+import cgl.iotcloud.transport.kafka.JsonCodec;
+
 import java.io.Serializable;
 import java.util.List;
 
@@ -8,6 +11,9 @@ public class ConsumerConfig extends KafkaConfig implements Serializable {
     public String zkRoot = null;
     public String id = null;
     public long stateUpdateIntervalMs = 2000;
+    // names of the codecs of the messages and of the offsets kept in zookeeper
+    public String messageCodec = CodecRegistry.THRIFT_BINARY;
+    public String offsetCodec = JsonCodec.NAME;
 
     public ConsumerConfig(BrokerHosts hosts, String topic, String zkRoot, String id) {
         super(hosts, topic);
@@ -1,7 +1,11 @@
 package cgl.iotcloud.transport.kafka.consumer;
 
 import cgl.iotcloud.core.msg.MessageContext;
-import cgl.iotcloud.core.transport.Manageable;
+import cgl.iotcloud.core.transport.QuiescingManageable;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.ScheduledManageable;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import com.google.common.base.Joiner;
 import kafka.message.Message;
 import org.slf4j.Logger;
@@ -10,7 +14,7 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 
-public class KConsumer implements Manageable {
+public class KConsumer implements ScheduledManageable, QuiescingManageable {
     private static Logger LOG = LoggerFactory.getLogger(KConsumer.class);
 
     public static class MessageAndRealOffset {
@@ -30,7 +34,8 @@ public class KConsumer implements Manageable {
     }
 
     private BlockingQueue<MessageContext> messageContexts;
-    private boolean run = true;
+    private volatile boolean run = true;
+    private volatile boolean quiesced = false;
     private String _uuid = UUID.randomUUID().toString();
 
     ConsumerConfig _consumerConfig;
@@ -43,6 +48,12 @@ public class KConsumer implements Manageable {
 
     String _site;
 
+    private TransportScheduler scheduler;
+
+    private String group;
+
+    private TaskHandle handle;
+
     public KConsumer(String _site, BlockingQueue<MessageContext> messageContexts, ConsumerConfig consumerConfig) {
         this._site = _site;
         this._consumerConfig = consumerConfig;
@@ -54,7 +65,8 @@ public class KConsumer implements Manageable {
         _state.close();
     }
 
-    private void nextTuple() {
+    private boolean nextTuple() {
+        boolean emitted = false;
         List<PartitionManager> managers = _coordinator.getMyManagedPartitions();
         for (int i = 0; i < managers.size(); i++) {
             try {
@@ -65,6 +77,7 @@ public class KConsumer implements Manageable {
                     _currPartitionIndex = (_currPartitionIndex + 1) % managers.size();
                 }
                 if (state != EmitState.NO_EMITTED) {
+                    emitted = true;
                     break;
                 }
             } catch (FailedFetchException e) {
@@ -77,6 +90,7 @@ public class KConsumer implements Manageable {
         if ((now - _lastUpdateMs) > _consumerConfig.stateUpdateIntervalMs) {
             commit();
         }
+        return emitted;
     }
 
     private void deactivate() {
@@ -90,33 +104,68 @@ public class KConsumer implements Manageable {
         }
     }
 
-    public class Worker implements Runnable {
+    public class Worker implements IOTask {
         @Override
-        public void run() {
-            while (run) {
-                nextTuple();
+        public long step() {
+            if (!run) {
+                return DONE;
             }
+            if (quiesced) {
+                // stop fetching, the offsets are committed when the consumer stops after the queue drained
+                return WAIT;
+            }
+            return nextTuple() ? AGAIN : WAIT;
         }
     }
 
+    @Override
+    public void setScheduler(TransportScheduler scheduler, String group) {
+        this.scheduler = scheduler;
+        this.group = group;
+    }
+
     @Override
     public void start() {
+        if (handle != null) {
+            return;
+        }
         List<String> zkServers = _consumerConfig.zkServers;
         String servers = Joiner.on(",").join(zkServers);
         _state = new ZkState(servers, _consumerConfig.zkRoot);
         _connections = new DynamicPartitionConnections(_consumerConfig, KafkaUtils.makeBrokerReader(_consumerConfig));
 
         // using TransactionalState like this is a hack
-        _coordinator = new ZkCoordinator(_connections, _consumerConfig, _state, 0, 1, _uuid, _site);
+        ZkCoordinator coordinator = new ZkCoordinator(_connections, _consumerConfig, _state, 0, 1, _uuid, _site);
+        _coordinator = coordinator;
 
-        Thread t = new Thread(new Worker());
-        t.start();
+        if (scheduler == null) {
+            scheduler = TransportScheduler.getDefault();
+        }
+        // the fetches wait for the brokers, the consumer gets a thread of its own
+        handle = scheduler.submitBlocking(new Worker(), "kafka-consumer-" + _consumerConfig.topic, null);
+    }
+
+    @Override
+    public void quiesce() {
+        quiesced = true;
+    }
+
+    @Override
+    public boolean hasPending() {
+        return false;
     }
 
     @Override
     public void stop() {
-        deactivate();
         run = false;
+        if (handle != null) {
+            handle.wakeup();
+            // the connections are closed after the last fetch
+            if (!handle.awaitDone(TransportScheduler.STOP_TIMEOUT)) {
+                LOG.warn("The Kafka consumer of topic {} did not stop in time, closing it", _consumerConfig.topic);
+            }
+        }
+        deactivate();
         close();
     }
 }
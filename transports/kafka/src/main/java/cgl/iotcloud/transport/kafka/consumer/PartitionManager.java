@@ -2,16 +2,18 @@ package cgl.iotcloud.transport.kafka.consumer;
 
 import cgl.iotcloud.core.api.thrift.TSensorMessage;
 import cgl.iotcloud.core.msg.MessageContext;
-import cgl.iotcloud.core.utils.SerializationUtils;
-import com.google.common.collect.ImmutableMap;
+import cgl.iotcloud.core.msg.MessageProperties;
+import cgl.iotcloud.core.utils.Codec;
+import cgl.iotcloud.core.utils.CodecRegistry;
 import kafka.javaapi.consumer.SimpleConsumer;
 import kafka.javaapi.message.ByteBufferMessageSet;
 import kafka.message.MessageAndOffset;
-import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import cgl.iotcloud.transport.kafka.consumer.KConsumer.MessageAndRealOffset;
 import cgl.iotcloud.transport.kafka.consumer.KConsumer.EmitState;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 
@@ -33,6 +35,16 @@ public class PartitionManager {
 
     String _sensor;
 
+    /**
+     * Decodes the messages fetched from the broker
+     */
+    Codec _messageCodec;
+
+    /**
+     * Encodes the committed offsets written to zookeeper
+     */
+    Codec _offsetCodec;
+
     public PartitionManager(DynamicPartitionConnections connections, String topologyInstanceId,
                             ZkState state, ConsumerConfig consumerConfig, Partition id, String sensor) {
         _partition = id;
@@ -41,17 +53,20 @@ public class PartitionManager {
         _topologyInstanceId = topologyInstanceId;
         _consumer = connections.register(id.host, id.partition);
         _state = state;
+        _messageCodec = CodecRegistry.getCodec(consumerConfig.messageCodec);
+        _offsetCodec = CodecRegistry.getCodec(consumerConfig.offsetCodec);
         numberAcked = numberFailed = 0;
 
         String jsonTopologyId = null;
         Long jsonOffset = null;
         String path = committedPath();
         try {
-            Map<Object, Object> json = _state.readJSON(path);
+            byte[] bytes = _state.readBytes(path);
+            Map<Object, Object> json = bytes != null ? _offsetCodec.decode(bytes, 0, bytes.length, Map.class) : null;
             LOG.info("Read partition information from: " + path +  "  --> " + json );
             if (json != null) {
                 jsonTopologyId = (String) ((Map<Object, Object>) json.get("topology")).get("id");
-                jsonOffset = (Long) json.get("offset");
+                jsonOffset = ((Number) json.get("offset")).longValue();
             }
         } catch (Throwable e) {
             LOG.warn("Error reading and/or parsing at ZkNode: " + path, e);
@@ -84,6 +99,10 @@ public class PartitionManager {
 
     //returns false if it's reached the end of current batch
     public KConsumer.EmitState next(BlockingQueue<MessageContext> collector) {
+        // we are the only producer of the collector, checking the capacity keeps the put from blocking
+        if (collector.remainingCapacity() == 0) {
+            return EmitState.NO_EMITTED;
+        }
         if (_waitingToEmit.isEmpty()) {
             fill();
         }
@@ -93,17 +112,26 @@ public class PartitionManager {
         }
 
         try {
-            TSensorMessage message = new TSensorMessage();
-            byte []b = new byte[toEmit.msg.payload().remaining()];
-            toEmit.msg.payload().get(b);
-            SerializationUtils.createThriftFromBytes(b, message);
-
-            MessageContext messageContext = new MessageContext(message.getSensorId(), message.getBody());
+            TSensorMessage message;
+            ByteBuffer payload = toEmit.msg.payload();
+            if (payload.hasArray()) {
+                // decode in place, with the thrift codecs the body is a view of the fetched message set
+                message = _messageCodec.decode(payload.array(),
+                        payload.arrayOffset() + payload.position(), payload.remaining(), TSensorMessage.class);
+            } else {
+                byte []b = new byte[payload.remaining()];
+                payload.get(b);
+                message = _messageCodec.decode(b, 0, b.length, TSensorMessage.class);
+            }
+            MessageContext messageContext = message.isSetSensorKey()
+                    ? new MessageContext(message.getSensorKey(), message.bufferForBody(), null)
+                    : new MessageContext(message.getSensorId(), message.bufferForBody(), null);
             if (message.getProperties() != null) {
-                messageContext.getProperties().putAll(message.getProperties());
+                // the decoded thrift map is read in place, it is copied only if the properties change
+                messageContext.setProperties(MessageProperties.wrap(message.getProperties()));
             }
             collector.put(messageContext);
-        } catch (TException e) {
+        } catch (IOException e) {
             LOG.error("Failed to convert the bytes to Thrift object", e);
         } catch (InterruptedException ignored) {
         }
@@ -179,15 +207,26 @@ public class PartitionManager {
         long lastCompletedOffset = lastCompletedOffset();
         if (_committedTo != lastCompletedOffset) {
             LOG.debug("Writing last completed offset (" + lastCompletedOffset + ") to ZK for " + _partition + " for topology: " + _topologyInstanceId);
-            Map<Object, Object> data = (Map<Object, Object>) ImmutableMap.builder()
-                    .put("topology", ImmutableMap.of("id", _topologyInstanceId,
-                            "name", _sensor))
-                    .put("offset", lastCompletedOffset)
-                    .put("partition", _partition.partition)
-                    .put("broker", ImmutableMap.of("host", _partition.host.host,
-                            "port", _partition.host.port))
-                    .put("topic", _consumerConfig.topic).build();
-            _state.writeJSON(committedPath(), data);
+            // plain maps so every offset codec can write and read them
+            Map<Object, Object> topology = new HashMap<Object, Object>();
+            topology.put("id", _topologyInstanceId);
+            topology.put("name", _sensor);
+            Map<Object, Object> broker = new HashMap<Object, Object>();
+            broker.put("host", _partition.host.host);
+            broker.put("port", _partition.host.port);
+            Map<Object, Object> data = new HashMap<Object, Object>();
+            data.put("topology", topology);
+            data.put("offset", lastCompletedOffset);
+            data.put("partition", _partition.partition);
+            data.put("broker", broker);
+            data.put("topic", _consumerConfig.topic);
+            try {
+                _state.writeBytes(committedPath(), _offsetCodec.encode(data));
+            } catch (IOException e) {
+                String msg = "Failed to encode the offset of " + _partition;
+                LOG.error(msg, e);
+                throw new RuntimeException(msg, e);
+            }
 
             _committedTo = lastCompletedOffset;
             LOG.debug("Wrote last completed offset (" + lastCompletedOffset + ") to ZK for " + _partition + " for topology: " + _topologyInstanceId);
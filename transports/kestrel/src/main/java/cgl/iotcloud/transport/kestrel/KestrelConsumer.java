@@ -1,12 +1,15 @@
 package cgl.iotcloud.transport.kestrel;
 
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import net.lag.kestrel.thrift.Item;
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -25,7 +28,7 @@ public class KestrelConsumer {
 
     private BlockingQueue messages;
 
-    private boolean run = true;
+    private volatile boolean run = true;
 
     private int timeoutMillis = 30000;
 
@@ -33,6 +36,12 @@ public class KestrelConsumer {
 
     private long sleepTime = 0;
 
+    private TransportScheduler scheduler;
+
+    private String group;
+
+    private TaskHandle handle;
+
     public KestrelConsumer(Logger logger, KestrelDestination destination, BlockingQueue messages) {
         if (logger == null) {
             this.logger = LoggerFactory.getLogger(KestrelConsumer.class);
@@ -53,9 +62,25 @@ public class KestrelConsumer {
         this.blackListTime = blackListTime;
     }
 
+    /**
+     * Set the scheduler running the consumer, must be called before the consumer is opened
+     * @param scheduler the scheduler
+     * @param group group of the consumer
+     */
+    public void setScheduler(TransportScheduler scheduler, String group) {
+        this.scheduler = scheduler;
+        this.group = group;
+    }
+
     public void open() {
-        Thread t = new Thread(new Worker());
-        t.start();
+        if (handle != null) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = TransportScheduler.getDefault();
+        }
+        // the gets wait for the server, the consumer gets a thread of its own
+        handle = scheduler.submitBlocking(new Worker(), "kestrel-consumer-" + destination.getQueue(), null);
     }
 
     public void ack(KestrelMessage message) {
@@ -84,6 +109,13 @@ public class KestrelConsumer {
 
     public void close() {
         run = false;
+        if (handle != null) {
+            handle.wakeup();
+            // the client is closed after the last get
+            if (!handle.awaitDone(TransportScheduler.STOP_TIMEOUT)) {
+                logger.warn("The Kestrel consumer of queue {} did not stop in time, closing it", destination.getQueue());
+            }
+        }
         closeClient();
     }
 
@@ -97,48 +129,67 @@ public class KestrelConsumer {
     private void closeClient() {
         if (client != null) {
             client.close();
+            // a new client is created for the next get
+            client = null;
         }
     }
 
-    private class Worker implements Runnable {
+    private class Worker implements IOTask {
+        /**
+         * Messages read from the server which did not fit in to the queue
+         */
+        private LinkedList<KestrelMessage> pending = new LinkedList<KestrelMessage>();
+
+        @SuppressWarnings("unchecked")
         @Override
-        public void run() {
-            while (run) {
-                if (System.currentTimeMillis() > sleepTime) {
-                    String q = destination.getQueue();
-                    try {
-                        getValidClient();
-                    } catch (TException e) {
-                        closeClient();
-                        sleepTime = System.currentTimeMillis() + blackListTime;
-                        continue;
-                    }
+        public long step() {
+            if (!run) {
+                return DONE;
+            }
 
-                    List<Item> items;
-                    try {
-                        items = client.get(q, MAX_ITEMS, 0, 0);
-                        if (items != null) {
-                            for (Item item :items) {
-                                byte[] bytes = item.get_data();
-                                byte[] newBytes = Arrays.copyOf(bytes, bytes.length);
-                                KestrelMessage m = new KestrelMessage(newBytes, item.get_id(), destination, q);
-                                messages.put(m);
-                            }
-                        }
-                    } catch (TException e) {
-                        logger.debug("Error retrieving messages from queue {} and host {} port {}", q, destination.getHost(), destination.getPort());
-                        closeClient();
-                        sleepTime = System.currentTimeMillis() + blackListTime;
-                    } catch (InterruptedException e) {
-                        logger.error("Failed to add the message to the queue", e);
-                    }
-                } else {
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException ignored) {
+            // deliver what we already have before reading more
+            while (!pending.isEmpty()) {
+                if (!messages.offer(pending.getFirst())) {
+                    return WAIT_TIME;
+                }
+                pending.removeFirst();
+            }
+
+            long now = System.currentTimeMillis();
+            if (now <= sleepTime) {
+                // the server is black listed
+                return sleepTime - now + 1;
+            }
+
+            String q = destination.getQueue();
+            try {
+                getValidClient();
+            } catch (TException e) {
+                closeClient();
+                sleepTime = System.currentTimeMillis() + blackListTime;
+                return AGAIN;
+            }
+
+            List<Item> items;
+            try {
+                items = client.get(q, MAX_ITEMS, 0, 0);
+                if (items == null || items.isEmpty()) {
+                    return WAIT;
+                }
+                for (Item item :items) {
+                    // get_data returns an array owned by the item which is exactly the size of the data
+                    byte[] bytes = item.get_data();
+                    KestrelMessage m = new KestrelMessage(bytes, item.get_id(), destination, q);
+                    if (!pending.isEmpty() || !messages.offer(m)) {
+                        pending.add(m);
                     }
                 }
+            } catch (TException e) {
+                logger.debug("Error retrieving messages from queue {} and host {} port {}", q, destination.getHost(), destination.getPort());
+                closeClient();
+                sleepTime = System.currentTimeMillis() + blackListTime;
             }
+            return AGAIN;
         }
     }
 }
@@ -1,5 +1,9 @@
 package cgl.iotcloud.transport.kestrel;
 
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.RetryBackoff;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,13 +16,15 @@ import java.util.concurrent.BlockingQueue;
 public class KestrelProducer {
     private Logger LOG = LoggerFactory.getLogger(KestrelProducer.class);
 
+    public static final int MAX_ITEMS = 64;
+
     private BlockingQueue outQueue;
 
     private KestrelThriftClient client;
 
     private int expirationTime = 30000;
 
-    private boolean run = true;
+    private volatile boolean run = true;
 
     private KestrelDestination destination;
 
@@ -26,6 +32,12 @@ public class KestrelProducer {
 
     private long sleepTime = 0;
 
+    private TransportScheduler scheduler;
+
+    private String group;
+
+    private TaskHandle handle;
+
     public KestrelProducer(KestrelDestination destination, BlockingQueue outQueue) {
         this.destination = destination;
         this.outQueue = outQueue;
@@ -35,13 +47,37 @@ public class KestrelProducer {
         this.expirationTime = expirationTime;
     }
 
+    /**
+     * Set the scheduler running the producer, must be called before the producer is opened
+     * @param scheduler the scheduler
+     * @param group group of the producer
+     */
+    public void setScheduler(TransportScheduler scheduler, String group) {
+        this.scheduler = scheduler;
+        this.group = group;
+    }
+
     public void open() {
-        Thread t = new Thread(new Worker());
-        t.start();
+        if (handle != null) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = TransportScheduler.getDefault();
+        }
+        // the puts wait for the server, the producer gets a thread of its own
+        handle = scheduler.submitBlocking(new Worker(), "kestrel-producer-" + destination.getQueue(), outQueue);
     }
 
     public void close() {
         run = false;
+        if (handle != null) {
+            handle.wakeup();
+            // the client is closed after the last put
+            if (!handle.awaitDone(TransportScheduler.STOP_TIMEOUT)) {
+                LOG.warn("The Kestrel producer of queue {} did not stop in time, closing it", destination.getQueue());
+            }
+        }
+        closeClient();
     }
 
     private KestrelThriftClient getValidClient() throws TException {
@@ -54,6 +90,8 @@ public class KestrelProducer {
     private void closeClient() {
         if (client != null) {
             client.close();
+            // a new client is created for the next put
+            client = null;
         }
     }
 
@@ -61,74 +99,68 @@ public class KestrelProducer {
         this.blackListTime = blackListTime;
     }
 
-    private class Worker implements Runnable {
+    private class Worker implements IOTask {
+        private final RetryBackoff backoff = new RetryBackoff();
+
+        private List<Object> batch = new ArrayList<Object>();
+
         @Override
-        public void run() {
-            int errorCount = 0;
-            while (run) {
+        public long step() {
+            if (!run) {
+                return DONE;
+            }
+            long now = System.currentTimeMillis();
+            if (now <= sleepTime) {
+                // the server is black listed
+                return sleepTime - now + 1;
+            }
+            long retry = backoff.remaining();
+            if (retry > 0) {
+                return retry;
+            }
+
+            try {
                 try {
-                    if (System.currentTimeMillis() > sleepTime) {
-                        try {
-                            getValidClient();
-                        } catch (TException e) {
-                            closeClient();
-                            sleepTime = System.currentTimeMillis() + blackListTime;
-                            continue;
-                        }
-
-                        try {
-                            List<ByteBuffer> messages = new ArrayList<ByteBuffer>();
-                            // get the number of items in the outQUeue
-                            int size = outQueue.size();
-                            if (size > 0) {
-                                for (int i = 0; i < size; i++) {
-                                    Object input = outQueue.take();
-                                    if (input instanceof byte []) {
-                                        ByteBuffer byteBuffer = ByteBuffer.wrap((byte[]) input);
-                                        messages.add(byteBuffer);
-                                    } else {
-                                        throw new RuntimeException("Expepected byte array after conversion");
-                                    }
-                                }
-                            } else {
-                                Object input = outQueue.take();
-                                if (input instanceof byte []) {
-                                    ByteBuffer byteBuffer = ByteBuffer.wrap((byte[]) input);
-                                    messages.add(byteBuffer);
-                                } else {
-                                    throw new RuntimeException("Expepected byte array after conversion");
-                                }
-                            }
-                            if (messages.size() > 0) {
-                                try {
-                                    client.put(destination.getQueue(), messages, expirationTime);
-                                } catch (TException e) {
-                                    closeClient();
-                                    sleepTime = System.currentTimeMillis() + blackListTime;
-                                }
-                            }
-                        } catch (InterruptedException e) {
-                            LOG.error("Exception occurred in the worker listening for consumer changes", e);
-                        }
-                    } else {
-                        try {
-                            Thread.sleep(100);
-                        } catch (InterruptedException ignored) {
-                        }
+                    getValidClient();
+                } catch (TException e) {
+                    closeClient();
+                    sleepTime = System.currentTimeMillis() + blackListTime;
+                    return AGAIN;
+                }
+
+                // a batch the server did not take is sent again
+                if (batch.isEmpty()) {
+                    outQueue.drainTo(batch, MAX_ITEMS);
+                    if (batch.isEmpty()) {
+                        return WAIT;
                     }
-                } catch (Throwable t) {
-                    errorCount++;
-                    if (errorCount <= 3) {
-                        LOG.error("Error occurred " + errorCount + " times.. trying to continue the worker");
+                }
+
+                List<ByteBuffer> messages = new ArrayList<ByteBuffer>();
+                for (Object input : batch) {
+                    if (input instanceof byte []) {
+                        ByteBuffer byteBuffer = ByteBuffer.wrap((byte[]) input);
+                        messages.add(byteBuffer);
                     } else {
-                        LOG.error("Error occurred " + errorCount + " times.. terminating the worker");
-                        run = false;
+                        batch.clear();
+                        throw new RuntimeException("Expepected byte array after conversion");
                     }
                 }
+                try {
+                    client.put(destination.getQueue(), messages, expirationTime);
+                    batch.clear();
+                    backoff.succeeded();
+                } catch (TException e) {
+                    closeClient();
+                    sleepTime = System.currentTimeMillis() + blackListTime;
+                }
+                return AGAIN;
+            } catch (Throwable t) {
+                long delay = backoff.failed();
+                LOG.error("Error occurred " + backoff.getErrors() + " times in a row.. trying again in "
+                        + delay + "ms", t);
+                return delay;
             }
-            String message = "Unexpected notification type";
-            LOG.error(message);
-            throw new RuntimeException(message);
         }
     }
 }
@@ -5,13 +5,15 @@ import cgl.iotcloud.core.transport.Channel;
 import cgl.iotcloud.core.transport.ChannelName;
 import cgl.iotcloud.core.transport.Direction;
 import cgl.iotcloud.core.transport.Transport;
+import cgl.iotcloud.core.transport.scheduler.SchedulerAware;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class KestrelTransport implements Transport {
+public class KestrelTransport implements Transport, SchedulerAware {
     private static final Integer KESTREL_DEFAULT_PORT = 1235;
     private static Logger LOG = LoggerFactory.getLogger(KestrelTransport.class);
 
@@ -37,6 +39,13 @@ public class KestrelTransport implements Transport {
 
     private String siteId;
 
+    private TransportScheduler scheduler;
+
+    @Override
+    public void setScheduler(TransportScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
     @Override
     public void configure(String siteId, Map properties) {
         this.siteId = siteId;
@@ -106,6 +115,7 @@ public class KestrelTransport implements Transport {
                 long expirationTime = Long.parseLong(expirationProp);
                 sender.setBlackListTime(expirationTime);
             }
+            sender.setScheduler(scheduler, siteId + "." + queueName);
             sender.open();
             senders.put(name, sender);
         } else if (channel.getDirection() == Direction.IN) {
@@ -118,6 +128,7 @@ public class KestrelTransport implements Transport {
                 int timOut = Integer.parseInt(timeOutProp);
                 listener.setTimeoutMillis(timOut);
             }
+            listener.setScheduler(scheduler, siteId + "." + queueName);
             listener.open();
             receivers.put(name, listener);
         }
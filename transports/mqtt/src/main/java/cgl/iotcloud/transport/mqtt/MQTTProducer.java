@@ -1,5 +1,11 @@
 package cgl.iotcloud.transport.mqtt;
 
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.RetryBackoff;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
+import org.fusesource.hawtbuf.Buffer;
+import org.fusesource.hawtbuf.UTF8Buffer;
 import org.fusesource.mqtt.client.*;
 import org.fusesource.mqtt.codec.MQTTFrame;
 import org.slf4j.Logger;
@@ -11,7 +17,16 @@ import java.util.concurrent.BlockingQueue;
 public class MQTTProducer {
     private static Logger LOG = LoggerFactory.getLogger(MQTTProducer.class);
 
-    private CallbackConnection connection;
+    public static final int MAX_MESSAGES_PER_STEP = 64;
+
+    /**
+     * Time to wait before checking the connection again
+     */
+    public static final long NOT_CONNECTED_WAIT = 100;
+
+    private MQTT mqtt;
+
+    private volatile CallbackConnection connection;
 
     private String url;
 
@@ -25,7 +40,13 @@ public class MQTTProducer {
 
     private QoS qoS;
 
-    private boolean run = true;
+    private volatile boolean run = true;
+
+    private TransportScheduler scheduler;
+
+    private String group;
+
+    private TaskHandle handle;
 
     public MQTTProducer(String url, int port, BlockingQueue messages, String queueName) {
         this(url, port, messages, queueName, QoS.AT_MOST_ONCE);
@@ -45,15 +66,29 @@ public class MQTTProducer {
 
     private enum State {
         INIT,
+        CONNECTING,
         CONNECTED,
         TOPIC_CONNECTED,
         DISCONNECTED,
     }
 
-    private State state = State.INIT;
+    private volatile State state = State.INIT;
+
+    /**
+     * Set the scheduler running the producer, must be called before the producer is opened
+     * @param scheduler the scheduler
+     * @param group group of the producer
+     */
+    public void setScheduler(TransportScheduler scheduler, String group) {
+        this.scheduler = scheduler;
+        this.group = group;
+    }
 
     public void open() {
-        MQTT mqtt = new MQTT();
+        if (handle != null) {
+            return;
+        }
+        mqtt = new MQTT();
 
         try {
             if (port != -1) {
@@ -86,17 +121,52 @@ public class MQTTProducer {
             });
         }
 
-        connection = mqtt.callbackConnection();
+        connect();
+
+        if (scheduler == null) {
+            scheduler = TransportScheduler.getDefault();
+        }
+        handle = scheduler.submit(group, new Worker(), "mqtt-producer-" + queueName, messages);
+    }
+
+    /**
+     * Open a new connection, a failed connection is opened again by the worker
+     */
+    private void connect() {
+        state = State.CONNECTING;
+        final CallbackConnection c = mqtt.callbackConnection();
+        c.listener(new Listener() {
+            public void onConnected() {
+                state = State.CONNECTED;
+            }
+
+            public void onDisconnected() {
+                // the client connects again by itself
+                if (state == State.CONNECTED) {
+                    state = State.CONNECTING;
+                }
+            }
+
+            public void onPublish(UTF8Buffer topic, Buffer payload, Runnable onComplete) {
+                onComplete.run();
+            }
 
-        connection.getDispatchQueue().execute(new Runnable() {
+            public void onFailure(Throwable value) {
+                LOG.warn("Connection failure: {}", value);
+                if (run) {
+                    state = State.INIT;
+                }
+            }
+        });
+        connection = c;
+
+        c.getDispatchQueue().execute(new Runnable() {
             @Override
             public void run() {
-                connection.connect(new Callback<Void>() {
+                c.connect(new Callback<Void>() {
                     public void onFailure(Throwable value) {
                         state = State.INIT;
-                        String s = "Failed to connect to the broker";
-                        LOG.error(s, value);
-                        throw new RuntimeException(s, value);
+                        LOG.error("Failed to connect to the broker", value);
                     }
 
                     // Once we connect..
@@ -107,13 +177,13 @@ public class MQTTProducer {
                 });
             }
         });
-
-        Thread workerThread = new Thread(new Worker());
-        workerThread.start();
     }
 
     public void close() {
         run = false;
+        if (handle != null) {
+            handle.cancel();
+        }
         if (connection != null && (state == State.CONNECTED || state == State.TOPIC_CONNECTED)) {
             // To disconnect..
             connection.getDispatchQueue().execute(new Runnable() {
@@ -135,44 +205,56 @@ public class MQTTProducer {
         }
     }
 
-    private class Worker implements Runnable {
+    private class Worker implements IOTask {
+        private final RetryBackoff backoff = new RetryBackoff();
+
         @Override
-        public void run() {
-            int errorCount = 0;
-            while (run) {
-                try {
-                    if (state == State.CONNECTED) {
-                        try {
-                            final Object input = messages.take();
-                            connection.getDispatchQueue().execute(new Runnable() {
-                                @Override
-                                public void run() {
-                                    if (input instanceof byte []) {
-                                        connection.publish(queueName, (byte []) input, qoS, false, null);
-                                    } else {
-                                        throw new RuntimeException("Expepected byte array after conversion");
-                                    }
-                                }
-                            });
-                        } catch (InterruptedException e) {
-                            LOG.error("Exception occurred in the worker listening for consumer changes", e);
+        public long step() {
+            if (!run) {
+                return DONE;
+            }
+            long retry = backoff.remaining();
+            if (retry > 0) {
+                return retry;
+            }
+            try {
+                if (state == State.INIT) {
+                    // the last connection failed, the delay grows until a connection succeeds
+                    long delay = backoff.failed();
+                    LOG.info("Connecting again to the MQTT broker {} after {} failures, next try in {}ms",
+                            url, backoff.getErrors(), delay);
+                    connect();
+                    return NOT_CONNECTED_WAIT;
+                }
+                if (state != State.CONNECTED) {
+                    return NOT_CONNECTED_WAIT;
+                }
+                backoff.succeeded();
+
+                int count = 0;
+                Object input;
+                final CallbackConnection c = connection;
+                while (count < MAX_MESSAGES_PER_STEP && (input = messages.poll()) != null) {
+                    count++;
+                    final Object message = input;
+                    c.getDispatchQueue().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (message instanceof byte []) {
+                                c.publish(queueName, (byte []) message, qoS, false, null);
+                            } else {
+                                throw new RuntimeException("Expepected byte array after conversion");
+                            }
                         }
-                    } else {
-                        Thread.sleep(100);
-                    }
-                } catch (Throwable t) {
-                    errorCount++;
-                    if (errorCount <= 3) {
-                        LOG.error("Error occurred " + errorCount + " times.. trying to continue the worker", t);
-                    } else {
-                        LOG.error("Error occurred " + errorCount + " times.. terminating the worker", t);
-                        run = false;
-                    }
+                    });
                 }
+                return count > 0 ? AGAIN : WAIT;
+            } catch (Throwable t) {
+                long delay = backoff.failed();
+                LOG.error("Error occurred " + backoff.getErrors() + " times in a row.. trying again in "
+                        + delay + "ms", t);
+                return delay;
             }
-            String message = "Unexpected notification type";
-            LOG.error(message);
-            throw new RuntimeException(message);
         }
     }
 
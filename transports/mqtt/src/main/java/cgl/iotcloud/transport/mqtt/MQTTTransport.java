@@ -5,6 +5,8 @@ import cgl.iotcloud.core.transport.Channel;
 import cgl.iotcloud.core.transport.ChannelName;
 import cgl.iotcloud.core.transport.Direction;
 import cgl.iotcloud.core.transport.Transport;
+import cgl.iotcloud.core.transport.scheduler.SchedulerAware;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import org.fusesource.mqtt.client.QoS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,7 +14,7 @@ import org.slf4j.LoggerFactory;
 import java.util.HashMap;
 import java.util.Map;
 
-public class MQTTTransport implements Transport {
+public class MQTTTransport implements Transport, SchedulerAware {
     private static Logger LOG = LoggerFactory.getLogger(MQTTTransport.class);
 
     public static final String URL_PROPERTY = "url";
@@ -33,6 +35,13 @@ public class MQTTTransport implements Transport {
 
     private String siteId;
 
+    private TransportScheduler scheduler;
+
+    @Override
+    public void setScheduler(TransportScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
     @Override
     public void configure(String siteId, Map properties) {
         this.siteId = siteId;
@@ -84,6 +93,7 @@ public class MQTTTransport implements Transport {
         if (channel.getDirection() == Direction.OUT) {
             MQTTProducer sender = new MQTTProducer(host, port, channel.getOutQueue(), siteId + "." + queueName, qoS);
             senders.put(name, sender);
+            sender.setScheduler(scheduler, siteId + "." + queueName);
             sender.open();
         } else if (channel.getDirection() == Direction.IN) {
             MQTTConsumer listener = new MQTTConsumer(host, port, channel.getInQueue(), siteId + "." + queueName, qoS);
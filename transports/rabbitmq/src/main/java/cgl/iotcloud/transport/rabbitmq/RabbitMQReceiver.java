@@ -1,21 +1,23 @@
 package cgl.iotcloud.transport.rabbitmq;
 
 import cgl.iotcloud.core.msg.MessageContext;
-import cgl.iotcloud.core.transport.Manageable;
+import cgl.iotcloud.core.msg.MessageProperties;
+import cgl.iotcloud.core.transport.QuiescingManageable;
 import cgl.iotcloud.core.transport.TransportConstants;
 import com.rabbitmq.client.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 
-public class RabbitMQReceiver implements Manageable {
+public class RabbitMQReceiver implements QuiescingManageable {
     private static Logger LOG = LoggerFactory.getLogger(RabbitMQReceiver.class);
 
+    private static final String CONSUMER_TAG = "myConsumerTag";
+
     private Channel channel;
 
     private Connection conn;
@@ -66,7 +68,7 @@ public class RabbitMQReceiver implements Manageable {
             }
 
             boolean autoAck = false;
-            channel.basicConsume(queueName, false, "myConsumerTag",
+            channel.basicConsume(queueName, false, CONSUMER_TAG,
                     new DefaultConsumer(channel) {
                         @Override
                         public void handleDelivery(String consumerTag,
@@ -78,14 +80,23 @@ public class RabbitMQReceiver implements Manageable {
                             // RabbitMQMessage message = new RabbitMQMessage(properties, body);
                             // get the sensor id from the properties
                             Object sensorId = null;
-                            Map<String, Object> props = new HashMap<String, Object>();
+                            Object sensorKey = null;
+                            MessageProperties props = null;
                             if (properties != null && properties.getHeaders() != null) {
                                 sensorId = properties.getHeaders().get(TransportConstants.SENSOR_ID);
-                                for (Map.Entry<String, Object> e : properties.getHeaders().entrySet()) {
-                                    props.put(e.getKey(), e.getValue().toString());
-                                }
+                                sensorKey = properties.getHeaders().get(TransportConstants.SENSOR_KEY);
+                                // the headers are converted when they are read
+                                props = MessageProperties.wrap(new AMQPHeaders(properties.getHeaders()));
                             }
-                            if (sensorId == null) {
+                            if (sensorKey instanceof Number) {
+                                // messages from the sensor sites carry the numeric id
+                                MessageContext message = new MessageContext(((Number) sensorKey).longValue(), body, props);
+                                try {
+                                    inQueue.put(message);
+                                } catch (InterruptedException e) {
+                                    LOG.error("Failed to put the object to the queue");
+                                }
+                            } else if (sensorId == null) {
                                 MessageContext message = new MessageContext("default", body, props);
                                 try {
                                     inQueue.put(message);
@@ -114,6 +125,21 @@ public class RabbitMQReceiver implements Manageable {
         }
     }
 
+    @Override
+    public void quiesce() {
+        try {
+            // the messages not delivered yet stay in the broker queue
+            channel.basicCancel(CONSUMER_TAG);
+        } catch (IOException e) {
+            LOG.error("Error cancelling the rabbit MQ consumer", e);
+        }
+    }
+
+    @Override
+    public boolean hasPending() {
+        return false;
+    }
+
     public void stop() {
         try {
             channel.queueDelete(queueName, true, false);
@@ -136,4 +162,39 @@ public class RabbitMQReceiver implements Manageable {
     public void setExchangeName(String exchangeName) {
         this.exchangeName = exchangeName;
     }
+
+    /**
+     * The headers of a delivery, the AMQP string types are converted to strings
+     */
+    private static class AMQPHeaders implements MessageProperties.Source {
+        private final Map<String, Object> headers;
+
+        AMQPHeaders(Map<String, Object> headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        public Object get(String name) {
+            return convert(headers.get(name));
+        }
+
+        @Override
+        public int size() {
+            return headers.size();
+        }
+
+        @Override
+        public void copyTo(MessageProperties properties) {
+            for (Map.Entry<String, Object> e : headers.entrySet()) {
+                properties.put(e.getKey(), convert(e.getValue()));
+            }
+        }
+
+        private static Object convert(Object value) {
+            if (value == null || value instanceof Number || value instanceof Boolean) {
+                return value;
+            }
+            return value.toString();
+        }
+    }
 }
@@ -1,8 +1,18 @@
 package cgl.iotcloud.transport.rabbitmq;
 
 import cgl.iotcloud.core.msg.MessageContext;
-import cgl.iotcloud.core.transport.Manageable;
+import cgl.iotcloud.core.transport.BatchBuffer;
+import cgl.iotcloud.core.transport.BatchSender;
+import cgl.iotcloud.core.transport.BrokerStats;
+import cgl.iotcloud.core.transport.BrokerStatsAware;
+import cgl.iotcloud.core.transport.LatencyStamps;
+import cgl.iotcloud.core.transport.QuiescingManageable;
 import cgl.iotcloud.core.transport.TransportConstants;
+import cgl.iotcloud.core.transport.scheduler.IOTask;
+import cgl.iotcloud.core.transport.scheduler.RetryBackoff;
+import cgl.iotcloud.core.transport.scheduler.ScheduledManageable;
+import cgl.iotcloud.core.transport.scheduler.TaskHandle;
+import cgl.iotcloud.core.transport.scheduler.TransportScheduler;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
@@ -16,7 +26,7 @@ import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 
-public class RabbitMQSender implements Manageable {
+public class RabbitMQSender implements BatchSender, ScheduledManageable, BrokerStatsAware, QuiescingManageable {
     private static Logger LOG = LoggerFactory.getLogger(RabbitMQSender.class);
 
     private Channel channel;
@@ -35,6 +45,25 @@ public class RabbitMQSender implements Manageable {
 
     private ExecutorService executorService;
 
+    private volatile int maxBatchSize = 1;
+
+    private volatile long maxBatchWait = 0;
+
+    private TransportScheduler scheduler;
+
+    private String group;
+
+    private TaskHandle handle;
+
+    private volatile BrokerStats brokerStats;
+
+    private volatile boolean run = false;
+
+    /**
+     * Number of messages taken from the queue and not sent yet
+     */
+    private volatile int held = 0;
+
     public RabbitMQSender(BlockingQueue<MessageContext> outQueue,
                           String exchangeName,
                           String routingKey,
@@ -51,7 +80,31 @@ public class RabbitMQSender implements Manageable {
         this.executorService = executorService;
     }
 
+    @Override
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void setMaxBatchWait(long maxBatchWait) {
+        this.maxBatchWait = maxBatchWait;
+    }
+
+    @Override
+    public void setBrokerStats(BrokerStats brokerStats) {
+        this.brokerStats = brokerStats;
+    }
+
+    @Override
+    public void setScheduler(TransportScheduler scheduler, String group) {
+        this.scheduler = scheduler;
+        this.group = group;
+    }
+
     public void start() {
+        if (handle != null) {
+            return;
+        }
         ConnectionFactory factory = new ConnectionFactory();
         factory.setAutomaticRecoveryEnabled(true);
         factory.setNetworkRecoveryInterval(5000);
@@ -68,8 +121,13 @@ public class RabbitMQSender implements Manageable {
             channel.queueDeclare(this.queueName, false, false, false, null);
             channel.queueBind(queueName, exchangeName, routingKey);
 
-            Thread t = new Thread(new Worker());
-            t.start();
+            // run the sender on the shared transport threads
+            run = true;
+            if (scheduler == null) {
+                scheduler = TransportScheduler.getDefault();
+            }
+            // the publishes block when the broker applies flow control, the sender gets a thread of its own
+            handle = scheduler.submitBlocking(new Worker(), "rabbitmq-sender-" + queueName, outQueue);
         } catch (IOException e) {
             String msg = "Error creating the RabbitMQ channel";
             LOG.error(msg, e);
@@ -81,7 +139,25 @@ public class RabbitMQSender implements Manageable {
         }
     }
 
+    @Override
+    public void quiesce() {
+        // the sender keeps sending until the queue is empty
+    }
+
+    @Override
+    public boolean hasPending() {
+        return held > 0;
+    }
+
     public void stop() {
+        run = false;
+        if (handle != null) {
+            handle.wakeup();
+            // the channel is closed after the last publish
+            if (!handle.awaitDone(TransportScheduler.STOP_TIMEOUT)) {
+                LOG.warn("The RabbitMQ sender of queue {} did not stop in time, closing its channel", queueName);
+            }
+        }
         try {
             channel.queueDelete(queueName, true, false);
             channel.close();
@@ -91,40 +167,74 @@ public class RabbitMQSender implements Manageable {
         }
     }
 
-    private class Worker implements Runnable {
+    private class Worker implements IOTask {
+        private final RetryBackoff backoff = new RetryBackoff();
+
+        private BatchBuffer<MessageContext> batch = new BatchBuffer<MessageContext>();
+
         @Override
-        public void run() {
-            boolean run = true;
-            int errorCount = 0;
-            while (run) {
-                try {
-                    try {
-                        MessageContext input = outQueue.take();
+        public long step() {
+            if (!run) {
+                releaseBatch();
+                return DONE;
+            }
+            long retry = backoff.remaining();
+            if (retry > 0) {
+                return retry;
+            }
 
-                        Map<String, Object> props = new HashMap<String, Object>();
+            try {
+                long ready = batch.fill(outQueue, maxBatchSize, maxBatchWait);
+                held = batch.getElements().size();
+                if (ready == BatchBuffer.EMPTY) {
+                    return WAIT;
+                } else if (ready > 0) {
+                    // wait for the batch to fill up, new messages wake us up earlier
+                    return ready;
+                }
 
-                        for (Map.Entry<String, Object> e : input.getProperties().entrySet()) {
-                            props.put(e.getKey(), e.getValue());
+                long start = System.nanoTime();
+                try {
+                    // publishes are pipelined on the channel, the batch saves the queue hand over per message
+                    for (MessageContext input : batch.getElements()) {
+                        LatencyStamps.stampSent(input);
+                        Map<String, Object> props = input.hasProperties()
+                                ? new HashMap<String, Object>(input.getProperties()) : new HashMap<String, Object>(4);
+                        // the numeric id replaces the string id, the receivers resolve it through the channels in ZK
+                        if (input.getSensorKey() != MessageContext.NO_SENSOR_KEY) {
+                            props.put(TransportConstants.SENSOR_KEY, input.getSensorKey());
+                        } else {
+                            props.put(TransportConstants.SENSOR_ID, input.getSensorId());
                         }
-                        props.put(TransportConstants.SENSOR_ID, input.getSensorId());
                         channel.basicPublish(exchangeName, routingKey,
                                 new AMQP.BasicProperties.Builder().headers(props).build(), input.getBody());
-                    } catch (InterruptedException e) {
-                        LOG.error("Exception occurred in the worker listening for consumer changes", e);
                     }
-                } catch (Throwable t) {
-                    errorCount++;
-                    if (errorCount <= 3) {
-                        LOG.error("Error occurred " + errorCount + " times.. trying to continue the worker", t);
-                    } else {
-                        LOG.error("Error occurred " + errorCount + " times.. terminating the worker", t);
-                        run = false;
+                    if (brokerStats != null) {
+                        brokerStats.recordSend(System.nanoTime() - start, batch.getElements().size());
                     }
+                } finally {
+                    releaseBatch();
                 }
+                backoff.succeeded();
+                return AGAIN;
+            } catch (Throwable t) {
+                if (brokerStats != null) {
+                    brokerStats.recordError();
+                }
+                // the connection recovers by itself, the sender tries again after the delay
+                long delay = backoff.failed();
+                LOG.error("Error occurred " + backoff.getErrors() + " times in a row.. trying again in "
+                        + delay + "ms", t);
+                return delay;
+            }
+        }
+
+        private void releaseBatch() {
+            for (MessageContext input : batch.getElements()) {
+                input.release();
             }
-            String message = "Unexpected notification type";
-            LOG.error(message);
-            throw new RuntimeException(message);
+            batch.clear();
+            held = 0;
         }
     }
 }
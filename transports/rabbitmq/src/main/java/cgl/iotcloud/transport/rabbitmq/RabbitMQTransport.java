@@ -52,4 +52,10 @@ public class RabbitMQTransport extends AbstractTransport {
 
         return listener;
     }
+
+    @Override
+    protected String getLocalDestination(String prefix, Map channelConf) {
+        // the messages are routed by the exchange and the routing key
+        return channelConf.get(EXCHANGE_NAME_PROPERTY) + ":" + prefix + "." + channelConf.get(ROUTING_KEY_PROPERTY);
+    }
 }